@@ -44,4 +44,6 @@ public @interface CommandDefinition {
     Class<? extends CommandValidator> validator() default NullCommandValidator.class;
 
     Class<? extends ResultHandler> resultHandler() default NullResultHandler.class;
+
+    CommandScope scope() default CommandScope.SINGLETON;
 }
@@ -26,6 +26,7 @@ import org.jboss.aesh.cl.parser.CommandLineParser;
 import org.jboss.aesh.console.command.Command;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +36,9 @@ import java.util.Map;
  * in a {@link org.jboss.aesh.cl.parser.AeshCommandLineParser}.
  *
  * All found options and argument can be queried after.
+ * The options are the ones of the parser that created it, a CommandLine
+ * belong to one invocation of the command and is not changed after parse
+ * returns.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
@@ -84,7 +88,7 @@ public class CommandLine<T extends Command> {
     }
 
     public List<ProcessedOption> getOptions() {
-        return options;
+        return Collections.unmodifiableList(options);
     }
 
     public void addArgumentValue(String arg) {
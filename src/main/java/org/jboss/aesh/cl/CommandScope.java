@@ -0,0 +1,41 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl;
+
+/**
+ * How the command instance is shared between invocations of a command.
+ * Every invocation get its own copy of the parsed options, only the
+ * command instance can be shared.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public enum CommandScope {
+    /**
+     * All invocations populate and execute the same command instance,
+     * the command must not be run by two invocations at the same time.
+     */
+    SINGLETON,
+    /**
+     * Every invocation get a new command instance, created with the
+     * default constructor of the command, so the command can be run by
+     * several sessions at the same time.
+     */
+    PROTOTYPE
+}
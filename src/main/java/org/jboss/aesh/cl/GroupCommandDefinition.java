@@ -46,6 +46,8 @@ public @interface GroupCommandDefinition {
 
     Class<? extends ResultHandler> resultHandler() default NullResultHandler.class;
 
+    CommandScope scope() default CommandScope.SINGLETON;
+
     Class<? extends Command>[] groupCommands() default {};
 
 }
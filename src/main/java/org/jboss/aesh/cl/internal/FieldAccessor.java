@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The field of a command an option is injected into, looked up once and
+ * then set through a method handle, so populating a command do not need
+ * any reflection lookups.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class FieldAccessor {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+
+    //the values a field get when it is reset, created once so resetting
+    //a primitive field do not box
+    private static final Object BOOLEAN_RESET = Boolean.FALSE;
+    private static final Object INT_RESET = 0;
+    private static final Object SHORT_RESET = (short) 0;
+    private static final Object CHAR_RESET = '\u0000';
+    private static final Object BYTE_RESET = (byte) 0;
+    private static final Object LONG_RESET = 0L;
+    private static final Object FLOAT_RESET = 0.0f;
+    private static final Object DOUBLE_RESET = 0.0d;
+
+    private final Class<?> owner;
+    private final Class<?> type;
+    private final MethodHandle setter;
+    //creates the collection or map of a field with a concrete type, or null
+    private final MethodHandle factory;
+    private final Object primitiveReset;
+
+    private FieldAccessor(Class<?> owner, Class<?> type, MethodHandle setter, MethodHandle factory) {
+        this.owner = owner;
+        this.type = type;
+        this.setter = setter;
+        this.factory = factory;
+        this.primitiveReset = primitiveReset(type);
+    }
+
+    static FieldAccessor create(Class<?> owner, String fieldName) throws NoSuchFieldException, IllegalAccessException {
+        Field field = owner.getDeclaredField(fieldName);
+        if(!Modifier.isPublic(field.getModifiers()))
+            field.setAccessible(true);
+        if(!Modifier.isPublic(owner.getModifiers())) {
+            try {
+                owner.getDeclaredConstructor().setAccessible(true);
+            }
+            //not needed to set the field
+            catch (NoSuchMethodException ignored) {
+            }
+        }
+
+        MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+        if(Modifier.isStatic(field.getModifiers()))
+            setter = MethodHandles.dropArguments(setter, 0, Object.class);
+
+        return new FieldAccessor(owner, field.getType(), setter.asType(SETTER_TYPE), findFactory(field.getType()));
+    }
+
+    private static MethodHandle findFactory(Class<?> type) {
+        if(type.isInterface() || Modifier.isAbstract(type.getModifiers()) ||
+                !(Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)))
+            return null;
+        try {
+            return MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class))
+                    .asType(FACTORY_TYPE);
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Object primitiveReset(Class<?> type) {
+        if(type == boolean.class)
+            return BOOLEAN_RESET;
+        else if(type == int.class)
+            return INT_RESET;
+        else if(type == short.class)
+            return SHORT_RESET;
+        else if(type == char.class)
+            return CHAR_RESET;
+        else if(type == byte.class)
+            return BYTE_RESET;
+        else if(type == long.class)
+            return LONG_RESET;
+        else if(type == float.class)
+            return FLOAT_RESET;
+        else if(type == double.class)
+            return DOUBLE_RESET;
+        else
+            return null;
+    }
+
+    Class<?> getOwner() {
+        return owner;
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value cannot be assigned to the field, same as Field.set
+     */
+    void set(Object instance, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        }
+        catch (ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Can not set " + type.getName() + " field " +
+                    owner.getName() + " to " + (value == null ? "null" : value.getClass().getName()), e);
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Set primitives to their default value, a Boolean to false if the
+     * option do not take a value and everything else to null.
+     */
+    void reset(Object instance, boolean hasValue) {
+        if(primitiveReset != null)
+            set(instance, primitiveReset);
+        else if(!hasValue && type == Boolean.class)
+            set(instance, Boolean.FALSE);
+        else
+            set(instance, null);
+    }
+
+    /**
+     * @return a new instance of the field type
+     * @throws InstantiationException if the type do not have a public default constructor
+     */
+    Object newInstance() throws InstantiationException {
+        if(factory == null)
+            throw new InstantiationException(type.getName());
+        try {
+            return factory.invokeExact();
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable t) {
+            InstantiationException exception = new InstantiationException(type.getName());
+            exception.initCause(t);
+            throw exception;
+        }
+    }
+}
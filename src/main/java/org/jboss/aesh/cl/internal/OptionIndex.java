@@ -0,0 +1,245 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the short and long names of the options in a ProcessedCommand,
+ * so an option is found without looking at every option of the command.
+ * Short names are kept in a table indexed by the char, long names in a trie
+ * so the names starting with, or being the start of, a word are found by
+ * walking the word once.
+ * Lookups return the options in the order they were added, the same order
+ * a scan of the option list would find them.
+ * The tables only hold the position of the options, so a copy of a command
+ * share them with the command it was copied from until an option is added.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class OptionIndex {
+
+    private static final int TABLE_SIZE = 128;
+
+    private final List<ProcessedOption> options;
+    //the ids of the options with the short name, null if none
+    private Node[] shortNames;
+    private Map<Character, Node> otherShortNames;
+    private Node longNames;
+    private boolean shared;
+
+    OptionIndex() {
+        options = new ArrayList<>();
+        shortNames = new Node[TABLE_SIZE];
+        otherShortNames = new HashMap<>();
+        longNames = new Node();
+    }
+
+    /**
+     * @param options copies of the options in index, in the same order
+     */
+    private OptionIndex(OptionIndex index, List<ProcessedOption> options) {
+        this.options = new ArrayList<>(options);
+        shortNames = index.shortNames;
+        otherShortNames = index.otherShortNames;
+        longNames = index.longNames;
+        shared = true;
+        index.shared = true;
+    }
+
+    OptionIndex copy(List<ProcessedOption> options) {
+        return new OptionIndex(this, options);
+    }
+
+    void add(ProcessedOption option) {
+        if(shared)
+            unshare();
+        addToTables(options.size(), option);
+        options.add(option);
+    }
+
+    private void unshare() {
+        shortNames = new Node[TABLE_SIZE];
+        otherShortNames = new HashMap<>();
+        longNames = new Node();
+        shared = false;
+        for(int i = 0; i < options.size(); i++)
+            addToTables(i, options.get(i));
+    }
+
+    private void addToTables(int id, ProcessedOption option) {
+        if(option.getShortName() != null) {
+            char shortName = option.getShortName().charAt(0);
+            //names are only unique among the activated options
+            Node node = shortNameNode(shortName);
+            if(node == null) {
+                node = new Node();
+                if(shortName < TABLE_SIZE)
+                    shortNames[shortName] = node;
+                else
+                    otherShortNames.put(shortName, node);
+            }
+            node.addId(id);
+        }
+        if(option.getName() != null) {
+            Node node = longNames;
+            for(int i = 0; i < option.getName().length(); i++)
+                node = node.childOrCreate(option.getName().charAt(i));
+            node.addId(id);
+        }
+    }
+
+    /**
+     * @return the options with the given short name
+     */
+    List<ProcessedOption> findShortName(char shortName) {
+        Node node = shortNameNode(shortName);
+        if(node == null)
+            return new ArrayList<>(0);
+        return toOptions(node.ids, node.idCount);
+    }
+
+    private Node shortNameNode(char shortName) {
+        if(shortName < TABLE_SIZE)
+            return shortNames[shortName];
+        else
+            return otherShortNames.get(shortName);
+    }
+
+    /**
+     * @return the options with the given long name
+     */
+    List<ProcessedOption> findLongName(String name) {
+        Node node = find(name);
+        if(node == null || node.ids == null)
+            return new ArrayList<>(0);
+        return toOptions(node.ids, node.idCount);
+    }
+
+    /**
+     * @return the options with a long name that name start with
+     */
+    List<ProcessedOption> findLongNamesStartOf(String name) {
+        int[] ids = new int[4];
+        int count = 0;
+        Node node = longNames;
+        for(int i = 0; node != null; i++) {
+            for(int j = 0; j < node.idCount; j++) {
+                if(count == ids.length)
+                    ids = Arrays.copyOf(ids, count * 2);
+                ids[count++] = node.ids[j];
+            }
+            node = i < name.length() ? node.child(name.charAt(i)) : null;
+        }
+        Arrays.sort(ids, 0, count);
+        return toOptions(ids, count);
+    }
+
+    /**
+     * @return the options with a long name that start with prefix
+     */
+    List<ProcessedOption> findLongNamesStartingWith(String prefix) {
+        Node node = find(prefix);
+        if(node == null)
+            return new ArrayList<>(0);
+        int[] ids = new int[node.total];
+        int count = node.collect(ids, 0);
+        Arrays.sort(ids, 0, count);
+        return toOptions(ids, count);
+    }
+
+    /**
+     * @return number of options with a long name starting with prefix
+     */
+    int countLongNamesStartingWith(String prefix) {
+        Node node = find(prefix);
+        return node == null ? 0 : node.total;
+    }
+
+    private Node find(String name) {
+        Node node = longNames;
+        for(int i = 0; i < name.length() && node != null; i++)
+            node = node.child(name.charAt(i));
+        return node;
+    }
+
+    private List<ProcessedOption> toOptions(int[] ids, int count) {
+        List<ProcessedOption> found = new ArrayList<>(count);
+        for(int i = 0; i < count; i++)
+            found.add(options.get(ids[i]));
+        return found;
+    }
+
+    private static class Node {
+        private char[] keys;
+        private Node[] children;
+        private int childCount;
+        //ids of the options with the name ending here, usually only one
+        private int[] ids;
+        private int idCount;
+        //number of names ending here or below
+        private int total;
+
+        Node child(char c) {
+            for(int i = 0; i < childCount; i++)
+                if(keys[i] == c)
+                    return children[i];
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            total++;
+            Node child = child(c);
+            if(child == null) {
+                if(keys == null) {
+                    keys = new char[2];
+                    children = new Node[2];
+                }
+                else if(childCount == keys.length) {
+                    keys = Arrays.copyOf(keys, childCount * 2);
+                    children = Arrays.copyOf(children, childCount * 2);
+                }
+                child = new Node();
+                keys[childCount] = c;
+                children[childCount++] = child;
+            }
+            return child;
+        }
+
+        void addId(int id) {
+            total++;
+            if(ids == null)
+                ids = new int[1];
+            else if(idCount == ids.length)
+                ids = Arrays.copyOf(ids, idCount * 2);
+            ids[idCount++] = id;
+        }
+
+        int collect(int[] found, int count) {
+            for(int i = 0; i < idCount; i++)
+                found[count++] = ids[i];
+            for(int i = 0; i < childCount; i++)
+                count = children[i].collect(found, count);
+            return count;
+        }
+    }
+}
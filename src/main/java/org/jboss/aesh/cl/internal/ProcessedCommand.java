@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.cl.internal;
 
+import org.jboss.aesh.cl.CommandScope;
 import org.jboss.aesh.cl.parser.OptionParserException;
 import org.jboss.aesh.cl.populator.AeshCommandPopulator;
 import org.jboss.aesh.cl.populator.CommandPopulator;
@@ -29,8 +30,10 @@ import org.jboss.aesh.console.Config;
 import org.jboss.aesh.console.InvocationProviders;
 import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.terminal.TerminalString;
+import org.jboss.aesh.util.ReflectionUtil;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -45,31 +48,77 @@ public final class ProcessedCommand<C extends Command> {
     private CommandPopulator populator;
 
     private List<ProcessedOption> options;
+    private final OptionIndex optionIndex;
     private ProcessedOption argument;
     private C command;
+    private CommandScope scope;
 
     public ProcessedCommand(String name, C command, String description, CommandValidator validator, ResultHandler resultHandler,
                             ProcessedOption argument, List<ProcessedOption> options, CommandPopulator populator ) throws OptionParserException {
+        this(name, command, description, validator, resultHandler, argument, options, populator, CommandScope.SINGLETON);
+    }
+
+    public ProcessedCommand(String name, C command, String description, CommandValidator validator, ResultHandler resultHandler,
+                            ProcessedOption argument, List<ProcessedOption> options, CommandPopulator populator,
+                            CommandScope scope) throws OptionParserException {
         setName(name);
         setDescription(description);
         this.validator = validator;
         this.resultHandler = resultHandler;
         this.argument = argument;
         this.options = new ArrayList<>();
+        this.optionIndex = new OptionIndex();
         this.command = command;
         if(populator == null)
             this.populator = new AeshCommandPopulator(this.command);
         else
             this.populator = populator;
+        this.scope = scope == null ? CommandScope.SINGLETON : scope;
         setOptions(options);
     }
 
+    private ProcessedCommand(ProcessedCommand<C> processedCommand, C command, CommandPopulator populator) {
+        name = processedCommand.name;
+        description = processedCommand.description;
+        validator = processedCommand.validator;
+        resultHandler = processedCommand.resultHandler;
+        scope = processedCommand.scope;
+        this.command = command;
+        this.populator = populator;
+        if(processedCommand.argument != null)
+            argument = processedCommand.argument.copy();
+        options = new ArrayList<>(processedCommand.options.size());
+        for(ProcessedOption option : processedCommand.options)
+            options.add(option.copy());
+        optionIndex = processedCommand.optionIndex.copy(options);
+    }
+
+    /**
+     * Copy the command definition for one invocation of the command, the
+     * copy have its own option values so it can be parsed and populated
+     * while the command is used by other invocations.
+     * If the scope is PROTOTYPE, and the command is populated by the default
+     * populator, the copy also get a new command instance.
+     */
+    @SuppressWarnings("unchecked")
+    public ProcessedCommand<C> copy() {
+        if(scope == CommandScope.PROTOTYPE && command != null && populator instanceof AeshCommandPopulator) {
+            C newCommand = (C) ReflectionUtil.newInstance(command.getClass());
+            return new ProcessedCommand<>(this, newCommand, new AeshCommandPopulator(newCommand));
+        }
+        else
+            return new ProcessedCommand<>(this, command, populator);
+    }
+
+    /**
+     * The options can only be added with addOption, they are indexed when added.
+     */
     public List<ProcessedOption> getOptions() {
-        return options;
+        return Collections.unmodifiableList(options);
     }
 
     public void addOption(ProcessedOption opt) throws OptionParserException {
-        this.options.add(new ProcessedOption(verifyThatNamesAreUnique(opt.getShortName(), opt.getName()), opt.getName(),
+        add(new ProcessedOption(verifyThatNamesAreUnique(opt.getShortName(), opt.getName()), opt.getName(),
                 opt.getDescription(), opt.getArgument(), opt.isRequired(), opt.getValueSeparator(),
                 opt.getDefaultValues(), opt.getType(), opt.getFieldName(), opt.getOptionType(), opt.getConverter(),
                 opt.getCompleter(), opt.getValidator(), opt.getActivator(), opt.getRenderer(), opt.doOverrideRequired()));
@@ -77,7 +126,7 @@ public final class ProcessedCommand<C extends Command> {
 
     private void setOptions(List<ProcessedOption> options) throws OptionParserException {
         for(ProcessedOption opt : options) {
-            this.options.add(new ProcessedOption(verifyThatNamesAreUnique(opt.getShortName(), opt.getName()), opt.getName(),
+            add(new ProcessedOption(verifyThatNamesAreUnique(opt.getShortName(), opt.getName()), opt.getName(),
                     opt.getDescription(), opt.getArgument(), opt.isRequired(), opt.getValueSeparator(),
                     opt.getDefaultValues(), opt.getType(), opt.getFieldName(), opt.getOptionType(),
                     opt.getConverter(), opt.getCompleter(), opt.getValidator(), opt.getActivator(), opt.getRenderer(),
@@ -85,6 +134,11 @@ public final class ProcessedCommand<C extends Command> {
         }
     }
 
+    private void add(ProcessedOption option) {
+        options.add(option);
+        optionIndex.add(option);
+    }
+
     public String getName() {
         return name;
     }
@@ -127,6 +181,10 @@ public final class ProcessedCommand<C extends Command> {
         return command;
     }
 
+    public CommandScope getScope() {
+        return scope;
+    }
+
     private char verifyThatNamesAreUnique(String name, String longName) throws OptionParserException {
         if(name != null)
             return verifyThatNamesAreUnique(name.charAt(0), longName);
@@ -135,10 +193,10 @@ public final class ProcessedCommand<C extends Command> {
     }
 
     private char verifyThatNamesAreUnique(char name, String longName) throws OptionParserException {
-        if(longName != null && longName.length() > 0 && findLongOption(longName) != null) {
+        if(longName != null && longName.length() > 0 && isActivated(optionIndex.findLongName(longName)) != null) {
             throw new OptionParserException("Option --"+longName+" is already added to Param: "+this.toString());
         }
-        if(name != '\u0000' && findOption(String.valueOf(name)) != null) {
+        if(name != '\u0000' && isActivated(optionIndex.findShortName(name)) != null) {
             throw new OptionParserException("Option -"+name+" is already added to Param: "+this.toString());
         }
 
@@ -151,7 +209,7 @@ public final class ProcessedCommand<C extends Command> {
 
     private char findPossibleName(String longName) throws OptionParserException {
         for(int i=0; i < longName.length(); i++) {
-            if(findOption(String.valueOf(longName.charAt(i))) == null)
+            if(isActivated(optionIndex.findShortName(longName.charAt(i))) == null)
                 return longName.charAt(i);
         }
         //all chars are taken
@@ -159,57 +217,45 @@ public final class ProcessedCommand<C extends Command> {
     }
 
     public ProcessedOption findOption(String name) {
-        for(ProcessedOption option : options)
-            if(option.getShortName() != null &&
-                    option.getShortName().equals(name) &&
-                    option.getActivator().isActivated(this))
-                return option;
-
-        return null;
+        if(name == null || name.length() != 1)
+            return null;
+        return isActivated(optionIndex.findShortName(name.charAt(0)));
     }
 
     public ProcessedOption findOptionNoActivatorCheck(String name) {
-        for(ProcessedOption option : options)
-            if(option.getShortName() != null &&
-                    option.getShortName().equals(name))
-                return option;
-
-        return null;
+        if(name == null || name.length() != 1)
+            return null;
+        List<ProcessedOption> found = optionIndex.findShortName(name.charAt(0));
+        return found.isEmpty() ? null : found.get(0);
     }
 
     public ProcessedOption findLongOption(String name) {
-        for(ProcessedOption option : options)
-            if(option.getName() != null &&
-                    option.getName().equals(name) &&
-                    option.getActivator().isActivated(this))
-                return option;
-
-        return null;
+        if(name == null)
+            return null;
+        return isActivated(optionIndex.findLongName(name));
     }
 
     public ProcessedOption findLongOptionNoActivatorCheck(String name) {
-        for(ProcessedOption option : options)
-            if(option.getName() != null && option.getName().equals(name))
-                return option;
-
-        return null;
+        if(name == null)
+            return null;
+        List<ProcessedOption> found = optionIndex.findLongName(name);
+        return found.isEmpty() ? null : found.get(0);
     }
 
     public ProcessedOption startWithOption(String name) {
-        for(ProcessedOption option : options)
-            if(option.getShortName() != null && name.startsWith(option.getShortName()) &&
-                    option.getActivator().isActivated(this))
-                return option;
-
-        return null;
+        if(name.length() == 0)
+            return null;
+        return isActivated(optionIndex.findShortName(name.charAt(0)));
     }
 
     public ProcessedOption startWithLongOption(String name) {
+        return isActivated(optionIndex.findLongNamesStartOf(name));
+    }
+
+    private ProcessedOption isActivated(List<ProcessedOption> options) {
         for(ProcessedOption option : options)
-            if(name.startsWith(option.getName()) &&
-                    option.getActivator().isActivated(this))
+            if(option.getActivator().isActivated(this))
                 return option;
-
         return null;
     }
 
@@ -236,12 +282,22 @@ public final class ProcessedCommand<C extends Command> {
     }
 
     public List<TerminalString> findPossibleLongNamesWitdDash(String name) {
-        List<TerminalString> names = new ArrayList<>(options.size());
-        for(ProcessedOption o : options) {
-           if(((o.getShortName() != null && o.getShortName().equals(name) &&
-                   !o.isLongNameUsed() && o.getValues().size() == 0) ||
-                   (o.getName().startsWith(name) && o.getValues().size() == 0)) &&
-                   o.getActivator().isActivated(this))
+        List<ProcessedOption> possible = optionIndex.findLongNamesStartingWith(name);
+        if(name.length() == 1) {
+            for(ProcessedOption shortOption : optionIndex.findShortName(name.charAt(0))) {
+                if(!shortOption.isLongNameUsed() && !possible.contains(shortOption)) {
+                    //keep the order of the options
+                    int index = 0;
+                    while(index < possible.size() &&
+                            options.indexOf(possible.get(index)) < options.indexOf(shortOption))
+                        index++;
+                    possible.add(index, shortOption);
+                }
+            }
+        }
+        List<TerminalString> names = new ArrayList<>(possible.size());
+        for(ProcessedOption o : possible) {
+           if(o.getValues().size() == 0 && o.getActivator().isActivated(this))
                names.add(o.getRenderedNameWithDashes());
         }
         return names;
@@ -295,25 +351,15 @@ public final class ProcessedCommand<C extends Command> {
     }
 
     public boolean hasLongOption(String optionName) {
-        for(ProcessedOption o : getOptions()) {
-            if (o.getName().equals(optionName))
-                return true;
-        }
-        return false;
+        return !optionIndex.findLongName(optionName).isEmpty();
     }
 
 
     //will only return true if the optionName equals an option and it does
     //not start with another option name
     public boolean hasUniqueLongOption(String optionName) {
-        if(hasLongOption(optionName)) {
-            for(ProcessedOption o : getOptions()) {
-                if(o.getName().startsWith(optionName) && !o.getName().equals(optionName))
-                    return false;
-            }
-            return true;
-        }
-        return false;
+        int found = optionIndex.findLongName(optionName).size();
+        return found > 0 && optionIndex.countLongNamesStartingWith(optionName) == found;
     }
 
     public void processAfterInit(InvocationProviders invocationProviders) {
@@ -19,6 +19,7 @@
  */
 package org.jboss.aesh.cl.internal;
 
+import org.jboss.aesh.cl.CommandScope;
 import org.jboss.aesh.cl.parser.CommandLineParserException;
 import org.jboss.aesh.cl.populator.CommandPopulator;
 import org.jboss.aesh.cl.result.NullResultHandler;
@@ -47,6 +48,7 @@ public class ProcessedCommandBuilder {
     private final List<ProcessedOption> options;
     private CommandPopulator populator;
     private Command command;
+    private CommandScope scope;
 
     public ProcessedCommandBuilder() {
         options = new ArrayList<>();
@@ -116,6 +118,11 @@ public class ProcessedCommandBuilder {
         return this;
     }
 
+    public ProcessedCommandBuilder scope(CommandScope scope) {
+        this.scope = scope;
+        return this;
+    }
+
     public ProcessedCommandBuilder addOption(ProcessedOption option) {
         this.options.add(option);
         return this;
@@ -137,6 +144,6 @@ public class ProcessedCommandBuilder {
         if(resultHandler == null)
             resultHandler = new NullResultHandler();
 
-        return new ProcessedCommand(name, command, description, validator, resultHandler, argument, options, populator);
+        return new ProcessedCommand(name, command, description, validator, resultHandler, argument, options, populator, scope);
     }
 }
@@ -33,8 +33,6 @@ import org.jboss.aesh.console.command.validator.AeshValidatorInvocation;
 import org.jboss.aesh.terminal.TerminalString;
 import org.jboss.aesh.util.ANSI;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,6 +41,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -70,6 +69,8 @@ public final class ProcessedOption {
     private OptionActivator activator;
     private OptionRenderer renderer;
     private boolean overrideRequired = false;
+    //shared with the copies of this option, so the field is only looked up once
+    private final AtomicReference<FieldAccessor> fieldAccessor;
 
     public ProcessedOption(char shortName, String name, String description,
                            String argument, boolean required, char valueSeparator,
@@ -102,6 +103,37 @@ public final class ProcessedOption {
 
         properties = new HashMap<>();
         values = new ArrayList<>();
+        fieldAccessor = new AtomicReference<>();
+    }
+
+    /**
+     * A copy of the option definition without any parsed values.
+     */
+    private ProcessedOption(ProcessedOption option) {
+        shortName = option.shortName;
+        name = option.name;
+        description = option.description;
+        argument = option.argument;
+        required = option.required;
+        valueSeparator = option.valueSeparator;
+        type = option.type;
+        fieldName = option.fieldName;
+        overrideRequired = option.overrideRequired;
+        optionType = option.optionType;
+        converter = option.converter;
+        completer = option.completer;
+        validator = option.validator;
+        activator = option.activator;
+        renderer = option.renderer;
+        defaultValues = option.defaultValues;
+        fieldAccessor = option.fieldAccessor;
+
+        properties = new HashMap<>();
+        values = new ArrayList<>();
+    }
+
+    ProcessedOption copy() {
+        return new ProcessedOption(this);
     }
 
     public String getShortName() {
@@ -317,14 +349,7 @@ public final class ProcessedOption {
         if(converter == null)
             return;
         try {
-            Field field = instance.getClass().getDeclaredField(fieldName);
-            if(!Modifier.isPublic(field.getModifiers()))
-                field.setAccessible(true);
-            if(!Modifier.isPublic(instance.getClass().getModifiers())) {
-                Constructor constructor = instance.getClass().getDeclaredConstructor();
-                if(constructor != null)
-                    constructor.setAccessible(true);
-            }
+            FieldAccessor field = getFieldAccessor(instance);
             if(optionType == OptionType.NORMAL || optionType == OptionType.BOOLEAN) {
                 if(getValue() != null)
                     field.set(instance, doConvert(getValue(), invocationProviders, instance, aeshContext, doValidation));
@@ -362,7 +387,7 @@ public final class ProcessedOption {
                     //todo: should support more that List/Set
                 }
                 else {
-                    Collection tmpInstance = (Collection) field.getType().newInstance();
+                    Collection tmpInstance = (Collection) field.newInstance();
                     if(values.size() > 0) {
                         for(String in : values)
                             tmpInstance.add(doConvert(in, invocationProviders, instance, aeshContext, doValidation));
@@ -382,18 +407,43 @@ public final class ProcessedOption {
                     field.set(instance, tmpMap);
                  }
                 else {
-                    Map<String,Object> tmpMap = (Map<String,Object>) field.getType().newInstance();
+                    Map<String,Object> tmpMap = (Map<String,Object>) field.newInstance();
                     for(String propertyKey : properties.keySet())
                         tmpMap.put(propertyKey,doConvert(properties.get(propertyKey), invocationProviders, instance, aeshContext, doValidation));
                     field.set(instance, tmpMap);
                 }
             }
         }
-        catch (NoSuchFieldException | IllegalAccessException | NoSuchMethodException | InstantiationException e) {
+        catch (NoSuchFieldException | IllegalAccessException | InstantiationException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reset the field this option is injected into, used when the option
+     * is not given and do not have a default value.
+     *
+     * @param hasValue if false a Boolean field is set to false instead of null
+     */
+    public void resetField(Object instance, boolean hasValue) {
+        try {
+            getFieldAccessor(instance).reset(instance, hasValue);
+        }
+        catch (NoSuchFieldException | IllegalAccessException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //the field is looked up the first time the option is injected into a command
+    private FieldAccessor getFieldAccessor(Object instance) throws NoSuchFieldException, IllegalAccessException {
+        FieldAccessor accessor = fieldAccessor.get();
+        if(accessor == null || accessor.getOwner() != instance.getClass()) {
+            accessor = FieldAccessor.create(instance.getClass(), fieldName);
+            fieldAccessor.set(accessor);
+        }
+        return accessor;
+    }
+
     public void processAfterInit(InvocationProviders invocationProviders) {
         activator = invocationProviders.getOptionActivatorProvider().enhanceOptionActivator(activator);
     }
@@ -484,6 +484,17 @@ public class AeshCommandLineParser<C extends Command> implements CommandLinePars
         }
     }
 
+    @Override
+    public CommandLineParser<C> copy() {
+        AeshCommandLineParser<C> copy = new AeshCommandLineParser<>(processedCommand.copy());
+        copy.isChild = isChild;
+        if(isGroupCommand()) {
+            for(CommandLineParser<? extends Command> child : childParsers)
+                copy.addChildParser(child.copy());
+        }
+        return copy;
+    }
+
     @Override
     public boolean isGroupCommand() {
         return childParsers != null && childParsers.size() > 0;
@@ -123,6 +123,16 @@ public interface CommandLineParser<C extends Command> {
 
     void clear();
 
+    /**
+     * The parse state is kept in the processed command, so a parser can only
+     * be used by one thread at a time. Each invocation of a command should
+     * parse with its own copy.
+     *
+     * @return a parser with a copy of the processed command and child parsers
+     * @see ProcessedCommand#copy()
+     */
+    CommandLineParser<C> copy();
+
     boolean isGroupCommand();
 
     void setChild(boolean b);
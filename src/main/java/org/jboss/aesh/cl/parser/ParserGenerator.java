@@ -38,21 +38,31 @@ import org.jboss.aesh.console.command.completer.AeshCompleterInvocationProvider;
 import org.jboss.aesh.console.command.container.AeshCommandContainer;
 import org.jboss.aesh.console.command.converter.AeshConverterInvocationProvider;
 import org.jboss.aesh.console.command.validator.AeshValidatorInvocationProvider;
+import org.jboss.aesh.util.LoggerUtil;
 import org.jboss.aesh.util.ReflectionUtil;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Generates a {@link AeshCommandLineParser} based on annotations defined in
  * the specified class.
+ * If the command was compiled with
+ * {@link org.jboss.aesh.cl.processor.CommandDefinitionProcessor} the
+ * ProcessedCommand is created by the generated {@link ProcessedCommandFactory},
+ * else the annotations are read with reflection.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class ParserGenerator {
 
+    private static final String FACTORY_SUFFIX = "_AeshCommandFactory";
+    private static final Logger LOGGER = LoggerUtil.getLogger(ParserGenerator.class.getName());
+
     public static AeshCommandContainer generateCommandLineParser(Command paramInstance) throws CommandLineParserException {
         return doGenerateCommandLineParser(paramInstance);
     }
@@ -61,8 +71,47 @@ public class ParserGenerator {
         return doGenerateCommandLineParser(ReflectionUtil.newInstance(clazz));
     }
 
+    /**
+     * @param className binary name of a command class
+     * @return binary name of the ProcessedCommandFactory generated for the command
+     */
+    public static String getFactoryName(String className) {
+        return className + FACTORY_SUFFIX;
+    }
+
+    private static ProcessedCommandFactory findFactory(Class<?> clazz) {
+        try {
+            Class<?> factory = Class.forName(getFactoryName(clazz.getName()), true, clazz.getClassLoader());
+            return (ProcessedCommandFactory) factory.newInstance();
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+        catch (InstantiationException | IllegalAccessException | ClassCastException | LinkageError e) {
+            LOGGER.log(Level.WARNING, "Could not use the generated factory of " + clazz.getName(), e);
+            return null;
+        }
+    }
+
+    private static AeshCommandContainer generateFromFactory(ProcessedCommandFactory factory, Command commandObject)
+            throws CommandLineParserException {
+        AeshCommandContainer container = new AeshCommandContainer(
+                new CommandLineParserBuilder()
+                        .processedCommand(factory.createProcessedCommand(commandObject))
+                        .create());
+
+        for(Class<? extends Command> groupClazz : factory.getGroupCommands())
+            container.addChild(doGenerateCommandLineParser(ReflectionUtil.newInstance(groupClazz)));
+
+        return container;
+    }
+
     private static AeshCommandContainer doGenerateCommandLineParser(Command commandObject) throws CommandLineParserException {
         Class clazz = commandObject.getClass();
+        ProcessedCommandFactory factory = findFactory(clazz);
+        if(factory != null)
+            return generateFromFactory(factory, commandObject);
+
         CommandDefinition command = (CommandDefinition) clazz.getAnnotation(CommandDefinition.class);
         if(command != null) {
             ProcessedCommand processedCommand = new ProcessedCommandBuilder()
@@ -70,7 +119,8 @@ public class ParserGenerator {
                     .description(command.description())
                     .validator(command.validator())
                     .command(commandObject)
-                    .resultHandler(command.resultHandler()).create();
+                    .resultHandler(command.resultHandler())
+                    .scope(command.scope()).create();
 
             processCommand(processedCommand, clazz);
 
@@ -88,6 +138,7 @@ public class ParserGenerator {
                     .validator(groupCommand.validator())
                     .command(commandObject)
                     .resultHandler(groupCommand.resultHandler())
+                    .scope(groupCommand.scope())
                     .create();
 
             processCommand(processedGroupCommand, clazz);
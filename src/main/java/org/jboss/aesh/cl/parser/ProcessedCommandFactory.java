@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.parser;
+
+import org.jboss.aesh.cl.internal.ProcessedCommand;
+import org.jboss.aesh.console.command.Command;
+
+import java.util.List;
+
+/**
+ * Creates the ProcessedCommand of a command annotated with
+ * {@link org.jboss.aesh.cl.CommandDefinition} or
+ * {@link org.jboss.aesh.cl.GroupCommandDefinition}.
+ * Implementations are generated at compile time by
+ * {@link org.jboss.aesh.cl.processor.CommandDefinitionProcessor}, and used by
+ * {@link ParserGenerator} instead of reading the annotations with reflection.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public interface ProcessedCommandFactory {
+
+    /**
+     * @param command the instance the options are injected into
+     * @return the processed command, with all its options
+     */
+    ProcessedCommand createProcessedCommand(Command command) throws CommandLineParserException;
+
+    /**
+     * @return the group commands of a group command, empty if it has none
+     */
+    List<Class<? extends Command>> getGroupCommands();
+}
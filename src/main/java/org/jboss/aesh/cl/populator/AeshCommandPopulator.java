@@ -27,9 +27,6 @@ import org.jboss.aesh.console.AeshContext;
 import org.jboss.aesh.console.InvocationProviders;
 import org.jboss.aesh.console.command.Command;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
@@ -61,7 +58,7 @@ public class AeshCommandPopulator implements CommandPopulator<Object, Command> {
                 option.injectValueIntoField(getObject(), invocationProviders, aeshContext, validate);
             }
             else
-                resetField(getObject(), option.getFieldName(), option.hasValue());
+                option.resetField(getObject(), option.hasValue());
         }
         if((line.getArgument() != null && line.getArgument().getValues().size() > 0) ||
                 (line.getParser().getProcessedCommand().getArgument() != null &&
@@ -69,7 +66,7 @@ public class AeshCommandPopulator implements CommandPopulator<Object, Command> {
             line.getArgument().injectValueIntoField(getObject(), invocationProviders, aeshContext, validate);
         }
         else if(line.getArgument() != null)
-            resetField(getObject(), line.getArgument().getFieldName(), true);
+            line.getArgument().resetField(getObject(), true);
     }
 
     /**
@@ -88,40 +85,6 @@ public class AeshCommandPopulator implements CommandPopulator<Object, Command> {
     }
      */
 
-    private void resetField(Object instance, String fieldName, boolean hasValue) {
-        try {
-            Field field = instance.getClass().getDeclaredField(fieldName);
-            if(!Modifier.isPublic(field.getModifiers()))
-                field.setAccessible(true);
-            if(field.getType().isPrimitive()) {
-                if(boolean.class.isAssignableFrom(field.getType()))
-                    field.set(instance, false);
-                else if(int.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0);
-                else if(short.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0);
-                else if(char.class.isAssignableFrom(field.getType()))
-                    field.set(instance, '\u0000');
-                else if(byte.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0);
-                else if(long.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0L);
-                else if(float.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0.0f);
-                else if(double.class.isAssignableFrom(field.getType()))
-                    field.set(instance, 0.0d);
-            }
-            else if(!hasValue && field.getType().equals(Boolean.class)) {
-               field.set(instance, Boolean.FALSE);
-            }
-            else
-                field.set(instance, null);
-        }
-        catch (NoSuchFieldException | IllegalAccessException e) {
-            e.printStackTrace();
-        }
-    }
-
     @Override
     public Object getObject() {
         return instance;
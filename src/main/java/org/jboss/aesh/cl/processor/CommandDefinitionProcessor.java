@@ -0,0 +1,564 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.processor;
+
+import org.jboss.aesh.cl.Arguments;
+import org.jboss.aesh.cl.CommandDefinition;
+import org.jboss.aesh.cl.GroupCommandDefinition;
+import org.jboss.aesh.cl.Option;
+import org.jboss.aesh.cl.OptionGroup;
+import org.jboss.aesh.cl.OptionList;
+import org.jboss.aesh.cl.parser.ParserGenerator;
+import org.jboss.aesh.console.command.registry.CommandManifest;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates a {@link org.jboss.aesh.cl.parser.ProcessedCommandFactory} for
+ * every command annotated with {@link CommandDefinition} or
+ * {@link GroupCommandDefinition}, so {@link ParserGenerator} do not need to
+ * read the fields and annotations of the commands with reflection when they
+ * are registered.
+ * The generated factory use the same builders, in the same order, as
+ * ParserGenerator do. Commands the factory can not be generated for, like
+ * options with a private converter class or a raw collection type, are
+ * skipped and will be read with reflection at runtime.
+ *
+ * All the commands are also listed in a {@link CommandManifest}, so they can
+ * be registered without loading their classes.
+ *
+ * The processor is found by javac on the classpath, it can be turned off with
+ * -proc:none.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+@SupportedAnnotationTypes({"org.jboss.aesh.cl.CommandDefinition", "org.jboss.aesh.cl.GroupCommandDefinition"})
+public class CommandDefinitionProcessor extends AbstractProcessor {
+
+    private static final String BUILDER = "org.jboss.aesh.cl.internal.ProcessedOptionBuilder";
+    private static final String OPTION_TYPE = "org.jboss.aesh.cl.internal.OptionType.";
+    private static final String COMMAND = "org.jboss.aesh.console.command.Command";
+
+    private final Set<String> generated = new HashSet<>();
+    //written to the CommandManifest when all the commands are processed
+    private final Map<String, ManifestEntry> manifest = new TreeMap<>();
+    private final Set<String> groupCommandClasses = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for(TypeElement annotation : annotations) {
+            for(Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if(element.getKind() == ElementKind.CLASS) {
+                    generate((TypeElement) element);
+                    addToManifest((TypeElement) element);
+                }
+            }
+        }
+        if(roundEnv.processingOver())
+            writeManifest();
+        //other processors can still process the annotations
+        return false;
+    }
+
+    private void addToManifest(TypeElement command) {
+        NestingKind nesting = command.getNestingKind();
+        if(nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS)
+            return;
+        AnnotationMirror definition = findAnnotation(command, CommandDefinition.class.getName());
+        if(definition == null)
+            definition = findAnnotation(command, GroupCommandDefinition.class.getName());
+        Map<String, AnnotationValue> values = getValues(definition);
+        if(!(values.get("name").getValue() instanceof String) ||
+                !(values.get("description").getValue() instanceof String))
+            return;
+
+        ManifestEntry entry = new ManifestEntry(
+                processingEnv.getElementUtils().getBinaryName(command).toString(),
+                (String) values.get("description").getValue());
+        AnnotationValue groupCommands = values.get("groupCommands");
+        if(groupCommands != null && groupCommands.getValue() instanceof List) {
+            for(Object value : (List<?>) groupCommands.getValue()) {
+                Object type = ((AnnotationValue) value).getValue();
+                if(type instanceof DeclaredType) {
+                    TypeElement groupCommand = (TypeElement) ((DeclaredType) type).asElement();
+                    groupCommandClasses.add(processingEnv.getElementUtils().getBinaryName(groupCommand).toString());
+                    String name = getCommandName(groupCommand);
+                    if(name != null)
+                        entry.groupCommands.add(name);
+                }
+            }
+        }
+        String name = (String) values.get("name").getValue();
+        if(!manifest.containsKey(name))
+            manifest.put(name, entry);
+    }
+
+    private String getCommandName(TypeElement command) {
+        AnnotationMirror definition = findAnnotation(command, CommandDefinition.class.getName());
+        if(definition == null)
+            definition = findAnnotation(command, GroupCommandDefinition.class.getName());
+        if(definition == null)
+            return null;
+        Object name = getValues(definition).get("name").getValue();
+        return name instanceof String ? (String) name : null;
+    }
+
+    private void writeManifest() {
+        Properties properties = new Properties();
+        for(Map.Entry<String, ManifestEntry> command : manifest.entrySet()) {
+            ManifestEntry entry = command.getValue();
+            if(groupCommandClasses.contains(entry.className))
+                continue;
+            properties.setProperty(command.getKey() + CommandManifest.CLASS_SUFFIX, entry.className);
+            properties.setProperty(command.getKey() + CommandManifest.DESCRIPTION_SUFFIX, entry.description);
+            if(!entry.groupCommands.isEmpty()) {
+                StringBuilder names = new StringBuilder();
+                for(String name : entry.groupCommands) {
+                    if(names.length() > 0)
+                        names.append(CommandManifest.GROUP_COMMANDS_SEPARATOR);
+                    names.append(name);
+                }
+                properties.setProperty(command.getKey() + CommandManifest.GROUP_COMMANDS_SUFFIX, names.toString());
+            }
+        }
+        if(properties.isEmpty())
+            return;
+
+        try {
+            //written as ISO 8859-1 with other chars escaped, the way Properties.load read it
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            properties.store(content, null);
+            //without the date comment, and sorted, so the same commands give the same file
+            List<String> lines = new ArrayList<>();
+            for(String line : content.toString("ISO-8859-1").split("\r?\n"))
+                if(!line.startsWith("#"))
+                    lines.add(line);
+            Collections.sort(lines);
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    CommandManifest.LOCATION);
+            try (OutputStream out = file.openOutputStream()) {
+                for(String line : lines)
+                    out.write((line + "\n").getBytes("ISO-8859-1"));
+            }
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Could not write " + CommandManifest.LOCATION + ": " + e.getMessage());
+        }
+    }
+
+    private static class ManifestEntry {
+        private final String className;
+        private final String description;
+        private final List<String> groupCommands = new ArrayList<>();
+
+        ManifestEntry(String className, String description) {
+            this.className = className;
+            this.description = description;
+        }
+    }
+
+    private void generate(TypeElement command) {
+        String factoryName = ParserGenerator.getFactoryName(
+                processingEnv.getElementUtils().getBinaryName(command).toString());
+        if(!generated.add(factoryName))
+            return;
+        try {
+            String source = new FactoryWriter(command, factoryName).write();
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(factoryName, command);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        }
+        catch (UnsupportedCommandException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "No factory generated, the command will be read at runtime: " + e.getMessage(), command);
+        }
+        catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Could not write " + factoryName + ": " + e.getMessage(), command);
+        }
+    }
+
+    /**
+     * Thrown when a part of the command can not be written as source code,
+     * or ParserGenerator would fail on it at runtime.
+     */
+    private static class UnsupportedCommandException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedCommandException(String message) {
+            super(message);
+        }
+    }
+
+    private class FactoryWriter {
+
+        private final TypeElement command;
+        private final String factoryName;
+        private final PackageElement packageElement;
+        private final StringBuilder out = new StringBuilder();
+
+        FactoryWriter(TypeElement command, String factoryName) {
+            this.command = command;
+            this.factoryName = factoryName;
+            this.packageElement = processingEnv.getElementUtils().getPackageOf(command);
+        }
+
+        String write() throws UnsupportedCommandException {
+            AnnotationMirror definition = findAnnotation(command, CommandDefinition.class.getName());
+            boolean group = false;
+            if(definition == null) {
+                definition = findAnnotation(command, GroupCommandDefinition.class.getName());
+                group = true;
+            }
+            Map<String, AnnotationValue> values = getValues(definition);
+
+            String simpleName = factoryName.substring(factoryName.lastIndexOf('.') + 1);
+            if(!packageElement.isUnnamed())
+                out.append("package ").append(packageElement.getQualifiedName()).append(";\n\n");
+            out.append("/**\n * Generated by ").append(CommandDefinitionProcessor.class.getName())
+                    .append(" from ").append(command.getQualifiedName()).append(", do not edit.\n */\n");
+            out.append("public final class ").append(simpleName)
+                    .append(" implements org.jboss.aesh.cl.parser.ProcessedCommandFactory {\n\n");
+
+            out.append("    @Override\n");
+            out.append("    public org.jboss.aesh.cl.internal.ProcessedCommand createProcessedCommand(")
+                    .append(COMMAND).append(" command)\n");
+            out.append("            throws org.jboss.aesh.cl.parser.CommandLineParserException {\n");
+            out.append("        org.jboss.aesh.cl.internal.ProcessedCommand processedCommand =")
+                    .append(" new org.jboss.aesh.cl.internal.ProcessedCommandBuilder()\n");
+            call("name", string(values.get("name")));
+            call("description", string(values.get("description")));
+            call("validator", classLiteral(values.get("validator")));
+            call("command", "command");
+            call("resultHandler", classLiteral(values.get("resultHandler")));
+            call("scope", "org.jboss.aesh.cl.CommandScope." + enumConstant(values.get("scope")));
+            out.append("                .create();\n");
+
+            for(VariableElement field : ElementFilter.fieldsIn(command.getEnclosedElements()))
+                writeField(field);
+
+            out.append("        return processedCommand;\n");
+            out.append("    }\n\n");
+
+            out.append("    @Override\n");
+            out.append("    @SuppressWarnings(\"unchecked\")\n");
+            out.append("    public java.util.List<java.lang.Class<? extends ").append(COMMAND)
+                    .append(">> getGroupCommands() {\n");
+            List<? extends AnnotationValue> groupCommands = group ? list(values.get("groupCommands")) : null;
+            if(groupCommands == null || groupCommands.isEmpty())
+                out.append("        return java.util.Collections.emptyList();\n");
+            else {
+                out.append("        return java.util.Arrays.<java.lang.Class<? extends ").append(COMMAND)
+                        .append(">>asList(");
+                for(int i = 0; i < groupCommands.size(); i++) {
+                    if(i > 0)
+                        out.append(", ");
+                    out.append(classLiteral(groupCommands.get(i)));
+                }
+                out.append(");\n");
+            }
+            out.append("    }\n");
+            out.append("}\n");
+
+            return out.toString();
+        }
+
+        //the same checks and builder calls as ParserGenerator.processCommand
+        private void writeField(VariableElement field) throws UnsupportedCommandException {
+            AnnotationMirror annotation;
+            String fieldName = field.getSimpleName().toString();
+            if((annotation = findAnnotation(field, Option.class.getName())) != null) {
+                Map<String, AnnotationValue> values = getValues(annotation);
+                String name = (String) values.get("name").getValue();
+                boolean hasValue = (Boolean) values.get("hasValue").getValue();
+                startOption("addOption");
+                call("shortName", character(values.get("shortName")));
+                call("name", name.length() < 1 ? string(fieldName) : string(name));
+                call("description", string(values.get("description")));
+                call("required", values.get("required").getValue().toString());
+                call("valueSeparator", character(','));
+                defaultValues(values.get("defaultValue"));
+                call("type", classLiteral(processingEnv.getTypeUtils().erasure(field.asType()), field));
+                call("fieldName", string(fieldName));
+                call("optionType", OPTION_TYPE + (hasValue ? "NORMAL" : "BOOLEAN"));
+                call("converter", classLiteral(values.get("converter")));
+                call("completer", classLiteral(values.get("completer")));
+                call("validator", classLiteral(values.get("validator")));
+                call("activator", classLiteral(values.get("activator")));
+                call("renderer", classLiteral(values.get("renderer")));
+                call("overrideRequired", values.get("overrideRequired").getValue().toString());
+                endOption();
+            }
+            else if((annotation = findAnnotation(field, OptionList.class.getName())) != null) {
+                Map<String, AnnotationValue> values = getValues(annotation);
+                String name = (String) values.get("name").getValue();
+                String type = typeArgument(field, "java.util.Collection", 0);
+                startOption("addOption");
+                call("shortName", character(values.get("shortName")));
+                call("name", name.length() < 1 ? string(fieldName) : string(name));
+                call("description", string(values.get("description")));
+                call("required", values.get("required").getValue().toString());
+                call("valueSeparator", character(values.get("valueSeparator")));
+                defaultValues(values.get("defaultValue"));
+                call("type", type);
+                call("fieldName", string(fieldName));
+                call("optionType", OPTION_TYPE + "LIST");
+                call("converter", classLiteral(values.get("converter")));
+                call("completer", classLiteral(values.get("completer")));
+                call("validator", classLiteral(values.get("validator")));
+                call("activator", classLiteral(values.get("activator")));
+                call("renderer", classLiteral(values.get("renderer")));
+                endOption();
+            }
+            else if((annotation = findAnnotation(field, OptionGroup.class.getName())) != null) {
+                Map<String, AnnotationValue> values = getValues(annotation);
+                String name = (String) values.get("name").getValue();
+                String type = typeArgument(field, "java.util.Map", 1);
+                startOption("addOption");
+                call("shortName", character(values.get("shortName")));
+                call("name", name.length() < 1 ? string(fieldName) : string(name));
+                call("description", string(values.get("description")));
+                call("required", values.get("required").getValue().toString());
+                call("valueSeparator", character(','));
+                defaultValues(values.get("defaultValue"));
+                call("type", type);
+                call("fieldName", string(fieldName));
+                call("optionType", OPTION_TYPE + "GROUP");
+                call("converter", classLiteral(values.get("converter")));
+                call("completer", classLiteral(values.get("completer")));
+                call("validator", classLiteral(values.get("validator")));
+                call("activator", classLiteral(values.get("activator")));
+                call("renderer", classLiteral(values.get("renderer")));
+                endOption();
+            }
+            else if((annotation = findAnnotation(field, Arguments.class.getName())) != null) {
+                Map<String, AnnotationValue> values = getValues(annotation);
+                String type = typeArgument(field, "java.util.Collection", 0);
+                startOption("setArgument");
+                call("shortName", character('\u0000'));
+                call("name", string(""));
+                call("description", string(values.get("description")));
+                call("required", "false");
+                call("valueSeparator", character(values.get("valueSeparator")));
+                defaultValues(values.get("defaultValue"));
+                call("type", type);
+                call("fieldName", string(fieldName));
+                call("optionType", OPTION_TYPE + "ARGUMENT");
+                call("converter", classLiteral(values.get("converter")));
+                call("completer", classLiteral(values.get("completer")));
+                call("validator", classLiteral(values.get("validator")));
+                endOption();
+            }
+        }
+
+        private void startOption(String method) {
+            out.append("        processedCommand.").append(method).append("(new ").append(BUILDER).append("()\n");
+        }
+
+        private void endOption() {
+            out.append("                .create());\n");
+        }
+
+        private void call(String method, String argument) {
+            out.append("                .").append(method).append('(').append(argument).append(")\n");
+        }
+
+        private void defaultValues(AnnotationValue value) throws UnsupportedCommandException {
+            List<? extends AnnotationValue> defaults = list(value);
+            if(defaults.isEmpty())
+                return;
+            StringBuilder array = new StringBuilder("new java.lang.String[] {");
+            for(int i = 0; i < defaults.size(); i++) {
+                if(i > 0)
+                    array.append(", ");
+                array.append(string(defaults.get(i)));
+            }
+            call("addAllDefaultValues", array.append('}').toString());
+        }
+
+        /**
+         * @return class literal of the type argument of a Collection or Map field
+         */
+        private String typeArgument(VariableElement field, String base, int index) throws UnsupportedCommandException {
+            TypeMirror baseType = processingEnv.getTypeUtils().erasure(
+                    processingEnv.getElementUtils().getTypeElement(base).asType());
+            if(!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(field.asType()), baseType))
+                throw new UnsupportedCommandException(field.getSimpleName() + " is not a " + base);
+            if(field.asType().getKind() != TypeKind.DECLARED)
+                throw new UnsupportedCommandException(field.getSimpleName() + " is not a declared type");
+            List<? extends TypeMirror> arguments = ((DeclaredType) field.asType()).getTypeArguments();
+            if(arguments.size() <= index)
+                throw new UnsupportedCommandException(field.getSimpleName() + " do not have type arguments");
+            TypeMirror argument = arguments.get(index);
+            //the reflection based parser only support class arguments
+            if(argument.getKind() != TypeKind.DECLARED || !((DeclaredType) argument).getTypeArguments().isEmpty())
+                throw new UnsupportedCommandException(field.getSimpleName() + " has an unsupported type argument");
+            return classLiteral(argument, field);
+        }
+
+        private String classLiteral(AnnotationValue value) throws UnsupportedCommandException {
+            if(!(value.getValue() instanceof TypeMirror))
+                throw new UnsupportedCommandException("unresolved class " + value);
+            return classLiteral((TypeMirror) value.getValue(), command);
+        }
+
+        private String classLiteral(TypeMirror type, Element usedBy) throws UnsupportedCommandException {
+            return typeName(type, usedBy) + ".class";
+        }
+
+        private String typeName(TypeMirror type, Element usedBy) throws UnsupportedCommandException {
+            if(type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID)
+                return type.toString();
+            else if(type.getKind() == TypeKind.ARRAY)
+                return typeName(((ArrayType) type).getComponentType(), usedBy) + "[]";
+            else if(type.getKind() == TypeKind.DECLARED) {
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                if(!isAccessible(element))
+                    throw new UnsupportedCommandException(element.getQualifiedName() + " used by " +
+                            usedBy.getSimpleName() + " is not accessible from " + factoryName);
+                return element.getQualifiedName().toString();
+            }
+            else
+                throw new UnsupportedCommandException("unsupported type " + type + " used by " + usedBy.getSimpleName());
+        }
+
+        private boolean isAccessible(TypeElement element) {
+            Element current = element;
+            while(current instanceof TypeElement) {
+                TypeElement type = (TypeElement) current;
+                if(type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS)
+                    return false;
+                if(type.getModifiers().contains(Modifier.PRIVATE))
+                    return false;
+                if(!type.getModifiers().contains(Modifier.PUBLIC) &&
+                        !processingEnv.getElementUtils().getPackageOf(type).equals(packageElement))
+                    return false;
+                current = type.getEnclosingElement();
+            }
+            return true;
+        }
+
+        private String enumConstant(AnnotationValue value) throws UnsupportedCommandException {
+            if(!(value.getValue() instanceof VariableElement))
+                throw new UnsupportedCommandException("unresolved constant " + value);
+            return ((VariableElement) value.getValue()).getSimpleName().toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<? extends AnnotationValue> list(AnnotationValue value) throws UnsupportedCommandException {
+            if(!(value.getValue() instanceof List))
+                throw new UnsupportedCommandException("unresolved array " + value);
+            return (List<? extends AnnotationValue>) value.getValue();
+        }
+
+        private String character(AnnotationValue value) throws UnsupportedCommandException {
+            if(!(value.getValue() instanceof Character))
+                throw new UnsupportedCommandException("unresolved char " + value);
+            return character((Character) value.getValue());
+        }
+
+        //written as a number since a quote or backslash would need escaping
+        private String character(char c) {
+            return "(char) " + (int) c;
+        }
+
+        private String string(AnnotationValue value) throws UnsupportedCommandException {
+            if(!(value.getValue() instanceof String))
+                throw new UnsupportedCommandException("unresolved String " + value);
+            return string((String) value.getValue());
+        }
+
+        private String string(String value) {
+            StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+            for(int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c == '"' || c == '\\')
+                    literal.append('\\').append(c);
+                //unicode escapes are translated before the literal is parsed, so
+                //line breaks need an octal escape
+                else if(c < ' ')
+                    literal.append(String.format("\\%03o", (int) c));
+                else if(c > '~')
+                    literal.append(String.format("\\u%04x", (int) c));
+                else
+                    literal.append(c);
+            }
+            return literal.append('"').toString();
+        }
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String annotation) {
+        for(AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if(((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation))
+                return mirror;
+        }
+        return null;
+    }
+
+    private Map<String, AnnotationValue> getValues(AnnotationMirror annotation) {
+        Map<String, AnnotationValue> values = new HashMap<>();
+        for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet())
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+        return values;
+    }
+}
@@ -21,6 +21,9 @@ package org.jboss.aesh.complete;
 
 /**
  * To enable auto completion, commands need to implement this interface.
+ * The completions of a console run concurrently with each other on their
+ * own threads, not on the console thread, so a completion that share state
+ * with other completions or the commands must be thread safe.
  *
  * @author Ståle W. Pedersen <stale.pedersen@jboss.org>
  */
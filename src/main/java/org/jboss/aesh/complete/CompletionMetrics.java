@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.complete;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How long a Completion take to complete.
+ * Updated from the threads running the completions, so the values read
+ * together might be from different completions.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CompletionMetrics {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final AtomicLong lastTime = new AtomicLong();
+    private final AtomicLong lateCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * @param time nanoseconds the completion took
+     */
+    public void completed(long time) {
+        count.incrementAndGet();
+        totalTime.addAndGet(time);
+        lastTime.set(time);
+        long max = maxTime.get();
+        while(time > max && !maxTime.compareAndSet(max, time))
+            max = maxTime.get();
+    }
+
+    public void late() {
+        lateCount.incrementAndGet();
+    }
+
+    public void cancelled() {
+        cancelledCount.incrementAndGet();
+    }
+
+    public void failed() {
+        failedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of completions that finished, in time or not
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return number of times the completion was not done when the timeout expired
+     */
+    public long getLateCount() {
+        return lateCount.get();
+    }
+
+    /**
+     * @return number of completions stopped because the line changed
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * @return number of completions that threw an exception
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getAverageTime(TimeUnit unit) {
+        long completed = count.get();
+        return completed == 0 ? 0 : unit.convert(totalTime.get() / completed, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxTime(TimeUnit unit) {
+        return unit.convert(maxTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getLastTime(TimeUnit unit) {
+        return unit.convert(lastTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "CompletionMetrics{" +
+                "count=" + count +
+                ", averageMicros=" + getAverageTime(TimeUnit.MICROSECONDS) +
+                ", maxMicros=" + getMaxTime(TimeUnit.MICROSECONDS) +
+                ", late=" + lateCount +
+                ", cancelled=" + cancelledCount +
+                ", failed=" + failedCount +
+                '}';
+    }
+}
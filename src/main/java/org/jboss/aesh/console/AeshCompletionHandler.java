@@ -21,6 +21,7 @@ package org.jboss.aesh.console;
 
 import org.jboss.aesh.complete.CompleteOperation;
 import org.jboss.aesh.complete.Completion;
+import org.jboss.aesh.complete.CompletionMetrics;
 import org.jboss.aesh.console.alias.Alias;
 import org.jboss.aesh.console.alias.AliasManager;
 import org.jboss.aesh.console.operator.ControlOperatorParser;
@@ -36,10 +37,29 @@ import org.jboss.aesh.util.LoggerUtil;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
+ * Runs every completion on its own thread, so the completions of one tab
+ * run concurrently with each other and never on the console thread.
+ * By default the handler wait until all of them are done, with a timeout
+ * the completions that are late are shown on the next tab.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class AeshCompletionHandler implements CompletionHandler {
@@ -48,20 +68,49 @@ public class AeshCompletionHandler implements CompletionHandler {
     private boolean askDisplayCompletion = false;
     private int displayCompletionSize = 100;
     private final List<Completion> completionList;
+    private final ConcurrentMap<Completion, CompletionMetrics> metrics = new ConcurrentHashMap<>();
+    private final ExecutorService executorService;
+    private volatile long completionTimeout = DEFAULT_COMPLETION_TIMEOUT;
+    //completions from the last tab that were not done in time
+    private volatile PendingCompletions pendingCompletions;
     private AliasManager aliasManager;
     private final ConsoleBuffer consoleBuffer;
     private final Shell shell;
     private final boolean doLogging;
 
+    //wait until every completion is done
+    public static final long DEFAULT_COMPLETION_TIMEOUT = 0;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
     private static final Logger LOGGER = LoggerUtil.getLogger(AeshCompletionHandler.class.getName());
 
     public AeshCompletionHandler(AeshContext aeshContext, ConsoleBuffer consoleBuffer,
                                  Shell shell, boolean doLogging) {
-        completionList = new ArrayList<>();
+        //a completion that never return only keep its own thread
+        this(aeshContext, consoleBuffer, shell, doLogging, Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("Aesh Completion " + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    /**
+     * @param executorService runs the completions, it must not have a fixed
+     *                        number of threads since completions can block
+     */
+    public AeshCompletionHandler(AeshContext aeshContext, ConsoleBuffer consoleBuffer,
+                                 Shell shell, boolean doLogging, ExecutorService executorService) {
+        completionList = new CopyOnWriteArrayList<>();
         this.aeshContext = aeshContext;
         this.consoleBuffer = consoleBuffer;
         this.shell = shell;
         this.doLogging = doLogging;
+        this.executorService = executorService;
     }
 
     @Override
@@ -72,6 +121,7 @@ public class AeshCompletionHandler implements CompletionHandler {
     @Override
     public void removeCompletion(Completion completion) {
         completionList.remove(completion);
+        metrics.remove(completion);
     }
 
     @Override
@@ -113,34 +163,9 @@ public class AeshCompletionHandler implements CompletionHandler {
         if(completionList.size() < 1)
             return;
 
-        List<CompleteOperation> possibleCompletions = new ArrayList<>();
-        int pipeLinePos = 0;
-        boolean redirect = false;
-        if(ControlOperatorParser.doStringContainPipelineOrEnd(buffer.getMultiLine())) {
-            pipeLinePos =  ControlOperatorParser.findLastPipelineAndEndPositionBeforeCursor(buffer.getMultiLine(), buffer.getMultiCursor());
-        }
-        if(ControlOperatorParser.findLastRedirectionPositionBeforeCursor(buffer.getMultiLine(), buffer.getMultiCursor()) > pipeLinePos) {
-            pipeLinePos = 0;
-            redirect = true;
-        }
-
-        for(int i=0; i < completionList.size(); i++) {
-            if(redirect && !completionList.get(i).getClass().equals(RedirectionCompletion.class)) {
-                break;
-            }
-            CompleteOperation co;
-            if(pipeLinePos > 0) {
-                co = findAliases(buffer.getMultiLine().substring(pipeLinePos, buffer.getMultiCursor()), buffer.getMultiCursor() - pipeLinePos);
-            }
-            else {
-                co = findAliases(buffer.getMultiLine(), buffer.getMultiCursor());
-            }
-
-            completionList.get(i).complete(co);
-
-            if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
-                possibleCompletions.add(co);
-        }
+        List<CompleteOperation> possibleCompletions = findPossibleCompletions(buffer);
+        if(possibleCompletions == null)
+            return;
 
         if(doLogging)
             LOGGER.info("Found completions: "+possibleCompletions);
@@ -201,6 +226,139 @@ public class AeshCompletionHandler implements CompletionHandler {
             }
         }
     }
+    /**
+     * Run every completion at the same time, and wait until they are done or
+     * the timeout expire. The completions that are late keep running and are
+     * used if tab is pressed again before the line is changed.
+     *
+     * @return the completions that found candidates, or null if interrupted
+     */
+    private List<CompleteOperation> findPossibleCompletions(Buffer buffer) {
+        List<PendingCompletion> completions = startCompletions(buffer);
+        List<CompleteOperation> possibleCompletions = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(completionTimeout);
+        boolean late = false;
+        for(PendingCompletion completion : completions) {
+            try {
+                if(completionTimeout > 0)
+                    completion.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                else
+                    completion.future.get();
+                CompleteOperation co = completion.operation;
+                if(co.getCompletionCandidates() != null && co.getCompletionCandidates().size() > 0)
+                    possibleCompletions.add(co);
+            }
+            catch (TimeoutException e) {
+                late = true;
+                getMetrics(completion.completion).late();
+                if(doLogging)
+                    LOGGER.info("Completion "+completion.completion+" did not finish in "+completionTimeout+"ms");
+            }
+            catch (ExecutionException e) {
+                getMetrics(completion.completion).failed();
+                LOGGER.warning("Completion "+completion.completion+" failed: "+e.getCause());
+            }
+            catch (CancellationException ignored) {
+            }
+            catch (InterruptedException e) {
+                cancelCompletion();
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        pendingCompletions = late ?
+                new PendingCompletions(buffer.getMultiLine(), buffer.getMultiCursor(), completions) : null;
+
+        return possibleCompletions;
+    }
+
+    private List<PendingCompletion> startCompletions(Buffer buffer) {
+        PendingCompletions pending = pendingCompletions;
+        if(pending != null && pending.line.equals(buffer.getMultiLine()) &&
+                pending.cursor == buffer.getMultiCursor())
+            return pending.completions;
+        cancelCompletion();
+
+        int pipeLinePos = 0;
+        boolean redirect = false;
+        if(ControlOperatorParser.doStringContainPipelineOrEnd(buffer.getMultiLine())) {
+            pipeLinePos =  ControlOperatorParser.findLastPipelineAndEndPositionBeforeCursor(buffer.getMultiLine(), buffer.getMultiCursor());
+        }
+        if(ControlOperatorParser.findLastRedirectionPositionBeforeCursor(buffer.getMultiLine(), buffer.getMultiCursor()) > pipeLinePos) {
+            pipeLinePos = 0;
+            redirect = true;
+        }
+
+        List<PendingCompletion> completions = new ArrayList<>();
+        for(final Completion completion : completionList) {
+            if(redirect && !completion.getClass().equals(RedirectionCompletion.class)) {
+                break;
+            }
+            final CompleteOperation co;
+            if(pipeLinePos > 0) {
+                co = findAliases(buffer.getMultiLine().substring(pipeLinePos, buffer.getMultiCursor()), buffer.getMultiCursor() - pipeLinePos);
+            }
+            else {
+                co = findAliases(buffer.getMultiLine(), buffer.getMultiCursor());
+            }
+
+            Future<?> future = executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    completion.complete(co);
+                    getMetrics(completion).completed(System.nanoTime() - start);
+                }
+            });
+            completions.add(new PendingCompletion(completion, co, future));
+        }
+        return completions;
+    }
+
+    /**
+     * Stop the completions still running from the last tab, the line they
+     * completed has changed.
+     */
+    public void cancelCompletion() {
+        PendingCompletions pending = pendingCompletions;
+        if(pending != null) {
+            pendingCompletions = null;
+            for(PendingCompletion completion : pending.completions)
+                if(completion.future.cancel(true))
+                    getMetrics(completion.completion).cancelled();
+        }
+    }
+
+    /**
+     * @param timeout milliseconds to wait for the completions, less than 1
+     *                wait until they are done, which is the default
+     */
+    public void setCompletionTimeout(long timeout) {
+        completionTimeout = timeout;
+    }
+
+    public long getCompletionTimeout() {
+        return completionTimeout;
+    }
+
+    /**
+     * @return how long each completion take
+     */
+    public Map<Completion, CompletionMetrics> getCompletionMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    private CompletionMetrics getMetrics(Completion completion) {
+        CompletionMetrics completionMetrics = metrics.get(completion);
+        if(completionMetrics == null) {
+            completionMetrics = new CompletionMetrics();
+            CompletionMetrics existing = metrics.putIfAbsent(completion, completionMetrics);
+            if(existing != null)
+                completionMetrics = existing;
+        }
+        return completionMetrics;
+    }
+
     /**
      * Display the completion string in the terminal.
      * If !completion.startsWith(buffer.getLine()) the completion will be added to the line,
@@ -265,4 +423,28 @@ public class AeshCompletionHandler implements CompletionHandler {
 
         return new CompleteOperation(aeshContext, buffer, cursor);
     }
+
+    private static class PendingCompletion {
+        private final Completion completion;
+        private final CompleteOperation operation;
+        private final Future<?> future;
+
+        PendingCompletion(Completion completion, CompleteOperation operation, Future<?> future) {
+            this.completion = completion;
+            this.operation = operation;
+            this.future = future;
+        }
+    }
+
+    private static class PendingCompletions {
+        private final String line;
+        private final int cursor;
+        private final List<PendingCompletion> completions;
+
+        PendingCompletions(String line, int cursor, List<PendingCompletion> completions) {
+            this.line = line;
+            this.cursor = cursor;
+            this.completions = completions;
+        }
+    }
 }
@@ -34,6 +34,8 @@ import org.jboss.aesh.util.LoggerUtil;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.logging.Logger;
 
 /**
@@ -44,6 +46,8 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
     private EditMode editMode;
     private final PrintStream err;
     private final PrintStream out;
+    //given to everyone else, what they write will invalidate the rendered line
+    private final PrintStream externalOut;
 
     private final Buffer buffer;
     private final Shell shell;
@@ -55,6 +59,11 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
 
     private final boolean isLogging = false;
 
+    //the line (without prompt) as its currently displayed, null if we do not know
+    private StringBuilder renderedLine;
+    private String renderedPrompt;
+    private int renderedWidth;
+
     //used to optimize text deletion
     private static final char[] resetLineAndSetCursorToStart =
             (ANSI.CURSOR_SAVE+ANSI.START+"0G"+ANSI.START+"2K").toCharArray();
@@ -63,6 +72,7 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
 
     AeshConsoleBuffer(Prompt prompt, Shell shell, EditMode editMode) {
         this.out = shell.out();
+        this.externalOut = new InvalidatingPrintStream(out);
         this.err = shell.err();
         this.buffer = new Buffer(prompt);
         this.shell = shell;
@@ -80,7 +90,7 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
 
     @Override
     public PrintStream out() {
-        return out;
+        return externalOut;
     }
 
     @Override
@@ -130,6 +140,12 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
     public void drawLine(boolean keepCursorPosition) {
         if(isLogging)
             LOGGER.info("drawing: "+buffer.getPrompt().getPromptAsString() + buffer.getLine());
+        //if we know what is on screen we only need to redraw what have changed
+        if(isRendered()) {
+            drawDelta(keepCursorPosition);
+            out.flush();
+            return;
+        }
         //need to clear more than one line
         String line = buffer.getPrompt().getPromptAsString() + buffer.getLine();
 
@@ -137,8 +153,10 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
                 (buffer.getDelta() < 0 && line.length()+ Math.abs(buffer.getDelta()) > shell.getSize().getWidth())) {
             if(buffer.getDelta() == -1 && buffer.getCursor() >= buffer.length() && Config.isOSPOSIXCompatible())
                 redrawMultipleLinesBackspace();
-            else
+            else {
                 redrawMultipleLines(keepCursorPosition);
+                setRendered();
+            }
         }
         // only clear the current line
         else {
@@ -162,11 +180,131 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
                     out.print(buffer.getLine());
                     buffer.setCursor(buffer.getLine().length());
                 }
+                setRendered();
             }
         }
         out.flush();
     }
 
+    private boolean isRendered() {
+        return renderedLine != null && renderedWidth == shell.getSize().getWidth() &&
+                renderedPrompt.equals(getVisiblePrompt());
+    }
+
+    private String getVisiblePrompt() {
+        return buffer.isPromptDisabled() ? "" : buffer.getPrompt().getPromptAsString();
+    }
+
+    /**
+     * The prompt and the current line is what is displayed
+     */
+    private void setRendered() {
+        if(renderedLine == null)
+            renderedLine = new StringBuilder(buffer.getLine());
+        else {
+            renderedLine.setLength(0);
+            renderedLine.append(buffer.getLine());
+        }
+        renderedPrompt = getVisiblePrompt();
+        renderedWidth = shell.getSize().getWidth();
+    }
+
+    /**
+     * Update the rendered line after we have written c at position
+     */
+    private void setRendered(int position, char c) {
+        if(renderedLine != null) {
+            if(position < renderedLine.length())
+                renderedLine.setCharAt(position, c);
+            else if(position == renderedLine.length())
+                renderedLine.append(c);
+            else
+                renderedLine = null;
+        }
+    }
+
+    /**
+     * Compare the rendered line with the current line and only write the changed span.
+     * The terminal cursor is expected to be at the buffer cursor.
+     */
+    private void drawDelta(boolean keepCursorPosition) {
+        String line = buffer.getLine();
+        int width = shell.getSize().getWidth();
+        int promptLength = buffer.isPromptDisabled() ? 0 : buffer.getPrompt().getLength();
+        int renderedLength = renderedLine.length();
+
+        int start = 0;
+        int min = Math.min(renderedLength, line.length());
+        while(start < min && renderedLine.charAt(start) == line.charAt(start))
+            start++;
+        //if the length is the same, nothing is shifted so the end might be unchanged
+        int end = line.length();
+        if(renderedLength == line.length())
+            while(end > start && renderedLine.charAt(end-1) == line.charAt(end-1))
+                end--;
+
+        StringBuilder builder = new StringBuilder();
+        int position = buffer.getCursor();
+        if(end > start) {
+            moveTo(builder, position, start, promptLength, width);
+            builder.append(line, start, end);
+            position = end;
+            //the terminal do not wrap before the next char is written
+            if((promptLength + end) % width == 0) {
+                if(end < line.length()) {
+                    builder.append(line.charAt(end));
+                    position++;
+                }
+                else {
+                    // add a 'fake' new line when we end at the edge of terminal
+                    builder.append(' ').append('\r');
+                    renderedLength = Math.max(renderedLength, end+1);
+                }
+            }
+        }
+        //clear what is left of the previous line, might span multiple rows
+        if(renderedLength > line.length()) {
+            moveTo(builder, position, line.length(), promptLength, width);
+            position = line.length();
+            builder.append(Buffer.printAnsi("K"));
+            int rows = (promptLength + renderedLength - 1) / width - (promptLength + position) / width;
+            for(int i = 0; i < rows; i++) {
+                builder.append(Buffer.printAnsi("B")).append(Buffer.printAnsi("2K"));
+                position += width;
+            }
+        }
+
+        if(keepCursorPosition)
+            moveTo(builder, position, buffer.getCursor(), promptLength, width);
+        else {
+            moveTo(builder, position, line.length(), promptLength, width);
+            buffer.setCursor(line.length());
+        }
+
+        if(builder.length() > 0)
+            out.print(builder);
+        setRendered();
+    }
+
+    /**
+     * Move the cursor from one position in the line to another, the line might span multiple rows
+     */
+    private static void moveTo(StringBuilder builder, int from, int to, int promptLength, int width) {
+        int fromRow = (promptLength + from) / width;
+        int toRow = (promptLength + to) / width;
+        int fromColumn = (promptLength + from) % width;
+        int toColumn = (promptLength + to) % width;
+        if(toRow > fromRow)
+            builder.append(Buffer.printAnsi((toRow - fromRow) + "B"));
+        else if(toRow < fromRow)
+            builder.append(Buffer.printAnsi((fromRow - toRow) + "A"));
+
+        if(toColumn > fromColumn)
+            builder.append(Buffer.printAnsi((toColumn - fromColumn) + "C"));
+        else if(toColumn < fromColumn)
+            builder.append(Buffer.printAnsi((fromColumn - toColumn) + "D"));
+    }
+
     @Override
     public void updateCurrentAction(Action action) {
         this.currentAction = action;
@@ -322,14 +460,73 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
 
     @Override
     public void writeChars(int[] chars) {
-        for(int c : chars)
-            writeChar((char) c);
+        for(int c : chars) {
+            //supplementary code points are written as a surrogate pair
+            if(Character.isSupplementaryCodePoint(c))
+                writeString(new String(Character.toChars(c)));
+            else
+                writeChar((char) c);
+        }
     }
 
+    /**
+     * Write the whole string as one edit, the line is only redrawn once.
+     */
     @Override
     public void writeString(String input) {
-        for(char c : input.toCharArray())
-            writeChar(c);
+        if(input.length() == 1) {
+            writeChar(input.charAt(0));
+            return;
+        }
+        int rowsBefore = numberOfRows(buffer.totalLength());
+        buffer.write(input);
+        if(buffer.getPrompt().isMasking()) {
+            if(buffer.getPrompt().getMask() != 0) {
+                char[] mask = new char[input.length()];
+                Arrays.fill(mask, buffer.getPrompt().getMask());
+                out.print(mask);
+                out.flush();
+                for(int i = buffer.getCursor() - input.length(); i < buffer.getCursor(); i++)
+                    setRendered(i, buffer.getPrompt().getMask());
+            }
+            return;
+        }
+        out.print(input);
+        for(int i = 0; i < input.length(); i++)
+            setRendered(buffer.getCursor() - input.length() + i, input.charAt(i));
+
+        int width = shell.getSize().getWidth();
+        // add a 'fake' new line when we end at the edge of terminal
+        if(buffer.getCursorWithPrompt() > width &&
+                buffer.getCursorWithPrompt() % width == 1) {
+            out.print((char) 32);
+            out.print((char) 13);
+            setRendered(buffer.getCursor(), ' ');
+        }
+
+        // if we insert somewhere other than the end of the line we need to redraw from cursor
+        if(buffer.getCursor() < buffer.length()) {
+            //make sure that we have enough rows below the cursor for the rest of the line
+            int totalRows = numberOfRows(buffer.totalLength());
+            if(totalRows > rowsBefore) {
+                int currentRow = numberOfRows(buffer.getCursorWithPrompt());
+                int missingRows = shell.getCursor().getRow() + (totalRows - currentRow) -
+                        shell.getSize().getHeight();
+                if(missingRows > 0) {
+                    out.print(Buffer.printAnsi(missingRows + "S"));
+                    out.print(Buffer.printAnsi(missingRows + "A"));
+                }
+            }
+            drawLine();
+        }
+        out.flush();
+    }
+
+    private int numberOfRows(int length) {
+        int rows = length / shell.getSize().getWidth();
+        if(rows > 0 && length % shell.getSize().getWidth() == 0)
+            rows--;
+        return rows;
     }
 
     @Override
@@ -339,13 +536,16 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
         //if mask is set and not set to 0 (nullvalue) we write out
         //the masked char. if masked is set to 0 we write nothing
         if(buffer.getPrompt().isMasking()) {
-            if(buffer.getPrompt().getMask() != 0)
+            if(buffer.getPrompt().getMask() != 0) {
                 out.print(buffer.getPrompt().getMask());
+                setRendered(buffer.getCursor() - 1, buffer.getPrompt().getMask());
+            }
             else
                 return;
         }
         else {
             out.print(c);
+            setRendered(buffer.getCursor() - 1, c);
         }
 
         // add a 'fake' new line when inserting at the edge of terminal
@@ -353,6 +553,7 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
                 buffer.getCursorWithPrompt() % shell.getSize().getWidth() == 1) {
             out.print((char) 32);
             out.print((char) 13);
+            setRendered(buffer.getCursor(), ' ');
         }
 
         // if we insert somewhere other than the end of the line we need to redraw from cursor
@@ -392,9 +593,10 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
             //set cursor position line.length
             displayPrompt(prompt);
             if(buffer.getLine().length() > 0) {
-                out().print(buffer.getLine());
+                out.print(buffer.getLine());
                 buffer.setCursor(buffer.getLine().length());
-                out().flush();
+                out.flush();
+                setRendered();
             }
         }
     }
@@ -463,6 +665,12 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
         else
             out.print(ANSI.START + "0G" + ANSI.START + "2K" + prompt.getPromptAsString());
         out.flush();
+        if(renderedLine == null)
+            renderedLine = new StringBuilder();
+        else
+            renderedLine.setLength(0);
+        renderedPrompt = prompt.getPromptAsString();
+        renderedWidth = shell.getSize().getWidth();
     }
 
     @Override
@@ -569,9 +777,177 @@ public class AeshConsoleBuffer implements ConsoleBuffer {
         //then write prompt
         if(includeBuffer) {
             displayPrompt();
-            out().print(buffer.getLine());
+            out.print(buffer.getLine());
+            setRendered();
         }
         out().flush();
     }
 
+    /**
+     * Everything written by others might have changed what is displayed,
+     * so the rendered line is invalidated before anything is written and
+     * the next drawLine will redraw the whole line. Text is handed to the
+     * shell stream as text, so it is encoded with the same charset as
+     * everything else written to the console.
+     */
+    private class InvalidatingPrintStream extends PrintStream {
+
+        private final PrintStream shellOut;
+
+        InvalidatingPrintStream(PrintStream shellOut) {
+            super(shellOut, true);
+            this.shellOut = shellOut;
+        }
+
+        @Override
+        public void write(int b) {
+            renderedLine = null;
+            shellOut.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            renderedLine = null;
+            shellOut.write(b, off, len);
+        }
+
+        @Override
+        public void print(boolean b) {
+            renderedLine = null;
+            shellOut.print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            renderedLine = null;
+            shellOut.print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            renderedLine = null;
+            shellOut.print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            renderedLine = null;
+            shellOut.print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            renderedLine = null;
+            shellOut.print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            renderedLine = null;
+            shellOut.print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            renderedLine = null;
+            shellOut.print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            renderedLine = null;
+            shellOut.print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            renderedLine = null;
+            shellOut.print(obj);
+        }
+
+        @Override
+        public void println() {
+            renderedLine = null;
+            shellOut.println();
+        }
+
+        @Override
+        public void println(boolean b) {
+            renderedLine = null;
+            shellOut.println(b);
+        }
+
+        @Override
+        public void println(char c) {
+            renderedLine = null;
+            shellOut.println(c);
+        }
+
+        @Override
+        public void println(int i) {
+            renderedLine = null;
+            shellOut.println(i);
+        }
+
+        @Override
+        public void println(long l) {
+            renderedLine = null;
+            shellOut.println(l);
+        }
+
+        @Override
+        public void println(float f) {
+            renderedLine = null;
+            shellOut.println(f);
+        }
+
+        @Override
+        public void println(double d) {
+            renderedLine = null;
+            shellOut.println(d);
+        }
+
+        @Override
+        public void println(char[] s) {
+            renderedLine = null;
+            shellOut.println(s);
+        }
+
+        @Override
+        public void println(String s) {
+            renderedLine = null;
+            shellOut.println(s);
+        }
+
+        @Override
+        public void println(Object obj) {
+            renderedLine = null;
+            shellOut.println(obj);
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            renderedLine = null;
+            shellOut.format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            renderedLine = null;
+            shellOut.format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+            shellOut.flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return shellOut.checkError();
+        }
+    }
+
 }
@@ -20,6 +20,7 @@
 package org.jboss.aesh.console;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -177,6 +178,18 @@ public class AeshConsoleImpl implements AeshConsole {
         return console.getExportManager();
     }
 
+    /**
+     * Create an executor that run lines with the commands of this console
+     * without using the terminal, for scripts and other programs.
+     *
+     * @param out where the commands write their output
+     * @param err where the commands write their errors
+     */
+    public BatchExecutor createBatchExecutor(PrintStream out, PrintStream err) {
+        //its own callback, so it is not given the input of the interactive process
+        return new BatchExecutor(console, new AeshConsoleCallbackImpl(this), out, err);
+    }
+
     public String getBuffer() {
         return console.getBuffer();
     }
@@ -197,6 +210,10 @@ public class AeshConsoleImpl implements AeshConsole {
         console.pushToInputStream(input);
     }
 
+    Console getConsole() {
+        return console;
+    }
+
     private void processAfterInit(Settings settings) {
         if (settings.isManEnabled()) {
             internalRegistry = new AeshInternalCommandRegistry();
@@ -221,9 +238,8 @@ public class AeshConsoleImpl implements AeshConsole {
         List<String> matchedCommands = registry.findAllCommandNames(input);
         if(matchedCommands == null)
             matchedCommands = new ArrayList<>();
-        for(String internalCommand : internalRegistry.getAllCommandNames())
-            if(internalCommand.startsWith(input))
-                matchedCommands.add(internalCommand);
+        if(internalRegistry != null)
+            matchedCommands.addAll(internalRegistry.findAllCommandNames(input));
 
         return matchedCommands;
 
@@ -288,7 +304,7 @@ public class AeshConsoleImpl implements AeshConsole {
                 try (CommandContainer commandContainer = getCommand( aeshLine, completeOperation.getBuffer())) {
 
                     CommandLineCompletionParser completionParser = commandContainer
-                        .getParser().getCompletionParser();
+                        .createInvocationParser().getCompletionParser();
 
                     ParsedCompleteObject completeObject = completionParser
                             .findCompleteObject(completeOperation.getBuffer(),
@@ -313,7 +329,6 @@ public class AeshConsoleImpl implements AeshConsole {
     class AeshConsoleCallbackImpl extends AeshConsoleCallback {
 
         private final AeshConsoleImpl console;
-        private CommandResult result;
 
         AeshConsoleCallbackImpl(AeshConsoleImpl aeshConsole) {
             this.console = aeshConsole;
@@ -322,6 +337,8 @@ public class AeshConsoleImpl implements AeshConsole {
         @Override
         @SuppressWarnings("unchecked")
         public int execute(ConsoleOperation output) throws InterruptedException {
+            //the processes in a pipeline run at the same time, so the result is kept local
+            CommandResult result;
             if (output != null && output.getBuffer().trim().length() > 0) {
                 ResultHandler resultHandler = null;
                 AeshLine aeshLine = Parser.findAllWords(output.getBuffer());
@@ -90,6 +90,14 @@ public class AeshInputProcessor implements InputProcessor {
     @Override
     public String parseOperation(CommandOperation commandOperation) throws IOException {
 
+        //a paste of printable input is written as one edit
+        if(commandOperation.isPaste()) {
+            cancelCompletion();
+            consoleBuffer.writeString(new String(commandOperation.getInput(), commandOperation.getPosition(),
+                    commandOperation.getEnd() - commandOperation.getPosition()));
+            return null;
+        }
+
         Operation operation = consoleBuffer.getEditMode().parseInput(commandOperation.getInputKey(),
                 consoleBuffer.getBuffer().getLine());
         if(commandOperation.getInputKey() != Key.UNKNOWN)
@@ -98,6 +106,9 @@ public class AeshInputProcessor implements InputProcessor {
             operation.setInput(new int[]{ commandOperation.getInput()[commandOperation.getPosition()]});
 
         Action action = operation.getAction();
+        //the line is about to change, a completion still running is of no use
+        if(action != Action.COMPLETE)
+            cancelCompletion();
 
         if (action == Action.EDIT) {
             consoleBuffer.writeChars(operation.getInput());
@@ -383,6 +394,11 @@ public class AeshInputProcessor implements InputProcessor {
         }
     }
 
+    private void cancelCompletion() {
+        if(completionHandler instanceof AeshCompletionHandler)
+            ((AeshCompletionHandler) completionHandler).cancelCompletion();
+    }
+
     private void complete() {
         if(completionHandler != null) {
             try {
@@ -30,19 +30,29 @@ public class AeshProcess implements Runnable, Process {
     private ProcessManager manager;
     private final ConsoleCallback consoleCallback;
     private final ConsoleOperation operation;
-    private CommandResult exitResult;
-    private Thread myThread;
-    private Status status;
+    private volatile CommandResult exitResult;
+    private volatile int exitValue;
+    private volatile Thread myThread;
+    private volatile Status status;
+    private final ProcessStreams streams;
 
     public AeshProcess(int pid, ProcessManager manager,
                        ConsoleCallback consoleCallback,
                        ConsoleOperation consoleOperation) {
+        this(pid, manager, consoleCallback, consoleOperation, null, Status.FOREGROUND);
+    }
+
+    AeshProcess(int pid, ProcessManager manager,
+                ConsoleCallback consoleCallback,
+                ConsoleOperation consoleOperation,
+                ProcessStreams streams, Status status) {
         this.manager = manager;
         this.consoleCallback = consoleCallback;
         this.operation = consoleOperation;
+        this.streams = streams;
         this.consoleCallback.setProcess(this);
         this.operation.setPid(pid);
-        status = Status.FOREGROUND;
+        this.status = status;
     }
 
     @Override
@@ -50,6 +60,7 @@ public class AeshProcess implements Runnable, Process {
         try {
             Thread.currentThread().setName("AeshProcess: " + operation.getPid());
             myThread = Thread.currentThread();
+            ProcessStreams.setCurrent(streams);
             setExitResult( consoleCallback.execute(operation));
         }
         catch (InterruptedException e) {
@@ -57,6 +68,12 @@ public class AeshProcess implements Runnable, Process {
             //e.printStackTrace();
         }
         finally {
+            if(streams != null)
+                streams.close();
+            ProcessStreams.setCurrent(null);
+            myThread = null;
+            //the thread is reused by the next process
+            Thread.interrupted();
             manager.processHaveFinished(this);
         }
     }
@@ -76,15 +93,10 @@ public class AeshProcess implements Runnable, Process {
         return operation.getPid();
     }
 
+    //the value is kept here, CommandResult is shared by every process
     private void setExitResult(int exitStatus) {
-        if(exitStatus == 0) {
-            exitResult = CommandResult.SUCCESS;
-            exitResult.setResultValue(0);
-        }
-        else {
-            exitResult = CommandResult.FAILURE;
-            exitResult.setResultValue(exitStatus);
-        }
+        exitValue = exitStatus;
+        exitResult = exitStatus == 0 ? CommandResult.SUCCESS : CommandResult.FAILURE;
     }
 
     @Override
@@ -92,6 +104,13 @@ public class AeshProcess implements Runnable, Process {
         return exitResult;
     }
 
+    /**
+     * @return the value returned by the process, 0 if it succeeded
+     */
+    public int getExitValue() {
+        return exitValue;
+    }
+
     @Override
     public void interrupt() {
         if(myThread != null)
@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * A console run by an {@link AeshSessionHost}.
+ * The input of the session is written to it, decoded and handed to the
+ * console without blocking, the console handle it on the executor of the host.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class AeshSession {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final int[] END_OF_INPUT = new int[] {-1};
+
+    private final AeshConsoleImpl console;
+    //bytes are kept between writes so multi-byte sequences split over two writes are decoded correctly
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean closed;
+
+    AeshSession(AeshConsoleImpl console) {
+        this.console = console;
+    }
+
+    public AeshConsole getConsole() {
+        return console;
+    }
+
+    public void write(byte[] input) {
+        write(input, 0, input.length);
+    }
+
+    /**
+     * Input of the session, as if it was typed in its terminal.
+     * Returns when the input is queued, it is not handled yet.
+     */
+    public synchronized void write(byte[] input, int offset, int length) {
+        if(closed)
+            return;
+        while(length > 0) {
+            int count = Math.min(length, bytes.remaining());
+            bytes.put(input, offset, count);
+            offset += count;
+            length -= count;
+            bytes.flip();
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, false);
+                receiveChars();
+            }
+            while(result.isOverflow());
+            bytes.compact();
+        }
+    }
+
+    private void receiveChars() {
+        chars.flip();
+        int[] codePoints = new int[chars.remaining()];
+        int count = 0;
+        while(chars.hasRemaining()) {
+            char c = chars.get();
+            if(Character.isHighSurrogate(c)) {
+                //its low surrogate is part of the next write
+                if(!chars.hasRemaining()) {
+                    chars.position(chars.position() - 1);
+                    break;
+                }
+                if(Character.isLowSurrogate(chars.get(chars.position()))) {
+                    codePoints[count++] = Character.toCodePoint(c, chars.get());
+                    continue;
+                }
+            }
+            codePoints[count++] = c;
+        }
+        chars.compact();
+        if(count > 0)
+            console.getConsole().receive(Arrays.copyOf(codePoints, count));
+    }
+
+    /**
+     * End of the input, the console stop when the input written before is
+     * handled and the command running in the foreground has finished.
+     */
+    public synchronized void close() {
+        if(!closed) {
+            closed = true;
+            console.getConsole().receive(END_OF_INPUT);
+        }
+    }
+
+    public boolean isRunning() {
+        return console.isRunning();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.command.registry.CommandRegistry;
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.POSIXTerminal;
+import org.jboss.aesh.terminal.Terminal;
+import org.jboss.aesh.terminal.WindowsTerminal;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the consoles of many sessions in one JVM, all of them using the same
+ * CommandRegistry and the threads of two shared executors.
+ * A session do not have any threads of its own, its input is written to it
+ * with {@link AeshSession#write(byte[], int, int)} by whatever is serving
+ * the session, e.g. a selector loop reading from sockets, and handled by a
+ * task on the input executor. The input executor has a fixed number of
+ * threads, the commands and completions, that can block, are run by a
+ * process executor that add threads as needed. Idle sessions cost no threads.
+ *
+ * The commands of the registry are run by many sessions at the same time,
+ * commands with state should use CommandScope.PROTOTYPE.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class AeshSessionHost {
+
+    private final CommandRegistry registry;
+    private final ExecutorService inputExecutor;
+    private final ExecutorService processExecutor;
+    private final boolean ownExecutors;
+    private final Set<AeshSession> sessions =
+            Collections.newSetFromMap(new ConcurrentHashMap<AeshSession, Boolean>());
+    private volatile boolean stopped;
+
+    /**
+     * The input of the sessions is handled by one thread per processor
+     */
+    public AeshSessionHost(CommandRegistry registry) {
+        this(registry, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public AeshSessionHost(CommandRegistry registry, int inputThreads) {
+        this(registry, Executors.newFixedThreadPool(inputThreads, new HostThreadFactory("Aesh Session Input ")),
+                Executors.newCachedThreadPool(new HostThreadFactory("Aesh Session Process ")), true);
+    }
+
+    /**
+     * The executors are not shut down when the host stop.
+     *
+     * @param inputExecutor handles the input of all the sessions, each
+     *                      session only use one thread at the time
+     * @param processExecutor runs the commands and completions of all the
+     *                        sessions, it must add threads when all of them
+     *                        are busy since commands can wait for input
+     */
+    public AeshSessionHost(CommandRegistry registry, ExecutorService inputExecutor,
+                           ExecutorService processExecutor) {
+        this(registry, inputExecutor, processExecutor, false);
+    }
+
+    private AeshSessionHost(CommandRegistry registry, ExecutorService inputExecutor,
+                            ExecutorService processExecutor, boolean ownExecutors) {
+        if(registry == null)
+            throw new IllegalArgumentException("registry can not be null");
+        if(inputExecutor == null || processExecutor == null)
+            throw new IllegalArgumentException("executors can not be null");
+        this.registry = registry;
+        this.inputExecutor = inputExecutor;
+        this.processExecutor = processExecutor;
+        this.ownExecutors = ownExecutors;
+    }
+
+    /**
+     * Create and start the console of a new session.
+     * The settings must have a terminal of their own, that is not the local
+     * terminal, e.g. a TestTerminal writing to the output stream of the
+     * session. The input stream of the settings is not read.
+     *
+     * @throws IllegalArgumentException if the settings use the local terminal
+     * @throws IllegalStateException if the host is stopped
+     */
+    public AeshSession openSession(Settings settings) {
+        if(stopped)
+            throw new IllegalStateException("The session host is stopped");
+        Terminal terminal = settings.getTerminal();
+        if(terminal instanceof POSIXTerminal || terminal instanceof WindowsTerminal)
+            throw new IllegalArgumentException("A session can not use the local terminal: " + terminal);
+
+        Settings sessionSettings = new SettingsBuilder(settings)
+                .inputExecutor(inputExecutor)
+                .processExecutor(processExecutor)
+                .inputStream(new ByteArrayInputStream(new byte[0]))
+                .create();
+        AeshConsoleImpl console = (AeshConsoleImpl) new AeshConsoleBuilder()
+                .settings(sessionSettings)
+                .commandRegistry(registry)
+                .create();
+
+        removeStoppedSessions();
+        AeshSession session = new AeshSession(console);
+        sessions.add(session);
+        console.start();
+        return session;
+    }
+
+    public CommandRegistry getCommandRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return the sessions that are running
+     */
+    public List<AeshSession> getSessions() {
+        removeStoppedSessions();
+        return new ArrayList<>(sessions);
+    }
+
+    private void removeStoppedSessions() {
+        Iterator<AeshSession> iterator = sessions.iterator();
+        while(iterator.hasNext())
+            if(!iterator.next().isRunning())
+                iterator.remove();
+    }
+
+    /**
+     * Close all the sessions, they stop when the input they have received is
+     * handled and their commands have finished.
+     * The executors are shut down if they were created by the host.
+     */
+    public void stop() {
+        stopped = true;
+        for(AeshSession session : sessions)
+            session.close();
+        sessions.clear();
+        if(ownExecutors) {
+            inputExecutor.shutdown();
+            processExecutor.shutdown();
+        }
+    }
+
+    private static class HostThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        HostThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName(name + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
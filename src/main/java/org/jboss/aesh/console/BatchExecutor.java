@@ -0,0 +1,376 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.operator.ControlOperator;
+import org.jboss.aesh.console.operator.ControlOperatorParser;
+import org.jboss.aesh.console.reader.AeshStandardStream;
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.io.Pipe;
+import org.jboss.aesh.io.Resource;
+import org.jboss.aesh.parser.AeshLine;
+import org.jboss.aesh.parser.Parser;
+import org.jboss.aesh.util.LoggerUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Run command lines from a script or another program without going through
+ * the terminal: no key handling, edit mode, prompt, redraw or history, and no
+ * process threads. The lines are split by the ControlOperatorParser and the
+ * commands are found in the CommandRegistry of the console and run on the
+ * calling thread, writing their output directly to the given streams.
+ *
+ * The commands in a pipeline are run at the same time and connected with a
+ * bounded Pipe, so the output of a command is streamed to the next one and
+ * is never kept in memory. The last command is run on the calling thread, the
+ * others on pool threads, and the exit value of a pipeline is the one of its
+ * last command.
+ * A command after && is only run if the last command succeeded, after || only
+ * if it failed. Commands do not get any input from the user.
+ *
+ * A BatchExecutor can only be used by one thread at the time, create one for
+ * each thread running lines.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class BatchExecutor {
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(BatchExecutor.class.getName());
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    //runs the commands in a pipeline that write to the next one, idle threads are removed
+    private static final ExecutorService PIPELINE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("Aesh Batch Pipeline " + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Console console;
+    private final ConsoleCallback callback;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    BatchExecutor(Console console, ConsoleCallback callback, PrintStream out, PrintStream err) {
+        this.console = console;
+        this.callback = callback;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Run all the commands on the line.
+     *
+     * @return exit value of the last command that was run, 0 for success
+     * @throws InterruptedException if the thread was interrupted while running a command
+     */
+    public int execute(String line) throws InterruptedException {
+        Settings settings = console.getSettings();
+        if(line.startsWith(Parser.SPACE))
+            line = Parser.trimInFront(line);
+        if(line.length() == 0)
+            return 0;
+
+        List<ConsoleOperation> operations;
+        if(settings.isOperatorParserEnabled())
+            operations = ControlOperatorParser.findAllControlOperators(line);
+        else {
+            operations = new ArrayList<>(1);
+            operations.add(new ConsoleOperation(ControlOperator.NONE, line));
+        }
+
+        int exitValue = 0;
+        //false if the next command is skipped by && or ||
+        boolean run = true;
+        int index = 0;
+        try {
+            while(index < operations.size()) {
+                //the commands connected with pipes are run together
+                List<Stage> pipeline = new ArrayList<>();
+                ControlOperator operator;
+                InputStream pipedInput = null;
+                try {
+                    do {
+                        ConsoleOperation operation = operations.get(index++);
+                        Stage stage = new Stage(pipedInput);
+                        pipeline.add(stage);
+                        pipedInput = null;
+
+                        //redirections are followed by the file name, the operator after
+                        //the file name is the one that ends the command
+                        operator = operation.getControlOperator();
+                        while(operator.isOut() || operator.isErr() || operator == ControlOperator.OVERWRITE_IN) {
+                            String fileName = index < operations.size() ? operations.get(index).getBuffer() : null;
+                            if(run && stage.redirected)
+                                stage.redirected = redirect(stage, operator, fileName);
+                            operator = index < operations.size() ?
+                                    operations.get(index++).getControlOperator() : ControlOperator.NONE;
+                        }
+
+                        if(operator.isPipe() && index < operations.size()) {
+                            Pipe pipe = new Pipe();
+                            PrintStream pipeStream = new PrintStream(pipe.getOutputStream(), true);
+                            stage.resources.add(pipeStream);
+                            //output that is redirected to a file is not written to the pipe
+                            if(stage.streams.getOut() == out)
+                                stage.streams.setOut(pipeStream);
+                            //|& is 2>&1 |, stderr is written to the same pipe
+                            if(operator == ControlOperator.PIPE_OUT_AND_ERR && stage.streams.getErr() == err)
+                                stage.streams.setErr(pipeStream);
+                            pipedInput = pipe.getInputStream();
+                        }
+                        stage.operation = new ConsoleOperation(operator, operation.getBuffer());
+                    }
+                    while(pipedInput != null);
+
+                    if(run)
+                        exitValue = run(pipeline, exitValue);
+                }
+                finally {
+                    for(Stage stage : pipeline)
+                        stage.close();
+                }
+
+                //the parser add a copy of the line when it has no operators
+                if(operator == ControlOperator.NONE)
+                    break;
+                else if(operator == ControlOperator.AND)
+                    run = exitValue == 0;
+                else if(operator == ControlOperator.OR)
+                    run = exitValue != 0;
+                else if(!operator.isPipe())
+                    run = true;
+            }
+        }
+        finally {
+            out.flush();
+            err.flush();
+        }
+        return exitValue;
+    }
+
+    /**
+     * Run every line of the script, blank lines and lines starting with # are skipped.
+     *
+     * @param listener told about the exit value of every line that was run, can be null
+     * @return exit value of the last line that was run, 0 for success
+     * @throws IOException if the script could not be read
+     * @throws InterruptedException if the thread was interrupted while running a command
+     */
+    public int execute(Reader script, BatchListener listener) throws IOException, InterruptedException {
+        BufferedReader reader = script instanceof BufferedReader ?
+                (BufferedReader) script : new BufferedReader(script);
+        int exitValue = 0;
+        int lineNumber = 0;
+        String line;
+        while((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if(trimmed.length() == 0 || trimmed.startsWith("#"))
+                continue;
+            exitValue = execute(line);
+            if(listener != null)
+                listener.lineExecuted(lineNumber, line, exitValue);
+        }
+        return exitValue;
+    }
+
+    /**
+     * Run the commands of a pipeline, the last one on the calling thread.
+     *
+     * @param exitValue the exit value of the last command, kept if nothing is run
+     */
+    private int run(List<Stage> pipeline, int exitValue) throws InterruptedException {
+        int last = pipeline.size() - 1;
+        List<Future<Integer>> writers = new ArrayList<>(last);
+        try {
+            for(int i = 0; i < last; i++) {
+                final Stage stage = pipeline.get(i);
+                writers.add(PIPELINE_EXECUTOR.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws InterruptedException {
+                        return stage.run(0);
+                    }
+                }));
+            }
+            exitValue = pipeline.get(last).run(exitValue);
+            //the last command closed its input, so the others do not block on a full pipe
+            for(Future<Integer> writer : writers) {
+                try {
+                    writer.get();
+                }
+                catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Failed to run: " + e.getMessage(), e.getCause());
+                }
+            }
+            return exitValue;
+        }
+        finally {
+            //stops the commands that are still running if this thread was interrupted
+            for(Future<Integer> writer : writers)
+                writer.cancel(true);
+        }
+    }
+
+    /**
+     * @param exitValue the exit value of the last command, kept if nothing is run
+     */
+    private int run(ConsoleOperation operation, int exitValue) throws InterruptedException {
+        //nothing between two operators, like the end of "foo ;"
+        if(operation.getBuffer().trim().length() == 0)
+            return exitValue;
+        try {
+            operation = console.processInternalCommands(console.findAliases(operation));
+        }
+        catch (IOException e) {
+            LOGGER.warning("Failed to run: " + operation.getBuffer() + ", " + e.getMessage());
+            return 1;
+        }
+        //alias, unalias and export
+        if(operation.getBuffer() == null)
+            return 0;
+        return callback.execute(operation);
+    }
+
+    /**
+     * @return false if the file could not be opened, the error is written to err
+     */
+    private boolean redirect(Stage stage, ControlOperator redirection, String fileName) {
+        Settings settings = console.getSettings();
+        if(fileName == null) {
+            err.print(settings.getName() + ": syntax error near unexpected token 'newline'" +
+                    Config.getLineSeparator());
+            return false;
+        }
+        if(redirection == ControlOperator.OVERWRITE_IN) {
+            AeshLine line = Parser.findAllWords(fileName);
+            if(line.getWords().size() == 0) {
+                err.print(settings.getName() + ": syntax error near unexpected token '<'" +
+                        Config.getLineSeparator());
+                return false;
+            }
+            AeshContext context = console.getAeshContext();
+            Resource readFile = context.getCurrentWorkingDirectory().newInstance(
+                    Parser.switchEscapedSpacesToSpacesInWord(line.getWords().get(0)))
+                    .resolve(context.getCurrentWorkingDirectory()).get(0);
+            if(!readFile.isLeaf()) {
+                err.println(settings.getName() + ": " + readFile.toString() + " no such file.");
+                return false;
+            }
+            try {
+                BufferedInputStream in = new BufferedInputStream(readFile.read());
+                stage.resources.add(in);
+                stage.streams.getIn().setStdIn(in);
+                return true;
+            }
+            catch (IOException e) {
+                err.println(e.getMessage());
+                return false;
+            }
+        }
+
+        OutputStream file = console.openRedirection(fileName, redirection);
+        if(file == null)
+            return false;
+        PrintStream fileStream = new PrintStream(file, true);
+        stage.resources.add(fileStream);
+        if(redirection.isOut())
+            stage.streams.setOut(fileStream);
+        if(redirection.isErr())
+            stage.streams.setErr(fileStream);
+        return true;
+    }
+
+    /**
+     * One command of a pipeline with its own streams.
+     */
+    private class Stage {
+
+        private final ProcessStreams streams;
+        //files and pipe ends opened for the command
+        private final List<Closeable> resources = new ArrayList<>();
+        private ConsoleOperation operation;
+        //false if a redirection failed, the command is not run
+        private boolean redirected = true;
+
+        Stage(InputStream pipedInput) {
+            BufferedInputStream in = Console.emptyStream();
+            if(pipedInput != null) {
+                resources.add(pipedInput);
+                in = new BufferedInputStream(pipedInput);
+            }
+            streams = new ProcessStreams(new AeshStandardStream(in, Console.emptyStream()));
+            streams.setOut(out);
+            streams.setErr(err);
+        }
+
+        /**
+         * Run the command with its streams as the current ones, the streams are
+         * closed when it is done so the commands it is connected to do not wait for it.
+         */
+        int run(int exitValue) throws InterruptedException {
+            ProcessStreams previousStreams = ProcessStreams.current();
+            ProcessStreams.setCurrent(streams);
+            try {
+                if(!redirected)
+                    return 1;
+                return BatchExecutor.this.run(operation, exitValue);
+            }
+            finally {
+                streams.getOut().flush();
+                streams.getErr().flush();
+                close();
+                ProcessStreams.setCurrent(previousStreams);
+            }
+        }
+
+        synchronized void close() {
+            for(Closeable resource : resources) {
+                try {
+                    resource.close();
+                }
+                catch (IOException ignored) {
+                }
+            }
+            resources.clear();
+        }
+    }
+}
@@ -21,20 +21,30 @@ package org.jboss.aesh.console;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.aesh.complete.Completion;
+import org.jboss.aesh.complete.CompletionMetrics;
 import org.jboss.aesh.complete.CompletionRegistration;
 import org.jboss.aesh.console.alias.Alias;
 import org.jboss.aesh.console.alias.AliasCompletion;
@@ -51,6 +61,7 @@ import org.jboss.aesh.console.settings.Settings;
 import org.jboss.aesh.edit.EditMode;
 import org.jboss.aesh.edit.actions.Action;
 import org.jboss.aesh.history.History;
+import org.jboss.aesh.io.Pipe;
 import org.jboss.aesh.io.Resource;
 import org.jboss.aesh.parser.AeshLine;
 import org.jboss.aesh.parser.Parser;
@@ -59,8 +70,9 @@ import org.jboss.aesh.terminal.Key;
 import org.jboss.aesh.terminal.Shell;
 import org.jboss.aesh.terminal.Terminal;
 import org.jboss.aesh.terminal.TerminalSize;
+import org.jboss.aesh.terminal.TerminalSizeListener;
+import org.jboss.aesh.terminal.TerminalSizeNotifier;
 import org.jboss.aesh.util.ANSI;
-import org.jboss.aesh.util.FileUtils;
 import org.jboss.aesh.util.LoggerUtil;
 
 /**
@@ -75,21 +87,34 @@ public class Console {
     private ConsoleCallback consoleCallback;
 
     private volatile boolean running = false;
-    private ByteArrayOutputStream redirectPipeOutBuffer;
-    private ByteArrayOutputStream redirectPipeErrBuffer;
     private List<ConsoleOperation> operations;
     private ConsoleOperation currentOperation;
     private AliasManager aliasManager;
     private ExportManager exportManager;
     private Shell shell;
 
-    private ArrayBlockingQueue<CommandOperation> inputQueue;
+    private BlockingQueue<CommandOperation> inputQueue;
+    //guards the handoff between the reader, the inputQueue and the ProcessManager
+    private final ReentrantLock executorLock = new ReentrantLock();
+    private final Condition executorCondition = executorLock.newCondition();
+    //the unprocessed part of a paste, it is consumed before the inputQueue
+    private volatile CommandOperation pendingInput;
+
+    //bracketed paste markers, \e[200~ and \e[201~
+    private static final int[] BRACKETED_PASTE_START = new int[]{27,91,50,48,48,126};
+    private static final int[] BRACKETED_PASTE_END = new int[]{27,91,50,48,49,126};
 
     private ArrayBlockingQueue<int[]> cursorQueue;
     private transient boolean readingCursor = false;
 
     private ExecutorService readerService;
     private ExecutorService executorService;
+    //set when the console share its threads with the other consoles of a
+    //session host, the input is then received instead of read and handled
+    //by inputTask, one at the time, instead of the reader and executor loops
+    private ExecutorService inputExecutor;
+    private final Queue<int[]> receivedInput = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean inputTaskScheduled = new AtomicBoolean();
 
     private AeshContext context;
 
@@ -97,7 +122,7 @@ public class Console {
 
     private ConsoleBuffer consoleBuffer;
     private InputProcessor inputProcessor;
-    private CompletionHandler completionHandler;
+    private AeshCompletionHandler completionHandler;
 
     private AeshStandardStream standardStream;
     private transient boolean initiateStop = false;
@@ -171,6 +196,7 @@ public class Console {
             settings = Config.parseInputrc(settings);
 
         settings = Config.readRuntimeProperties(settings);
+        inputExecutor = settings.getInputExecutor();
 
         //init terminal
         settings.getTerminal().init(settings);
@@ -178,18 +204,19 @@ public class Console {
         EditMode editMode = settings.getEditMode();
         editMode.init(this);
 
-        inputQueue = new ArrayBlockingQueue<>(50000);
+        //linked, a console seldom have more than a few operations queued
+        inputQueue = new LinkedBlockingQueue<>(50000);
         cursorQueue = new ArrayBlockingQueue<>(1);
 
-        processManager = new ProcessManager(this, settings.isLogging());
+        if(settings.getProcessExecutor() == null)
+            processManager = new ProcessManager(this, settings.isLogging());
+        else
+            processManager = new ProcessManager(this, settings.isLogging(), settings.getProcessExecutor());
 
         operations = new ArrayList<>();
         currentOperation = null;
 
         standardStream = new AeshStandardStream();
-
-        redirectPipeOutBuffer = new ByteArrayOutputStream();
-        redirectPipeErrBuffer = new ByteArrayOutputStream();
         //setPrompt(new Prompt(""));
 
         shell = new ConsoleShell(getInternalShell(), this);
@@ -200,7 +227,12 @@ public class Console {
                 .editMode(editMode)
                 .create();
 
-        completionHandler = new AeshCompletionHandler(context, consoleBuffer, shell, true);
+        if(settings.getProcessExecutor() == null)
+            completionHandler = new AeshCompletionHandler(context, consoleBuffer, shell, true);
+        else
+            completionHandler = new AeshCompletionHandler(context, consoleBuffer, shell, true,
+                    settings.getProcessExecutor());
+        completionHandler.setCompletionTimeout(settings.getCompletionTimeout());
         //enable completion for redirection
         completionHandler.addCompletion( new RedirectionCompletion());
 
@@ -302,39 +334,48 @@ public class Console {
             throw new IllegalStateException("Not possible to start the Console without setting ConsoleCallback");
         running = true;
         displayPrompt();
-        startReader();
-        startExecutor();
+        if(inputExecutor == null) {
+            startReader();
+            startExecutor();
+        }
+        //input might have been received before we started
+        else
+            scheduleInputTask();
     }
 
     private PrintStream out() {
-        //if redirection enabled, put it into a buffer
-        if(currentOperation != null && currentOperation.getControlOperator().isRedirectionOut()) {
-            return new PrintStream(redirectPipeOutBuffer, true);
-        }
-        else {
+        //a process that is redirected or part of a pipeline have its own streams
+        ProcessStreams streams = ProcessStreams.current();
+        if(streams != null && streams.getOut() != null)
+            return streams.getOut();
+        else
             return getInternalShell().out();
-        }
     }
 
     private PrintStream err(){
-        //if redirection enabled, put it into a buffer
-        if(currentOperation != null && currentOperation.getControlOperator().isRedirectionErr()) {
-            return new PrintStream(redirectPipeErrBuffer, true);
-        }
-        else {
+        ProcessStreams streams = ProcessStreams.current();
+        if(streams != null && streams.getErr() != null)
+            return streams.getErr();
+        else
             return getInternalShell().err();
-        }
     }
 
-    //TODO:
     private AeshStandardStream in() {
-        return standardStream;
+        ProcessStreams streams = ProcessStreams.current();
+        if(streams != null)
+            return streams.getIn();
+        else
+            return standardStream;
     }
 
     public AeshContext getAeshContext() {
         return context;
     }
 
+    Settings getSettings() {
+        return settings;
+    }
+
     /**
      * Add a Completion to the completion list
      *
@@ -350,17 +391,33 @@ public class Console {
         };
     }
 
+    /**
+     * @return how long each of the completions take
+     */
+    public Map<Completion, CompletionMetrics> getCompletionMetrics() {
+        return completionHandler.getCompletionMetrics();
+    }
+
     public void stop() {
         initiateStop = true;
+        //the input task stop the console when the input is handled,
+        //it might be the one calling us so we cant wait for it
+        if(inputExecutor != null) {
+            scheduleInputTask();
+            return;
+        }
         //we need to make sure that we finish the data we
         // have already parsed and put into the queue before we quit
-        while(!inputQueue.isEmpty()) {
-            try {
-                Thread.sleep(10);
-            }
-            catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        executorLock.lock();
+        try {
+            while(hasInput())
+                executorCondition.await();
+        }
+        catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        finally {
+            executorLock.unlock();
         }
         try {
             getTerminal().close();
@@ -392,6 +449,7 @@ public class Console {
                 processManager.stop();
                 readerService.shutdown();
                 executorService.shutdown();
+                signalExecutor();
             }
             finally {
                 settings.getInputStream().close();
@@ -415,8 +473,30 @@ public class Console {
         inputProcessor.clearBufferAndDisplayPrompt();
     }
 
+    /**
+     * Input for the running process, pastes are split up since
+     * processes expect one key at the time.
+     */
     protected CommandOperation getInput() throws InterruptedException {
-        return inputQueue.take();
+        CommandOperation input = takeInput();
+        if(input.isPaste()) {
+            if(input.getPosition() + 1 < input.getEnd())
+                pendingInput = new CommandOperation(input.getInput(), input.getPosition() + 1, input.getEnd());
+            return new CommandOperation(input.getInputKey(), input.getInput(), input.getPosition());
+        }
+        return input;
+    }
+
+    private CommandOperation takeInput() throws InterruptedException {
+        CommandOperation input = pendingInput;
+        if(input != null)
+            pendingInput = null;
+        else
+            input = inputQueue.take();
+        //someone might wait for the input to be drained
+        if(inputQueue.isEmpty())
+            signalExecutor();
+        return input;
     }
 
     protected InputProcessor getInputProcessor() {
@@ -428,15 +508,27 @@ public class Console {
     }
 
     protected void putProcessInForeground(int pid) {
-        processManager.putProcessInBackground(pid);
+        processManager.putProcessInForeground(pid);
     }
 
     public void pushToInputStream(String input) {
-        getTerminal().writeToInputStream(input);
+        if(inputExecutor != null)
+            receive(toCodePoints(input));
+        else
+            getTerminal().writeToInputStream(input);
+    }
+
+    private static int[] toCodePoints(String input) {
+        int[] codePoints = new int[input.codePointCount(0, input.length())];
+        for(int i = 0, offset = 0; i < codePoints.length; i++) {
+            codePoints[i] = input.codePointAt(offset);
+            offset += Character.charCount(codePoints[i]);
+        }
+        return codePoints;
     }
 
     private boolean hasInput() {
-        return inputQueue.size() > 0;
+        return pendingInput != null || inputQueue.size() > 0;
     }
 
     /**
@@ -454,6 +546,20 @@ public class Console {
     }
 
     public void currentProcessFinished(Process process) {
+        executorLock.lock();
+        try {
+            processFinished();
+            executorCondition.signalAll();
+        }
+        finally {
+            executorLock.unlock();
+        }
+        //the input that came while the process ran can be executed now
+        if(inputExecutor != null && running)
+            scheduleInputTask();
+    }
+
+    private void processFinished() {
         if(currentOperation != null) {
             ConsoleOperation tmpOutput = null;
             try {
@@ -462,13 +568,14 @@ public class Console {
             catch (IOException e) { e.printStackTrace(); }
 
             if(tmpOutput != null && !readerService.isShutdown())
-                processManager.startNewProcess(consoleCallback, tmpOutput);
+                startProcess(tmpOutput);
 
             inputProcessor.clearBufferAndDisplayPrompt();
         }
         else {
             inputProcessor.resetBuffer();
-            if(initiateStop) {
+            //the input received before the stop is executed first
+            if(initiateStop && !hasInput()) {
                 try {
                     doStop();
                     initiateStop = false;
@@ -529,8 +636,8 @@ public class Console {
             public void run() {
                 try {
                     while(!executorService.isShutdown()) {
+                        awaitExecutableInput();
                         execute();
-                        Thread.sleep(10);
                     }
                 }
                 catch (InterruptedException ie) {
@@ -552,27 +659,13 @@ public class Console {
 
     private boolean read() {
         try {
-            int[] input = getTerminal().read();
-            if(settings.isLogging()) {
-                LOGGER.info("GOT: " + Arrays.toString(input));
-            }
-            if(readingCursor) {
-                if(input.length > 4) {
-                    cursorQueue.add(input);
-                    readingCursor = false;
-                    return true;
-                }
-            }
+            if(handleInput(getTerminal().read()))
+                return true;
             //close thread, exit
-            if(input.length == 0 || input[0] == -1) {
-                //dont have to initiate it twice
-                if(!initiateStop)
-                    stop();
-                return false;
-            }
-
-            parseInput(input);
-            return true;
+            //dont have to initiate it twice
+            if(!initiateStop)
+                stop();
+            return false;
         }
         catch (IOException ioe) {
             ioe.printStackTrace();
@@ -595,12 +688,123 @@ public class Console {
         }
     }
 
+    /**
+     * @return false if the input is the end of the input
+     */
+    private boolean handleInput(int[] input) throws InterruptedException {
+        if(settings.isLogging()) {
+            LOGGER.info("GOT: " + Arrays.toString(input));
+        }
+        if(readingCursor) {
+            if(input.length > 4) {
+                cursorQueue.add(input);
+                readingCursor = false;
+                return true;
+            }
+        }
+        if(input.length == 0 || input[0] == -1)
+            return false;
+
+        parseInput(input);
+        return true;
+    }
+
+    /**
+     * Input for a console that share its threads with other consoles,
+     * {-1} is the end of the input.
+     * It is handled by a task on the shared executor, in the order it is
+     * received.
+     */
+    void receive(int[] input) {
+        receivedInput.add(input);
+        if(running)
+            scheduleInputTask();
+    }
+
+    private void scheduleInputTask() {
+        if(inputTaskScheduled.compareAndSet(false, true)) {
+            try {
+                inputExecutor.execute(inputTask);
+            }
+            catch (RejectedExecutionException e) {
+                inputTaskScheduled.set(false);
+                LOGGER.warning("The shared executor did not accept the input: " + e.getMessage());
+            }
+        }
+    }
+
+    private final Runnable inputTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                handleReceivedInput();
+            }
+            finally {
+                inputTaskScheduled.set(false);
+                //input received after we stopped looking for it
+                if(running && (!receivedInput.isEmpty() ||
+                        (!processManager.hasForegroundProcess() && hasInput())))
+                    scheduleInputTask();
+            }
+        }
+    };
+
+    /**
+     * Do what the reader and the executor loop do for the input received so
+     * far, without waiting for more.
+     */
+    private void handleReceivedInput() {
+        try {
+            int[] input;
+            while(running && (input = receivedInput.poll()) != null) {
+                if(!handleInput(input))
+                    initiateStop = true;
+            }
+            if(!running)
+                return;
+            execute();
+            //a running process stop the console when it finish
+            if(initiateStop && !hasInput() && !processManager.hasForegroundProcess()) {
+                doStop();
+                initiateStop = false;
+            }
+        }
+        catch (IOException e) {
+            if(settings.isLogging())
+                LOGGER.severe("Stream failure, stopping Aesh: "+e);
+            try {
+                doStop();
+            }
+            catch (IOException ignored) {
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void parseInput(int[] input) throws InterruptedException {
         boolean parsing = true;
         //use a position instead of changing the array
         int position = 0;
         //if we get a paste or have input lag this should parse it correctly...
         while(parsing) {
+            //we do not treat bracketed paste any different, just skip the markers
+            if(startsWith(input, position, BRACKETED_PASTE_START) ||
+                    startsWith(input, position, BRACKETED_PASTE_END)) {
+                position += BRACKETED_PASTE_START.length;
+                parsing = position < input.length;
+                continue;
+            }
+            //a run of printable input (typically a paste) is added as one operation
+            int end = findEndOfPrintableInput(input, position);
+            if(end - position > 1 && !processManager.hasForegroundProcess()) {
+                inputQueue.put(new CommandOperation(input, position, end));
+                signalExecutor();
+                position = end;
+                parsing = position < input.length;
+                continue;
+            }
             Key inc = Key.findStartKey(input, position);
             if(input.length > inc.getKeyValues().length+position) {
                 position += inc.getKeyValues().length;
@@ -623,14 +827,61 @@ public class Console {
             }
             else {
                 inputQueue.put(new CommandOperation(inc, input, position));
+                signalExecutor();
             }
         }
     }
 
+    private static int findEndOfPrintableInput(int[] input, int position) {
+        int end = position;
+        while(end < input.length && Key.isPrintable(input[end]))
+            end++;
+        return end;
+    }
+
+    private static boolean startsWith(int[] input, int position, int[] sequence) {
+        if(input.length - position < sequence.length)
+            return false;
+        for(int i = 0; i < sequence.length; i++)
+            if(input[position + i] != sequence[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Block the executor until there is input to process and no process
+     * is running in the foreground, or until the Console is stopped.
+     */
+    private void awaitExecutableInput() throws InterruptedException {
+        executorLock.lock();
+        try {
+            while(!executorService.isShutdown() &&
+                    (processManager.hasForegroundProcess() || !hasInput()))
+                executorCondition.await();
+        }
+        finally {
+            executorLock.unlock();
+        }
+    }
+
+    /**
+     * Wake up the executor (and anyone waiting for the input queue to drain)
+     * so it can recheck its state.
+     */
+    private void signalExecutor() {
+        executorLock.lock();
+        try {
+            executorCondition.signalAll();
+        }
+        finally {
+            executorLock.unlock();
+        }
+    }
+
     private void execute() {
         while(!processManager.hasForegroundProcess() && hasInput()) {
             try {
-                processInternalOperation(getInput());
+                processInternalOperation(takeInput());
             }
             catch (IOException | InterruptedException e) {
                 if(settings.isLogging())
@@ -640,11 +891,32 @@ public class Console {
     }
 
     private void processInternalOperation(CommandOperation commandOperation) throws IOException {
+        //a paste can only be inserted as one edit if the edit mode is inserting chars
+        if(commandOperation.isPaste() &&
+                consoleBuffer.getEditMode().getCurrentAction() != Action.EDIT) {
+            processPasteAsKeys(commandOperation);
+            return;
+        }
         String result = inputProcessor.parseOperation(commandOperation);
         if(result != null)
             processOperationResult(result);
     }
 
+    private void processPasteAsKeys(CommandOperation paste) throws IOException {
+        int[] input = paste.getInput();
+        for(int i = paste.getPosition(); i < paste.getEnd(); i++) {
+            String result = inputProcessor.parseOperation(
+                    new CommandOperation(Key.findStartKey(input, i), input, i));
+            if(result != null) {
+                //the rest of the paste is handled after the line is processed
+                if(i + 1 < paste.getEnd())
+                    pendingInput = new CommandOperation(input, i + 1, paste.getEnd());
+                processOperationResult(result);
+                return;
+            }
+        }
+    }
+
     private void processOperationResult(String result) {
         try {
             //if the input length is 0 we should exit quickly
@@ -665,15 +937,8 @@ public class Console {
 
             ConsoleOperation output = parseOperations();
             output = processInternalCommands(output);
-            if(output.getBuffer() != null) {
-                processManager.startNewProcess(consoleCallback, output);
-                //abort if the user have initiated stop
-                //if(readerService.isShutdown())
-                //    return;
-            }
-            else {
+            if(output.getBuffer() == null || !startProcess(output))
                 inputProcessor.clearBufferAndDisplayPrompt();
-            }
         }
         catch (IOException ioe) {
             if(settings.isLogging())
@@ -694,29 +959,13 @@ public class Console {
         consoleBuffer.clear(false);
     }
 
+    /**
+     * Find the next ConsoleOperation after the current process have finished.
+     * Pipes and redirections to files are set up by startProcess, so
+     * currentOperation is never a redirection here.
+     */
     private ConsoleOperation parseCurrentOperation() throws IOException {
-        if(currentOperation.getControlOperator() == ControlOperator.OVERWRITE_OUT
-                || currentOperation.getControlOperator() == ControlOperator.OVERWRITE_ERR
-                || currentOperation.getControlOperator() == ControlOperator.APPEND_OUT
-                || currentOperation.getControlOperator() == ControlOperator.APPEND_ERR
-                || currentOperation.getControlOperator() == ControlOperator.OVERWRITE_OUT_AND_ERR) {
-
-            ConsoleOperation nextOperation = operations.remove(0);
-            persistRedirection(nextOperation.getBuffer(), currentOperation.getControlOperator());
-            if(nextOperation.getControlOperator() == ControlOperator.NONE) {
-                redirectPipeErrBuffer = new ByteArrayOutputStream();
-                redirectPipeOutBuffer = new ByteArrayOutputStream();
-                currentOperation = null;
-                return null;
-            }
-            else {
-                redirectPipeErrBuffer = new ByteArrayOutputStream();
-                redirectPipeOutBuffer = new ByteArrayOutputStream();
-                currentOperation = nextOperation;
-                return parseCurrentOperation();
-            }
-        }
-        else if(currentOperation.getControlOperator() == ControlOperator.PIPE
+        if(currentOperation.getControlOperator() == ControlOperator.PIPE
                 || currentOperation.getControlOperator() == ControlOperator.PIPE_OUT_AND_ERR) {
             return parseOperations();
         }
@@ -767,14 +1016,8 @@ public class Console {
             }
             else {
                 currentOperation = op;
-                if(op.getControlOperator().isRedirectionOut()) {
-                    standardStream.setStdIn(new BufferedInputStream(
-                            new ByteArrayInputStream(redirectPipeOutBuffer.toString().getBytes())));
-                }
-                if(op.getControlOperator().isRedirectionErr()) {
-                    standardStream.setStdError(new BufferedInputStream(
-                            new ByteArrayInputStream(redirectPipeErrBuffer.toString().getBytes())));
-                }
+                standardStream.setStdIn(emptyStream());
+                standardStream.setStdError(emptyStream());
 
                 //output = new ConsoleOutput(op, null, null);
                 output = op;
@@ -823,23 +1066,17 @@ public class Console {
         }
         else if(op.getControlOperator() == ControlOperator.END) {
             currentOperation = op;
+            standardStream.setStdIn(emptyStream());
+            standardStream.setStdError(emptyStream());
             output = op;
         }
         else {
             currentOperation = null;
-            standardStream.setStdIn(new BufferedInputStream(
-                    new ByteArrayInputStream(redirectPipeOutBuffer.toString().getBytes())));
-            standardStream.setStdError(new BufferedInputStream(
-                    new ByteArrayInputStream(redirectPipeErrBuffer.toString().getBytes())));
+            standardStream.setStdIn(emptyStream());
+            standardStream.setStdError(emptyStream());
             output = op;
-            //redirectPipeOutBuffer.toString(), redirectPipeErrBuffer.toString());
         }
 
-        if(redirectPipeOutBuffer.toString().length() > 0)
-            redirectPipeOutBuffer = new ByteArrayOutputStream();
-        if(redirectPipeErrBuffer.toString().length() > 0)
-            redirectPipeErrBuffer = new ByteArrayOutputStream();
-
         //todo: check if this flush is needed
         out().flush();
         if(output != null)
@@ -848,7 +1085,7 @@ public class Console {
             return new ConsoleOperation(ControlOperator.NONE, "");
     }
 
-    private ConsoleOperation processInternalCommands(ConsoleOperation output) throws IOException {
+    ConsoleOperation processInternalCommands(ConsoleOperation output) throws IOException {
         if(output.getBuffer() != null) {
             if(settings.isAliasEnabled() &&
                     output.getBuffer().startsWith(InternalCommands.ALIAS.getCommand())) {
@@ -887,7 +1124,7 @@ public class Console {
         return output;
     }
 
-    private ConsoleOperation findAliases(ConsoleOperation operation) {
+    ConsoleOperation findAliases(ConsoleOperation operation) {
 
         if(settings.isExportEnabled()) {
             if(Parser.containsNonEscapedDollar(operation.getBuffer())) {
@@ -908,15 +1145,119 @@ public class Console {
         return operation;
     }
 
-    private void persistRedirection(String fileName, ControlOperator redirection) throws IOException {
+    static BufferedInputStream emptyStream() {
+        return new BufferedInputStream(new ByteArrayInputStream(new byte[0]));
+    }
+
+    /**
+     * Start the process for output. If output is the first command in a pipeline
+     * all the commands in the pipeline are started at once, connected by bounded
+     * pipes. Output redirected to a file is written to the file while the
+     * command runs.
+     *
+     * @return false if no process was started
+     */
+    private boolean startProcess(ConsoleOperation output) {
+        List<ConsoleOperation> stages = new ArrayList<>();
+        List<ProcessStreams> stageStreams = new ArrayList<>();
+
+        ProcessStreams streams = new ProcessStreams(
+                new AeshStandardStream(standardStream.getStdIn(), standardStream.getStdError()));
+        //the file read by <
+        streams.addResource(standardStream.getStdIn());
+        ConsoleOperation stage = output;
+        while(true) {
+            ControlOperator operator = stage.getControlOperator();
+            if(operator.isOut() || operator.isErr()) {
+                OutputStream file = null;
+                if(operations.size() > 0) {
+                    ConsoleOperation fileOperation = operations.remove(0);
+                    file = openRedirection(fileOperation.getBuffer(), operator);
+                    operator = fileOperation.getControlOperator();
+                }
+                else
+                    err().print(settings.getName() + ": syntax error near unexpected token 'newline'" +
+                            Config.getLineSeparator());
+
+                if(file == null) {
+                    streams.close();
+                    for(ProcessStreams started : stageStreams)
+                        started.close();
+                    currentOperation = null;
+                    return false;
+                }
+                PrintStream fileStream = new PrintStream(file, true);
+                if(stage.getControlOperator().isOut())
+                    streams.setOut(fileStream);
+                if(stage.getControlOperator().isErr())
+                    streams.setErr(fileStream);
+            }
+
+            if(operator.isPipe() && operations.size() > 0) {
+                Pipe pipe = new Pipe();
+                PrintStream pipeStream = new PrintStream(pipe.getOutputStream(), true);
+                //output that is redirected to a file is not written to the pipe
+                if(streams.getOut() == null)
+                    streams.setOut(pipeStream);
+                else
+                    streams.addResource(pipeStream);
+                //|& is 2>&1 |, stderr is written to the same pipe
+                if(operator == ControlOperator.PIPE_OUT_AND_ERR && streams.getErr() == null)
+                    streams.setErr(pipeStream);
+                stages.add(stage);
+                stageStreams.add(streams);
+
+                stage = findAliases(operations.remove(0));
+                streams = new ProcessStreams(new AeshStandardStream(
+                        new BufferedInputStream(pipe.getInputStream()), emptyStream()));
+                streams.addResource(pipe.getInputStream());
+            }
+            else {
+                //what to do when the last process in the pipeline have finished
+                if(operator == ControlOperator.NONE || operator.isPipe())
+                    currentOperation = null;
+                else
+                    currentOperation = new ConsoleOperation(operator, stage.getBuffer());
+                stages.add(stage);
+                stageStreams.add(streams);
+                break;
+            }
+        }
+
+        //the last process is started last since that is the one that get the input
+        int last = stages.size() - 1;
+        for(int i = 0; i < last; i++) {
+            if(!processManager.startNewBackgroundProcess(consoleCallback, stages.get(i), stageStreams.get(i)))
+                stageStreams.get(i).close();
+        }
+        if(!processManager.startNewProcess(consoleCallback, stages.get(last), stageStreams.get(last))) {
+            stageStreams.get(last).close();
+            if(!processManager.isStopped())
+                err().print(settings.getName() + ": cannot start " + stages.get(last).getBuffer().trim() +
+                        ", too many processes are running" + Config.getLineSeparator());
+            currentOperation = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the stream to write the redirected output to,
+     * null if the file could not be opened
+     */
+    OutputStream openRedirection(String fileName, ControlOperator redirection) {
         AeshLine line = Parser.findAllWords(fileName);
         if(line.getWords().size() > 1) {
             if(settings.isLogging())
                 LOGGER.info(settings.getName()+": can't redirect to more than one file."+Config.getLineSeparator());
             err().print(settings.getName() + ": can't redirect to more than one file." + Config.getLineSeparator());
-            return;
+            return null;
+        }
+        else if(line.getWords().size() == 0) {
+            err().print(settings.getName() + ": syntax error near unexpected token 'newline'" +
+                    Config.getLineSeparator());
+            return null;
         }
-        //this is safe since we check that buffer do contain text earlier
         else {
             fileName = line.getWords().get(0);
             if(fileName.startsWith("~/")) {
@@ -925,37 +1266,24 @@ public class Console {
         }
 
         try {
-            if(redirection == ControlOperator.OVERWRITE_OUT)
-                FileUtils.saveFile( context.getCurrentWorkingDirectory().newInstance(
-                        Parser.switchEscapedSpacesToSpacesInWord(fileName)).resolve(
-                        context.getCurrentWorkingDirectory()).get(0),  redirectPipeOutBuffer.toString(), false);
-            else if(redirection == ControlOperator.OVERWRITE_ERR)
-                FileUtils.saveFile( context.getCurrentWorkingDirectory().newInstance(
-                                Parser.switchEscapedSpacesToSpacesInWord(fileName)).resolve(
-                                context.getCurrentWorkingDirectory()).get(0),
-                        redirectPipeErrBuffer.toString(), false);
-            else if(redirection == ControlOperator.APPEND_OUT)
-                FileUtils.saveFile( context.getCurrentWorkingDirectory().newInstance(
-                                Parser.switchEscapedSpacesToSpacesInWord(fileName)).resolve(
-                                context.getCurrentWorkingDirectory()).get(0),
-                        redirectPipeOutBuffer.toString(), true);
-            else if(redirection == ControlOperator.APPEND_ERR)
-                FileUtils.saveFile( context.getCurrentWorkingDirectory().newInstance(
-                                Parser.switchEscapedSpacesToSpacesInWord(fileName)).resolve(
-                                context.getCurrentWorkingDirectory()).get(0),
-                        redirectPipeErrBuffer.toString(), true);
+            Resource file = context.getCurrentWorkingDirectory().newInstance(
+                    Parser.switchEscapedSpacesToSpacesInWord(fileName)).resolve(
+                    context.getCurrentWorkingDirectory()).get(0);
+            if(file.isDirectory())
+                throw new IOException(file+": Is a directory");
+            return file.write(redirection == ControlOperator.APPEND_OUT ||
+                    redirection == ControlOperator.APPEND_ERR);
         }
         catch (IOException e) {
             if(settings.isLogging())
-                LOGGER.log(Level.SEVERE, "Saving file "+fileName+" to disk failed: ", e);
-            getInternalShell().err().println(e.getMessage());
+                LOGGER.log(Level.SEVERE, "Opening file "+fileName+" failed: ", e);
+            err().println(e.getMessage());
             err().flush();
+            return null;
         }
-        redirectPipeOutBuffer = new ByteArrayOutputStream();
-        redirectPipeErrBuffer = new ByteArrayOutputStream();
     }
 
-    private static class ConsoleShell implements Shell {
+    private static class ConsoleShell implements Shell, TerminalSizeNotifier {
         private final Console console;
         private final Shell shell;
 
@@ -989,6 +1317,18 @@ public class Console {
             return console.getTerminalSize();
         }
 
+        @Override
+        public void addSizeListener(TerminalSizeListener listener) {
+            if(shell instanceof TerminalSizeNotifier)
+                ((TerminalSizeNotifier) shell).addSizeListener(listener);
+        }
+
+        @Override
+        public void removeSizeListener(TerminalSizeListener listener) {
+            if(shell instanceof TerminalSizeNotifier)
+                ((TerminalSizeNotifier) shell).removeSizeListener(listener);
+        }
+
         @Override
         public CursorPosition getCursor() {
             if(console.settings.isAnsiConsole() && Config.isOSPOSIXCompatible()) {
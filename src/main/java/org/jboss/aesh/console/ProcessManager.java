@@ -23,124 +23,244 @@ import org.jboss.aesh.console.command.CommandOperation;
 import org.jboss.aesh.terminal.Key;
 import org.jboss.aesh.util.LoggerUtil;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
+ * Keeps track of the running processes, one of them can be in the foreground
+ * and any number of them in the background.
+ * The process table is updated from the console thread and from the process
+ * threads, so it is kept in a concurrent map and the pid counter and the
+ * foreground pid are atomics.
+ * The processes are run by a pool with at most maxProcesses threads, a process
+ * started when all the threads are busy is not started. Processes are never
+ * queued, a queued process would wait for a thread that might never be free.
+ * All but the last process of a pipeline run on their own unbounded pool,
+ * every stage must run at the same time or the bounded pipes between them
+ * fill up, and the number of stages is limited by the command line anyway.
+ * The consoles of a session host run their processes on the executor of the
+ * host instead, it is not shut down when the manager stop.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class ProcessManager {
 
-    private Console console;
-    private Map<Integer, Process> processes;
-    private ExecutorService executorService;
-    private boolean doLogging;
-    private int pidCounter = 1;
-    private int foregroundProcess = -1;
+    public static final int DEFAULT_MAX_PROCESSES = 100;
+
+    private static final int NO_PROCESS = -1;
+
+    private final Console console;
+    private final ConcurrentMap<Integer, Process> processes;
+    private final ExecutorService executorService;
+    private final ExecutorService pipelineExecutor;
+    private final boolean sharedExecutor;
+    private volatile boolean stopped;
+    private final boolean doLogging;
+    private final AtomicInteger pidCounter = new AtomicInteger(1);
+    private final AtomicInteger foregroundProcess = new AtomicInteger(NO_PROCESS);
 
     private static final Logger LOGGER = LoggerUtil.getLogger(ProcessManager.class.getName());
 
     public ProcessManager(Console console, boolean log) {
+        this(console, log, DEFAULT_MAX_PROCESSES);
+    }
+
+    public ProcessManager(Console console, boolean log, int maxProcesses) {
+        if(maxProcesses < 1)
+            throw new IllegalArgumentException("maxProcesses must be at least 1, was: "+maxProcesses);
         this.console = console;
         this.doLogging = log;
-        processes = new HashMap<>(20);
-        executorService = Executors.newCachedThreadPool();
+        processes = new ConcurrentHashMap<>(20);
+        executorService = new ThreadPoolExecutor(0, maxProcesses, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>());
+        pipelineExecutor = Executors.newCachedThreadPool();
+        sharedExecutor = false;
+    }
+
+    /**
+     * Run the processes on an executor shared with other consoles
+     */
+    public ProcessManager(Console console, boolean log, ExecutorService executor) {
+        if(executor == null)
+            throw new IllegalArgumentException("executor can not be null");
+        this.console = console;
+        this.doLogging = log;
+        processes = new ConcurrentHashMap<>(20);
+        executorService = executor;
+        pipelineExecutor = executor;
+        sharedExecutor = true;
+    }
+
+    /**
+     * Start a new process in the foreground
+     *
+     * @return false if another process is in the foreground, all the threads
+     * are busy or the manager is stopped
+     */
+    public boolean startNewProcess(ConsoleCallback callback, ConsoleOperation consoleOperation) {
+        return startNewProcess(callback, consoleOperation, null);
     }
 
-    public void startNewProcess(ConsoleCallback callback, ConsoleOperation consoleOperation) {
-        AeshProcess process = new AeshProcess(pidCounter++, this, callback, consoleOperation);
+    boolean startNewProcess(ConsoleCallback callback, ConsoleOperation consoleOperation,
+                            ProcessStreams streams) {
+        AeshProcess process = new AeshProcess(pidCounter.getAndIncrement(), this, callback,
+                consoleOperation, streams, Process.Status.FOREGROUND);
         if (doLogging)
             LOGGER.info("starting a new process: " + process + ", consoleOperation: " + consoleOperation);
 
+        //add it to the table first so the foreground process can always be looked up
+        processes.put(process.getPID(), process);
         //atm we cant start a new process if there is one in the foreground
-        int currentProcess = getCurrentForegroundProcess();
-        if(currentProcess > 0) {
-            LOGGER.warning("Cannot start new process since process: "+
-                    getProcessByPid(currentProcess)+" is running in the foreground.");
+        if(!foregroundProcess.compareAndSet(NO_PROCESS, process.getPID())) {
+            processes.remove(process.getPID());
+            if(doLogging)
+                LOGGER.warning("Cannot start new process since process: "+
+                        getProcess(foregroundProcess.get())+" is running in the foreground.");
+            return false;
         }
-        else {
-            processes.put(process.getPID(),process);
-            foregroundProcess = process.getPID();
-            executorService.execute(process);
+        return execute(process, executorService);
+    }
+
+    /**
+     * Start a new process in the background, used for all but the last
+     * process in a pipeline
+     */
+    boolean startNewBackgroundProcess(ConsoleCallback callback, ConsoleOperation consoleOperation,
+                                      ProcessStreams streams) {
+        AeshProcess process = new AeshProcess(pidCounter.getAndIncrement(), this, callback,
+                consoleOperation, streams, Process.Status.BACKGROUND);
+        if (doLogging)
+            LOGGER.info("starting a new background process: " + process +
+                    ", consoleOperation: " + consoleOperation);
+        processes.put(process.getPID(), process);
+        return execute(process, pipelineExecutor);
+    }
+
+    private boolean execute(AeshProcess process, ExecutorService executor) {
+        //a shared executor is not shut down when we stop
+        if(stopped)
+            return rejected(process, "the process manager is stopped");
+        try {
+            executor.execute(process);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            return rejected(process, stopped ? "the process manager is stopped" :
+                    "the maximum number of processes are running");
         }
     }
 
-    private int getCurrentForegroundProcess() {
-        return foregroundProcess;
+    private boolean rejected(AeshProcess process, String reason) {
+        processes.remove(process.getPID());
+        foregroundProcess.compareAndSet(process.getPID(), NO_PROCESS);
+        if(doLogging)
+            LOGGER.warning("Cannot start new process, "+reason+".");
+        return false;
     }
 
-    private Process getProcessByPid(int pid) {
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the process with the given pid, null if it is not running
+     */
+    public Process getProcess(int pid) {
         return processes.get(pid);
     }
 
+    /**
+     * @return read only view of all the running processes, foreground and background
+     */
+    public Collection<Process> getProcesses() {
+        return Collections.unmodifiableCollection(processes.values());
+    }
+
     public CommandOperation getInput(int pid) throws InterruptedException {
-        if(foregroundProcess == pid)
+        if(foregroundProcess.get() == pid)
             return console.getInput();
         else
             return new CommandOperation(Key.UNKNOWN, new int[]{});
     }
 
+    /**
+     * Move the process to the background, the console will continue as if
+     * the process had finished.
+     */
     public void putProcessInBackground(int pid) {
-        if(foregroundProcess == pid) {
-            if(doLogging)
-                LOGGER.info("Putting process: "+pid+" into the background.");
-            foregroundProcess = -1;
-        }
-        else if(getProcessByPid(pid) != null) {
-            Process p = getProcessByPid(pid);
-            if(p.getStatus() == Process.Status.FOREGROUND) {
+        Process p = getProcess(pid);
+        if(p == null)
+            return;
+        if(foregroundProcess.get() == pid) {
+            p.updateStatus(Process.Status.BACKGROUND);
+            if(foregroundProcess.compareAndSet(pid, NO_PROCESS)) {
                 if(doLogging)
-                    LOGGER.warning("We have another process in the foreground: " +
-                            p + ", this should not happen!");
-                p.updateStatus(Process.Status.BACKGROUND);
+                    LOGGER.info("Putting process: "+pid+" into the background.");
+                console.currentProcessFinished(p);
             }
         }
+        else if(p.getStatus() == Process.Status.FOREGROUND) {
+            if(doLogging)
+                LOGGER.warning("We have another process in the foreground: " +
+                        p + ", this should not happen!");
+            p.updateStatus(Process.Status.BACKGROUND);
+        }
     }
 
     public void putProcessInForeground(int pid) {
-        if(foregroundProcess == -1) {
-            Process p = getProcessByPid(pid);
-            if(p != null) {
-                p.updateStatus(Process.Status.FOREGROUND);
-                foregroundProcess = p.getPID();
-            }
-        }
+        Process p = getProcess(pid);
+        if(p == null)
+            return;
+        if(foregroundProcess.compareAndSet(NO_PROCESS, pid))
+            p.updateStatus(Process.Status.FOREGROUND);
         else
             if(doLogging)
                 LOGGER.info("We already have a process in the foreground: "+
-                        foregroundProcess+", cant add another one");
+                        foregroundProcess.get()+", cant add another one");
     }
 
     /**
      * this is the current running process
      */
     public Process getCurrentProcess() {
-        return getProcessByPid(foregroundProcess);
+        return getProcess(foregroundProcess.get());
     }
 
     public boolean hasForegroundProcess() {
-        return foregroundProcess > 0;
+        return foregroundProcess.get() > 0;
     }
 
     public void processHaveFinished(Process process) {
         if (doLogging)
             LOGGER.info("process has finished: " + process);
         processes.remove(process.getPID());
-        if(process.getStatus() == Process.Status.FOREGROUND)
-            foregroundProcess = -1;
-        console.currentProcessFinished(process);
+        //the console is only waiting for the foreground process
+        if(foregroundProcess.compareAndSet(process.getPID(), NO_PROCESS))
+            console.currentProcessFinished(process);
     }
 
     public void stop() {
+        stopped = true;
+        if(sharedExecutor) {
+            stopSharedProcesses();
+            return;
+        }
         try {
             if (doLogging)
                 LOGGER.info("number of processes in list: " + processes.size());
             processes.clear();
             executorService.shutdown();
+            pipelineExecutor.shutdown();
             executorService.awaitTermination(5, TimeUnit.MILLISECONDS);
             if (executorService.isTerminated() && doLogging)
                 LOGGER.info("Processes are cleaned up and finished...");
@@ -152,4 +272,22 @@ public class ProcessManager {
         }
     }
 
+    /**
+     * The processes are interrupted, a process waiting for input that will
+     * never come would otherwise keep a thread of the shared executor.
+     */
+    private void stopSharedProcesses() {
+        if (doLogging)
+            LOGGER.info("interrupting " + processes.size() + " processes");
+        for(Process process : processes.values()) {
+            try {
+                process.interrupt();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes.clear();
+    }
+
 }
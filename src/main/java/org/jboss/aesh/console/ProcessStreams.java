@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.reader.AeshStandardStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The standard streams of one process. Every process in a pipeline run at the
+ * same time, so each of them need its own streams. The Shell given to the
+ * commands use the streams of the process running on the current thread.
+ * A null out or err means the terminal.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class ProcessStreams {
+
+    private static final ThreadLocal<ProcessStreams> CURRENT = new ThreadLocal<>();
+
+    private final AeshStandardStream in;
+    private PrintStream out;
+    private PrintStream err;
+    //pipe ends and files that are closed when the process finish
+    private final List<Closeable> resources = new ArrayList<>();
+
+    ProcessStreams(AeshStandardStream in) {
+        this.in = in;
+    }
+
+    AeshStandardStream getIn() {
+        return in;
+    }
+
+    PrintStream getOut() {
+        return out;
+    }
+
+    void setOut(PrintStream out) {
+        this.out = out;
+        resources.add(out);
+    }
+
+    PrintStream getErr() {
+        return err;
+    }
+
+    void setErr(PrintStream err) {
+        this.err = err;
+        resources.add(err);
+    }
+
+    void addResource(Closeable resource) {
+        resources.add(resource);
+    }
+
+    /**
+     * Closing the output ends the input of the next process in the pipeline,
+     * closing the input stops the previous process if it is still writing.
+     */
+    void close() {
+        for(Closeable resource : resources) {
+            try {
+                resource.close();
+            }
+            catch (IOException ignored) {
+            }
+        }
+    }
+
+    static ProcessStreams current() {
+        return CURRENT.get();
+    }
+
+    static void setCurrent(ProcessStreams streams) {
+        if(streams == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(streams);
+    }
+}
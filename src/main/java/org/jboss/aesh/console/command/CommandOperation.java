@@ -31,29 +31,46 @@ public class CommandOperation {
     private final Key inputKey;
     private final int[] input;
     private final int position;
+    //end of a pasted run of printable input, -1 if this is a single key
+    private final int end;
 
     public CommandOperation(int[] input) {
         inputKey = Key.getKey(input);
         this.input = input;
         position = inputKey.getKeyValues().length;
+        end = -1;
     }
 
     public CommandOperation(Key key, int[] input) {
         inputKey = key;
         this.input = input;
         position = inputKey.getKeyValues().length;
+        end = -1;
     }
 
     public CommandOperation(Key key) {
         inputKey = key;
         this.input = key.getKeyValues();
         position = inputKey.getKeyValues().length;
+        end = -1;
     }
 
     public CommandOperation(Key key, int[] input, int position) {
         inputKey = key;
         this.input = input;
         this.position = position;
+        end = -1;
+    }
+
+    /**
+     * A paste, input from position (inclusive) to end (exclusive) is
+     * printable and will be inserted as one edit.
+     */
+    public CommandOperation(int[] input, int position, int end) {
+        inputKey = Key.findStartKey(input, position);
+        this.input = input;
+        this.position = position;
+        this.end = end;
     }
 
     public Key getInputKey() {
@@ -68,12 +85,21 @@ public class CommandOperation {
         return position;
     }
 
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean isPaste() {
+        return end > -1;
+    }
+
     @Override
     public String toString() {
         return "CommandOperation{" +
                 "inputKey=" + inputKey +
                 ", input=" + Arrays.toString(input) +
                 ", position=" + position +
+                ", end=" + end +
                 '}';
     }
 }
@@ -28,10 +28,20 @@ public enum CommandResult {
 
     private int result = 0;
 
+    /**
+     * @deprecated the constants are shared by every command, the value is
+     * overwritten by the next command that sets it.
+     * Use {@link org.jboss.aesh.console.AeshProcess#getExitValue()} instead.
+     */
+    @Deprecated
     public void setResultValue(int result) {
         this.result = result;
     }
 
+    /**
+     * @deprecated see {@link #setResultValue(int)}
+     */
+    @Deprecated
     public int getResultValue() {
         return result;
     }
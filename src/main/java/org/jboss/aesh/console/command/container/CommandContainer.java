@@ -47,6 +47,15 @@ public interface CommandContainer<T extends Command> extends AutoCloseable {
      */
     CommandLineParser<T> getParser();
 
+    /**
+     * Executions and completions use their own copy of the parser, so the
+     * same command can be parsed by several sessions at the same time.
+     *
+     * @return a copy of the parser for one invocation of the command
+     * @see CommandLineParser#copy()
+     */
+    CommandLineParser<T> createInvocationParser();
+
     /**
      * @return true if the CommandLineParser or Command generation generated any errors
      */
@@ -20,6 +20,7 @@
 package org.jboss.aesh.console.command.container;
 
 import org.jboss.aesh.cl.CommandLine;
+import org.jboss.aesh.cl.parser.CommandLineParser;
 import org.jboss.aesh.cl.parser.CommandLineParserException;
 import org.jboss.aesh.cl.validator.CommandValidatorException;
 import org.jboss.aesh.cl.validator.OptionValidatorException;
@@ -37,13 +38,18 @@ import java.io.IOException;
  */
 public abstract class DefaultCommandContainer<C extends Command> implements CommandContainer<C> {
 
+    @Override
+    public CommandLineParser<C> createInvocationParser() {
+        return getParser().copy();
+    }
+
     @Override
     public CommandContainerResult executeCommand(AeshLine line, InvocationProviders invocationProviders,
                                                  AeshContext aeshContext,
                                                  CommandInvocation commandInvocation)
             throws CommandLineParserException, OptionValidatorException, CommandValidatorException, IOException, InterruptedException {
 
-        CommandLine commandLine = getParser().parse(line, false);
+        CommandLine commandLine = createInvocationParser().parse(line, false);
         commandLine.getParser().getCommandPopulator().populateObject(commandLine, invocationProviders, aeshContext, true);
         if(commandLine.getParser().getProcessedCommand().getValidator() != null &&
                 !commandLine.hasOptionWithOverrideRequired())
@@ -32,6 +32,7 @@ import org.jboss.aesh.console.command.container.CommandContainerBuilder;
 public class AeshCommandRegistryBuilder {
 
     private final MutableCommandRegistry commandRegistry;
+    private boolean prewarm;
 
     public AeshCommandRegistryBuilder() {
         commandRegistry = new MutableCommandRegistry();
@@ -75,7 +76,28 @@ public class AeshCommandRegistryBuilder {
         return this;
     }
 
+    /**
+     * Register the commands listed in the {@link CommandManifest} files
+     * found by the class loader, without loading the command classes.
+     */
+    public AeshCommandRegistryBuilder manifest(ClassLoader classLoader) {
+        commandRegistry.addCommandsFromManifest(classLoader);
+        return this;
+    }
+
+    /**
+     * @param prewarm create the containers of the commands in the background
+     *                when the registry is created, instead of when they are first used
+     * @see MutableCommandRegistry#prewarm()
+     */
+    public AeshCommandRegistryBuilder prewarm(boolean prewarm) {
+        this.prewarm = prewarm;
+        return this;
+    }
+
     public CommandRegistry create() {
+        if(prewarm)
+            commandRegistry.prewarm();
         return commandRegistry;
     }
 
@@ -23,8 +23,8 @@ import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.console.command.container.AeshCommandContainerBuilder;
 import org.jboss.aesh.console.command.container.CommandContainer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -34,23 +34,31 @@ import java.util.Set;
  */
 public class AeshInternalCommandRegistry {
 
-    private final Map<String, CommandContainer> registry = new HashMap<String, CommandContainer>();
+    private final CommandTrie<CommandContainer> registry = new CommandTrie<>();
 
     public void addCommand(Command command) {
         putIntoRegistry(new AeshCommandContainerBuilder().create(command));
     }
 
     private void putIntoRegistry(CommandContainer commandContainer) {
-        if(!commandContainer.haveBuildError() &&
-                !registry.containsKey(commandContainer.getParser().getProcessedCommand().getName()))
-            registry.put(commandContainer.getParser().getProcessedCommand().getName(), commandContainer);
+        if(!commandContainer.haveBuildError())
+            registry.putIfAbsent(commandContainer.getParser().getProcessedCommand().getName(), commandContainer);
     }
 
     public CommandContainer getCommand(String name) {
         return registry.get(name);
     }
 
+    /**
+     * @return the command names starting with line, in sorted order
+     */
+    public List<String> findAllCommandNames(String line) {
+        List<String> names = new ArrayList<>();
+        registry.addNamesStartingWith(line, "", names);
+        return names;
+    }
+
     public Set<String> getAllCommandNames() {
-        return registry.keySet();
+        return registry.names();
     }
 }
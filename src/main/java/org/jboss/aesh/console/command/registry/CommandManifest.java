@@ -0,0 +1,49 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.command.registry;
+
+/**
+ * The commands found by {@link org.jboss.aesh.cl.processor.CommandDefinitionProcessor}
+ * are listed in a properties file, so a registry can register the commands
+ * without loading their classes, see
+ * {@link MutableCommandRegistry#addCommandsFromManifest(ClassLoader)}.
+ * For every command the file has the keys:
+ * <ul>
+ * <li>name.class: binary name of the command class</li>
+ * <li>name.description: description of the command</li>
+ * <li>name.groupCommands: names of the group commands separated by ',', only for group commands</li>
+ * </ul>
+ * Commands only used as a group command of another command are not listed.
+ * The file is written for all the commands in a compilation, so commands
+ * compiled separately, like with an incremental build, are not listed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public final class CommandManifest {
+
+    public static final String LOCATION = "META-INF/aesh/commands.properties";
+    public static final String CLASS_SUFFIX = ".class";
+    public static final String DESCRIPTION_SUFFIX = ".description";
+    public static final String GROUP_COMMANDS_SUFFIX = ".groupCommands";
+    public static final char GROUP_COMMANDS_SEPARATOR = ',';
+
+    private CommandManifest() {
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.command.registry;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command names in a prefix trie, so the names starting with what is typed
+ * are found by walking what is typed and the names found, not by looking at
+ * every command.
+ * The nodes are never changed, an update copy the nodes on the path to the
+ * name and replace the root with compareAndSet. Readers are never blocked
+ * and see all the names added before they started.
+ * Nodes without names below them are removed, so a lookup never visit a
+ * branch that do not lead to a name.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class CommandTrie<V> {
+
+    private final AtomicReference<Node<V>> root = new AtomicReference<>(Node.<V>empty());
+
+    V get(String name) {
+        Node<V> node = root.get().find(name);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return the value already stored with the name, or null if value was added
+     */
+    V putIfAbsent(String name, V value) {
+        while(true) {
+            Node<V> current = root.get();
+            V existing = valueOf(current.find(name));
+            if(existing != null)
+                return existing;
+            if(root.compareAndSet(current, current.put(name, 0, value)))
+                return null;
+        }
+    }
+
+    /**
+     * @return the removed value, or null if no value was stored with the name
+     */
+    V remove(String name) {
+        while(true) {
+            Node<V> current = root.get();
+            V existing = valueOf(current.find(name));
+            if(existing == null)
+                return null;
+            if(root.compareAndSet(current, current.remove(name, 0)))
+                return existing;
+        }
+    }
+
+    /**
+     * Remove the name only if it is stored with the given value.
+     *
+     * @return true if it was removed
+     */
+    boolean remove(String name, V value) {
+        while(true) {
+            Node<V> current = root.get();
+            if(valueOf(current.find(name)) != value)
+                return false;
+            if(root.compareAndSet(current, current.remove(name, 0)))
+                return true;
+        }
+    }
+
+    int size() {
+        return root.get().size;
+    }
+
+    /**
+     * Add the names starting with prefix to names, in sorted order.
+     *
+     * @param namePrefix added in front of every name found
+     */
+    void addNamesStartingWith(String prefix, String namePrefix, List<String> names) {
+        Node<V> node = root.get().find(prefix);
+        if(node != null)
+            node.collect(new StringBuilder(namePrefix).append(prefix), names);
+    }
+
+    /**
+     * @return a read only view of the names, iterating a snapshot of the names
+     * stored when the iteration start
+     */
+    Set<String> names() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                List<String> names = new ArrayList<>(size());
+                addNamesStartingWith("", "", names);
+                return Collections.unmodifiableList(names).iterator();
+            }
+
+            @Override
+            public int size() {
+                return CommandTrie.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && get((String) o) != null;
+            }
+        };
+    }
+
+    private static <V> V valueOf(Node<V> node) {
+        return node == null ? null : node.value;
+    }
+
+    private static final class Node<V> {
+
+        private static final Node<Object> EMPTY = new Node<>(new char[0], Node.<Object>newArray(0), null, 0);
+
+        //sorted, so the names are found in sorted order
+        private final char[] keys;
+        private final Node<V>[] children;
+        private final V value;
+        //number of names ending here or below
+        private final int size;
+
+        private Node(char[] keys, Node<V>[] children, V value, int size) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> Node<V> empty() {
+            //has no value, so it is the empty node of every type
+            return (Node<V>) (Node<?>) EMPTY;
+        }
+
+        Node<V> find(String name) {
+            Node<V> node = this;
+            for(int i = 0; i < name.length(); i++) {
+                int index = Arrays.binarySearch(node.keys, name.charAt(i));
+                if(index < 0)
+                    return null;
+                node = node.children[index];
+            }
+            return node;
+        }
+
+        /**
+         * @return a copy with the name added, the name must not be stored already
+         */
+        Node<V> put(String name, int offset, V newValue) {
+            if(offset == name.length())
+                return new Node<>(keys, children, newValue, size + 1);
+
+            char c = name.charAt(offset);
+            int index = Arrays.binarySearch(keys, c);
+            if(index >= 0) {
+                Node<V>[] newChildren = children.clone();
+                newChildren[index] = children[index].put(name, offset + 1, newValue);
+                return new Node<>(keys, newChildren, value, size + 1);
+            }
+            else {
+                index = -index - 1;
+                char[] newKeys = new char[keys.length + 1];
+                Node<V>[] newChildren = newArray(children.length + 1);
+                System.arraycopy(keys, 0, newKeys, 0, index);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                newKeys[index] = c;
+                newChildren[index] = Node.<V>empty().put(name, offset + 1, newValue);
+                System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                return new Node<>(newKeys, newChildren, value, size + 1);
+            }
+        }
+
+        /**
+         * @return a copy with the name removed, the name must be stored
+         */
+        Node<V> remove(String name, int offset) {
+            if(offset == name.length())
+                return new Node<>(keys, children, null, size - 1);
+
+            int index = Arrays.binarySearch(keys, name.charAt(offset));
+            Node<V> child = children[index].remove(name, offset + 1);
+            if(child.size > 0) {
+                Node<V>[] newChildren = children.clone();
+                newChildren[index] = child;
+                return new Node<>(keys, newChildren, value, size - 1);
+            }
+            //nothing left below the child
+            else {
+                char[] newKeys = new char[keys.length - 1];
+                Node<V>[] newChildren = newArray(children.length - 1);
+                System.arraycopy(keys, 0, newKeys, 0, index);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+                System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+                return new Node<>(newKeys, newChildren, value, size - 1);
+            }
+        }
+
+        void collect(StringBuilder name, List<String> names) {
+            if(value != null)
+                names.add(name.toString());
+            for(int i = 0; i < keys.length; i++) {
+                name.append(keys[i]);
+                children[i].collect(name, names);
+                name.setLength(name.length() - 1);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(int length) {
+            return (Node<V>[]) new Node<?>[length];
+        }
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.jboss.aesh.console.command.registry;
 
+import org.jboss.aesh.cl.CommandDefinition;
+import org.jboss.aesh.cl.GroupCommandDefinition;
 import org.jboss.aesh.cl.parser.CommandLineParser;
 import org.jboss.aesh.console.command.Command;
 import org.jboss.aesh.console.command.CommandNotFoundException;
@@ -26,19 +28,46 @@ import org.jboss.aesh.console.command.container.AeshCommandContainerBuilder;
 import org.jboss.aesh.console.command.container.CommandContainer;
 import org.jboss.aesh.console.command.container.CommandContainerBuilder;
 import org.jboss.aesh.parser.Parser;
+import org.jboss.aesh.util.LoggerUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Enumeration;
 import java.util.List;
-import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
+ * The commands are stored in a prefix trie on the command names, and the
+ * group commands keep a trie of the names of their group commands, so
+ * completing a command name only look at the names that match.
+ * Commands can be added and removed while the registry is used, lookups
+ * are never blocked by an update.
+ *
+ * Commands added as a class or an instance are only registered with the
+ * names and description found in their CommandDefinition or
+ * GroupCommandDefinition, the container with the parser is created the first
+ * time the command is looked up, and kept after that. A command that fail to
+ * be created is removed from the registry when it is looked up.
+ * Commands listed in a {@link CommandManifest} are registered without
+ * loading their classes.
+ * {@link #prewarm()} create all the containers in the background.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class MutableCommandRegistry implements CommandRegistry {
 
-    private final Map<String,CommandContainer<Command>> registry = new HashMap<>();
+    private static final Logger LOGGER = LoggerUtil.getLogger(MutableCommandRegistry.class.getName());
+
+    private final CommandTrie<RegisteredCommand> registry = new CommandTrie<>();
 
     private CommandContainerBuilder containerBuilder;
 
@@ -48,26 +77,35 @@ public class MutableCommandRegistry implements CommandRegistry {
 
     @Override
     public CommandContainer getCommand(String name, String line) throws CommandNotFoundException {
-        if(registry.containsKey(name))
-            return registry.get(name);
+        RegisteredCommand command = registry.get(name);
+        CommandContainer container = command == null ? null : materialize(name, command);
+        if(container != null)
+            return container;
         else
             throw new CommandNotFoundException("Command: "+name+" was not found.");
     }
 
+    /**
+     * @return the description of the command, without creating its container,
+     * or null if no command with the name is registered
+     */
+    public String getCommandDescription(String name) {
+        RegisteredCommand command = registry.get(name);
+        return command == null ? null : command.description;
+    }
+
     @Override
     public List<String> findAllCommandNames(String line) {
         List<String> names = new ArrayList<>();
-        for(CommandContainer<Command> command : registry.values()) {
-            if(command.getParser().getProcessedCommand().getName().startsWith(line))
-                names.add(command.getParser().getProcessedCommand().getName());
-            else if(command.getParser().isGroupCommand() &&
-                    line.startsWith(command.getParser().getProcessedCommand().getName())) {
-                String groupLine = Parser.trimInFront( line.substring(command.getParser().getProcessedCommand().getName().length()));
+        registry.addNamesStartingWith(line, "", names);
+        //the name of a group command followed by the start of a group command
+        int nameEnd = line.indexOf(Parser.SPACE_CHAR);
+        if(nameEnd > 0) {
+            RegisteredCommand command = registry.get(line.substring(0, nameEnd));
+            if(command != null && command.groupCommands != null) {
+                String groupLine = Parser.trimInFront(line.substring(nameEnd));
                 int diff = line.length() - groupLine.length();
-                for(CommandLineParser child : command.getParser().getAllChildParsers()) {
-                    if(child.getProcessedCommand().getName().startsWith(groupLine))
-                        names.add(line.substring(0, diff) + child.getProcessedCommand().getName());
-                }
+                command.groupCommands.addNamesStartingWith(groupLine, line.substring(0, diff), names);
             }
         }
         return names;
@@ -75,31 +113,152 @@ public class MutableCommandRegistry implements CommandRegistry {
 
     @Override
     public Set<String> getAllCommandNames() {
-        return registry.keySet();
+        return registry.names();
     }
 
     public void addCommand(CommandContainer container) {
-        putIntoRegistry(container);
+        if(container != null && !container.haveBuildError())
+            registry.putIfAbsent(container.getParser().getProcessedCommand().getName(),
+                    new RegisteredCommand(container));
     }
 
     public void addCommand(Command command) {
-        putIntoRegistry(getBuilder().create(command));
+        if(!addLazy(command.getClass(), command))
+            addCommand(getBuilder().create(command));
     }
 
     public void addCommand(Class<? extends Command> command) {
-        putIntoRegistry(getBuilder().create(command));
+        if(!addLazy(command, null))
+            addCommand(getBuilder().create(command));
     }
 
-    private void putIntoRegistry(CommandContainer commandContainer) {
-        if(!commandContainer.haveBuildError() &&
-                !registry.containsKey(commandContainer.getParser().getProcessedCommand().getName()))
-            registry.put(commandContainer.getParser().getProcessedCommand().getName(), commandContainer);
+    /**
+     * @return false if the command is not annotated, it is then created now
+     * so the error is reported the same way as before
+     */
+    private boolean addLazy(Class<? extends Command> commandClass, Command command) {
+        CommandDefinition definition = commandClass.getAnnotation(CommandDefinition.class);
+        if(definition != null) {
+            registry.putIfAbsent(definition.name(),
+                    new RegisteredCommand(definition.description(), commandClass, command, getBuilder(), null));
+            return true;
+        }
+        GroupCommandDefinition groupDefinition = commandClass.getAnnotation(GroupCommandDefinition.class);
+        if(groupDefinition != null) {
+            CommandTrie<String> groupCommands = new CommandTrie<>();
+            for(Class<? extends Command> groupCommand : groupDefinition.groupCommands()) {
+                String name = getName(groupCommand);
+                if(name != null)
+                    groupCommands.putIfAbsent(name, name);
+            }
+            registry.putIfAbsent(groupDefinition.name(),
+                    new RegisteredCommand(groupDefinition.description(), commandClass, command, getBuilder(),
+                            groupCommands.size() > 0 ? groupCommands : null));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Register the commands listed in the {@link CommandManifest} files found
+     * by the class loader. The command classes are not loaded before the
+     * commands are used.
+     */
+    public void addCommandsFromManifest(ClassLoader classLoader) {
+        Enumeration<URL> manifests;
+        try {
+            manifests = classLoader.getResources(CommandManifest.LOCATION);
+        }
+        catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not find " + CommandManifest.LOCATION, e);
+            return;
+        }
+        while(manifests.hasMoreElements()) {
+            URL url = manifests.nextElement();
+            Properties manifest = new Properties();
+            try (InputStream in = url.openStream()) {
+                manifest.load(in);
+            }
+            catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not read " + url, e);
+                continue;
+            }
+            for(String key : manifest.stringPropertyNames()) {
+                if(!key.endsWith(CommandManifest.CLASS_SUFFIX))
+                    continue;
+                String name = key.substring(0, key.length() - CommandManifest.CLASS_SUFFIX.length());
+                CommandTrie<String> groupCommands = null;
+                String groupNames = manifest.getProperty(name + CommandManifest.GROUP_COMMANDS_SUFFIX);
+                if(groupNames != null) {
+                    groupCommands = new CommandTrie<>();
+                    for(String groupName : groupNames.split(String.valueOf(CommandManifest.GROUP_COMMANDS_SEPARATOR)))
+                        groupCommands.putIfAbsent(groupName, groupName);
+                }
+                registry.putIfAbsent(name, new RegisteredCommand(
+                        manifest.getProperty(name + CommandManifest.DESCRIPTION_SUFFIX, ""),
+                        manifest.getProperty(key), classLoader, getBuilder(), groupCommands));
+            }
+        }
+    }
+
+    private static String getName(Class<? extends Command> commandClass) {
+        CommandDefinition definition = commandClass.getAnnotation(CommandDefinition.class);
+        if(definition != null)
+            return definition.name();
+        GroupCommandDefinition groupDefinition = commandClass.getAnnotation(GroupCommandDefinition.class);
+        return groupDefinition == null ? null : groupDefinition.name();
+    }
+
+    /**
+     * @return the container, or null if it could not be created and the
+     * command was removed
+     */
+    private CommandContainer materialize(String name, RegisteredCommand command) {
+        CommandContainer container = command.getContainer();
+        if(container == null) {
+            LOGGER.warning("Command: " + name + " could not be created and is removed: " +
+                    command.getBuildErrorMessage());
+            //it might have been replaced since it was looked up
+            registry.remove(name, command);
+        }
+        return container;
     }
 
     @Override
     public void removeCommand(String name) {
-        if(registry.containsKey(name))
-            registry.remove(name);
+        registry.remove(name);
+    }
+
+    /**
+     * Create the containers of all the registered commands in a background
+     * thread, so the first use of a command do not need to wait for it.
+     *
+     * @return done when all the containers are created
+     */
+    public Future<?> prewarm() {
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            return executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for(String name : getAllCommandNames()) {
+                        RegisteredCommand command = registry.get(name);
+                        if(command != null)
+                            materialize(name, command);
+                    }
+                }
+            });
+        }
+        finally {
+            executor.shutdown();
+        }
     }
 
     private CommandContainerBuilder getBuilder() {
@@ -108,4 +267,100 @@ public class MutableCommandRegistry implements CommandRegistry {
         return containerBuilder;
     }
 
+    private static final class RegisteredCommand {
+        private final String description;
+        //names of the group commands, null if it is not a group command
+        private final CommandTrie<String> groupCommands;
+        //what the container is created from, null when it is created
+        private Class<? extends Command> commandClass;
+        private Command command;
+        private String className;
+        private ClassLoader classLoader;
+        private CommandContainerBuilder builder;
+        private volatile CommandContainer<Command> container;
+        private volatile String buildErrorMessage;
+
+        RegisteredCommand(String description, Class<? extends Command> commandClass, Command command,
+                          CommandContainerBuilder builder, CommandTrie<String> groupCommands) {
+            this.description = description;
+            this.commandClass = commandClass;
+            this.command = command;
+            this.builder = builder;
+            this.groupCommands = groupCommands;
+        }
+
+        RegisteredCommand(String description, String className, ClassLoader classLoader,
+                          CommandContainerBuilder builder, CommandTrie<String> groupCommands) {
+            this.description = description;
+            this.className = className;
+            this.classLoader = classLoader;
+            this.builder = builder;
+            this.groupCommands = groupCommands;
+        }
+
+        @SuppressWarnings("unchecked")
+        RegisteredCommand(CommandContainer container) {
+            this.container = container;
+            description = container.getParser().getProcessedCommand().getDescription();
+            groupCommands = groupCommandNames(container);
+        }
+
+        /**
+         * @return the container, created the first time it is needed, or null
+         * if it could not be created
+         */
+        CommandContainer<Command> getContainer() {
+            CommandContainer<Command> result = container;
+            if(result == null && buildErrorMessage == null) {
+                synchronized(this) {
+                    result = container;
+                    if(result == null && buildErrorMessage == null)
+                        result = create();
+                }
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private CommandContainer<Command> create() {
+            CommandContainer<Command> created;
+            try {
+                if(command != null)
+                    created = builder.create(command);
+                else if(commandClass != null)
+                    created = builder.create(commandClass);
+                else
+                    created = builder.create(Class.forName(className, true, classLoader).asSubclass(Command.class));
+            }
+            catch (ClassNotFoundException | RuntimeException | LinkageError e) {
+                buildErrorMessage = e.toString();
+                return null;
+            }
+            if(created == null || created.haveBuildError()) {
+                buildErrorMessage = created == null ? "no container was created" : created.getBuildErrorMessage();
+                return null;
+            }
+            container = created;
+            commandClass = null;
+            command = null;
+            className = null;
+            classLoader = null;
+            builder = null;
+            return created;
+        }
+
+        String getBuildErrorMessage() {
+            return buildErrorMessage;
+        }
+
+        private static CommandTrie<String> groupCommandNames(CommandContainer<?> container) {
+            if(!container.getParser().isGroupCommand())
+                return null;
+            CommandTrie<String> names = new CommandTrie<>();
+            for(CommandLineParser<? extends Command> child : container.getParser().getAllChildParsers())
+                names.putIfAbsent(child.getProcessedCommand().getName(), child.getProcessedCommand().getName());
+            return names;
+        }
+    }
+
 }
@@ -27,12 +27,16 @@ import org.jboss.aesh.console.command.CommandOperation;
 import org.jboss.aesh.console.operator.ControlOperator;
 import org.jboss.aesh.terminal.Key;
 import org.jboss.aesh.terminal.Shell;
+import org.jboss.aesh.terminal.TerminalSize;
+import org.jboss.aesh.terminal.TerminalSizeListener;
+import org.jboss.aesh.terminal.TerminalSizeNotifier;
 import org.jboss.aesh.util.ANSI;
 import org.jboss.aesh.util.LoggerUtil;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jboss.aesh.console.man.TerminalPage.Search;
 /**
@@ -51,11 +55,47 @@ public abstract class AeshFileDisplayer implements Command {
     private StringBuilder number;
     private TerminalPage.Search search = TerminalPage.Search.NO_SEARCH;
     private StringBuilder searchBuilder;
-    private List<Integer> searchLines;
+    private PageSearch pageSearch;
+    //the jump waiting for the search to scan more lines, or null
+    private Jump pendingJump;
+    private int pendingLine;
+    //the top row waiting for its lines to be found, or -1
+    private int pendingTop = -1;
+    //the thread waiting for the lines of pendingTop, or null
+    private Thread lineWaiter;
     private static final Logger LOGGER = LoggerUtil.getLogger(AeshFileDisplayer.class.getName());
     private CommandInvocation commandInvocation;
     private ControlOperator operation;
     private boolean stop;
+    //the page is redrawn from the thread that notice a resize
+    private final Object displayLock = new Object();
+    //called from the search thread when it found more lines
+    private final Runnable searchListener = new Runnable() {
+        @Override
+        public void run() {
+            synchronized(displayLock) {
+                if(stop || pendingJump == null)
+                    return;
+                try {
+                    jump(pendingJump, pendingLine);
+                }
+                catch (IOException e) {
+                    LOGGER.warning("Failed to display search result: " + e.getMessage());
+                }
+            }
+        }
+    };
+    private final TerminalSizeListener sizeListener = new TerminalSizeListener() {
+        @Override
+        public void sizeChanged(TerminalSize size) {
+            try {
+                resize(size);
+            }
+            catch (IOException e) {
+                LOGGER.warning("Failed to redraw page after resize: " + e.getMessage());
+            }
+        }
+    };
 
     public AeshFileDisplayer() {
         stop = false;
@@ -89,12 +129,11 @@ public abstract class AeshFileDisplayer implements Command {
         stop = false;
 
         if(operation.isRedirectionOut()) {
-            int count=0;
-            for(String line : this.page.getLines()) {
-                getShell().out().print(line);
-                count++;
-                if(count < this.page.size())
+            //write the lines as they are found instead of waiting for all of them
+            for(int i = 0; i < page.awaitLines(i + 1); i++) {
+                if(i > 0)
                     getShell().out().print(Config.getLineSeparator());
+                getShell().out().print(page.getLine(i));
             }
             getShell().out().flush();
 
@@ -108,7 +147,10 @@ public abstract class AeshFileDisplayer implements Command {
             }
             else {
                 getShell().out().print(ANSI.ALTERNATE_BUFFER);
+                if(getShell() instanceof TerminalSizeNotifier)
+                    ((TerminalSizeNotifier) getShell()).addSizeListener(sizeListener);
 
+                page.awaitLines(rows);
                 if(this.page.getFileName() != null)
                     display();
                 else
@@ -120,6 +162,10 @@ public abstract class AeshFileDisplayer implements Command {
     }
 
     protected void afterDetach() throws IOException {
+        cancelScroll();
+        if(getShell() instanceof TerminalSizeNotifier)
+            ((TerminalSizeNotifier) getShell()).removeSizeListener(sizeListener);
+        cancelSearch();
         if(!operation.isRedirectionOut())
             getShell().out().print(ANSI.MAIN_BUFFER);
 
@@ -130,7 +176,10 @@ public abstract class AeshFileDisplayer implements Command {
     public void processInput() throws IOException, InterruptedException {
         try {
             while(!stop) {
-                processOperation(getCommandInvocation().getInput());
+                CommandOperation input = getCommandInvocation().getInput();
+                synchronized(displayLock) {
+                    processOperation(input);
+                }
             }
         }
         catch (InterruptedException e) {
@@ -141,6 +190,12 @@ public abstract class AeshFileDisplayer implements Command {
     }
 
     public void processOperation(CommandOperation operation) throws IOException {
+        //any key cancel the wait for the lines of a scroll
+        if(pendingTop >= 0) {
+            cancelScroll();
+            clearBottomLine();
+            displayBottom();
+        }
         if(operation.getInputKey() == Key.q) {
             if(search == Search.SEARCHING) {
                 searchBuilder.append((char) operation.getInput()[0]);
@@ -174,15 +229,7 @@ public abstract class AeshFileDisplayer implements Command {
                }
             }
             else {
-                topVisibleRow = topVisibleRow + getNumber();
-                if(topVisibleRow > (page.size()-rows-1)) {
-                    topVisibleRow = page.size()-rows-1;
-                    if(topVisibleRow < 0)
-                        topVisibleRow = 0;
-                    display();
-                }
-                else
-                    display();
+                scrollTo(topVisibleRow + getNumber());
                 clearNumber();
             }
         }
@@ -206,18 +253,13 @@ public abstract class AeshFileDisplayer implements Command {
                 operation.getInputKey() == Key.PGDOWN ||
                 operation.getInputKey() == Key.SPACE) { // ctrl-f || pgdown || space
             if(search == Search.SEARCHING) {
-
+                if(operation.getInputKey() == Key.SPACE) {
+                    searchBuilder.append(' ');
+                    displayBottom();
+                }
             }
             else {
-                topVisibleRow = topVisibleRow + ((rows - 1) * getNumber());
-                if(topVisibleRow > (page.size()-rows-1)) {
-                    topVisibleRow = page.size()-rows-1;
-                    if(topVisibleRow < 0)
-                        topVisibleRow = 0;
-                    display();
-                }
-                else
-                    display();
+                scrollTo(topVisibleRow + ((rows - 1) * getNumber()));
                 clearNumber();
             }
         }
@@ -234,6 +276,7 @@ public abstract class AeshFileDisplayer implements Command {
         //search
         else if(operation.getInputKey() == Key.SLASH) {
             if(search == Search.NO_SEARCH || search == Search.RESULT) {
+                cancelSearch();
                 search = Search.SEARCHING;
                 searchBuilder = new StringBuilder();
                 displayBottom();
@@ -250,20 +293,7 @@ public abstract class AeshFileDisplayer implements Command {
                 displayBottom();
             }
             else if(search == Search.RESULT) {
-                if(searchLines.size() > 0) {
-                    for(Integer i : searchLines) {
-                        if(i > topVisibleRow+1) {
-                            topVisibleRow = i-1;
-                            display();
-                            return;
-                        }
-                    }
-                    //we didnt find any more
-                    displayBottom();
-                }
-                else {
-                    displayBottom();
-                }
+                jump(Jump.NEXT, topVisibleRow+1);
             }
         }
         else if(operation.getInputKey() == Key.N) {
@@ -272,19 +302,7 @@ public abstract class AeshFileDisplayer implements Command {
                 displayBottom();
             }
             else if(search == Search.RESULT) {
-                if(searchLines.size() > 0) {
-                    for(int i=searchLines.size()-1; i >= 0; i--) {
-                        if(searchLines.get(i) < topVisibleRow) {
-                            topVisibleRow = searchLines.get(i)-1;
-                            if(topVisibleRow < 0)
-                                topVisibleRow = 0;
-                            display();
-                            return;
-                        }
-                    }
-                    //we didnt find any more
-                    displayBottom();
-                }
+                jump(Jump.PREVIOUS, topVisibleRow);
             }
         }
         else if(operation.getInputKey() == Key.G) {
@@ -292,22 +310,13 @@ public abstract class AeshFileDisplayer implements Command {
                 searchBuilder.append((char) operation.getInput()[0]);
                 displayBottom();
             }
+            else if(number.length() > 0 && getNumber() > 0) {
+                scrollTo(getNumber()-1);
+                clearNumber();
+            }
             else {
-                if(number.length() == 0 || getNumber() == 0) {
-                    topVisibleRow = page.size()-rows-1;
-                    display();
-                }
-                else {
-                    topVisibleRow = getNumber()-1;
-                    if(topVisibleRow > page.size()-rows-1) {
-                        topVisibleRow = page.size()-rows-1;
-                        display();
-                    }
-                    else {
-                        display();
-                    }
-                }
                 clearNumber();
+                scrollTo(Integer.MAX_VALUE);
             }
         }
         else if(operation.getInputKey().isNumber()) {
@@ -320,56 +329,185 @@ public abstract class AeshFileDisplayer implements Command {
                 display();
             }
         }
+        else if(operation.getInputKey() == Key.BACKSPACE) {
+            if(search == Search.SEARCHING && searchBuilder.length() > 0) {
+                searchBuilder.setLength(searchBuilder.length()-1);
+                clearBottomLine();
+                displayBottom();
+            }
+        }
         else {
-            if(search == Search.SEARCHING &&
-                    (Character.isAlphabetic(operation.getInput()[0]))) {
+            if(search == Search.SEARCHING && Key.isPrintable(operation.getInput())) {
                 searchBuilder.append((char) operation.getInput()[0]);
                 displayBottom();
             }
         }
     }
 
-    private void display() throws IOException {
-        if(topVisibleRow != topVisibleRowCache) {
-            getShell().clear();
-            if(search == Search.RESULT && searchLines.size() > 0) {
-                String searchWord = searchBuilder.toString();
-                for(int i=topVisibleRow; i < (topVisibleRow+rows-1); i++) {
-                    if(i < page.size()) {
-                        String line = page.getLine(i);
-                        if(line.contains(searchWord))
-                            displaySearchLine(line, searchWord);
-                        else
-                            getShell().out().print(line);
-                        getShell().out().print(Config.getLineSeparator());
+    /**
+     * Redraw the page for the new size, lines of a StreamingFileParser are
+     * wrapped to the new width when they are displayed, the lines of other
+     * parsers are not wrapped again
+     */
+    private void resize(TerminalSize size) throws IOException {
+        synchronized(displayLock) {
+            if(stop)
+                return;
+            rows = size.getHeight();
+            columns = size.getWidth();
+            //redraw even if the top row did not change
+            topVisibleRowCache = -1;
+            scrollTo(topVisibleRow);
+        }
+    }
+
+    /**
+     * Show the page from row. If its lines are not found yet the page is
+     * shown by the line waiter when they are, so a large file do not block
+     * the keys and resizes while it is indexed
+     */
+    private void scrollTo(int row) throws IOException {
+        if(hasLinesFor(row)) {
+            moveTo(row);
+            display();
+            return;
+        }
+        clearBottomLine();
+        writeToConsole(ANSI.INVERT_BACKGROUND + "indexing..." + ANSI.DEFAULT_TEXT);
+        pendingTop = row;
+        if(lineWaiter != null)
+            //wake it up to wait for the new row
+            lineWaiter.interrupt();
+        else
+            startLineWaiter();
+    }
+
+    /**
+     * Move the top of the page to row, but not further than showing the
+     * last line at the bottom of the page
+     */
+    private void moveTo(int row) {
+        topVisibleRow = Math.max(row, 0);
+        //only look for the last line if it might be on this page
+        if(page.size() < linesNeeded(topVisibleRow))
+            topVisibleRow = Math.min(topVisibleRow, lastTopRow());
+    }
+
+    private int linesNeeded(int row) {
+        return (int) Math.min((long) Math.max(row, 0) + rows, Integer.MAX_VALUE);
+    }
+
+    private boolean hasLinesFor(int row) {
+        return page.isComplete() || page.size() >= linesNeeded(row);
+    }
+
+    /**
+     * Start the thread that wait for the lines of pendingTop and show them.
+     * The same thread follow every new pendingTop and stop when there are
+     * none left
+     */
+    private void startLineWaiter() {
+        final TerminalPage waitPage = page;
+        lineWaiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(true) {
+                    int target;
+                    synchronized(displayLock) {
+                        //an interrupt only tell that pendingTop changed
+                        Thread.interrupted();
+                        if(stop || pendingTop < 0) {
+                            lineWaiter = null;
+                            return;
+                        }
+                        target = pendingTop;
+                    }
+                    waitPage.awaitLines(linesNeeded(target));
+                    synchronized(displayLock) {
+                        if(stop || pendingTop != target || !hasLinesFor(target))
+                            continue;
+                        pendingTop = -1;
+                        lineWaiter = null;
+                        try {
+                            moveTo(target);
+                            //replace the indexing message even if the page do not move
+                            topVisibleRowCache = -1;
+                            display();
+                        }
+                        catch (IOException e) {
+                            LOGGER.warning("Failed to display the page: " + e.getMessage());
+                        }
+                        return;
                     }
                 }
-                topVisibleRowCache = topVisibleRow;
             }
-            else {
-                for(int i=topVisibleRow; i < (topVisibleRow+rows-1); i++) {
-                    if(i < page.size()) {
-                        getShell().out().print(page.getLine(i)+ Config.getLineSeparator());
-                    }
+        }, "Aesh Page Lines");
+        lineWaiter.setDaemon(true);
+        lineWaiter.start();
+    }
+
+    private void cancelScroll() {
+        pendingTop = -1;
+        if(lineWaiter != null)
+            lineWaiter.interrupt();
+    }
+
+    /**
+     * @return the top row when the last line is at the bottom of the page
+     */
+    private int lastTopRow() {
+        int top = page.size();
+        int screenRows = 0;
+        while(top > 0) {
+            screenRows += page.getRows(top-1, columns).size();
+            if(screenRows > rows-1)
+                break;
+            top--;
+        }
+        return top;
+    }
+
+    private void display() throws IOException {
+        if(topVisibleRow != topVisibleRowCache) {
+            getShell().clear();
+            Pattern searchPattern = null;
+            if(search == Search.RESULT && pageSearch != null)
+                searchPattern = pageSearch.getPattern();
+            int screenRow = 0;
+            for(int i=topVisibleRow; i < page.size() && screenRow < rows-1; i++) {
+                for(String row : page.getRows(i, columns)) {
+                    if(screenRow == rows-1)
+                        break;
+                    if(searchPattern != null)
+                        displaySearchLine(row, searchPattern);
+                    else
+                        getShell().out().print(row);
+                    getShell().out().print(Config.getLineSeparator());
+                    screenRow++;
                 }
-                topVisibleRowCache = topVisibleRow;
             }
+            topVisibleRowCache = topVisibleRow;
             displayBottom();
         }
         getShell().out().flush();
     }
 
     /**
-     * highlight the specific word thats found in the search
+     * highlight every match of the search in the line
      */
-    private void displaySearchLine(String line, String searchWord) throws IOException {
-        int start = line.indexOf(searchWord);
-        getShell().out().print(line.substring(0,start));
-        getShell().out().print(ANSI.INVERT_BACKGROUND);
-        getShell().out().print(searchWord);
-        getShell().out().print(ANSI.RESET);
-        getShell().out().print(line.substring(start + searchWord.length(), line.length()));
-        getShell().out().flush();
+    private void displaySearchLine(String line, Pattern searchPattern) throws IOException {
+        Matcher matcher = searchPattern.matcher(line);
+        int end = 0;
+        while(matcher.find()) {
+            if(matcher.end() == matcher.start())
+                continue;
+            getShell().out().print(line.substring(end, matcher.start()));
+            getShell().out().print(ANSI.INVERT_BACKGROUND);
+            getShell().out().print(matcher.group());
+            getShell().out().print(ANSI.RESET);
+            end = matcher.end();
+        }
+        getShell().out().print(line.substring(end));
     }
 
     public abstract FileParser getFileParser();
@@ -388,7 +526,7 @@ public abstract class AeshFileDisplayer implements Command {
     }
 
     public boolean isAtBottom() {
-        return topVisibleRow >= (page.size()-rows-1);
+        return page.isComplete() && topVisibleRow >= lastTopRow();
     }
 
     public boolean isAtTop() {
@@ -407,24 +545,56 @@ public abstract class AeshFileDisplayer implements Command {
         return topVisibleRow+1;
     }
 
+    /**
+     * @return number of matches of the search found so far
+     */
+    public long getSearchMatchCount() {
+        return pageSearch == null ? 0 : pageSearch.getMatchCount();
+    }
+
     private void findSearchWord(boolean forward) throws IOException {
         LOGGER.info("searching for: " + searchBuilder.toString());
-        searchLines = page.findWord(searchBuilder.toString());
-        LOGGER.info("found: "+searchLines);
-        if(searchLines.size() > 0) {
-            for(Integer i : searchLines)
-                if(i > topVisibleRow) {
-                    topVisibleRow = i-1;
-                    display();
-                    return;
-                }
+        cancelSearch();
+        pageSearch = new PageSearch(page, searchBuilder.toString(), topVisibleRow, searchListener);
+        //the highlighting changed even if the page do not move
+        topVisibleRowCache = -1;
+        jump(Jump.FIRST, topVisibleRow);
+    }
+
+    /**
+     * Move to the match after or before line, if the search has not
+     * scanned that far the jump is done when it has
+     */
+    private void jump(Jump jump, int line) throws IOException {
+        pendingJump = null;
+        int match = jump == Jump.PREVIOUS ? pageSearch.previous(line) : pageSearch.next(line);
+        //the first jump tell if there are no matches at all, so wait for the whole scan
+        if(match == PageSearch.UNKNOWN ||
+                (jump == Jump.FIRST && match == PageSearch.NONE && !pageSearch.isDone())) {
+            pendingJump = jump;
+            pendingLine = line;
+            pageSearch.waitForResult();
         }
-        else {
-            search = Search.NOT_FOUND;
+        else if(match == PageSearch.NONE) {
+            if(jump == Jump.FIRST && pageSearch.getLineCount() == 0)
+                search = Search.NOT_FOUND;
+            //we didnt find any more
             displayBottom();
+            getShell().out().flush();
+        }
+        else {
+            scrollTo(Math.max(0, match-1));
         }
     }
 
+    private void cancelSearch() {
+        if(pageSearch != null) {
+            pageSearch.cancel();
+            pageSearch = null;
+        }
+        pendingJump = null;
+    }
+
     /**
      * number written by the user (used to jump to specific commands)
      */
@@ -439,6 +609,12 @@ public abstract class AeshFileDisplayer implements Command {
         number = new StringBuilder();
     }
 
+    private static enum Jump {
+        FIRST,
+        NEXT,
+        PREVIOUS
+    }
+
     private static enum Background {
         NORMAL,
         INVERSE
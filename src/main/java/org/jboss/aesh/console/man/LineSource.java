@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man;
+
+import java.io.Closeable;
+
+/**
+ * The lines of a page, read when they are displayed instead of being
+ * loaded before the page is shown. The lines are found in the background,
+ * size() grow until isComplete() return true.
+ * The lines are not wrapped, TerminalPage wrap them to the width of the
+ * terminal when they are displayed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public interface LineSource extends Closeable {
+
+    /**
+     * @return number of lines found so far
+     */
+    int size();
+
+    /**
+     * @return true when every line is found
+     */
+    boolean isComplete();
+
+    /**
+     * Wait until at least count lines are found or every line is found.
+     *
+     * @return number of lines found
+     */
+    int awaitLines(int count);
+
+    /**
+     * @return the line, without the line separator. Empty if line is not found yet
+     */
+    String getLine(int line);
+
+    /**
+     * Stop looking for lines and release the file
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Search the lines of a TerminalPage in a background thread.
+ * The scan start at the line the search is started from, continue to the
+ * end of the page and then from the top of the page back to where it
+ * started, so the matches after the current line are found first.
+ * The lines with a match are kept in two sorted arrays, the lines after
+ * the start and the lines before it, so jumping between the matches only
+ * look at the matches found so far.
+ * The query is a regular expression, if it is not a valid one it is
+ * matched as it is.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PageSearch {
+
+    /**
+     * No match was found
+     */
+    public static final int NONE = -1;
+    /**
+     * The lines that might have a match are not scanned yet
+     */
+    public static final int UNKNOWN = -2;
+
+    //how many lines are scanned between each notification to a waiting listener
+    private static final int NOTIFY_LINES = 4096;
+
+    private final TerminalPage page;
+    private final Pattern pattern;
+    private final int start;
+    private final Runnable listener;
+    private final Thread scanner;
+
+    //lines with a match, in the order they are found, the lines before start
+    //are found after the lines after it
+    private volatile int[] lines;
+    private volatile int lineCount;
+    //index of the first line before start in lines
+    private volatile int wrapIndex;
+    //the next line to scan, -(line + 1) after the scan continued from the top.
+    //written after the lines found before it, so a reader that read it
+    //first know every match before it
+    private volatile int position;
+    private volatile boolean done;
+    private volatile long matchCount;
+    private volatile boolean cancelled;
+    private volatile boolean waiting;
+
+    /**
+     * @param listener notified from the scanner thread when lines are found,
+     *                 while someone wait for a result, and when the scan is done
+     */
+    public PageSearch(TerminalPage page, String query, int start, Runnable listener) {
+        this.page = page;
+        this.pattern = compile(query);
+        this.start = Math.max(0, start);
+        this.listener = listener;
+        lines = new int[16];
+        position = this.start;
+        scanner = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                scan();
+            }
+        }, "Aesh Page Search");
+        scanner.setDaemon(true);
+        scanner.start();
+    }
+
+    private static Pattern compile(String query) {
+        try {
+            return Pattern.compile(query);
+        }
+        catch (PatternSyntaxException e) {
+            return Pattern.compile(query, Pattern.LITERAL);
+        }
+    }
+
+    private void scan() {
+        Matcher matcher = pattern.matcher("");
+        int line = start;
+        int scanned = 0;
+        //from start to the end of the page
+        while(!cancelled && line < page.awaitLines(line + 1)) {
+            scanLine(matcher, line++);
+            if(++scanned % NOTIFY_LINES == 0)
+                progress(line);
+        }
+        if(cancelled)
+            return;
+        wrapIndex = lineCount;
+        position = -1;
+        notifyListener();
+        //from the top to start
+        for(line = 0; line < start && !cancelled; line++) {
+            scanLine(matcher, line);
+            if(++scanned % NOTIFY_LINES == 0)
+                progress(line + 1);
+        }
+        if(cancelled)
+            return;
+        done = true;
+        waiting = false;
+        if(listener != null)
+            listener.run();
+    }
+
+    private void scanLine(Matcher matcher, int line) {
+        matcher.reset(page.getLine(line));
+        if(matcher.find()) {
+            long matches = 0;
+            do {
+                matches++;
+            }
+            while(matcher.find());
+            add(line);
+            matchCount += matches;
+            progress(line + 1);
+        }
+    }
+
+    private void progress(int next) {
+        position = position < 0 ? -(next + 1) : next;
+        notifyListener();
+    }
+
+    private void add(int line) {
+        int[] found = lines;
+        if(lineCount == found.length) {
+            found = Arrays.copyOf(found, found.length * 2);
+            lines = found;
+        }
+        found[lineCount] = line;
+        lineCount++;
+    }
+
+    private void notifyListener() {
+        if(waiting && listener != null) {
+            waiting = false;
+            listener.run();
+        }
+    }
+
+    /**
+     * The listener is notified the next time a line with a match is found
+     * or the scan has moved on. Used when a result was UNKNOWN
+     */
+    public void waitForResult() {
+        waiting = true;
+    }
+
+    /**
+     * Stop the scan, the listener is not notified again
+     */
+    public void cancel() {
+        cancelled = true;
+        waiting = false;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return number of matches found so far, a line can have more than one
+     */
+    public long getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * @return number of lines with a match found so far
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the first line after the given line with a match, NONE or UNKNOWN
+     */
+    public int next(int after) {
+        //read in the opposite order of how they are written
+        boolean isDone = done;
+        int scanned = position;
+        int count = lineCount;
+        int[] found = lines;
+        int split = scanned < 0 || isDone ? wrapIndex : count;
+        //lines before start are smaller than those after it, so look there first
+        int match = after + 1 < start ? first(found, split, count, after) : NONE;
+        if(match == NONE)
+            match = first(found, 0, split, after);
+        int end = match == NONE ? Integer.MAX_VALUE : match;
+        return isDone || isScanned(after + 1, end, scanned) ? match : UNKNOWN;
+    }
+
+    /**
+     * @return the last line before the given line with a match, NONE or UNKNOWN
+     */
+    public int previous(int before) {
+        boolean isDone = done;
+        int scanned = position;
+        int count = lineCount;
+        int[] found = lines;
+        int split = scanned < 0 || isDone ? wrapIndex : count;
+        int match = before > start ? last(found, 0, split, before) : NONE;
+        if(match == NONE)
+            match = last(found, split, count, before);
+        return isDone || isScanned(match + 1, before, scanned) ? match : UNKNOWN;
+    }
+
+    /**
+     * @return true if every line from, inclusive, to end, exclusive, is scanned
+     */
+    private boolean isScanned(int from, int end, int scanned) {
+        if(from >= end)
+            return true;
+        if(scanned >= 0)
+            return from >= start && end <= scanned;
+        //the lines after start are all scanned
+        return from >= start || Math.min(end, start) <= -scanned - 1;
+    }
+
+    //first line in the sorted range larger than after
+    private static int first(int[] found, int from, int to, int after) {
+        int index = Arrays.binarySearch(found, from, to, after);
+        index = index >= 0 ? index + 1 : -index - 1;
+        return index < to ? found[index] : NONE;
+    }
+
+    //last line in the sorted range smaller than before
+    private static int last(int[] found, int from, int to, int before) {
+        int index = Arrays.binarySearch(found, from, to, before);
+        index = (index >= 0 ? index : -index - 1) - 1;
+        return index >= from ? found[index] : NONE;
+    }
+}
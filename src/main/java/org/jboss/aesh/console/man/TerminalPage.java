@@ -21,57 +21,133 @@ package org.jboss.aesh.console.man;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * TerminalPage parse files or input string and prepare it to be displayed in a term
  *
+ * The lines of a StreamingFileParser are read when they are displayed and
+ * wrapped to the width of the terminal then, the lines of other parsers
+ * are loaded and wrapped by the parser when the page is created.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class TerminalPage {
 
-    private List<String> lines;
+    private static final int TAB_SIZE = 8;
+
+    private final LineSource lines;
+    private final boolean wrapLines;
     private FileParser fileParser;
 
     public TerminalPage(FileParser fileParser, int columns) throws IOException {
        this.fileParser = fileParser;
-        lines = fileParser.loadPage(columns);
+        if(fileParser instanceof StreamingFileParser) {
+            lines = ((StreamingFileParser) fileParser).open();
+            wrapLines = true;
+        }
+        else {
+            lines = new ListLineSource(fileParser.loadPage(columns));
+            wrapLines = false;
+        }
     }
 
     public String getLine(int num) {
-        if(num < lines.size())
-            return lines.get(num);
+        return lines.getLine(num);
+    }
+
+    /**
+     * @return the rows the line is displayed in
+     */
+    public List<String> getRows(int num, int columns) {
+        if(wrapLines)
+            return wrap(lines.getLine(num), columns);
         else
-            return "";
+            return Collections.singletonList(lines.getLine(num));
     }
 
     public List<Integer> findWord(String word) {
         List<Integer> wordLines = new ArrayList<Integer>();
-        for(int i=0; i < lines.size();i++) {
-            if(lines.get(i).contains(word))
+        int size = lines.awaitLines(Integer.MAX_VALUE);
+        for(int i=0; i < size;i++) {
+            if(lines.getLine(i).contains(word))
                 wordLines.add(i);
         }
         return wordLines;
     }
 
+    /**
+     * @return number of lines found so far
+     */
     public int size() {
         return lines.size();
     }
 
+    /**
+     * Wait until at least count lines are found or every line is found
+     *
+     * @return number of lines found
+     */
+    public int awaitLines(int count) {
+        return lines.awaitLines(count);
+    }
+
+    public boolean isComplete() {
+        return lines.isComplete();
+    }
+
     public String getFileName() {
         return fileParser.getName();
     }
 
+    /**
+     * @return every line, waits until all are found
+     */
     public List<String> getLines() {
-        return lines;
+        List<String> out = new ArrayList<>();
+        int size = lines.awaitLines(Integer.MAX_VALUE);
+        for(int i = 0; i < size; i++)
+            out.add(lines.getLine(i));
+        return out;
     }
 
     public boolean hasData() {
-        return !lines.isEmpty();
+        return lines.awaitLines(1) > 0;
     }
 
     public void clear() {
-        lines.clear();
+        lines.close();
+    }
+
+    /**
+     * Split the line in rows of columns characters, tabs are replaced by spaces
+     */
+    public static List<String> wrap(String line, int columns) {
+        if(line.indexOf('\t') >= 0)
+            line = expandTabs(line);
+        if(columns <= 0 || line.length() <= columns)
+            return Collections.singletonList(line);
+        List<String> rows = new ArrayList<>(line.length() / columns + 1);
+        for(int i = 0; i < line.length(); i += columns)
+            rows.add(line.substring(i, Math.min(i + columns, line.length())));
+        return rows;
+    }
+
+    private static String expandTabs(String line) {
+        StringBuilder builder = new StringBuilder(line.length() + TAB_SIZE);
+        for(int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(c == '\t') {
+                do {
+                    builder.append(' ');
+                }
+                while(builder.length() % TAB_SIZE != 0);
+            }
+            else
+                builder.append(c);
+        }
+        return builder.toString();
     }
 
     public static enum Search {
@@ -81,4 +157,43 @@ public class TerminalPage {
         NO_SEARCH
     }
 
+    private static class ListLineSource implements LineSource {
+
+        //replaced when closed, so a search reading the lines never see it change
+        private volatile List<String> lines;
+
+        ListLineSource(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int size() {
+            return lines.size();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public int awaitLines(int count) {
+            return lines.size();
+        }
+
+        @Override
+        public String getLine(int line) {
+            List<String> current = lines;
+            if(line < current.size())
+                return current.get(line);
+            else
+                return "";
+        }
+
+        @Override
+        public void close() {
+            lines = Collections.emptyList();
+        }
+    }
+
 }
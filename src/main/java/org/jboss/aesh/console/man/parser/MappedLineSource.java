@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man.parser;
+
+import org.jboss.aesh.console.man.LineSource;
+import org.jboss.aesh.util.LoggerUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * The lines of a file mapped into memory. A background thread scan the
+ * file for line separators and only keep the position of every
+ * BLOCK_SIZE line, so the index of a file with millions of lines stay
+ * small. A line is found by scanning from the closest indexed position,
+ * or from the end of the previous line read since lines are mostly read
+ * one after the other.
+ * The file is expected to be UTF-8 and not to change while it is shown.
+ * If it is truncated the jvm fail with an InternalError when a mapped
+ * position that is no longer in the file is read, the source is then closed:
+ * the lines found so far are kept and every line read after is empty.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class MappedLineSource implements LineSource {
+
+    //a MappedByteBuffer is limited to 2GB, larger files are mapped in regions
+    private static final int REGION_SHIFT = 30;
+    private static final int BLOCK_SHIFT = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    //the scan publish the lines found after each chunk
+    private static final int CHUNK_SIZE = 1 << 16;
+    //longer lines are cut, a single line of a few GB can not be displayed anyway
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(MappedLineSource.class.getName());
+
+    private final int regionShift;
+    private final long regionMask;
+    private final long length;
+    private final MappedByteBuffer[] regions;
+    private final Thread indexer;
+
+    //position of the first byte of every BLOCK_SIZE line, written by the indexer
+    private volatile long[] blocks;
+    private volatile int lineCount;
+    private volatile boolean complete;
+    private volatile boolean closed;
+
+    //where the line after the last line read start
+    private int nextLine = -1;
+    private long nextLinePosition;
+
+    MappedLineSource(File file) throws IOException {
+        this(file, REGION_SHIFT);
+    }
+
+    /**
+     * @param regionShift log2 of the size of the mapped regions
+     */
+    MappedLineSource(File file, int regionShift) throws IOException {
+        this.regionShift = regionShift;
+        regionMask = (1L << regionShift) - 1;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            length = channel.size();
+            regions = new MappedByteBuffer[(int) ((length + regionMask) >>> regionShift)];
+            for(int i = 0; i < regions.length; i++) {
+                long start = (long) i << regionShift;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, 1L << regionShift));
+            }
+        }
+        blocks = new long[256];
+        indexer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                index();
+            }
+        }, "Aesh Page Index " + file.getName());
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    private void index() {
+        try {
+            scan();
+        }
+        //the file was truncated while it was read
+        catch (InternalError e) {
+            truncated(e);
+            complete = true;
+            publish(lineCount);
+        }
+    }
+
+    private void scan() {
+        int lines = 0;
+        long[] found = blocks;
+        //copied in chunks, reading a byte at the time from the mapped buffer is slower
+        byte[] chunk = new byte[CHUNK_SIZE];
+        for(int r = 0; r < regions.length && !closed; r++) {
+            ByteBuffer region = regions[r].duplicate();
+            long regionStart = (long) r << regionShift;
+            while(region.hasRemaining()) {
+                long chunkStart = regionStart + region.position();
+                int count = Math.min(chunk.length, region.remaining());
+                region.get(chunk, 0, count);
+                for(int i = 0; i < count; i++) {
+                    if(chunk[i] == '\n' && lines < Integer.MAX_VALUE - 1) {
+                        lines++;
+                        if((lines & (BLOCK_SIZE - 1)) == 0) {
+                            int block = lines >>> BLOCK_SHIFT;
+                            if(block == found.length) {
+                                found = Arrays.copyOf(found, found.length * 2);
+                                blocks = found;
+                            }
+                            found[block] = chunkStart + i + 1;
+                        }
+                    }
+                }
+                if(closed)
+                    return;
+                publish(lines);
+            }
+        }
+        //the last line do not need to end with a line separator
+        if(length > 0 && byteAt(length - 1) != '\n')
+            lines++;
+        complete = true;
+        publish(lines);
+    }
+
+    private void publish(int lines) {
+        if(lines != lineCount) {
+            lineCount = lines;
+            synchronized(this) {
+                notifyAll();
+            }
+        }
+        else if(complete) {
+            synchronized(this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return lineCount;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public int awaitLines(int count) {
+        if(lineCount >= count || complete)
+            return lineCount;
+        synchronized(this) {
+            try {
+                while(lineCount < count && !complete && !closed)
+                    wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return lineCount;
+    }
+
+    @Override
+    public synchronized String getLine(int line) {
+        if(line < 0 || line >= lineCount || closed)
+            return "";
+        try {
+            return readLine(line);
+        }
+        catch (InternalError e) {
+            truncated(e);
+            return "";
+        }
+    }
+
+    private String readLine(int line) {
+        int current = line & ~(BLOCK_SIZE - 1);
+        long position = blocks[line >>> BLOCK_SHIFT];
+        if(nextLine >= current && nextLine <= line) {
+            current = nextLine;
+            position = nextLinePosition;
+        }
+        for(; current < line; current++)
+            position = lineEnd(position) + 1;
+
+        long end = lineEnd(position);
+        nextLine = line + 1;
+        nextLinePosition = end + 1;
+        if(end > position && byteAt(end - 1) == '\r')
+            end--;
+
+        byte[] bytes = new byte[(int) Math.min(end - position, MAX_LINE_LENGTH)];
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = byteAt(position + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return position of the line separator ending the line starting at position, or the file length
+     */
+    private long lineEnd(long position) {
+        while(position < length) {
+            MappedByteBuffer region = regions[(int) (position >>> regionShift)];
+            int limit = region.limit();
+            for(int i = (int) (position & regionMask); i < limit; i++) {
+                if(region.get(i) == '\n')
+                    return (position & ~regionMask) + i;
+            }
+            position = (position & ~regionMask) + limit;
+        }
+        return length;
+    }
+
+    private byte byteAt(long position) {
+        return regions[(int) (position >>> regionShift)].get((int) (position & regionMask));
+    }
+
+    private void truncated(InternalError e) {
+        LOGGER.warning("Failed to read the file, it might have been truncated: " + e.getMessage());
+        close();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized(this) {
+            notifyAll();
+        }
+    }
+}
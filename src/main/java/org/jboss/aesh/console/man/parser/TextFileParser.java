@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man.parser;
+
+import org.jboss.aesh.console.man.LineSource;
+import org.jboss.aesh.console.man.StreamingFileParser;
+import org.jboss.aesh.console.man.TerminalPage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Display a plain text file, like a log, without loading it.
+ * The file is memory mapped and its lines are indexed in the background,
+ * so the first page is shown right away even for files of several GB.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class TextFileParser implements StreamingFileParser {
+
+    private File file;
+
+    public TextFileParser() {
+    }
+
+    public TextFileParser(File file) {
+        this.file = file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return file == null ? null : file.getName();
+    }
+
+    @Override
+    public LineSource open() throws IOException {
+        if(file == null)
+            throw new IOException("File is null, cannot read file.");
+        if(!file.isFile())
+            throw new IOException("Cannot read file: " + file);
+        return new MappedLineSource(file);
+    }
+
+    /**
+     * Read every line of the file, only usable for small files
+     */
+    @Override
+    public List<String> loadPage(int columns) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (LineSource lines = open()) {
+            int size = lines.awaitLines(Integer.MAX_VALUE);
+            for(int i = 0; i < size; i++)
+                out.addAll(TerminalPage.wrap(lines.getLine(i), columns));
+        }
+        return out;
+    }
+}
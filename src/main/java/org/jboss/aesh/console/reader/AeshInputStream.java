@@ -24,6 +24,11 @@ import org.jboss.aesh.terminal.Key;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 /**
  *
@@ -35,83 +40,63 @@ public class AeshInputStream extends InputStream {
     private final InputStream consoleStream;
     private static final int BUFFER_SIZE = 1024;
     private final byte[] bBuf = new byte[BUFFER_SIZE];
-    private static final int[] NULL_INPUT = new int[] {-1};
+    //bytes are kept between reads so multi-byte sequences split over two reads are decoded correctly
+    private final ByteBuffer byteBuffer = ByteBuffer.wrap(bBuf);
+    private final CharBuffer charBuffer = CharBuffer.allocate(BUFFER_SIZE);
+    private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
 
     public AeshInputStream(InputStream consoleStream) {
         this.consoleStream = consoleStream;
         reading = true;
     }
 
-    public int[] readAll() {
-        if(!reading)
-            return new int[] {-1};
-        try {
-            if(Config.isOSPOSIXCompatible()) {
-                //LOGGER.info("trying to read");
-                String out = readFromStream();
-                //LOGGER.info("read: "+out);
-                if(out == null)
-                    return NULL_INPUT;
-                int[] input = new int[out.length()];
-                for(int i=0; i < out.length(); i++)
-                    input[i] = out.charAt(i);
-                return input;
-            }
-            else {
-                String out = readFromStream();
-                if(out == null)
-                    return NULL_INPUT;
-                //hack to make multi-value input work (arrows ++)
-                if (!out.isEmpty() &&
-                        (out.charAt(0) == Key.WINDOWS_ESC.getAsChar() ||
-                                out.charAt(0) == Key.WINDOWS_ESC_2.getAsChar())) {
-                    int[] input = new int[2];
-                    if (out.length() == 2) {
-                        //If there are two characters, then the first is WINDOWS_ESC, and the second is what follows it.
-                        input[0] = Key.WINDOWS_ESC.getAsChar();
-                        input[1] = out.charAt(1);
-                    }
-                    else {
-                        //Otherwise, set the first char to WINDOWS_ESC, then we can reduce the number of different key's in the future
-                        input[0] = Key.WINDOWS_ESC.getAsChar();
-                        String out2 = readFromStream();
-                        if(out2 == null)
-                            return NULL_INPUT;
-                        input[1] = out2.charAt(0);
-                    }
-
-                    return input;
-                }
-                else {
-                    int[] input = new int[out.length()];
-                    for(int i=0; i < out.length(); i++)
-                        input[i] = out.charAt(i);
-                    return input;
-                }
-            }
-
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-            return new int[] {-1};
+    /**
+     * Block until there is input, decode it and write the code points to output.
+     *
+     * @return false if the stream is closed or we have stopped reading
+     */
+    public boolean readInto(CodePointBuffer output) throws IOException, InterruptedException {
+        if(!readFromStream())
+            return false;
+        if(!Config.isOSPOSIXCompatible() &&
+                (charBuffer.get(0) == Key.WINDOWS_ESC.getAsChar() ||
+                        charBuffer.get(0) == Key.WINDOWS_ESC_2.getAsChar())) {
+            //hack to make multi-value input work (arrows ++)
+            if(charBuffer.position() < 2 && !readFromStream())
+                return false;
+            //set the first char to WINDOWS_ESC, then we can reduce the number of different key's in the future
+            output.write(new int[] {Key.WINDOWS_ESC.getAsChar(), charBuffer.get(1)});
+            charBuffer.clear();
         }
-        catch (InterruptedException e) {
-            e.printStackTrace();
-            return new int[] {-1};
+        else {
+            charBuffer.flip();
+            //a trailing high surrogate is kept until its low surrogate is read
+            output.write(charBuffer);
+            charBuffer.compact();
         }
+        return true;
     }
 
-    private String readFromStream() throws IOException, InterruptedException {
+    private boolean readFromStream() throws IOException {
+        int start = charBuffer.position();
         while (reading) {
-            int read = consoleStream.read(bBuf);
+            int read = consoleStream.read(bBuf, byteBuffer.position(), byteBuffer.remaining());
             if (read > 0) {
-                return new String(bBuf, 0, read);
+                byteBuffer.position(byteBuffer.position() + read);
+                byteBuffer.flip();
+                decoder.decode(byteBuffer, charBuffer, false);
+                byteBuffer.compact();
+                //if we only got part of a multi-byte sequence nothing is decoded yet
+                if(charBuffer.position() > start)
+                    return true;
             }
             else if (read < 0) {
-                return null;
+                return false;
             }
         }
-        return null;
+        return false;
     }
 
     public void stop() {
@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.reader;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer of code points between the thread reading from the
+ * input stream and the thread consuming the input.
+ * Writers block when the buffer is full, readers block until there is input
+ * and then drain everything that is available.
+ * The buffer start small and grow up to its capacity, most consoles never
+ * get more than a few lines of input at the time.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CodePointBuffer {
+
+    private static final int INITIAL_SIZE = 1024;
+
+    private final int capacity;
+    private int[] buffer;
+    private int head = 0;
+    private int size = 0;
+    private boolean closed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public CodePointBuffer(int capacity) {
+        this.capacity = capacity;
+        buffer = new int[Math.min(capacity, INITIAL_SIZE)];
+    }
+
+    /**
+     * Write all code points in chars. A high surrogate at the end is left in
+     * chars since its low surrogate will be part of the next read.
+     */
+    public void write(CharBuffer chars) throws InterruptedException {
+        lock.lock();
+        try {
+            while(chars.hasRemaining()) {
+                char c = chars.get();
+                if(Character.isHighSurrogate(c)) {
+                    if(!chars.hasRemaining()) {
+                        chars.position(chars.position() - 1);
+                        return;
+                    }
+                    char low = chars.get(chars.position());
+                    if(Character.isLowSurrogate(low)) {
+                        chars.get();
+                        put(Character.toCodePoint(c, low));
+                        continue;
+                    }
+                }
+                put(c);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public void write(CharSequence chars) throws InterruptedException {
+        lock.lock();
+        try {
+            for(int i = 0; i < chars.length(); i++) {
+                char c = chars.charAt(i);
+                if(Character.isHighSurrogate(c) && i + 1 < chars.length() &&
+                        Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    put(Character.toCodePoint(c, chars.charAt(i + 1)));
+                    i++;
+                }
+                else
+                    put(c);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public void write(int[] codePoints) throws InterruptedException {
+        lock.lock();
+        try {
+            for(int codePoint : codePoints)
+                put(codePoint);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    //must hold the lock
+    private void put(int codePoint) throws InterruptedException {
+        while(size == buffer.length) {
+            if(buffer.length < capacity)
+                grow();
+            else
+                notFull.await();
+        }
+        buffer[(head + size) % buffer.length] = codePoint;
+        //only wake up the reader for the first code point, it will drain the rest
+        if(size++ == 0)
+            notEmpty.signal();
+    }
+
+    //must hold the lock
+    private void grow() {
+        int[] grown = new int[(int) Math.min(capacity, buffer.length * 2L)];
+        int first = Math.min(size, buffer.length - head);
+        System.arraycopy(buffer, head, grown, 0, first);
+        System.arraycopy(buffer, 0, grown, first, size - first);
+        buffer = grown;
+        head = 0;
+    }
+
+    /**
+     * Block until there is input and return all of it.
+     * When the buffer is closed and drained, {-1} is returned.
+     */
+    public int[] readAll() throws InterruptedException {
+        lock.lock();
+        try {
+            while(size == 0) {
+                //a new array each time, callers are free to change what they get
+                if(closed)
+                    return new int[] {-1};
+                notEmpty.await();
+            }
+            int[] input = new int[size];
+            int first = Math.min(size, buffer.length - head);
+            System.arraycopy(buffer, head, input, 0, first);
+            System.arraycopy(buffer, 0, input, first, size - first);
+            head = (head + size) % buffer.length;
+            size = 0;
+            notFull.signalAll();
+            return input;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * No more input will be written, readers get {-1} when the buffer is drained.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
@@ -23,11 +23,11 @@ import org.jboss.aesh.util.LoggerUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
@@ -39,8 +39,12 @@ import java.util.logging.Logger;
 public class ConsoleInputSession {
     private final AeshInputStream aeshInputStream;
     private final ExecutorService executorService;
+    //the stream is not read until someone reads from the session, a console
+    //that get its input from a session host never do
+    private final AtomicBoolean started = new AtomicBoolean();
 
-    private final BlockingQueue<int[]> blockingQueue = new LinkedBlockingQueue<>(1000);
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    private final CodePointBuffer inputBuffer = new CodePointBuffer(INPUT_BUFFER_SIZE);
 
     private static final Logger LOGGER = LoggerUtil.getLogger(ConsoleInputSession.class.getName());
 
@@ -54,7 +58,6 @@ public class ConsoleInputSession {
             }
         });
         aeshInputStream = new AeshInputStream(consoleStream);
-        startReader();
     }
 
     private void startReader() {
@@ -63,8 +66,12 @@ public class ConsoleInputSession {
             public void run() {
                 try {
                     while (!executorService.isShutdown()) {
-                        blockingQueue.put(aeshInputStream.readAll());
-                        Thread.sleep(10);
+                        //readInto blocks until there is input, no need to back off
+                        if(!aeshInputStream.readInto(inputBuffer)) {
+                            //readers will get {-1} when the buffer is drained
+                            inputBuffer.close();
+                            break;
+                        }
                     }
                 }
                 catch (RuntimeException e) {
@@ -81,12 +88,20 @@ public class ConsoleInputSession {
                 }
             }
         };
-        executorService.execute(reader);
+        try {
+            executorService.execute(reader);
+        }
+        //stopped before anyone read from it
+        catch (RejectedExecutionException e) {
+            inputBuffer.close();
+        }
     }
 
     public int[] readAll() {
+        if(started.compareAndSet(false, true))
+            startReader();
         try {
-            return blockingQueue.take();
+            return inputBuffer.readAll();
         }
         catch(InterruptedException e) {
             return new int[] {-1};
@@ -98,6 +113,9 @@ public class ConsoleInputSession {
             try {
                 aeshInputStream.close();
                 executorService.shutdown();
+                //if the reader never started there is no one else to close it
+                if(started.compareAndSet(false, true))
+                    inputBuffer.close();
                 LOGGER.info("input stream is closed, readers finished...");
             }
             catch(IOException e) {
@@ -107,11 +125,8 @@ public class ConsoleInputSession {
     }
 
     public void writeToInput(String data) {
-        int[] input = new int[data.length()];
-        for(int i=0; i < data.length(); i++)
-            input[i] = data.charAt(i);
         try {
-            blockingQueue.put(input);
+            inputBuffer.write(data);
         }
         catch(InterruptedException e) {
             LOGGER.warning("Failed to add to input queue");
@@ -30,6 +30,7 @@ import org.jboss.aesh.terminal.Terminal;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Object thats define all tunable settings used by Console
@@ -128,6 +129,13 @@ public interface Settings extends Cloneable {
      */
     boolean isDisableCompletion();
 
+    /**
+     * How long, in milliseconds, to wait for the completions when tab is
+     * pressed. Completions that do not finish in time are shown on the next tab.
+     * Less than 1, the default, wait until every completion is done.
+     */
+    long getCompletionTimeout();
+
     /**
      * Get location of log file
      */
@@ -237,6 +245,21 @@ public interface Settings extends Cloneable {
 
     Resource getResource();
 
+    /**
+     * Executor the Console handle its input on, shared by the consoles of a
+     * session host. The Console do not read from the terminal when it is set,
+     * its input is received from the host.
+     * Default is null, the Console then start its own reader and executor threads
+     */
+    ExecutorService getInputExecutor();
+
+    /**
+     * Executor that run the processes and completions of the Console, it
+     * must be able to add threads since they can block.
+     * Default is null, the Console then create its own pools
+     */
+    ExecutorService getProcessExecutor();
+
     Object clone();
 
 }
@@ -28,6 +28,7 @@ import org.jboss.aesh.terminal.Terminal;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -114,6 +115,11 @@ public class SettingsBuilder {
         return this;
     }
 
+    public SettingsBuilder completionTimeout(long completionTimeout) {
+        settings.setCompletionTimeout(completionTimeout);
+        return this;
+    }
+
     public SettingsBuilder logfile(String logFile) {
         settings.setLogFile(logFile);
         return this;
@@ -199,6 +205,16 @@ public class SettingsBuilder {
         return this;
     }
 
+    public SettingsBuilder inputExecutor(ExecutorService inputExecutor) {
+        settings.setInputExecutor(inputExecutor);
+        return this;
+    }
+
+    public SettingsBuilder processExecutor(ExecutorService processExecutor) {
+        settings.setProcessExecutor(processExecutor);
+        return this;
+    }
+
     public Settings create() {
         return settings;
     }
@@ -37,6 +37,7 @@ import org.jboss.aesh.terminal.WindowsTerminal;
 import java.io.File;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Settings object that is parsed when Console is initialized.
@@ -63,6 +64,7 @@ public class SettingsImpl implements Settings {
     private boolean isLogging = false;
     private String logFile;
     private boolean disableCompletion = false;
+    private long completionTimeout = 0;
     private QuitHandler quitHandler;
     private KeyOperationManager operationManager = new KeyOperationManager();
     private File aliasFile;
@@ -77,6 +79,8 @@ public class SettingsImpl implements Settings {
     private boolean persistExport = true;
     private boolean exportUsesSystemEnvironment = false;
     private Resource resource;
+    private ExecutorService inputExecutor;
+    private ExecutorService processExecutor;
 
     protected SettingsImpl() {
     }
@@ -96,6 +100,7 @@ public class SettingsImpl implements Settings {
         setInputrc(baseSettings.getInputrc());
         setLogging(baseSettings.isLogging());
         setDisableCompletion(baseSettings.isDisableCompletion());
+        setCompletionTimeout(baseSettings.getCompletionTimeout());
         setLogFile(baseSettings.getLogFile());
         setReadInputrc(baseSettings.doReadInputrc());
         setHistoryDisabled(baseSettings.isHistoryDisabled());
@@ -113,6 +118,8 @@ public class SettingsImpl implements Settings {
         setPersistExport(baseSettings.doPersistExport());
         setResource(baseSettings.getResource());
         setExportUsesSystemEnvironment(baseSettings.doExportUsesSystemEnvironment());
+        setInputExecutor(baseSettings.getInputExecutor());
+        setProcessExecutor(baseSettings.getProcessExecutor());
     }
 
     public void resetToDefaults() {
@@ -133,6 +140,7 @@ public class SettingsImpl implements Settings {
         isLogging = false;
         logFile = null;
         disableCompletion = false;
+        completionTimeout = 0;
         setQuitHandler(null);
         operationManager.clear();
         setAliasEnabled(true);
@@ -444,6 +452,27 @@ public class SettingsImpl implements Settings {
         this.disableCompletion = disableCompletion;
     }
 
+    /**
+     * How long to wait for the completions when tab is pressed
+     * Set to 0 by default, wait until they are done
+     *
+     * @return timeout in milliseconds
+     */
+    @Override
+    public long getCompletionTimeout() {
+        return completionTimeout;
+    }
+
+    /**
+     * Set how long to wait for the completions when tab is pressed
+     * Set to 0 by default, wait until they are done
+     *
+     * @param completionTimeout timeout in milliseconds
+     */
+    public void setCompletionTimeout(long completionTimeout) {
+        this.completionTimeout = completionTimeout;
+    }
+
     /**
      * Get log file
      *
@@ -672,6 +701,36 @@ public class SettingsImpl implements Settings {
         return resource;
     }
 
+    @Override
+    public ExecutorService getInputExecutor() {
+        return inputExecutor;
+    }
+
+    /**
+     * Set the executor the Console handle its input on, it is not shut down
+     * when the Console stop
+     *
+     * @param inputExecutor shared executor, null to let the Console start its own threads
+     */
+    public void setInputExecutor(ExecutorService inputExecutor) {
+        this.inputExecutor = inputExecutor;
+    }
+
+    @Override
+    public ExecutorService getProcessExecutor() {
+        return processExecutor;
+    }
+
+    /**
+     * Set the executor the Console run its processes and completions on, it
+     * is not shut down when the Console stop
+     *
+     * @param processExecutor shared executor, null to let the Console create its own pools
+     */
+    public void setProcessExecutor(ExecutorService processExecutor) {
+        this.processExecutor = processExecutor;
+    }
+
     public Object clone() {
         try {
             return super.clone();
@@ -20,7 +20,6 @@
 package org.jboss.aesh.graphics;
 
 import org.jboss.aesh.terminal.Color;
-import org.jboss.aesh.terminal.CursorPosition;
 import org.jboss.aesh.terminal.Shell;
 import org.jboss.aesh.terminal.TerminalColor;
 import org.jboss.aesh.terminal.TerminalSize;
@@ -30,39 +29,64 @@ import org.jboss.aesh.util.ANSI;
 import java.io.IOException;
 
 /**
+ * Draws into an off-screen frame, nothing is written to the terminal until
+ * flush is called. Flush compares the frame with the one shown on the
+ * terminal and only writes the cells that changed, so redrawing a screen
+ * where little changed send only a few bytes.
+ * Coordinates are the ones of the terminal cursor, so (1, 1) is the top
+ * left cell. 0 is the same as 1, like it is for the cursor.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class AeshGraphics implements Graphics {
 
-    private static final String CURSOR_DOWN = ANSI.START+"1B"+ANSI.START+"1D";
-
     private final Shell shell;
     private final GraphicsConfiguration graphicsConfiguration;
     private TerminalColor currentColor;
     private TerminalTextStyle currentStyle;
+    //the frame being drawn and the frame shown on the terminal
+    private CellBuffer frame;
+    private CellBuffer screen;
+    //false until the terminal is cleared, what is shown is not known
+    private boolean screenKnown;
+    private final StringBuilder output = new StringBuilder();
 
     AeshGraphics(Shell shell, GraphicsConfiguration graphicsConfiguration) {
         this.shell = shell;
         this.graphicsConfiguration = graphicsConfiguration;
         currentColor = new TerminalColor();
+        TerminalSize size = graphicsConfiguration.getBounds();
+        frame = new CellBuffer(size.getWidth(), size.getHeight());
+        screen = new CellBuffer(size.getWidth(), size.getHeight());
         shell.out().print(ANSI.CURSOR_HIDE);
     }
 
     @Override
     public void flush() {
+        TerminalSize size = graphicsConfiguration.getBounds();
+        if(size.getWidth() != frame.getWidth() || size.getHeight() != frame.getHeight()) {
+            CellBuffer resized = new CellBuffer(size.getWidth(), size.getHeight());
+            resized.copyFrom(frame);
+            frame = resized;
+            screen = new CellBuffer(size.getWidth(), size.getHeight());
+            screenKnown = false;
+        }
+        if(!screenKnown)
+            clearScreen();
+
+        output.setLength(0);
+        frame.writeChanges(screen, output);
+        if(output.length() > 0)
+            shell.out().append(output);
         shell.out().flush();
     }
 
     /**
-     * {@inheritDoc}
+     * Clear the frame, the terminal is cleared on the next flush
      */
     @Override
     public void clear() {
-        try {
-            shell.out().println(new TerminalColor(Color.DEFAULT, Color.DEFAULT).fullString());
-            shell.clear();
-        }
-        catch (IOException ignored) { }
+        frame.clear();
     }
 
     /**
@@ -70,11 +94,22 @@ public class AeshGraphics implements Graphics {
      */
     @Override
     public void clearAndShowCursor() {
-        clear();
+        frame.clear();
+        clearScreen();
         shell.out().print(ANSI.CURSOR_SHOW);
         shell.out().flush();
     }
 
+    private void clearScreen() {
+        try {
+            shell.out().print(ANSI.RESET);
+            shell.clear();
+        }
+        catch (IOException ignored) { }
+        screen.clear();
+        screenKnown = true;
+    }
+
     @Override
     public TerminalColor getColor() {
         return currentColor;
@@ -97,64 +132,52 @@ public class AeshGraphics implements Graphics {
 
     @Override
     public void drawRect(int x, int y, int width, int height) {
-        if(currentColor != null)
-            shell.out().print(currentColor.fullString());
-        drawHorizontalLine(x, y, width);
-        drawHorizontalLine(x,y+height,width);
-        drawVerticalLine(x, y+1, height-1);
-        drawVerticalLine(x+width-1,y+1,height-1);
+        Pen pen = new Pen();
+        drawHorizontalLine(pen, cell(x), cell(y), width);
+        drawHorizontalLine(pen, cell(x), cell(y + height), width);
+        drawVerticalLine(pen, cell(x), cell(y + 1), height - 1);
+        drawVerticalLine(pen, cell(x + width - 1), cell(y + 1), height - 1);
     }
 
     @Override
     public void drawLine(int x1, int y1, int x2, int y2) {
-        if(currentColor != null)
-            shell.out().print(currentColor.fullString());
+        Pen pen = new Pen();
         int dx = x2 - x1;
         int dy = y2 -y1;
-        int y = 0;
-        for(int i=x1; i < x2; i++) {
-            y = y1 + (dy) * (i - x1)/(dx);
-            shell.setCursor(new CursorPosition(y,i));
-            shell.out().print('x');
-        }
+        for(int i=x1; i < x2; i++)
+            pen.draw(cell(i), cell(y1 + (dy) * (i - x1)/(dx)), 'x');
     }
 
     @Override
     public void drawString(String str, int x, int y) {
-        if(currentColor != null)
-            shell.out().print(currentColor.fullString());
-        shell.setCursor(new CursorPosition(y,x));
-        shell.out().print(str);
+        Pen pen = new Pen();
+        for(int i = 0; i < str.length(); i++)
+            pen.draw(cell(x) + i, cell(y), str.charAt(i));
     }
 
     @Override
     public void fillRect(int x, int y, int width, int height) {
-        if(currentColor != null)
-            shell.out().print(currentColor.fullString());
-
-        for(int j=0; j < height; j++) {
-            shell.setCursor(new CursorPosition(y+j,x));
+        Pen pen = new Pen();
+        for(int j=0; j < height; j++)
             for(int i=0; i < width; i++)
-                shell.out().print(' ');
-        }
+                pen.draw(cell(x) + i, cell(y + j), ' ');
     }
 
     @Override
     public void drawCircle(int x0, int y0, int radius) {
-        if(currentColor != null)
-            shell.out().print(currentColor.fullString());
+        Pen pen = new Pen();
         int x = radius, y = 0;
         int radiusError = 1-x;
 
         while(x >= y) {
-            drawPixel(x + x0, y + y0);
-            drawPixel(y + x0, x + y0);
-            drawPixel(-x + x0, y + y0);
-            drawPixel(-y + x0, x + y0);
-            drawPixel(-x + x0, -y + y0);
-            drawPixel(-y + x0, -x + y0);
-            drawPixel(x + x0, -y + y0);
-            drawPixel(y + x0, -x + y0);
+            pen.draw(cell(x + x0), cell(y + y0), 'x');
+            pen.draw(cell(y + x0), cell(x + y0), 'x');
+            pen.draw(cell(-x + x0), cell(y + y0), 'x');
+            pen.draw(cell(-y + x0), cell(x + y0), 'x');
+            pen.draw(cell(-x + x0), cell(-y + y0), 'x');
+            pen.draw(cell(-y + x0), cell(-x + y0), 'x');
+            pen.draw(cell(x + x0), cell(-y + y0), 'x');
+            pen.draw(cell(y + x0), cell(-x + y0), 'x');
 
             y++;
             if(radiusError<0)
@@ -166,39 +189,76 @@ public class AeshGraphics implements Graphics {
         }
     }
 
-    private void drawPixel(int x, int y) {
-        shell.setCursor(new CursorPosition(y,x));
-        shell.out().print('x');
+    /**
+     * @return the cell in the frame of a cursor coordinate, the frame start at 0
+     */
+    private static int cell(int coordinate) {
+        return coordinate == 0 ? 0 : coordinate - 1;
     }
 
+    /**
+     * x and y are cells in the frame
+     */
+    private void drawHorizontalLine(Pen pen, int x, int y, int width) {
+        for(int i = 0; i < width; i++)
+            pen.draw(x + i, y, i == 0 || i == width - 1 ? 'x' : '-');
+    }
 
-    private void drawHorizontalLine(int x, int y, int width) {
-        TerminalSize terminalSize = graphicsConfiguration.getBounds();
-        if(terminalSize.getHeight() > y && terminalSize.getWidth() > y) {
-            if(terminalSize.getWidth() < x + width)
-                width = terminalSize.getWidth() - x-1;
-            shell.setCursor(new CursorPosition(y,x));
-            char[] line = new char[width];
-            for(int i=0; i < line.length; i++) {
-                if(i == 0 || i == line.length-1)
-                    line[i] = 'x';
-                else
-                    line[i] = '-';
-            }
-            shell.out().print(line);
-        }
+    private void drawVerticalLine(Pen pen, int x, int y, int length) {
+        for(int i = 0; i < length; i++)
+            pen.draw(x, y + i, '|');
     }
 
-    private void drawVerticalLine(int x, int y, int length) {
-        TerminalSize terminalSize = graphicsConfiguration.getBounds();
-        if(terminalSize.getHeight() > y && terminalSize.getWidth() > y) {
-            if(terminalSize.getHeight() < y + length)
-                length = terminalSize.getHeight() - y-1;
-            shell.setCursor(new CursorPosition(y,x));
-            for(int i=0; i < length; i++) {
-                shell.out().print('|');
-                shell.out().print(CURSOR_DOWN);
+    /**
+     * The current color and style as they are stored in the frame,
+     * looked up once for each draw call
+     */
+    private class Pen {
+        private final int foreground;
+        private final int background;
+        private final int style;
+
+        Pen() {
+            if(currentColor != null) {
+                foreground = currentColor.getIntTextColor() > -1 ?
+                        CellBuffer.INDEXED_COLOR + currentColor.getIntTextColor() :
+                        currentColor.getIntensity().getValue(Color.Type.FOREGROUND) * 10 +
+                                currentColor.getTextColor().getValue();
+                background = currentColor.getIntBackgroundColor() > -1 ?
+                        CellBuffer.INDEXED_COLOR + currentColor.getIntBackgroundColor() :
+                        currentColor.getIntensity().getValue(Color.Type.BACKGROUND) * 10 +
+                                currentColor.getBackgroundColor().getValue();
+            }
+            else {
+                foreground = CellBuffer.DEFAULT_FOREGROUND;
+                background = CellBuffer.DEFAULT_BACKGROUND;
             }
+            style = currentStyle == null ? 0 : styleBits(currentStyle);
         }
+
+        void draw(int x, int y, char c) {
+            frame.set(x, y, c, foreground, background, style);
+        }
+    }
+
+    private static int styleBits(TerminalTextStyle textStyle) {
+        int bits = 0;
+        if(textStyle.isBold())
+            bits |= CellBuffer.BOLD;
+        if(textStyle.isFaint())
+            bits |= CellBuffer.FAINT;
+        if(textStyle.isItalic())
+            bits |= CellBuffer.ITALIC;
+        if(textStyle.isUnderline())
+            bits |= CellBuffer.UNDERLINE;
+        if(textStyle.isBlink())
+            bits |= CellBuffer.BLINK;
+        if(textStyle.isInvert())
+            bits |= CellBuffer.INVERT;
+        if(textStyle.isCrossedOut())
+            bits |= CellBuffer.CROSSED_OUT;
+        if(textStyle.isConceal())
+            bits |= CellBuffer.CONCEAL;
+        return bits;
     }
 }
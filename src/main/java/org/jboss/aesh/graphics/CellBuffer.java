@@ -0,0 +1,255 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.graphics;
+
+import java.util.Arrays;
+
+/**
+ * A frame of the terminal, the character, colors and style of every cell
+ * kept in primitive arrays. The colors are stored as the SGR parameter
+ * that select them and the style as bits, so comparing two frames and
+ * writing the difference do not create any objects.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class CellBuffer {
+
+    static final int DEFAULT_FOREGROUND = 39;
+    static final int DEFAULT_BACKGROUND = 49;
+    //added to the index of a 256 color, written as 38;5;index or 48;5;index
+    static final int INDEXED_COLOR = 1000;
+
+    static final int BOLD = 1;
+    static final int FAINT = 1 << 1;
+    static final int ITALIC = 1 << 2;
+    static final int UNDERLINE = 1 << 3;
+    static final int BLINK = 1 << 4;
+    static final int INVERT = 1 << 5;
+    static final int CROSSED_OUT = 1 << 6;
+    static final int CONCEAL = 1 << 7;
+    //the SGR parameters that turn each style bit on and off
+    private static final int[] STYLE_ON = { 1, 2, 3, 4, 5, 7, 9, 8 };
+    private static final int[] STYLE_OFF = { 22, 22, 23, 24, 25, 27, 29, 28 };
+
+    private static final String CSI = "\u001B[";
+
+    private final int width;
+    private final int height;
+    private final char[] chars;
+    private final int[] foregrounds;
+    private final int[] backgrounds;
+    private final int[] styles;
+
+    CellBuffer(int width, int height) {
+        this.width = Math.max(width, 0);
+        this.height = Math.max(height, 0);
+        int size = this.width * this.height;
+        chars = new char[size];
+        foregrounds = new int[size];
+        backgrounds = new int[size];
+        styles = new int[size];
+        clear();
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Set every cell to a space with the default colors
+     */
+    void clear() {
+        Arrays.fill(chars, ' ');
+        Arrays.fill(foregrounds, DEFAULT_FOREGROUND);
+        Arrays.fill(backgrounds, DEFAULT_BACKGROUND);
+        Arrays.fill(styles, 0);
+    }
+
+    /**
+     * Set the cell, cells outside the buffer are ignored
+     */
+    void set(int x, int y, char c, int foreground, int background, int style) {
+        if(x < 0 || y < 0 || x >= width || y >= height)
+            return;
+        int i = y * width + x;
+        //control characters would move the cursor
+        chars[i] = c < ' ' ? ' ' : c;
+        foregrounds[i] = foreground;
+        backgrounds[i] = background;
+        styles[i] = style;
+    }
+
+    char getChar(int x, int y) {
+        return chars[y * width + x];
+    }
+
+    int getForeground(int x, int y) {
+        return foregrounds[y * width + x];
+    }
+
+    int getBackground(int x, int y) {
+        return backgrounds[y * width + x];
+    }
+
+    int getStyle(int x, int y) {
+        return styles[y * width + x];
+    }
+
+    /**
+     * Copy the cells that are in both buffers
+     */
+    void copyFrom(CellBuffer other) {
+        int columns = Math.min(width, other.width);
+        for(int y = 0; y < Math.min(height, other.height); y++) {
+            System.arraycopy(other.chars, y * other.width, chars, y * width, columns);
+            System.arraycopy(other.foregrounds, y * other.width, foregrounds, y * width, columns);
+            System.arraycopy(other.backgrounds, y * other.width, backgrounds, y * width, columns);
+            System.arraycopy(other.styles, y * other.width, styles, y * width, columns);
+        }
+    }
+
+    /**
+     * Write the escape sequences and characters that turn screen, the frame
+     * shown on the terminal, into this frame. Only the changed cells are
+     * written, the cursor is moved with the shortest sequence and the colors
+     * and style are only written when they change.
+     * Screen is updated to be the same as this frame.
+     */
+    void writeChanges(CellBuffer screen, StringBuilder out) {
+        //the cursor position and attributes on the terminal are not known
+        int cursorX = -1;
+        int cursorY = -1;
+        int foreground = -1;
+        int background = -1;
+        int style = -1;
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if(chars[i] == screen.chars[i] && foregrounds[i] == screen.foregrounds[i] &&
+                        backgrounds[i] == screen.backgrounds[i] && styles[i] == screen.styles[i])
+                    continue;
+
+                if(cursorY != y || cursorX != x) {
+                    int gap = x - cursorX;
+                    if(cursorY == y && gap > 0) {
+                        //writing the unchanged cells again is shorter than moving over them
+                        if(gap < forwardLength(gap) && hasAttributes(i - gap, i, foreground, background, style))
+                            out.append(chars, i - gap, gap);
+                        else {
+                            out.append(CSI);
+                            if(gap > 1)
+                                out.append(gap);
+                            out.append('C');
+                        }
+                    }
+                    else
+                        out.append(CSI).append(y + 1).append(';').append(x + 1).append('H');
+                }
+
+                if(foregrounds[i] != foreground || backgrounds[i] != background || styles[i] != style) {
+                    writeAttributes(out, foreground, background, style, foregrounds[i], backgrounds[i], styles[i]);
+                    foreground = foregrounds[i];
+                    background = backgrounds[i];
+                    style = styles[i];
+                }
+                out.append(chars[i]);
+
+                screen.chars[i] = chars[i];
+                screen.foregrounds[i] = foregrounds[i];
+                screen.backgrounds[i] = backgrounds[i];
+                screen.styles[i] = styles[i];
+                cursorX = x + 1;
+                cursorY = y;
+                //terminals differ in where the cursor is after writing the last column
+                if(cursorX == width)
+                    cursorY = -1;
+            }
+        }
+    }
+
+    private static int forwardLength(int gap) {
+        return gap == 1 ? 3 : 3 + String.valueOf(gap).length();
+    }
+
+    private boolean hasAttributes(int from, int to, int foreground, int background, int style) {
+        for(int i = from; i < to; i++)
+            if(foregrounds[i] != foreground || backgrounds[i] != background || styles[i] != style)
+                return false;
+        return true;
+    }
+
+    /**
+     * Write one SGR sequence changing the attributes, a style of -1 means
+     * the attributes on the terminal are not known and everything is set
+     */
+    private static void writeAttributes(StringBuilder out, int foreground, int background, int style,
+                                        int newForeground, int newBackground, int newStyle) {
+        out.append(CSI);
+        int start = out.length();
+        int on;
+        if(style < 0) {
+            out.append('0');
+            on = newStyle;
+            foreground = DEFAULT_FOREGROUND;
+            background = DEFAULT_BACKGROUND;
+        }
+        else {
+            int off = style & ~newStyle;
+            on = newStyle & ~style;
+            //bold and faint are turned off together, turn on the one that is kept
+            if((off & (BOLD | FAINT)) != 0)
+                on |= newStyle & (BOLD | FAINT);
+            boolean boldOff = false;
+            for(int bit = 0; bit < STYLE_OFF.length; bit++) {
+                if((off & (1 << bit)) != 0) {
+                    if(STYLE_OFF[bit] == 22) {
+                        if(boldOff)
+                            continue;
+                        boldOff = true;
+                    }
+                    separator(out, start).append(STYLE_OFF[bit]);
+                }
+            }
+        }
+        for(int bit = 0; bit < STYLE_ON.length; bit++)
+            if((on & (1 << bit)) != 0)
+                separator(out, start).append(STYLE_ON[bit]);
+        if(newForeground != foreground)
+            writeColor(separator(out, start), newForeground, 38);
+        if(newBackground != background)
+            writeColor(separator(out, start), newBackground, 48);
+        out.append('m');
+    }
+
+    private static void writeColor(StringBuilder out, int color, int indexed) {
+        if(color >= INDEXED_COLOR)
+            out.append(indexed).append(";5;").append(color - INDEXED_COLOR);
+        else
+            out.append(color);
+    }
+
+    private static StringBuilder separator(StringBuilder out, int start) {
+        if(out.length() > start)
+            out.append(';');
+        return out;
+    }
+}
@@ -24,6 +24,8 @@ import org.jboss.aesh.terminal.TerminalTextStyle;
 
 /**
  * Simple Terminal Graphics API
+ * The coordinates are the ones of the terminal cursor, (1, 1) is the top
+ * left cell. Nothing is drawn on the terminal before flush is called.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
@@ -36,12 +38,12 @@ public interface Graphics {
     void flush();
 
     /**
-     * Clear the entire terminal screen.
+     * Clear the entire terminal screen, done on the next flush.
      */
     void clear();
 
     /**
-     * Clear the entire terminal screen and enable visible cursor.
+     * Clear the entire terminal screen and enable visible cursor, done at once.
      */
     void clearAndShowCursor();
 
@@ -58,7 +60,6 @@ public interface Graphics {
 
     /**
      * Set this graphics context's current text style
-     * Note: Not implemented yet
      *
      * @param textStyle stype
      */
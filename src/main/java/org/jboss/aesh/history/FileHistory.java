@@ -25,24 +25,66 @@ import org.jboss.aesh.util.LoggerUtil;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
- * Read the history file at init and writeToStdOut to it at shutdown
+ * Read the history file at init and append every new entry to it.
+ * When the file have grown to twice the size of the history it is compacted
+ * in the background, duplicates and entries past max size are removed.
+ *
+ * Several processes can share the same history file, every access to it
+ * is guarded by a lock on a separate lock file since the history file
+ * itself is replaced when its compacted.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class FileHistory extends InMemoryHistory {
 
     private final File historyFile;
+    private final File lockFile;
     private final FileAccessPermission historyFilePermission;
+    private final int maxSize;
     private final boolean logging;
+    //file locks are held by the jvm, so the threads using the same file must be serialized first
+    private final Object fileMonitor;
+    //number of lines in the history file, guarded by fileMonitor
+    private int fileLines;
+    //entries not written yet because the lock was held, guarded by fileMonitor
+    private final List<String> pendingEntries = new ArrayList<>();
+    //guarded by fileMonitor
+    private ExecutorService compactExecutor;
+    private boolean stopped;
+
+    //one monitor for each history file used in the jvm
+    private static final ConcurrentMap<File, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+    private static final int MIN_COMPACT_LINES = 100;
+    //milliseconds to wait for another process to release the lock file
+    private static final long LOCK_TIMEOUT = 200;
+    private static final long LOCK_RETRY = 10;
     private static final Logger LOGGER = LoggerUtil.getLogger(FileHistory.class.getName());
 
     public FileHistory(File file, int maxSize, boolean logging) throws IOException {
@@ -52,8 +94,11 @@ public class FileHistory extends InMemoryHistory {
     public FileHistory(File file, int maxSize, FileAccessPermission historyFilePermission,
                        boolean logging) throws IOException {
         super(maxSize);
+        this.maxSize = maxSize;
         this.logging = logging;
-        historyFile = file;
+        historyFile = file.getAbsoluteFile();
+        lockFile = new File(historyFile.getParentFile(), historyFile.getName() + ".lock");
+        fileMonitor = monitorFor(historyFile);
         this.historyFilePermission = historyFilePermission;
         readFile();
     }
@@ -64,48 +109,325 @@ public class FileHistory extends InMemoryHistory {
      * @throws IOException io
      */
     private void readFile() throws IOException {
-        if(historyFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(historyFile))) {
+        synchronized(fileMonitor) {
+            if(historyFile.exists()) {
+                //the file is only replaced atomically, so it can be read without the lock
+                FileChannel channel = null;
+                try {
+                    channel = openLockFile();
+                }
+                catch (IOException e) {
+                    if(logging)
+                        LOGGER.log(Level.WARNING, "Could not open history lock file, reading without it", e);
+                }
+                try {
+                    FileLock lock = channel != null ? lock(channel) : null;
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(new FileInputStream(historyFile)))) {
+                        String line;
+                        while((line = reader.readLine()) != null) {
+                            super.push(line);
+                            fileLines++;
+                        }
+                    }
+                    finally {
+                        release(lock);
+                    }
+                } catch(FileNotFoundException ignored) {
+                    //AESH-205
+                }
+                finally {
+                    if(channel != null)
+                        channel.close();
+                }
+            }
+        }
+        compactIfNeeded();
+    }
+
+    @Override
+    public void push(String entry) {
+        super.push(entry);
+        if(entry != null && entry.trim().length() > 0) {
+            append(entry.trim());
+            compactIfNeeded();
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        synchronized(fileMonitor) {
+            pendingEntries.clear();
+            try (FileChannel channel = openLockFile()) {
+                //the file is replaced atomically, if the lock is not free it is replaced anyway
+                FileLock lock = lock(channel);
+                try {
+                    writeFile(this);
+                    fileLines = size();
+                }
+                finally {
+                    release(lock);
+                }
+            }
+            catch (IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed when trying to clear history file", e);
+            }
+        }
+    }
+
+    /**
+     * Append the entry to the history file, if we are not allowed to write to it
+     * the whole file is replaced with the history in memory.
+     * If another process hold the lock too long the entry is written on the next push.
+     */
+    private void append(String entry) {
+        synchronized(fileMonitor) {
+            pendingEntries.add(entry);
+            writePendingEntries();
+        }
+    }
+
+    //must hold fileMonitor
+    private void writePendingEntries() {
+        if(pendingEntries.isEmpty())
+            return;
+        try (FileChannel channel = openLockFile()) {
+            FileLock lock = lock(channel);
+            if(lock == null) {
+                if(logging)
+                    LOGGER.info("History file is locked by another process, "+
+                            pendingEntries.size()+" entries will be written later");
+                return;
+            }
+            try {
+                boolean created = !historyFile.exists();
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(historyFile, true))) {
+                    for(String pending : pendingEntries)
+                        writer.write(pending + Config.getLineSeparator());
+                }
+                catch (IOException e) {
+                    writeFile(this);
+                    fileLines = size();
+                    pendingEntries.clear();
+                    return;
+                }
+                if(created)
+                    setPermissions(historyFile);
+                fileLines += pendingEntries.size();
+                pendingEntries.clear();
+            }
+            finally {
+                release(lock);
+            }
+        }
+        catch (IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed when trying to write history file", e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        synchronized(fileMonitor) {
+            if(stopped || fileLines < 2 * Math.max(size(), MIN_COMPACT_LINES))
+                return;
+            //dont trigger again before the compaction is done
+            fileLines = 0;
+            if(compactExecutor == null)
+                compactExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            compactExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            });
+        }
+    }
+
+    /**
+     * Read the history file, other processes might have written to it too,
+     * and replace it with only the entries that are kept in the history.
+     * Skipped if another process hold the lock, it is tried again later.
+     * The monitor is only held to take and release the lock, the threads
+     * pushing entries meanwhile find the lock taken and keep their entries
+     * until it is released.
+     */
+    private void compact() {
+        FileChannel channel;
+        FileLock lock;
+        synchronized(fileMonitor) {
+            try {
+                channel = openLockFile();
+            }
+            catch (IOException e) {
+                if(logging)
+                    LOGGER.log(Level.WARNING, "Failed when trying to compact history file", e);
+                fileLines = size();
+                return;
+            }
+            try {
+                lock = lock(channel);
+            }
+            catch (IOException e) {
+                lock = null;
+            }
+            if(lock == null) {
+                close(channel);
+                fileLines = size();
+                return;
+            }
+        }
+        int lines = -1;
+        try {
+            History history = new InMemoryHistory(maxSize);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(historyFile)))) {
                 String line;
                 while((line = reader.readLine()) != null)
-                    push(line);
-            } catch(FileNotFoundException ignored) {
-                //AESH-205
+                    history.push(line);
+            }
+            writeFile(history);
+            lines = history.size();
+        }
+        catch (IOException e) {
+            if(logging)
+                LOGGER.log(Level.WARNING, "Failed when trying to compact history file", e);
+        }
+        finally {
+            synchronized(fileMonitor) {
+                fileLines = lines < 0 ? size() : lines;
+                try {
+                    release(lock);
+                }
+                catch (IOException ignored) {
+                }
+                close(channel);
+                //the entries pushed while the file was compacted
+                writePendingEntries();
+            }
+        }
+    }
+
+    /**
+     * Lock the lock file, other processes get LOCK_TIMEOUT to release it
+     * so a stuck process can not block the console.
+     * Must hold fileMonitor.
+     *
+     * @return the lock, null if it was not released in time
+     */
+    private FileLock lock(FileChannel channel) throws IOException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LOCK_TIMEOUT);
+        while(true) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            }
+            //held by another channel in this jvm
+            catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if(lock != null || System.nanoTime() - end > 0)
+                return lock;
+            try {
+                Thread.sleep(LOCK_RETRY);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
             }
         }
     }
 
+    private void release(FileLock lock) throws IOException {
+        if(lock != null)
+            lock.release();
+    }
+
     /**
-     * Write the content of the history buffer to file
+     * Replace the history file with the content of the history.
+     * The lock must be held.
      *
      * @throws IOException io
      */
-    private void writeFile() throws IOException {
-        historyFile.delete();
-        try (FileWriter fw = new FileWriter(historyFile)) {
-            for(int i=0; i < size();i++)
-                fw.write(get(i) + (Config.getLineSeparator()));
+    private void writeFile(History history) throws IOException {
+        //compaction can run at the same time as a clear that did not get the lock
+        File tmpFile = File.createTempFile("." + historyFile.getName() + "-", ".tmp", historyFile.getParentFile());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile))) {
+            for(int i=0; i < history.size();i++)
+                writer.write(history.get(i) + (Config.getLineSeparator()));
+        }
+        setPermissions(tmpFile);
+        try {
+            Files.move(tmpFile.toPath(), historyFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpFile.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void setPermissions(File file) {
         if (historyFilePermission != null) {
-            historyFile.setReadable(false, false);
-            historyFile.setReadable(historyFilePermission.isReadable(), historyFilePermission.isReadableOwnerOnly());
-            historyFile.setWritable(false, false);
-            historyFile.setWritable(historyFilePermission.isWritable(), historyFilePermission.isWritableOwnerOnly());
-            historyFile.setExecutable(false, false);
-            historyFile.setExecutable(historyFilePermission.isExecutable(),
+            file.setReadable(false, false);
+            file.setReadable(historyFilePermission.isReadable(), historyFilePermission.isReadableOwnerOnly());
+            file.setWritable(false, false);
+            file.setWritable(historyFilePermission.isWritable(), historyFilePermission.isWritableOwnerOnly());
+            file.setExecutable(false, false);
+            file.setExecutable(historyFilePermission.isExecutable(),
                     historyFilePermission.isExecutableOwnerOnly());
         }
     }
 
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    private static Object monitorFor(File file) {
+        Object monitor = new Object();
+        Object existing = FILE_MONITORS.putIfAbsent(file, monitor);
+        return existing != null ? existing : monitor;
+    }
+
+    private FileChannel openLockFile() throws IOException {
+        return FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Wait for a running compaction and write the entries that are left,
+     * the file is not compacted after this
+     */
     @Override
     public void stop() {
-       try {
-           writeFile();
-       }
-       catch (IOException e) {
-           if(logging)
-               LOGGER.log(Level.WARNING, "Failed when trying to write history file", e);
-       }
+        ExecutorService executor;
+        synchronized(fileMonitor) {
+            stopped = true;
+            executor = compactExecutor;
+            compactExecutor = null;
+        }
+        if(executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized(fileMonitor) {
+            writePendingEntries();
+        }
     }
 
 }
@@ -0,0 +1,394 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Search index over the history entries.
+ * Every entry get an id in the order they are added, the newest entry have the
+ * highest id. For each trigram in an entry the id is added to a posting list,
+ * a search only need to verify the entries in the shortest posting list of the
+ * trigrams in the search term. The posting lists are stored as delta encoded
+ * varints to keep the index small for large histories.
+ * Terms shorter than a trigram are searched by scanning, but the number of
+ * entries containing each char and char pair is counted so a term that is not
+ * found anywhere do not need a scan.
+ * Removed entries are only marked as removed, the index is rebuilt when more than
+ * half of the entries are removed.
+ *
+ * The search cursor works like the index based cursor InMemoryHistory used before,
+ * a new search continue from the last match.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class HistoryIndex {
+
+    private String[] entries = new String[16];
+    private int next;
+    private int live;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<Long, PostingList> trigrams = new HashMap<>();
+    private final Map<Long, int[]> shortCounts = new HashMap<>();
+    private int cursor = -1;
+
+    void add(String entry) {
+        if(next == entries.length) {
+            if(live <= next / 2)
+                rebuild();
+            else
+                entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        index(entry, next);
+        next++;
+        live++;
+    }
+
+    void remove(String entry) {
+        Integer id = ids.remove(entry);
+        if(id != null) {
+            entries[id] = null;
+            live--;
+            count(entry, -1);
+        }
+    }
+
+    void resetCursor() {
+        cursor = -1;
+    }
+
+    private void index(String entry, int id) {
+        entries[id] = entry;
+        ids.put(entry, id);
+        count(entry, 1);
+        for(int i = 0; i + 3 <= entry.length(); i++) {
+            Long trigram = gram(entry, i, 3);
+            PostingList list = trigrams.get(trigram);
+            if(list == null) {
+                list = new PostingList();
+                trigrams.put(trigram, list);
+            }
+            //the same trigram can occur more than once in an entry
+            if(list.last != id)
+                list.add(id);
+        }
+    }
+
+    /**
+     * Count each distinct char and char pair in entry
+     */
+    private void count(String entry, int delta) {
+        Set<Long> grams = new HashSet<>();
+        for(int i = 0; i < entry.length(); i++) {
+            grams.add(gram(entry, i, 1));
+            if(i + 2 <= entry.length())
+                grams.add(gram(entry, i, 2));
+        }
+        for(Long gram : grams) {
+            int[] count = shortCounts.get(gram);
+            if(count == null) {
+                count = new int[1];
+                shortCounts.put(gram, count);
+            }
+            count[0] += delta;
+            if(count[0] == 0)
+                shortCounts.remove(gram);
+        }
+    }
+
+    private void rebuild() {
+        String[] old = entries;
+        int oldNext = next;
+        entries = new String[old.length];
+        ids.clear();
+        trigrams.clear();
+        shortCounts.clear();
+        next = 0;
+        for(int i = 0; i < oldNext; i++) {
+            if(old[i] != null) {
+                index(old[i], next);
+                next++;
+            }
+        }
+        live = next;
+        cursor = -1;
+    }
+
+    //the length is part of the key so grams of different length never collide
+    private static Long gram(String text, int start, int length) {
+        long gram = length;
+        for(int i = start; i < start + length; i++)
+            gram = (gram << 16) | text.charAt(i);
+        return gram;
+    }
+
+    /**
+     * @return the posting list with the fewest ids for term,
+     * an empty list if term can not match any entry,
+     * null if term is to short to be looked up
+     */
+    private PostingList candidates(String term) {
+        if(term.length() < 3) {
+            if(term.length() > 0 && !shortCounts.containsKey(gram(term, 0, term.length())))
+                return PostingList.EMPTY;
+            return null;
+        }
+        PostingList shortest = null;
+        for(int i = 0; i + 3 <= term.length(); i++) {
+            PostingList list = trigrams.get(gram(term, i, 3));
+            if(list == null)
+                return PostingList.EMPTY;
+            if(shortest == null || list.count < shortest.count)
+                shortest = list;
+        }
+        return shortest;
+    }
+
+    private int oldest() {
+        for(int i = 0; i < next; i++)
+            if(entries[i] != null)
+                return i;
+        return next;
+    }
+
+    String searchReverse(String term) {
+        if(cursor <= oldest() || cursor >= next)
+            cursor = next - 1;
+
+        PostingList candidates = candidates(term);
+        if(candidates == null) {
+            for(; cursor >= 0; cursor--)
+                if(entries[cursor] != null && entries[cursor].contains(term))
+                    return entries[cursor];
+        }
+        else {
+            int[] block = new int[PostingList.BLOCK_SIZE];
+            for(int b = candidates.block(cursor); b >= 0; b--) {
+                for(int i = candidates.decode(b, block) - 1; i >= 0; i--) {
+                    int id = block[i];
+                    if(id <= cursor && entries[id] != null && entries[id].contains(term)) {
+                        cursor = id;
+                        return entries[id];
+                    }
+                }
+            }
+            cursor = -1;
+        }
+        return null;
+    }
+
+    String searchForward(String term) {
+        if(cursor >= next || cursor < 0)
+            cursor = 0;
+
+        PostingList candidates = candidates(term);
+        if(candidates == null) {
+            for(; cursor < next; cursor++)
+                if(entries[cursor] != null && entries[cursor].contains(term))
+                    return entries[cursor];
+        }
+        else {
+            int[] block = new int[PostingList.BLOCK_SIZE];
+            for(int b = Math.max(candidates.block(cursor), 0); b < candidates.blocks(); b++) {
+                int size = candidates.decode(b, block);
+                for(int i = 0; i < size; i++) {
+                    int id = block[i];
+                    if(id >= cursor && entries[id] != null && entries[id].contains(term)) {
+                        cursor = id;
+                        return entries[id];
+                    }
+                }
+            }
+            cursor = next;
+        }
+        return null;
+    }
+
+    /**
+     * Find the best matching entries. An entry matches if it contains term, or if
+     * fuzzy is true, if the chars of term occur in the same order in the entry.
+     * Better matches and newer entries are ranked higher.
+     */
+    List<String> searchRanked(String term, int maxResults, boolean fuzzy) {
+        PriorityQueue<Match> best = new PriorityQueue<>();
+        PostingList candidates = fuzzy ? null : candidates(term);
+        if(candidates != null) {
+            int[] block = new int[PostingList.BLOCK_SIZE];
+            for(int b = candidates.blocks() - 1; b >= 0; b--)
+                for(int i = candidates.decode(b, block) - 1; i >= 0; i--)
+                    rank(block[i], term, false, maxResults, best);
+        }
+        else {
+            for(int id = next - 1; id >= 0; id--)
+                rank(id, term, fuzzy, maxResults, best);
+        }
+
+        List<String> result = new ArrayList<>(best.size());
+        while(!best.isEmpty())
+            result.add(best.poll().entry);
+        Collections.reverse(result);
+        return result;
+    }
+    private void rank(int id, String term, boolean fuzzy, int maxResults, PriorityQueue<Match> best) {
+        String entry = entries[id];
+        if(entry == null)
+            return;
+        double match = matchScore(entry, term, fuzzy);
+        if(match == 0)
+            return;
+        //newer entries weigh more, but a better match can still beat a newer entry
+        double score = match / (1 + Math.log1p(next - 1 - id));
+        if(best.size() < maxResults)
+            best.add(new Match(entry, score, id));
+        else if(best.peek().score < score) {
+            best.poll();
+            best.add(new Match(entry, score, id));
+        }
+    }
+
+    static double matchScore(String entry, String term, boolean fuzzy) {
+        int index = entry.indexOf(term);
+        if(index == 0)
+            return 1;
+        else if(index > 0)
+            return Character.isLetterOrDigit(entry.charAt(index - 1)) ? 0.5 : 0.75;
+        else if(fuzzy && term.length() > 0) {
+            //every char in term must be found in order, the shorter the span the better
+            int start = -1;
+            int position = 0;
+            for(int i = 0; i < term.length(); i++) {
+                char c = Character.toLowerCase(term.charAt(i));
+                while(position < entry.length() && Character.toLowerCase(entry.charAt(position)) != c)
+                    position++;
+                if(position == entry.length())
+                    return 0;
+                if(start < 0)
+                    start = position;
+                position++;
+            }
+            return 0.4 * term.length() / (position - start);
+        }
+        else
+            return 0;
+    }
+
+    private static class Match implements Comparable<Match> {
+        private final String entry;
+        private final double score;
+        private final int id;
+
+        Match(String entry, double score, int id) {
+            this.entry = entry;
+            this.score = score;
+            this.id = id;
+        }
+
+        //the worst match first
+        @Override
+        public int compareTo(Match other) {
+            if(score != other.score)
+                return score < other.score ? -1 : 1;
+            return id < other.id ? -1 : (id == other.id ? 0 : 1);
+        }
+    }
+
+    /**
+     * Sorted list of ids, each id is stored as the difference from the previous
+     * id in a varint. The position of every BLOCK_SIZE id is kept so a search can
+     * start in the middle of the list.
+     */
+    private static class PostingList {
+        private static final int BLOCK_SIZE = 32;
+        private static final PostingList EMPTY = new PostingList();
+
+        private byte[] data = new byte[4];
+        private int length;
+        private int count;
+        private int last = -1;
+        //first id and its offset in data for each block
+        private int[] blockIds = new int[1];
+        private int[] blockOffsets = new int[1];
+
+        void add(int id) {
+            if(count % BLOCK_SIZE == 0) {
+                int block = count / BLOCK_SIZE;
+                if(block == blockIds.length) {
+                    blockIds = Arrays.copyOf(blockIds, block * 2);
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockIds[block] = id;
+                blockOffsets[block] = length;
+            }
+            if(length + 5 > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            int delta = id - last;
+            while(delta > 0x7F) {
+                data[length++] = (byte) (delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+            last = id;
+            count++;
+        }
+
+        int blocks() {
+            return (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
+
+        /**
+         * @return the last block that start with an id <= id, -1 if there is none
+         */
+        int block(int id) {
+            int index = Arrays.binarySearch(blockIds, 0, blocks(), id);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        /**
+         * Decode the ids in block into ids
+         * @return number of ids in the block
+         */
+        int decode(int block, int[] ids) {
+            int size = Math.min(BLOCK_SIZE, count - block * BLOCK_SIZE);
+            int offset = blockOffsets[block];
+            int id = 0;
+            for(int i = 0; i < size; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                }
+                while((b & 0x80) != 0);
+                //the first delta in a block is relative to the previous block
+                id = i == 0 ? blockIds[block] : id + delta;
+                ids[i] = id;
+            }
+            return size;
+        }
+    }
+}
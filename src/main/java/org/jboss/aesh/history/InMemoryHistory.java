@@ -19,20 +19,40 @@
  */
 package org.jboss.aesh.history;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A simple in-memory history implementation
  * By default max size is 500
  *
+ * The entries are kept in a ring buffer with an index from entry to its slot,
+ * pushing, removing duplicates and evicting the oldest entry do not depend on the
+ * size of the history. A duplicate leaves an empty slot behind, the slots are
+ * compacted when the history is accessed by index.
+ *
+ * Searching uses a trigram index over the entries, it is built on the first
+ * search and kept up to date on each push after that.
+ *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class InMemoryHistory implements History {
 
+    private static final int INITIAL_CAPACITY = 16;
+
+    //the capacity is always a power of two
+    private String[] entries;
+    //sequence number of the oldest slot and the next free slot
+    private long head;
+    private long tail;
+    private int size;
+    private final Map<String, Long> index;
     private final List<String> historyList;
     private int lastFetchedId = -1;
-    private int lastSearchedId = 0;
+    private HistoryIndex searchIndex;
     private String current;
     private SearchDirection searchDirection = SearchDirection.REVERSE;
     private final int maxSize;
@@ -46,46 +66,116 @@ public class InMemoryHistory implements History {
             this.maxSize = Integer.MAX_VALUE;
         else
             this.maxSize = maxSize;
-        historyList = new ArrayList<String>();
+        entries = new String[INITIAL_CAPACITY];
+        index = new HashMap<>();
+        historyList = new HistoryList();
         current = "";
     }
 
     @Override
     public void push(String entry) {
         if(entry != null && entry.trim().length() > 0) {
-            if(historyList.contains(entry.trim())) {
-               historyList.remove(entry.trim());
+            entry = entry.trim();
+            Long sequence = index.get(entry);
+            if(sequence != null) {
+                //if its already the newest entry there is nothing to move
+                if(sequence != tail - 1) {
+                    entries[slot(sequence)] = null;
+                    size--;
+                    append(entry);
+                    if(searchIndex != null) {
+                        searchIndex.remove(entry);
+                        searchIndex.add(entry);
+                    }
+                }
             }
             else {
-                if(historyList.size() >= maxSize)
-                    historyList.remove(0);
+                if(size >= maxSize && size > 0)
+                    removeOldest();
+                append(entry);
+                if(searchIndex != null)
+                    searchIndex.add(entry);
             }
-            historyList.add(entry.trim());
             lastFetchedId = size();
-            lastSearchedId = 0;
+            if(searchIndex != null)
+                searchIndex.resetCursor();
+        }
+    }
+
+    private void append(String entry) {
+        if(tail - head == entries.length) {
+            //reuse the empty slots if there are many of them
+            if(size <= entries.length / 2)
+                compact(entries.length);
+            else
+                compact(entries.length * 2);
+        }
+        entries[slot(tail)] = entry;
+        index.put(entry, tail);
+        tail++;
+        size++;
+    }
+
+    private void removeOldest() {
+        skipEmptySlots();
+        index.remove(entries[slot(head)]);
+        if(searchIndex != null)
+            searchIndex.remove(entries[slot(head)]);
+        entries[slot(head)] = null;
+        head++;
+        size--;
+        skipEmptySlots();
+    }
+
+    private void skipEmptySlots() {
+        while(head < tail && entries[slot(head)] == null)
+            head++;
+    }
+
+    /**
+     * Move all entries next to each other, starting at head
+     */
+    private void compact(int capacity) {
+        String[] compacted = new String[capacity];
+        long sequence = head;
+        for(long i = head; i < tail; i++) {
+            String entry = entries[slot(i)];
+            if(entry != null) {
+                compacted[(int) sequence & (capacity - 1)] = entry;
+                index.put(entry, sequence);
+                sequence++;
+            }
         }
+        entries = compacted;
+        tail = sequence;
+    }
+
+    private int slot(long sequence) {
+        return (int) sequence & (entries.length - 1);
     }
 
     @Override
     public String find(String search) {
-        int index = historyList.indexOf(search);
-        if(index >= 0) {
-            return get(index);
-        }
+        Long sequence = index.get(search);
+        if(sequence != null)
+            return entries[slot(sequence)];
         else
             return null;
-
     }
 
     @Override
     public String get(int index) {
         //lastFetchedId = index;
-        return historyList.get(index);
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+        if(tail - head != size)
+            compact(entries.length);
+        return entries[slot(head + index)];
     }
 
    @Override
     public int size() {
-       return historyList.size();
+       return size;
    }
 
     @Override
@@ -128,31 +218,47 @@ public class InMemoryHistory implements History {
     @Override
     public String search(String search) {
         if(searchDirection == SearchDirection.REVERSE)
-            return searchReverse(search);
+            return searchIndex().searchReverse(search);
         else
-            return searchForward(search);
+            return searchIndex().searchForward(search);
     }
 
-    private String searchReverse(String search) {
-        if(lastSearchedId <= 0)
-            lastSearchedId = size()-1;
-
-        for(; lastSearchedId >= 0; lastSearchedId--)
-            if(historyList.get(lastSearchedId).contains(search))
-                return get(lastSearchedId);
-
-        return null;
+    /**
+     * Find the entries that contain search, the best matches first.
+     * Entries where search is found at the start or at the start of a word,
+     * and newer entries are ranked higher.
+     *
+     * @param search text to search for
+     * @param maxResults max number of entries returned
+     * @return matching entries
+     */
+    public List<String> searchRanked(String search, int maxResults) {
+        if(maxResults < 1)
+            return Collections.emptyList();
+        return searchIndex().searchRanked(search, maxResults, false);
     }
 
-    private String searchForward(String search) {
-        if(lastSearchedId >= size())
-            lastSearchedId = 0;
+    /**
+     * Like searchRanked, but an entry also match if the chars in search is found
+     * in the same order, ignoring case. E.g. "gco" match "git checkout".
+     *
+     * @param search text to search for
+     * @param maxResults max number of entries returned
+     * @return matching entries
+     */
+    public List<String> searchFuzzy(String search, int maxResults) {
+        if(maxResults < 1)
+            return Collections.emptyList();
+        return searchIndex().searchRanked(search, maxResults, true);
+    }
 
-        for(; lastSearchedId < size(); lastSearchedId++ ) {
-            if(historyList.get(lastSearchedId).contains(search))
-                return get(lastSearchedId);
+    private HistoryIndex searchIndex() {
+        if(searchIndex == null) {
+            searchIndex = new HistoryIndex();
+            for(int i = 0; i < size; i++)
+                searchIndex.add(get(i));
         }
-        return null;
+        return searchIndex;
     }
 
     @Override
@@ -173,8 +279,12 @@ public class InMemoryHistory implements History {
     @Override
     public void clear() {
         lastFetchedId = -1;
-        lastSearchedId = 0;
-        historyList.clear();
+        searchIndex = null;
+        entries = new String[INITIAL_CAPACITY];
+        index.clear();
+        head = 0;
+        tail = 0;
+        size = 0;
         current = "";
     }
 
@@ -182,4 +292,20 @@ public class InMemoryHistory implements History {
     public void stop() {
         //does nothing for in-memory atm
     }
+
+    /**
+     * Read only view of the history, oldest entry first
+     */
+    private class HistoryList extends AbstractList<String> {
+
+        @Override
+        public String get(int index) {
+            return InMemoryHistory.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
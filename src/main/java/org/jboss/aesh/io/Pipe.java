@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded in-memory pipe between two threads.
+ * The writer block when the pipe is full and the reader block until there is
+ * data, so the memory used do not depend on how much is written through it.
+ * Closing the output stream ends the input stream after the remaining data is
+ * read. Closing the input stream makes the writer fail, like a broken pipe.
+ * Unlike java.io.PipedInputStream it do not depend on the threads that used it
+ * being alive, which do not work for threads in a pool.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class Pipe {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final byte[] buffer;
+    private int head = 0;
+    private int size = 0;
+    private boolean writerClosed = false;
+    private boolean readerClosed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final InputStream inputStream = new PipeInputStream();
+    private final OutputStream outputStream = new PipeOutputStream();
+
+    public Pipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Pipe(int capacity) {
+        if(capacity < 1)
+            throw new IllegalArgumentException("capacity must be at least 1, was: "+capacity);
+        buffer = new byte[capacity];
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        lock.lock();
+        try {
+            while(len > 0) {
+                while(size == buffer.length && !readerClosed && !writerClosed)
+                    notFull.await();
+                if(writerClosed)
+                    throw new IOException("Pipe closed");
+                if(readerClosed) {
+                    //nobody will read what is written, stop the writer like a SIGPIPE would
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Broken pipe");
+                }
+                int tail = (head + size) % buffer.length;
+                int count = Math.min(len, Math.min(buffer.length - size, buffer.length - tail));
+                System.arraycopy(b, off, buffer, tail, count);
+                size += count;
+                off += count;
+                len -= count;
+                notEmpty.signal();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0)
+            return 0;
+        lock.lock();
+        try {
+            while(size == 0 && !writerClosed && !readerClosed)
+                notEmpty.await();
+            if(readerClosed)
+                throw new IOException("Pipe closed");
+            if(size == 0)
+                return -1;
+            int count = Math.min(len, Math.min(size, buffer.length - head));
+            System.arraycopy(buffer, head, b, off, count);
+            head = (head + count) % buffer.length;
+            size -= count;
+            notFull.signal();
+            return count;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private int available() {
+        lock.lock();
+        try {
+            return size;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeWriter() {
+        lock.lock();
+        try {
+            writerClosed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeReader() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            size = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return Pipe.this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(off < 0 || len < 0 || len > b.length - off)
+                throw new IndexOutOfBoundsException();
+            return Pipe.this.read(b, off, len);
+        }
+
+        @Override
+        public int available() {
+            return Pipe.this.available();
+        }
+
+        @Override
+        public void close() {
+            closeReader();
+        }
+    }
+
+    private class PipeOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            Pipe.this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(off < 0 || len < 0 || len > b.length - off)
+                throw new IndexOutOfBoundsException();
+            Pipe.this.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
@@ -329,21 +329,23 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWith(List<String> completionList) {
-        StringBuilder builder = new StringBuilder();
+        if(completionList.isEmpty())
+            return "";
+        //the common start only get shorter, so each completion is compared once
+        String first = completionList.get(0);
+        int length = first.length();
         for(String completion : completionList)
-            while(builder.length() < completion.length() &&
-                  startsWith(completion.substring(0, builder.length()+1), completionList))
-                builder.append(completion.charAt(builder.length()));
+            length = commonStartLength(first, completion, length);
 
-        return builder.toString();
+        return first.substring(0, length);
     }
 
-    private static boolean startsWith(String criteria, List<String> completionList) {
-        for(String completion : completionList)
-            if(!completion.startsWith(criteria))
-                return false;
-
-        return true;
+    private static int commonStartLength(String first, String completion, int length) {
+        length = Math.min(length, completion.length());
+        for(int i = 0; i < length; i++)
+            if(first.charAt(i) != completion.charAt(i))
+                return i;
+        return length;
     }
 
     /**
@@ -353,25 +355,16 @@ public class Parser {
      * @return biggest common startsWith string
      */
     public static String findStartsWithTerminalString(List<TerminalString> completionList) {
-        StringBuilder builder = new StringBuilder();
-        for(TerminalString completion : completionList)
-            while(builder.length() < completion.getCharacters().length() &&
-                  startsWithTerminalString(completion.getCharacters().substring(0, builder.length()+1), completionList))
-                builder.append(completion.getCharacters().charAt(builder.length()));
-
-        return builder.toString();
-    }
-
-    private static boolean startsWithTerminalString(String criteria, List<TerminalString> completionList) {
+        if(completionList.isEmpty())
+            return "";
+        String first = completionList.get(0).getCharacters();
+        int length = first.length();
         for(TerminalString completion : completionList)
-            if(!completion.getCharacters().startsWith(criteria))
-                return false;
+            length = commonStartLength(first, completion.getCharacters(), length);
 
-        return true;
+        return first.substring(0, length);
     }
 
-
-
     public static String findWordClosestToCursor(String text, int cursor) {
         boolean startOutsideText = false;
         if(cursor >= text.length()) {
@@ -24,17 +24,20 @@ import org.jboss.aesh.console.reader.AeshStandardStream;
 import org.jboss.aesh.console.settings.Settings;
 import org.jboss.aesh.util.ANSI;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
-public abstract class AbstractTerminal implements Terminal, Shell {
+public abstract class AbstractTerminal implements Terminal, Shell, TerminalSizeNotifier {
 
     private final Logger logger;
     protected Settings settings;
     private boolean mainBuffer = true;
+    private final List<TerminalSizeListener> sizeListeners = new CopyOnWriteArrayList<>();
 
     AbstractTerminal(Logger logger) {
         this.logger = logger;
@@ -126,6 +129,28 @@ public abstract class AbstractTerminal implements Terminal, Shell {
         }
     }
 
+    @Override
+    public void addSizeListener(TerminalSizeListener listener) {
+        sizeListeners.add(listener);
+    }
+
+    @Override
+    public void removeSizeListener(TerminalSizeListener listener) {
+        sizeListeners.remove(listener);
+    }
+
+    protected void sizeChanged(TerminalSize size) {
+        for(TerminalSizeListener listener : sizeListeners) {
+            try {
+                listener.sizeChanged(size);
+            }
+            catch (RuntimeException e) {
+                if(settings.isLogging())
+                    logger.log(Level.SEVERE, "Terminal size listener failed: ", e);
+            }
+        }
+    }
+
     @Override
     public Shell getShell() {
         return this;
@@ -21,23 +21,20 @@ package org.jboss.aesh.terminal;
 
 import org.jboss.aesh.util.LoggerUtil;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Logger;
 
 /**
- * Run infocmp and parse the output. Only usable on POSIX systems.
+ * Read the capabilities of the terminal named by $TERM from its compiled
+ * terminfo entry, without starting infocmp. The capabilities are cached
+ * in the home directory, see TerminfoCache. Only usable on POSIX systems.
  *
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
  */
 public class InfocmpHandler {
 
-    private Map<String, String> values;
-    private static final String ESCAPE = "\\E";
-    private static final String ESC_AS_STRING = "\u001B";
+    private final Terminfo terminfo;
 
     private static final Logger LOGGER = LoggerUtil.getLogger(InfocmpHandler.class.getName());
 
@@ -50,90 +47,50 @@ public class InfocmpHandler {
     }
 
     private InfocmpHandler() {
-        if(values == null)
-            parseInfocmp();
+        terminfo = load(System.getenv("TERM"), new TerminfoCache());
     }
 
-
-    private void parseInfocmp() {
-        values = new HashMap<>();
-        fetchInfocmp();
+    InfocmpHandler(Terminfo terminfo) {
+        this.terminfo = terminfo;
     }
 
-    private void fetchInfocmp() {
-        InputStream in = null;
-        ByteArrayOutputStream out = null;
-        try {
-            ProcessBuilder builder = new ProcessBuilder("infocmp");
-            builder.redirectErrorStream(true);
-            Process process = builder.start();
-
-            in = process.getInputStream();
-            out = new ByteArrayOutputStream();
-            int c;
-            while((c = in.read()) != -1)
-                out.write(c);
-
-            for(String keyValue : new String(out.toByteArray()).split(",")) {
-                String[] valuePair = keyValue.split("=");
-                if(valuePair.length == 2)
-                    values.put(valuePair[0].trim(), valuePair[1]);
-            }
-
-            process.waitFor();
+    static Terminfo load(String term, TerminfoCache cache) {
+        File file = TerminfoParser.find(term, TerminfoParser.defaultDirectories());
+        if(file == null) {
+            LOGGER.warning("Did not find a terminfo entry for " + term + ", using default values");
+            return Terminfo.empty();
         }
-        catch (IOException | InterruptedException e) {
-            LOGGER.warning("Failed to execute infocmp, using default values: "+e.getMessage());
+        Terminfo cached = cache.read(term, file);
+        if(cached != null)
+            return cached;
+        try {
+            Terminfo parsed = TerminfoParser.parse(file);
+            cache.write(term, file, parsed);
+            return parsed;
         }
-        finally {
-            try {
-                if(in != null)
-                    in.close();
-                if(out != null)
-                    out.close();
-            }
-            catch (IOException e) {
-                LOGGER.warning("Failed to close streams: "+e.getMessage());
-            }
+        catch (IOException e) {
+            LOGGER.warning("Failed to read terminfo entry " + file + ", using default values: " + e.getMessage());
+            return Terminfo.empty();
         }
     }
 
-    public int[] getAsInts(String key) {
-        if(values.containsKey(key))
-            return convertStringToInts(values.get(key));
-        else
-            return new int[0];
+    public Terminfo getTerminfo() {
+        return terminfo;
     }
 
-    private int[] convertStringToInts(String input) {
-        if(input.startsWith(ESCAPE)) {
-            int[] out = new int[input.length()-1];
-            out[0] = 27;
-            int counter = 1;
-            for(char c : input.substring(2).toCharArray()) {
-                out[counter] = (int) c;
-                counter++;
-            }
-
-            return out;
-        }
-        else {
-            int[] out = new int[input.length()];
-            int counter=0;
-            for(char c : input.toCharArray()) {
-                out[counter] = (int) c;
-                counter++;
-            }
-            return out;
-        }
+    public int[] getAsInts(String key) {
+        int[] value = terminfo.getString(key);
+        return value == null ? new int[0] : value.clone();
     }
 
     public String get(String key) {
-       if(values.containsKey(key)) {
-           return values.get(key).replaceAll("\\\\E", ESC_AS_STRING);
-       }
-        else
-           return "";
+        int[] value = terminfo.getString(key);
+        if(value == null)
+            return "";
+        StringBuilder builder = new StringBuilder(value.length);
+        for(int c : value)
+            builder.append((char) c);
+        return builder.toString();
     }
 
 }
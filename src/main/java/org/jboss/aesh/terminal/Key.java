@@ -21,6 +21,8 @@ package org.jboss.aesh.terminal;
 
 import org.jboss.aesh.console.Config;
 
+import java.util.Arrays;
+
 /**
  * ANSCII enum key chart
  *
@@ -262,13 +264,17 @@ public enum Key {
     }
 
     public static boolean isPrintable(int[] keyValues) {
+        return keyValues.length == 1 && isPrintable(keyValues[0]);
+    }
+
+    public static boolean isPrintable(int value) {
         if(Config.isOSPOSIXCompatible())
-            return (keyValues.length == 1 && ((keyValues[0] > 31 && keyValues[0] < 127) || keyValues[0] > 127));
+            return ((value > 31 && value < 127) || value > 127);
         else
-            return (keyValues.length == 1 && ((keyValues[0] > 31 && keyValues[0] < 127) ||
-                    (keyValues[0] > 127 &&
-                            keyValues[0] != WINDOWS_ESC.getFirstValue() &&
-                            keyValues[0] != WINDOWS_ESC_2.getFirstValue())));
+            return ((value > 31 && value < 127) ||
+                    (value > 127 &&
+                            value != WINDOWS_ESC.getFirstValue() &&
+                            value != WINDOWS_ESC_2.getFirstValue()));
     }
 
     public char getAsChar() {
@@ -289,63 +295,15 @@ public enum Key {
     }
 
     public static Key getKey(int[] otherValues) {
-        for(Key key : Key.values()) {
-            if(key.equalTo(otherValues))
-                return key;
-        }
-        return Key.UNKNOWN;
+        return KeyDecoder.INSTANCE.findKey(otherValues);
     }
 
     public static Key findStartKey(int[] input) {
-        for(Key key : values()) {
-            if(key != Key.ESC && key != Key.WINDOWS_ESC &&
-                    key.inputStartsWithKey(input)) {
-                if(Config.isOSPOSIXCompatible() && key == Key.CTRL_J) {
-                   return key.ENTER;
-                }
-                else if(!Config.isOSPOSIXCompatible() && key == Key.CTRL_M) {
-                    if(input.length > 1 && input[1] == Key.CTRL_J.getFirstValue())
-                        return key.ENTER_2;
-                    else
-                        return key.ENTER;
-                }
-                else
-                    return key;
-            }
-        }
-        //need to do this in two steps since esc/windows_esc would be returned always
-        if(Key.ESC.inputStartsWithKey(input))
-            return Key.ESC;
-        else if(Key.WINDOWS_ESC.inputStartsWithKey(input))
-            return Key.WINDOWS_ESC;
-
-        return Key.UNKNOWN;
+        return findStartKey(input, 0);
     }
 
     public static Key findStartKey(int[] input, int position) {
-        for(Key key : values()) {
-            if(key != Key.ESC && key != Key.WINDOWS_ESC &&
-                    key.inputStartsWithKey(input, position)) {
-                if(Config.isOSPOSIXCompatible() && key == Key.CTRL_J) {
-                   return key.ENTER;
-                }
-                else if(!Config.isOSPOSIXCompatible() && key == Key.CTRL_M) {
-                    if(input.length > position + 1 && input[position+1] == Key.CTRL_J.getFirstValue())
-                        return key.ENTER_2;
-                    else
-                        return key.ENTER;
-                }
-                else
-                    return key;
-            }
-        }
-        //need to do this in two steps since esc/windows_esc would be returned always
-        if(Key.ESC.inputStartsWithKey(input, position))
-            return Key.ESC;
-        else if(Key.WINDOWS_ESC.inputStartsWithKey(input, position))
-            return Key.WINDOWS_ESC;
-
-        return Key.UNKNOWN;
+        return KeyDecoder.INSTANCE.findStartKey(input, position);
     }
 
     public boolean inputStartsWithKey(int[] input) {
@@ -399,6 +357,103 @@ public enum Key {
         return false;
     }
 
+    /**
+     * Prefix trie over the values of all keys, built once when first used.
+     * Decoding a key is a single walk down the trie, no allocation is done.
+     * When several keys match the same input the one declared first in
+     * the enum is chosen, just like a linear scan over values() would.
+     */
+    private static final class KeyDecoder {
+
+        private static final KeyDecoder INSTANCE = new KeyDecoder();
 
+        private final Node root = new Node();
 
+        private KeyDecoder() {
+            for(Key key : values())
+                root.add(key, 0);
+        }
+
+        Key findStartKey(int[] input, int position) {
+            Node node = root;
+            Key found = node.startKey;
+            for(int i = position; i < input.length; i++) {
+                node = node.child(input[i]);
+                if(node == null)
+                    break;
+                if(node.startKey != null &&
+                        (found == null || node.startKey.ordinal() < found.ordinal()))
+                    found = node.startKey;
+            }
+
+            if(found != null) {
+                if(Config.isOSPOSIXCompatible() && found == CTRL_J)
+                    return ENTER;
+                else if(!Config.isOSPOSIXCompatible() && found == CTRL_M) {
+                    if(input.length > position + 1 && input[position+1] == CTRL_J.getFirstValue())
+                        return ENTER_2;
+                    else
+                        return ENTER;
+                }
+                return found;
+            }
+            //esc/windows_esc are only returned if nothing else matched
+            if(ESC.inputStartsWithKey(input, position))
+                return ESC;
+            else if(WINDOWS_ESC.inputStartsWithKey(input, position))
+                return WINDOWS_ESC;
+
+            return UNKNOWN;
+        }
+
+        Key findKey(int[] input) {
+            Node node = root;
+            for(int i = 0; i < input.length && node != null; i++)
+                node = node.child(input[i]);
+            if(node != null && node.key != null)
+                return node.key;
+            return UNKNOWN;
+        }
+
+        private static final class Node {
+            //sorted values with matching children
+            private int[] childValues = new int[0];
+            private Node[] children = new Node[0];
+            //the first declared key that ends here
+            private Key key;
+            //same as key, but never esc/windows_esc
+            private Key startKey;
+
+            void add(Key k, int index) {
+                if(index == k.keyValues.length) {
+                    if(key == null)
+                        key = k;
+                    if(startKey == null && k != ESC && k != WINDOWS_ESC)
+                        startKey = k;
+                    return;
+                }
+                int value = k.keyValues[index];
+                int pos = Arrays.binarySearch(childValues, value);
+                if(pos < 0) {
+                    pos = -(pos + 1);
+                    int[] newValues = new int[childValues.length + 1];
+                    Node[] newChildren = new Node[children.length + 1];
+                    System.arraycopy(childValues, 0, newValues, 0, pos);
+                    System.arraycopy(children, 0, newChildren, 0, pos);
+                    System.arraycopy(childValues, pos, newValues, pos + 1, childValues.length - pos);
+                    System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+                    newValues[pos] = value;
+                    newChildren[pos] = new Node();
+                    childValues = newValues;
+                    children = newChildren;
+                }
+                children[pos].add(k, index + 1);
+            }
+
+            Node child(int value) {
+                int pos = Arrays.binarySearch(childValues, value);
+                return pos < 0 ? null : children[pos];
+            }
+        }
+    }
 }
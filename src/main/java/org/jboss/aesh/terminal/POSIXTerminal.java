@@ -39,10 +39,11 @@ import org.jboss.aesh.util.LoggerUtil;
  */
 public class POSIXTerminal extends AbstractTerminal {
 
-    private TerminalSize size;
+    private volatile TerminalSize size;
+    //true if the size is updated on SIGWINCH, else it is fetched again when it might be stale
+    private boolean sizeTracked;
     private boolean echoEnabled;
     private String ttyConfig;
-    private String ttyProps;
     private long ttyPropsLastFetched;
     private boolean restored = false;
 
@@ -54,6 +55,13 @@ public class POSIXTerminal extends AbstractTerminal {
 
     private static final Logger LOGGER = LoggerUtil.getLogger(POSIXTerminal.class.getName());
 
+    private final Runnable windowChangeHandler = new Runnable() {
+        @Override
+        public void run() {
+            updateSize();
+        }
+    };
+
     public POSIXTerminal() {
         super(LOGGER);
     }
@@ -106,7 +114,10 @@ public class POSIXTerminal extends AbstractTerminal {
 
         this.stdOut = settings.getStdOut();
         this.stdErr = settings.getStdErr();
-        size = new TerminalSize(getHeight(), getWidth());
+        //the size is only fetched now and when the window is resized,
+        //not while the user is typing
+        size = fetchSize();
+        sizeTracked = WindowChangeSignal.addHandler(windowChangeHandler);
     }
 
     /**
@@ -119,43 +130,45 @@ public class POSIXTerminal extends AbstractTerminal {
 
     @Override
     public TerminalSize getSize() {
-        if(propertiesTimedOut()) {
-            size.setHeight(getHeight());
-            size.setWidth(getWidth());
-        }
+        if(!sizeTracked && propertiesTimedOut())
+            updateSize();
         return size;
     }
 
-    private int getHeight() {
-        int height = 0;
-        try {
-            height = getTerminalProperty("rows");
-        }
-        catch (Exception e) {
-            if(settings.isLogging())
-                LOGGER.log(Level.SEVERE,"Failed to fetch terminal height: ",e);
-        }
-        //cant use height < 1
-        if(height < 1)
-            height = 24;
-
-        return height;
+    /**
+     * Fetch the size and tell the listeners if it changed
+     */
+    private synchronized void updateSize() {
+        TerminalSize newSize = fetchSize();
+        TerminalSize oldSize = size;
+        size = newSize;
+        if(!newSize.equals(oldSize))
+            sizeChanged(newSize);
     }
 
-    private int getWidth() {
+    /**
+     * @return the size reported by one call to stty
+     */
+    private TerminalSize fetchSize() {
+        int height = 0;
         int width = 0;
         try {
-            width = getTerminalProperty("columns");
+            String ttyProps = stty("-a");
+            height = getTerminalProperty(ttyProps, "rows");
+            width = getTerminalProperty(ttyProps, "columns");
         }
         catch (Exception e) {
             if(settings.isLogging())
-                LOGGER.log(Level.SEVERE,"Failed to fetch terminal width: ",e);
+                LOGGER.log(Level.SEVERE,"Failed to fetch terminal size: ",e);
         }
-        //cant use with < 1
+        ttyPropsLastFetched = System.currentTimeMillis();
+        //cant use height or width < 1
+        if(height < 1)
+            height = 24;
         if(width < 1)
             width = 80;
 
-        return width;
+        return new TerminalSize(height, width);
     }
 
     /**
@@ -193,6 +206,7 @@ public class POSIXTerminal extends AbstractTerminal {
 
     @Override
     public void close() throws IOException {
+        WindowChangeSignal.removeHandler(windowChangeHandler);
         input.stop();
     }
 
@@ -200,12 +214,7 @@ public class POSIXTerminal extends AbstractTerminal {
         return (System.currentTimeMillis() -ttyPropsLastFetched) > TIMEOUT_PERIOD;
     }
 
-    private int getTerminalProperty(String prop) throws IOException, InterruptedException {
-        // tty properties are cached so we don't have to worry too much about getting term width/height
-        if (ttyProps == null || propertiesTimedOut()) {
-            ttyProps = stty("-a");
-            ttyPropsLastFetched = System.currentTimeMillis();
-        }
+    private static int getTerminalProperty(String ttyProps, String prop) {
         // need to be able handle both output formats:
         // speed 9600 baud; 24 rows; 140 columns;
         // and:
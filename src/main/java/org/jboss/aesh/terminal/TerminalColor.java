@@ -95,6 +95,32 @@ public class TerminalColor {
         this.intensity = intensity;
     }
 
+    public Color getTextColor() {
+        return textColor;
+    }
+
+    /**
+     * @return the 256 color index of the text, -1 if getTextColor is used
+     */
+    public int getIntTextColor() {
+        return intTextColor;
+    }
+
+    public Color getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    /**
+     * @return the 256 color index of the background, -1 if getBackgroundColor is used
+     */
+    public int getIntBackgroundColor() {
+        return intBackgroundColor;
+    }
+
+    public Color.Intensity getIntensity() {
+        return intensity;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
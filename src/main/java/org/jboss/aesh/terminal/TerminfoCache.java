@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+import org.jboss.aesh.console.Config;
+import org.jboss.aesh.util.LoggerUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the parsed capabilities of a terminal in a file, one per $TERM, so
+ * the next start only read the values it need instead of looking up and
+ * parsing the terminfo entry.
+ * An entry is only used if the terminfo file it was read from has the
+ * same path, modification time and size, so a changed entry is parsed again.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class TerminfoCache {
+
+    private static final int MAGIC = 0x41455449;
+    private static final short VERSION = 1;
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(TerminfoCache.class.getName());
+
+    private final File directory;
+
+    TerminfoCache() {
+        this(new File(Config.getHomeDir(), ".aesh_terminfo"));
+    }
+
+    TerminfoCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the cached capabilities, null if there are none for this version of the entry
+     */
+    Terminfo read(String term, File source) {
+        File file = cacheFile(term);
+        if(!file.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != MAGIC || in.readShort() != VERSION)
+                return null;
+            if(!in.readUTF().equals(source.getAbsolutePath()) ||
+                    in.readLong() != source.lastModified() || in.readLong() != source.length())
+                return null;
+            int count = in.readShort();
+            if(count != Terminfo.STRING_NAMES.length)
+                return null;
+            int[][] strings = new int[count][];
+            for(int i = 0; i < count; i++) {
+                int length = in.readShort();
+                if(length >= 0) {
+                    strings[i] = new int[length];
+                    for(int j = 0; j < length; j++)
+                        strings[i][j] = in.readUnsignedByte();
+                }
+            }
+            return new Terminfo(strings);
+        }
+        catch (IOException e) {
+            LOGGER.warning("Failed to read terminfo cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the capabilities, failing to do so only mean the entry is parsed on the next start
+     */
+    void write(String term, File source, Terminfo terminfo) {
+        File file = cacheFile(term);
+        if(!directory.isDirectory() && !directory.mkdirs())
+            return;
+        //write to a temporary file first so a concurrent start never read half an entry,
+        //each writer has its own so two starts writing the same entry do not mix them
+        File temp = null;
+        try {
+            temp = File.createTempFile("." + file.getName() + "-", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeUTF(source.getAbsolutePath());
+                out.writeLong(source.lastModified());
+                out.writeLong(source.length());
+                out.writeShort(Terminfo.STRING_NAMES.length);
+                for(int i = 0; i < Terminfo.STRING_NAMES.length; i++) {
+                    int[] value = terminfo.getString(i);
+                    if(value == null)
+                        out.writeShort(-1);
+                    else {
+                        out.writeShort(value.length);
+                        for(int c : value)
+                            out.writeByte(c);
+                    }
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e) {
+            LOGGER.warning("Failed to write terminfo cache " + file + ": " + e.getMessage());
+            if(temp != null)
+                temp.delete();
+        }
+    }
+
+    File cacheFile(String term) {
+        return new File(directory, term.replaceAll("[^A-Za-z0-9._+-]", "_"));
+    }
+}
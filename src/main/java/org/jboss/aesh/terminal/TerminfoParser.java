@@ -0,0 +1,147 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+import org.jboss.aesh.console.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Find and parse compiled terminfo entries, the files written by tic,
+ * instead of running infocmp. Only the standard string capabilities are
+ * read, the extended capabilities following them are ignored.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class TerminfoParser {
+
+    //the legacy format with 16 bit numbers, and the ncurses 6.1 format with 32 bit numbers
+    private static final int MAGIC = 0432;
+    private static final int MAGIC_32BIT = 01036;
+    private static final int HEADER_SIZE = 12;
+
+    private static final String[] SYSTEM_DIRECTORIES = {
+            "/etc/terminfo", "/lib/terminfo", "/usr/share/terminfo", "/usr/lib/terminfo", "/usr/share/lib/terminfo" };
+
+    private TerminfoParser() {
+    }
+
+    /**
+     * @return the directories searched for entries, in the same order as ncurses
+     */
+    static List<File> defaultDirectories() {
+        List<File> directories = new ArrayList<>();
+        String terminfo = System.getenv("TERMINFO");
+        if(terminfo != null && terminfo.length() > 0)
+            directories.add(new File(terminfo));
+        directories.add(new File(Config.getHomeDir(), ".terminfo"));
+        String terminfoDirs = System.getenv("TERMINFO_DIRS");
+        if(terminfoDirs != null) {
+            for(String directory : terminfoDirs.split(":")) {
+                //an empty entry is the system directory
+                directories.add(new File(directory.length() > 0 ? directory : "/usr/share/terminfo"));
+            }
+        }
+        for(String directory : SYSTEM_DIRECTORIES)
+            directories.add(new File(directory));
+        return directories;
+    }
+
+    /**
+     * @return the entry of the terminal, null if none is found
+     */
+    static File find(String term, List<File> directories) {
+        if(term == null || term.length() == 0 || term.contains("/") || term.startsWith("."))
+            return null;
+        String letter = term.substring(0, 1);
+        //macos use the hex value of the first letter as directory
+        String hexLetter = Integer.toHexString(term.charAt(0));
+        for(File directory : directories) {
+            File file = new File(new File(directory, letter), term);
+            if(file.isFile())
+                return file;
+            file = new File(new File(directory, hexLetter), term);
+            if(file.isFile())
+                return file;
+        }
+        return null;
+    }
+
+    static Terminfo parse(File file) throws IOException {
+        return parse(Files.readAllBytes(file.toPath()));
+    }
+
+    static Terminfo parse(byte[] data) throws IOException {
+        if(data.length < HEADER_SIZE)
+            throw new IOException("Terminfo entry is too short: " + data.length + " bytes");
+        int magic = readShort(data, 0);
+        int numberSize;
+        if(magic == MAGIC)
+            numberSize = 2;
+        else if(magic == MAGIC_32BIT)
+            numberSize = 4;
+        else
+            throw new IOException("Not a compiled terminfo entry, magic number: " + Integer.toOctalString(magic));
+
+        int namesSize = readShort(data, 2);
+        int booleanCount = readShort(data, 4);
+        int numberCount = readShort(data, 6);
+        int stringCount = readShort(data, 8);
+        int tableSize = readShort(data, 10);
+        if(namesSize < 0 || booleanCount < 0 || numberCount < 0 || stringCount < 0 || tableSize < 0)
+            throw new IOException("Invalid terminfo header");
+
+        int position = HEADER_SIZE + namesSize + booleanCount;
+        //the numbers start on an even byte
+        if(position % 2 != 0)
+            position++;
+        position += numberCount * numberSize;
+        int table = position + stringCount * 2;
+        if(table + tableSize > data.length)
+            throw new IOException("Terminfo entry is truncated");
+
+        int[][] strings = new int[Terminfo.STRING_NAMES.length][];
+        int count = Math.min(stringCount, strings.length);
+        for(int i = 0; i < count; i++) {
+            //-1 is absent, -2 is cancelled
+            int offset = readShort(data, position + i * 2);
+            if(offset >= 0 && offset < tableSize)
+                strings[i] = readString(data, table + offset, table + tableSize);
+        }
+        return new Terminfo(strings);
+    }
+
+    private static int[] readString(byte[] data, int start, int end) {
+        int length = 0;
+        while(start + length < end && data[start + length] != 0)
+            length++;
+        int[] value = new int[length];
+        for(int i = 0; i < length; i++)
+            value[i] = data[start + i] & 0xff;
+        return value;
+    }
+
+    //little endian and signed, as in the file
+    private static int readShort(byte[] data, int position) {
+        return (short) ((data[position] & 0xff) | (data[position + 1] & 0xff) << 8);
+    }
+}
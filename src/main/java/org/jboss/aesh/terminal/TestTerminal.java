@@ -23,6 +23,8 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.jboss.aesh.console.reader.AeshStandardStream;
 import org.jboss.aesh.console.reader.ConsoleInputSession;
@@ -33,13 +35,14 @@ import org.jboss.aesh.console.settings.Settings;
  *
  * @author Ståle W. Pedersen <stale.pedersen@jboss.org>
  */
-public class TestTerminal implements Terminal, Shell {
+public class TestTerminal implements Terminal, Shell, TerminalSizeNotifier {
 
     private PrintStream outWriter;
     private PrintStream errWriter;
     private TerminalSize size;
     private ConsoleInputSession input;
     private InputStream in;
+    private final List<TerminalSizeListener> sizeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void init(Settings settings) {
@@ -61,6 +64,25 @@ public class TestTerminal implements Terminal, Shell {
         return size;
     }
 
+    /**
+     * Change the size as if the window was resized
+     */
+    public void setSize(TerminalSize size) {
+        this.size = size;
+        for(TerminalSizeListener listener : sizeListeners)
+            listener.sizeChanged(size);
+    }
+
+    @Override
+    public void addSizeListener(TerminalSizeListener listener) {
+        sizeListeners.add(listener);
+    }
+
+    @Override
+    public void removeSizeListener(TerminalSizeListener listener) {
+        sizeListeners.remove(listener);
+    }
+
     @Override
     public CursorPosition getCursor() {
         return new CursorPosition(0,0);
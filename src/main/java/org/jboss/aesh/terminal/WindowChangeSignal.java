@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+import org.jboss.aesh.util.LoggerUtil;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the registered handlers when the process receive SIGWINCH, sent by
+ * the terminal when its window is resized.
+ * The signal is installed through sun.misc.Signal with reflection since it
+ * is not available on every jvm, and not at all on Windows. There is only
+ * one handler for a signal in the jvm, so all the terminals share the one
+ * installed here. The handler that was installed before is still run after
+ * ours, and is put back when the last handler is removed.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+final class WindowChangeSignal {
+
+    private static final Logger LOGGER = LoggerUtil.getLogger(WindowChangeSignal.class.getName());
+
+    private static final List<Runnable> HANDLERS = new CopyOnWriteArrayList<>();
+    private static boolean failed;
+    //the sun.misc.SignalHandler installed by us, null when it is not installed
+    private static Object installed;
+    //the one it replaced
+    private static volatile Object previous;
+
+    private WindowChangeSignal() {
+    }
+
+    /**
+     * @return false if the signal could not be installed, the handler is
+     * then never run
+     */
+    static synchronized boolean addHandler(Runnable handler) {
+        if(installed == null && !failed) {
+            install();
+            failed = installed == null;
+        }
+        if(installed != null)
+            HANDLERS.add(handler);
+        return installed != null;
+    }
+
+    static synchronized void removeHandler(Runnable handler) {
+        HANDLERS.remove(handler);
+        if(HANDLERS.isEmpty() && installed != null)
+            uninstall();
+    }
+
+    /**
+     * Run the handlers as if the signal was received.
+     */
+    static void raise() {
+        for(Runnable handler : HANDLERS) {
+            try {
+                handler.run();
+            }
+            catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Window change handler failed: ", e);
+            }
+        }
+    }
+
+    /**
+     * @return a sun.misc.SignalHandler that run the given handler
+     */
+    static Object newHandler(final Runnable handler) throws ReflectiveOperationException {
+        Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+        return Proxy.newProxyInstance(handlerClass.getClassLoader(),
+                new Class<?>[] { handlerClass }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if(method.getName().equals("handle")) {
+                            handler.run();
+                            return null;
+                        }
+                        else if(method.getName().equals("equals"))
+                            return proxy == args[0];
+                        else if(method.getName().equals("hashCode"))
+                            return System.identityHashCode(proxy);
+                        else
+                            return "WindowChangeSignal";
+                    }
+                });
+    }
+
+    /**
+     * Install a sun.misc.SignalHandler for SIGWINCH.
+     *
+     * @return the handler that was installed before
+     */
+    static Object setHandler(Object handler) throws ReflectiveOperationException {
+        Class<?> signalClass = Class.forName("sun.misc.Signal");
+        Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+        Object signal = signalClass.getConstructor(String.class).newInstance("WINCH");
+        return signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+    }
+
+    private static void install() {
+        try {
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            final Object defaultHandler = handlerClass.getField("SIG_DFL").get(null);
+            final Object ignoreHandler = handlerClass.getField("SIG_IGN").get(null);
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            final Method handle = handlerClass.getMethod("handle", signalClass);
+            final Object signal = signalClass.getConstructor(String.class).newInstance("WINCH");
+            Object handler = newHandler(new Runnable() {
+                @Override
+                public void run() {
+                    raise();
+                    //SIG_DFL and SIG_IGN do nothing for SIGWINCH and can not be called
+                    Object chained = previous;
+                    if(chained != null && chained != defaultHandler && chained != ignoreHandler) {
+                        try {
+                            handle.invoke(chained, signal);
+                        }
+                        catch (ReflectiveOperationException | RuntimeException e) {
+                            LOGGER.log(Level.WARNING, "Previous SIGWINCH handler failed: ", e);
+                        }
+                    }
+                }
+            });
+            previous = setHandler(handler);
+            installed = handler;
+        }
+        //no sun.misc.Signal or no WINCH signal on this platform
+        catch (Exception | LinkageError e) {
+            LOGGER.log(Level.INFO, "Could not install the SIGWINCH handler: ", e);
+        }
+    }
+
+    private static void uninstall() {
+        try {
+            Object current = setHandler(previous);
+            //someone else installed a handler after ours, keep theirs
+            if(current != installed)
+                setHandler(current);
+        }
+        catch (Exception | LinkageError e) {
+            LOGGER.log(Level.INFO, "Could not restore the SIGWINCH handler: ", e);
+        }
+        installed = null;
+        previous = null;
+    }
+}
@@ -131,8 +131,12 @@ public class WindowsTerminal extends AbstractTerminal {
                 size = new TerminalSize(getHeight(), getWidth());
             }
             else {
-                size.setHeight(getHeight());
-                size.setWidth(getWidth());
+                //there is no signal on windows, so changes are only found here
+                TerminalSize newSize = new TerminalSize(getHeight(), getWidth());
+                if(!newSize.equals(size)) {
+                    size = newSize;
+                    sizeChanged(newSize);
+                }
             }
         }
         return size;
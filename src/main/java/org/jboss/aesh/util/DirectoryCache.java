@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keep the listings of the directories used during completion, so pressing
+ * Tab again in a large directory do not list and stat every file again.
+ * A listing is valid as long as the modification time of the directory is
+ * unchanged, which is the only check that also work on network mounts.
+ * The least recently used listings are dropped when the number of cached
+ * names exceed the limit.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+class DirectoryCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 2000000;
+
+    //a directory changed this close to when it was listed might change again
+    //without a new modification time on file systems with a coarse timestamp
+    private static final long TIMESTAMP_GRANULARITY = 2000;
+
+    private final int maxEntries;
+    private int entries = 0;
+    private final Map<String, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+
+    DirectoryCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    DirectoryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param directory directory
+     * @return the listing of the directory, or null if it cannot be read
+     */
+    Listing get(File directory) {
+        String key = directory.getAbsolutePath();
+        long modified = directory.lastModified();
+        synchronized (listings) {
+            Listing listing = listings.get(key);
+            if(listing != null && listing.isValid(modified))
+                return listing;
+        }
+
+        Listing listing = list(directory, modified);
+        synchronized (listings) {
+            Listing old = listings.remove(key);
+            if(old != null)
+                entries -= old.size();
+            if(listing != null && listing.isValid(modified) && listing.size() <= maxEntries) {
+                listings.put(key, listing);
+                entries += listing.size();
+                Iterator<Listing> iterator = listings.values().iterator();
+                while(entries > maxEntries) {
+                    entries -= iterator.next().size();
+                    iterator.remove();
+                }
+            }
+        }
+        return listing;
+    }
+
+    void clear() {
+        synchronized (listings) {
+            listings.clear();
+            entries = 0;
+        }
+    }
+
+    int size() {
+        synchronized (listings) {
+            return listings.size();
+        }
+    }
+
+    private static Listing list(File directory, long modified) {
+        long listed = System.currentTimeMillis();
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for(Path path : stream)
+                found.add(new Entry(path.getFileName().toString(), typeOf(path)));
+        }
+        catch (IOException | SecurityException e) {
+            return null;
+        }
+
+        Entry[] sorted = found.toArray(new Entry[found.size()]);
+        Arrays.sort(sorted);
+        String[] names = new String[sorted.length];
+        byte[] types = new byte[sorted.length];
+        for(int i = 0; i < sorted.length; i++) {
+            names[i] = sorted[i].name;
+            types[i] = sorted[i].type;
+        }
+        return new Listing(names, types, modified, listed);
+    }
+
+    private static byte typeOf(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if(attributes.isRegularFile())
+                return Listing.FILE;
+            else if(attributes.isDirectory())
+                return Listing.DIRECTORY;
+        }
+        //a broken link, same as java.io.File it is neither a file nor a directory
+        catch (IOException ignored) {
+        }
+        return Listing.OTHER;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final String name;
+        private final byte type;
+
+        Entry(String name, byte type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return name.compareTo(other.name);
+        }
+    }
+
+    /**
+     * The names of a directory sorted by String.compareTo, so all the names
+     * starting with a prefix are found next to each other with a binary search.
+     */
+    static class Listing {
+
+        static final byte FILE = 0;
+        static final byte DIRECTORY = 1;
+        static final byte OTHER = 2;
+
+        private final String[] names;
+        private final byte[] types;
+        private final long modified;
+        private final long listed;
+
+        Listing(String[] names, byte[] types, long modified, long listed) {
+            this.names = names;
+            this.types = types;
+            this.modified = modified;
+            this.listed = listed;
+        }
+
+        boolean isValid(long modified) {
+            return modified != 0 && this.modified == modified &&
+                    listed - modified > TIMESTAMP_GRANULARITY;
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        String getName(int index) {
+            return names[index];
+        }
+
+        /**
+         * @return true if a file, same as Resource.isLeaf()
+         */
+        boolean isLeaf(int index) {
+            return types[index] == FILE;
+        }
+
+        boolean isDirectory(int index) {
+            return types[index] == DIRECTORY;
+        }
+
+        /**
+         * @return index of the first name starting with prefix
+         */
+        int first(String prefix) {
+            if(prefix == null || prefix.length() == 0)
+                return 0;
+            int index = Arrays.binarySearch(names, prefix);
+            return index < 0 ? -(index + 1) : index;
+        }
+
+        /**
+         * @return index after the last name starting with prefix
+         */
+        int last(String prefix) {
+            if(prefix == null || prefix.length() == 0)
+                return names.length;
+            int low = first(prefix);
+            int high = names.length;
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(names[middle].startsWith(prefix))
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return low;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import static org.jboss.aesh.constants.AeshConstants.PARENT;
 import static org.jboss.aesh.constants.AeshConstants.STAR;
 import static org.jboss.aesh.constants.AeshConstants.WILDCARD;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,8 +34,11 @@ import java.util.List;
 import org.jboss.aesh.comparators.PosixFileNameComparator;
 import org.jboss.aesh.complete.CompleteOperation;
 import org.jboss.aesh.console.Config;
+import org.jboss.aesh.io.FileResource;
 import org.jboss.aesh.io.filter.AllResourceFilter;
 import org.jboss.aesh.io.Resource;
+import org.jboss.aesh.io.filter.DirectoryResourceFilter;
+import org.jboss.aesh.io.filter.LeafResourceFilter;
 import org.jboss.aesh.io.filter.ResourceFilter;
 import org.jboss.aesh.parser.Parser;
 import org.jboss.aesh.terminal.TerminalString;
@@ -46,6 +50,9 @@ import org.jboss.aesh.terminal.TerminalString;
  */
 public class FileLister {
 
+    //shared by every completion, a new FileLister is created for each of them
+    private static final DirectoryCache DIRECTORY_CACHE = new DirectoryCache();
+
     private String token;
     private Resource cwd;
     private String rest;
@@ -348,7 +355,10 @@ public class FileLister {
 
     private List<String> listDirectory(Resource path, String rest) {
         List<String> fileNames = new ArrayList<String>();
-        if (path != null && !path.isLeaf()) {
+        if (path != null && path.getClass() == FileResource.class) {
+            listCachedDirectory(((FileResource) path).getFile(), rest, fileNames);
+        }
+        else if (path != null && !path.isLeaf()) {
             for (Resource file : path.list(fileFilter)) {
                 if (rest == null || rest.length() == 0)
                     if (!file.isLeaf())
@@ -372,6 +382,40 @@ public class FileLister {
         return fileNames;
     }
 
+    /**
+     * Only the names starting with rest are looked at, the filter is not
+     * given the whole directory.
+     */
+    private void listCachedDirectory(File directory, String rest, List<String> fileNames) {
+        if (directory.isFile())
+            return;
+        DirectoryCache.Listing listing = DIRECTORY_CACHE.get(directory);
+        if (listing == null)
+            return;
+        for (int i = listing.first(rest), last = listing.last(rest); i < last; i++) {
+            if (accept(listing, i, directory)) {
+                if (!listing.isLeaf(i))
+                    fileNames.add(Parser.switchSpacesToEscapedSpacesInWord(listing.getName(i)) + Config.getPathSeparator());
+                else
+                    fileNames.add(Parser.switchSpacesToEscapedSpacesInWord(listing.getName(i)));
+            }
+        }
+    }
+
+    //the filters aesh provide are answered by the listing, without a new stat
+    private boolean accept(DirectoryCache.Listing listing, int index, File directory) {
+        if (fileFilter == null)
+            return false;
+        else if (fileFilter.getClass() == AllResourceFilter.class)
+            return true;
+        else if (fileFilter.getClass() == DirectoryResourceFilter.class)
+            return listing.isDirectory(index);
+        else if (fileFilter.getClass() == LeafResourceFilter.class)
+            return listing.isLeaf(index);
+        else
+            return fileFilter.accept(new FileResource(new File(directory, listing.getName(index))));
+    }
+
     @Override
     public String toString() {
         return "FileLister{" +
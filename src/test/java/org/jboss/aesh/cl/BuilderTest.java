@@ -20,6 +20,7 @@
 package org.jboss.aesh.cl;
 
 import junit.framework.TestCase;
+import org.jboss.aesh.cl.activation.OptionActivator;
 import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
 import org.jboss.aesh.cl.internal.ProcessedOptionBuilder;
 import org.jboss.aesh.cl.parser.CommandLineParserException;
@@ -27,9 +28,13 @@ import org.jboss.aesh.cl.internal.ProcessedCommand;
 import org.jboss.aesh.cl.internal.OptionType;
 import org.jboss.aesh.cl.parser.CommandLineParser;
 import org.jboss.aesh.cl.parser.CommandLineParserBuilder;
+import org.jboss.aesh.cl.parser.OptionParserException;
 import org.jboss.aesh.cl.result.NullResultHandler;
 import org.jboss.aesh.cl.validator.NullCommandValidator;
 import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.terminal.TerminalString;
+
+import java.util.List;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -144,4 +149,89 @@ public class BuilderTest extends TestCase {
         assertEquals("3", processedCommand.getOptions().get(2).getShortName());
     }
 
+    public void testOptionLookup() throws CommandLineParserException {
+        ProcessedCommand<Command> processedCommand =
+                new ProcessedCommandBuilder()
+                        .name("foo")
+                        .description("")
+                        .create();
+        processedCommand.addOption(new ProcessedOptionBuilder().name("foobar").shortName('b').type(String.class).create());
+        processedCommand.addOption(new ProcessedOptionBuilder().name("foo").shortName('f').type(String.class).create());
+        processedCommand.addOption(new ProcessedOptionBuilder().name("bar").shortName('r').type(String.class).create());
+        processedCommand.addOption(new ProcessedOptionBuilder().name("hidden").shortName('\u00e6').type(String.class)
+                .activator(new OptionActivator() {
+                    @Override
+                    public boolean isActivated(ProcessedCommand processedCommand) {
+                        return false;
+                    }
+                }).create());
+
+        assertEquals("foo", processedCommand.findLongOption("foo").getName());
+        assertEquals("foobar", processedCommand.findOption("b").getName());
+        assertNull(processedCommand.findOption("bf"));
+        assertNull(processedCommand.findLongOption("fo"));
+        assertEquals("foo", processedCommand.startWithOption("fvalue").getName());
+        //the first option added that is the start of the name
+        assertEquals("foobar", processedCommand.startWithLongOption("foobar=1").getName());
+        assertEquals("foo", processedCommand.startWithLongOption("foobaz=1").getName());
+        assertNull(processedCommand.startWithLongOption("fo"));
+
+        assertNull(processedCommand.findLongOption("hidden"));
+        assertNull(processedCommand.findOption("\u00e6"));
+        assertNull(processedCommand.startWithLongOption("hidden=1"));
+        assertEquals("hidden", processedCommand.findLongOptionNoActivatorCheck("hidden").getName());
+        assertEquals("hidden", processedCommand.findOptionNoActivatorCheck("\u00e6").getName());
+
+        List<TerminalString> names = processedCommand.findPossibleLongNamesWitdDash("fo");
+        assertEquals(2, names.size());
+        assertEquals("--foobar", names.get(0).getCharacters());
+        assertEquals("--foo", names.get(1).getCharacters());
+        //the short name only match when it was used
+        assertEquals(0, processedCommand.findPossibleLongNamesWitdDash("r").size());
+        processedCommand.findOption("r").setLongNameUsed(false);
+        names = processedCommand.findPossibleLongNamesWitdDash("r");
+        assertEquals(1, names.size());
+        assertEquals("--bar", names.get(0).getCharacters());
+
+        assertTrue(processedCommand.hasUniqueLongOption("foobar"));
+        assertFalse(processedCommand.hasUniqueLongOption("foo"));
+        assertFalse(processedCommand.hasUniqueLongOption("fooba"));
+
+        try {
+            processedCommand.addOption(new ProcessedOptionBuilder().name("foo").type(String.class).create());
+            fail("the long name is already used");
+        }
+        catch (OptionParserException expected) {
+        }
+        try {
+            processedCommand.addOption(new ProcessedOptionBuilder().name("baz").shortName('r').type(String.class).create());
+            fail("the short name is already used");
+        }
+        catch (OptionParserException expected) {
+        }
+    }
+
+    public void testShortNameOfDeactivatedOption() throws CommandLineParserException {
+        ProcessedCommand<Command> processedCommand =
+                new ProcessedCommandBuilder()
+                        .name("foo")
+                        .description("")
+                        .create();
+        processedCommand.addOption(new ProcessedOptionBuilder().name("old").shortName('o').type(String.class)
+                .activator(new OptionActivator() {
+                    @Override
+                    public boolean isActivated(ProcessedCommand processedCommand) {
+                        return false;
+                    }
+                }).create());
+        //the name is only taken by an option that is not activated
+        processedCommand.addOption(new ProcessedOptionBuilder().name("output").shortName('o').type(String.class).create());
+
+        assertEquals("output", processedCommand.findOption("o").getName());
+        assertEquals("output", processedCommand.startWithOption("ofile").getName());
+        assertEquals("old", processedCommand.findOptionNoActivatorCheck("o").getName());
+        List<TerminalString> names = processedCommand.findPossibleLongNamesWitdDash("o");
+        assertEquals(1, names.size());
+        assertEquals("--output", names.get(0).getCharacters());
+    }
 }
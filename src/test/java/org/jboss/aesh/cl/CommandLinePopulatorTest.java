@@ -31,9 +31,13 @@ import org.jboss.aesh.cl.validator.OptionValidatorException;
 import org.jboss.aesh.console.AeshContext;
 import org.jboss.aesh.console.AeshInvocationProviders;
 import org.jboss.aesh.console.InvocationProviders;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandResult;
 import org.jboss.aesh.console.command.activator.AeshOptionActivatorProvider;
 import org.jboss.aesh.console.command.completer.AeshCompleterInvocationProvider;
+import org.jboss.aesh.console.command.container.AeshCommandContainer;
 import org.jboss.aesh.console.command.converter.AeshConverterInvocationProvider;
+import org.jboss.aesh.console.command.invocation.CommandInvocation;
 import org.jboss.aesh.console.command.validator.AeshValidatorInvocationProvider;
 import org.jboss.aesh.console.settings.SettingsBuilder;
 import org.junit.Rule;
@@ -41,9 +45,18 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -105,6 +118,102 @@ public class CommandLinePopulatorTest {
 
     }
 
+    @Test
+    public void testPrimitiveObjects() throws Exception {
+        CommandLineParser<TestPopulator6> parser = ParserGenerator.generateCommandLineParser(TestPopulator6.class).getParser();
+
+        TestPopulator6 test6 = parser.getCommand();
+        AeshContext aeshContext = new SettingsBuilder().create().getAeshContext();
+
+        parser.getCommandPopulator().populateObject(parser.parse("test -b 1 -s 2 -i 3 -l 4 -f 5.5 -d 6.5 -c x -e -n 7,8"),
+                invocationProviders, aeshContext, true);
+        assertEquals(1, test6.getByteValue());
+        assertEquals(2, test6.getShortValue());
+        assertEquals(3, test6.getIntValue());
+        assertEquals(4L, test6.getLongValue());
+        assertEquals(5.5f, test6.getFloatValue(), 0.0f);
+        assertEquals(6.5d, test6.getDoubleValue(), 0.0d);
+        assertEquals('x', test6.getCharValue());
+        assertTrue(test6.isEnabled());
+        assertEquals(2, test6.getNumbers().size());
+        assertEquals(Integer.valueOf(8), test6.getNumbers().get(1));
+
+        parser.getCommandPopulator().populateObject(parser.parse("test -i 9"), invocationProviders, aeshContext, true);
+        assertEquals(0, test6.getByteValue());
+        assertEquals(0, test6.getShortValue());
+        assertEquals(9, test6.getIntValue());
+        assertEquals(0L, test6.getLongValue());
+        assertEquals(0.0f, test6.getFloatValue(), 0.0f);
+        assertEquals(0.0d, test6.getDoubleValue(), 0.0d);
+        assertEquals('\u0000', test6.getCharValue());
+        assertFalse(test6.isEnabled());
+        assertNull(test6.getNumbers());
+
+        parser.getCommandPopulator().populateObject(parser.parse("test -b 10 -n 11"), invocationProviders, aeshContext, true);
+        assertEquals(10, test6.getByteValue());
+        assertEquals(0, test6.getIntValue());
+        assertEquals(1, test6.getNumbers().size());
+    }
+
+    @Test
+    public void testInvocationParser() throws Exception {
+        AeshCommandContainer<PrototypeCommand> container = ParserGenerator.generateCommandLineParser(PrototypeCommand.class);
+        AeshContext aeshContext = new SettingsBuilder().create().getAeshContext();
+
+        CommandLineParser<PrototypeCommand> parser1 = container.createInvocationParser();
+        CommandLineParser<PrototypeCommand> parser2 = container.createInvocationParser();
+        CommandLine line1 = parser1.parse("count -n 1 foo");
+        CommandLine line2 = parser2.parse("count -n 2 bar");
+        assertEquals("1", line1.getOptionValue("n"));
+        assertEquals("foo", line1.getArgument().getValue());
+        assertEquals("2", line2.getOptionValue("n"));
+        assertNull(container.getParser().getProcessedCommand().findOption("n").getValue());
+
+        assertNotSame(parser1.getCommand(), parser2.getCommand());
+        assertNotSame(container.getParser().getCommand(), parser1.getCommand());
+        parser1.getCommandPopulator().populateObject(line1, invocationProviders, aeshContext, true);
+        parser2.getCommandPopulator().populateObject(line2, invocationProviders, aeshContext, true);
+        assertEquals(1, parser1.getCommand().number);
+        assertEquals(2, parser2.getCommand().number);
+
+        AeshCommandContainer<TestPopulator1> singleton = ParserGenerator.generateCommandLineParser(TestPopulator1.class);
+        assertSame(singleton.getParser().getCommand(), singleton.createInvocationParser().getCommand());
+    }
+
+    @Test
+    public void testConcurrentInvocations() throws Exception {
+        final AeshCommandContainer<PrototypeCommand> container = ParserGenerator.generateCommandLineParser(PrototypeCommand.class);
+        final AeshContext aeshContext = new SettingsBuilder().create().getAeshContext();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for(int i = 0; i < 4; i++) {
+                final int thread = i;
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for(int n = 0; n < 500; n++) {
+                            int number = thread * 1000 + n;
+                            CommandLineParser<PrototypeCommand> parser = container.createInvocationParser();
+                            parser.getCommandPopulator().populateObject(
+                                    parser.parse("count -n " + number + " arg" + number),
+                                    invocationProviders, aeshContext, true);
+                            assertEquals(number, parser.getCommand().number);
+                            assertEquals("arg" + number, parser.getCommand().arguments.get(0));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> result : results)
+                result.get();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test(expected = OptionParserException.class)
     public void testListObjects() throws Exception {
         CommandLineParser parser = ParserGenerator.generateCommandLineParser(TestPopulator2.class).getParser();
@@ -355,4 +464,19 @@ public class CommandLinePopulatorTest {
         catch (CommandLineParserException | OptionValidatorException e) {
         }
     }
+
+    @CommandDefinition(name = "count", description = "", scope = CommandScope.PROTOTYPE)
+    public static class PrototypeCommand implements Command {
+
+        @Option(shortName = 'n')
+        private int number;
+
+        @Arguments
+        private List<String> arguments;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            return CommandResult.SUCCESS;
+        }
+    }
 }
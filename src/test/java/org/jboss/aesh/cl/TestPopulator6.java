@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl;
+
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandResult;
+import org.jboss.aesh.console.command.invocation.CommandInvocation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+@CommandDefinition(name = "test", description = "a simple test")
+public class TestPopulator6 implements Command {
+
+    @Option(shortName = 'b')
+    private byte byteValue;
+
+    @Option(shortName = 's')
+    private short shortValue;
+
+    @Option(shortName = 'i')
+    private int intValue;
+
+    @Option(shortName = 'l')
+    private long longValue;
+
+    @Option(shortName = 'f')
+    private float floatValue;
+
+    @Option(shortName = 'd')
+    private double doubleValue;
+
+    @Option(shortName = 'c')
+    private char charValue;
+
+    @Option(shortName = 'e', hasValue = false)
+    private boolean enabled;
+
+    @OptionList(shortName = 'n')
+    private ArrayList<Integer> numbers;
+
+    public TestPopulator6() {
+    }
+
+    public byte getByteValue() {
+        return byteValue;
+    }
+
+    public short getShortValue() {
+        return shortValue;
+    }
+
+    public int getIntValue() {
+        return intValue;
+    }
+
+    public long getLongValue() {
+        return longValue;
+    }
+
+    public float getFloatValue() {
+        return floatValue;
+    }
+
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
+    public char getCharValue() {
+        return charValue;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ArrayList<Integer> getNumbers() {
+        return numbers;
+    }
+
+    @Override
+    public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+        return CommandResult.SUCCESS;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.parser;
+
+import org.jboss.aesh.cl.internal.ProcessedCommand;
+import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
+import org.jboss.aesh.cl.internal.ProcessedOptionBuilder;
+
+/**
+ * Parses and finds the completion object of a command line for a command
+ * with many options, like the generated commands do, and reports the
+ * average time of each.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.cl.parser.ParseBenchmark [options]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ParseBenchmark {
+
+    private static final String SHORT_NAMES = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        ProcessedCommand command = new ProcessedCommandBuilder().name("generated").description("").create();
+        for(int i = 0; i < size; i++) {
+            ProcessedOptionBuilder option = new ProcessedOptionBuilder().name(name(i))
+                    .type(String.class).hasValue(true);
+            if(i < SHORT_NAMES.length())
+                option.shortName(SHORT_NAMES.charAt(i));
+            command.addOption(option.create());
+        }
+        CommandLineParser parser = new CommandLineParserBuilder().processedCommand(command).create();
+
+        //the last options are the slowest to find with a scan
+        StringBuilder line = new StringBuilder("generated");
+        for(int i = size - 1; i >= size - 40 && i >= 0; i--) {
+            if(i % 2 == 0)
+                line.append(" --").append(name(i)).append(" value");
+            else
+                line.append(" --").append(name(i)).append("=value");
+        }
+        if(size > 40)
+            line.append(" -").append(SHORT_NAMES.charAt(Math.min(size - 41, SHORT_NAMES.length() - 1))).append(" value");
+        String parseLine = line.toString();
+        String completeLine = parseLine + " --option-01";
+
+        for(int i = 0; i < 20000; i++) {
+            parse(parser, parseLine);
+            complete(parser, completeLine);
+        }
+
+        int iterations = 50000;
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++)
+            parse(parser, parseLine);
+        long parseTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < iterations; i++)
+            complete(parser, completeLine);
+        long completeTime = System.nanoTime() - start;
+
+        System.out.println("options:  " + size);
+        System.out.println("parse:    " + parseTime / iterations / 1000.0 + " us");
+        System.out.println("complete: " + completeTime / iterations / 1000.0 + " us");
+    }
+
+    //the same length, so no name is the start of another one
+    private static String name(int i) {
+        return String.format("option-%04d", i);
+    }
+
+    private static void parse(CommandLineParser parser, String line) {
+        parser.clear();
+        if(parser.parse(line, true).hasParserError())
+            throw new IllegalStateException(parser.parse(line, true).getParserException());
+    }
+
+    private static void complete(CommandLineParser parser, String line) throws CommandLineParserException {
+        parser.clear();
+        parser.getCompletionParser().findCompleteObject(line, line.length());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.populator;
+
+import org.jboss.aesh.cl.internal.ProcessedCommand;
+import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
+import org.jboss.aesh.cl.internal.ProcessedOptionBuilder;
+import org.jboss.aesh.cl.parser.CommandLineParser;
+import org.jboss.aesh.cl.parser.CommandLineParserBuilder;
+import org.jboss.aesh.console.AeshContext;
+import org.jboss.aesh.console.AeshInvocationProviders;
+import org.jboss.aesh.console.InvocationProviders;
+import org.jboss.aesh.console.command.activator.AeshOptionActivatorProvider;
+import org.jboss.aesh.console.command.completer.AeshCompleterInvocationProvider;
+import org.jboss.aesh.console.command.converter.AeshConverterInvocationProvider;
+import org.jboss.aesh.console.command.validator.AeshValidatorInvocationProvider;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+
+/**
+ * Parses a command line and populates a command with 50 options of mixed
+ * types, half of them given on the line and the rest reset, and reports
+ * the average time of each populate. Also measured with a copy of the
+ * parser for each invocation, the way commands are executed.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.cl.populator.PopulateBenchmark [iterations]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PopulateBenchmark {
+
+    private static final Class<?>[] TYPES = {int.class, long.class, boolean.class, double.class, String.class};
+    private static final String[] VALUES = {"42", "4242", "true", "7.5", "value"};
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        ProcessedCommand command = new ProcessedCommandBuilder().name("generated").description("")
+                .populator(new AeshCommandPopulator(new Generated())).create();
+        StringBuilder line = new StringBuilder("generated");
+        for(int i = 0; i < Generated.SIZE; i++) {
+            Class<?> type = TYPES[i % TYPES.length];
+            command.addOption(new ProcessedOptionBuilder().name("option-" + i).fieldName("option" + i)
+                    .type(type).hasValue(true).create());
+            if(i % 2 == 0)
+                line.append(" --option-").append(i).append(' ').append(VALUES[i % VALUES.length]);
+        }
+        CommandLineParser parser = new CommandLineParserBuilder().processedCommand(command).create();
+
+        InvocationProviders invocationProviders = new AeshInvocationProviders(
+                new AeshConverterInvocationProvider(),
+                new AeshCompleterInvocationProvider(),
+                new AeshValidatorInvocationProvider(),
+                new AeshOptionActivatorProvider());
+        AeshContext aeshContext = new SettingsBuilder().create().getAeshContext();
+        String parseLine = line.toString();
+
+        for(int i = 0; i < iterations / 4; i++) {
+            populate(parser, parseLine, invocationProviders, aeshContext);
+            populate(parser.copy(), parseLine, invocationProviders, aeshContext);
+        }
+
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++)
+            populate(parser, parseLine, invocationProviders, aeshContext);
+        long time = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < iterations; i++)
+            populate(parser.copy(), parseLine, invocationProviders, aeshContext);
+        long copyTime = System.nanoTime() - start;
+
+        System.out.println("options:                  " + Generated.SIZE);
+        System.out.println("parse + populate:         " + time / iterations / 1000.0 + " us");
+        System.out.println("copy + parse + populate:  " + copyTime / iterations / 1000.0 + " us");
+    }
+
+    private static void populate(CommandLineParser parser, String line,
+                                 InvocationProviders invocationProviders, AeshContext aeshContext) throws Exception {
+        parser.clear();
+        parser.getCommandPopulator().populateObject(parser.parse(line, true),
+                invocationProviders, aeshContext, false);
+    }
+
+    //fields follow the TYPES order
+    public static class Generated {
+        static final int SIZE = 50;
+
+        public int option0; public long option1; public boolean option2; public double option3; public String option4;
+        public int option5; public long option6; public boolean option7; public double option8; public String option9;
+        private int option10; private long option11; private boolean option12; private double option13; private String option14;
+        private int option15; private long option16; private boolean option17; private double option18; private String option19;
+        public int option20; public long option21; public boolean option22; public double option23; public String option24;
+        public int option25; public long option26; public boolean option27; public double option28; public String option29;
+        private int option30; private long option31; private boolean option32; private double option33; private String option34;
+        private int option35; private long option36; private boolean option37; private double option38; private String option39;
+        public int option40; public long option41; public boolean option42; public double option43; public String option44;
+        public int option45; public long option46; public boolean option47; public double option48; public String option49;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.processor;
+
+import org.jboss.aesh.cl.internal.ProcessedCommand;
+import org.jboss.aesh.cl.internal.ProcessedOption;
+import org.jboss.aesh.cl.parser.CommandLineParser;
+import org.jboss.aesh.cl.parser.ParserGenerator;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.container.CommandContainer;
+import org.jboss.aesh.console.command.registry.MutableCommandRegistry;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles the same commands with and without the processor and checks that
+ * the generated factories create the same ProcessedCommand as reflection do.
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CommandDefinitionProcessorTest {
+
+    private static final String COMMANDS =
+            "package sample;\n" +
+            "import org.jboss.aesh.cl.*;\n" +
+            "import org.jboss.aesh.console.command.*;\n" +
+            "import org.jboss.aesh.console.command.invocation.CommandInvocation;\n" +
+            "import java.util.*;\n" +
+            "@GroupCommandDefinition(name = \"git\", description = \"a \\\"group\\\" of\\ncommands \\u00e6\\u00f8\\u00e5\",\n" +
+            "        groupCommands = {Git.Commit.class, Git.Rebase.class}, scope = CommandScope.PROTOTYPE)\n" +
+            "public class Git implements Command {\n" +
+            "    @Option(shortName = 'h', hasValue = false, description = \"display help\")\n" +
+            "    private boolean help;\n" +
+            "    @Option(name = \"path\", defaultValue = {\"/tmp\", \"c:\\\\temp\"}, required = true)\n" +
+            "    private String directory;\n" +
+            "    public CommandResult execute(CommandInvocation invocation) { return CommandResult.SUCCESS; }\n" +
+            "    @CommandDefinition(name = \"commit\", description = \"\")\n" +
+            "    public static class Commit implements Command {\n" +
+            "        @Option(shortName = '\\'', overrideRequired = true)\n" +
+            "        private int count;\n" +
+            "        @OptionList(shortName = 'f', valueSeparator = ';', defaultValue = {\"a\", \"b\"})\n" +
+            "        private ArrayList<Integer> files;\n" +
+            "        @OptionGroup(shortName = 'D', description = \"properties\")\n" +
+            "        private Map<String, String> properties;\n" +
+            "        @Arguments(valueSeparator = ':')\n" +
+            "        private List<java.io.File> arguments;\n" +
+            "        public CommandResult execute(CommandInvocation invocation) { return CommandResult.SUCCESS; }\n" +
+            "    }\n" +
+            "    @CommandDefinition(name = \"rebase\", description = \"\")\n" +
+            "    public static class Rebase implements Command {\n" +
+            "        @Option(converter = Upper.class)\n" +
+            "        private String branch;\n" +
+            "        public CommandResult execute(CommandInvocation invocation) { return CommandResult.SUCCESS; }\n" +
+            "        private static class Upper implements org.jboss.aesh.cl.converter.Converter<String,\n" +
+            "                org.jboss.aesh.console.command.converter.ConverterInvocation> {\n" +
+            "            public String convert(org.jboss.aesh.console.command.converter.ConverterInvocation invocation) {\n" +
+            "                return invocation.getInput().toUpperCase();\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    private final List<File> tempDirs = new ArrayList<>();
+    private JavaCompiler compiler;
+    private File source;
+
+    @Before
+    public void setUp() throws IOException {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeTrue(compiler != null);
+
+        File sourceDir = createTempDir("aesh-processor-src");
+        source = new File(new File(sourceDir, "sample"), "Git.java");
+        source.getParentFile().mkdirs();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(source), StandardCharsets.UTF_8)) {
+            writer.write(COMMANDS);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for(File dir : tempDirs)
+            delete(dir);
+    }
+
+    @Test
+    public void testGeneratedFactories() throws Exception {
+        ClassLoader generated = compile(true);
+        ClassLoader reflection = compile(false);
+
+        assertNotNull(generated.loadClass(ParserGenerator.getFactoryName("sample.Git")));
+        assertNotNull(generated.loadClass(ParserGenerator.getFactoryName("sample.Git$Commit")));
+        assertNull(findClass(reflection, ParserGenerator.getFactoryName("sample.Git")));
+
+        CommandContainer expected = ParserGenerator.generateCommandLineParser(
+                (Class) reflection.loadClass("sample.Git"));
+        CommandContainer actual = ParserGenerator.generateCommandLineParser(
+                (Class) generated.loadClass("sample.Git"));
+
+        assertSameParser(expected.getParser(), actual.getParser());
+    }
+
+    @Test
+    public void testInaccessibleConverterFallsBackToReflection() throws Exception {
+        ClassLoader generated = compile(true);
+
+        //the converter of rebase is private, so the command is read at runtime
+        assertNull(findClass(generated, ParserGenerator.getFactoryName("sample.Git$Rebase")));
+
+        CommandContainer rebase = ParserGenerator.generateCommandLineParser(
+                (Class) generated.loadClass("sample.Git$Rebase"));
+        ProcessedOption branch = rebase.getParser().getProcessedCommand().findLongOption("branch");
+        assertNotNull(branch);
+        assertEquals("sample.Git$Rebase$Upper", branch.getConverter().getClass().getName());
+    }
+
+    @Test
+    public void testManifest() throws Exception {
+        File output = compileTo(true);
+        RecordingClassLoader loader = new RecordingClassLoader(output, getClass().getClassLoader());
+
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        registry.addCommandsFromManifest(loader);
+
+        //commit and rebase are only used as group commands
+        assertEquals(new HashSet<>(Arrays.asList("git")), registry.getAllCommandNames());
+        assertEquals("a \"group\" of\ncommands \u00e6\u00f8\u00e5", registry.getCommandDescription("git"));
+        assertEquals(Arrays.asList("git commit"), registry.findAllCommandNames("git c"));
+        assertEquals(new ArrayList<String>(), loader.loaded);
+
+        CommandContainer git = registry.getCommand("git", "git");
+        assertEquals(2, git.getParser().getAllChildParsers().size());
+        assertTrue(loader.loaded.contains("sample.Git"));
+    }
+
+    private void assertSameParser(CommandLineParser expected, CommandLineParser actual) {
+        ProcessedCommand expectedCommand = expected.getProcessedCommand();
+        ProcessedCommand actualCommand = actual.getProcessedCommand();
+        assertEquals(expectedCommand.getName(), actualCommand.getName());
+        assertEquals(expectedCommand.getDescription(), actualCommand.getDescription());
+        assertEquals(expectedCommand.getScope(), actualCommand.getScope());
+        assertEquals(expectedCommand.getValidator().getClass(), actualCommand.getValidator().getClass());
+        assertEquals(expectedCommand.getResultHandler().getClass(), actualCommand.getResultHandler().getClass());
+
+        List<ProcessedOption> expectedOptions = new ArrayList<>(expectedCommand.getOptions());
+        List<ProcessedOption> actualOptions = new ArrayList<>(actualCommand.getOptions());
+        if(expectedCommand.hasArgument())
+            expectedOptions.add(expectedCommand.getArgument());
+        if(actualCommand.hasArgument())
+            actualOptions.add(actualCommand.getArgument());
+        assertEquals(expectedOptions.size(), actualOptions.size());
+        for(int i = 0; i < expectedOptions.size(); i++)
+            assertSameOption(expectedOptions.get(i), actualOptions.get(i));
+
+        List<CommandLineParser<? extends Command>> expectedChildren = expected.getAllChildParsers();
+        List<CommandLineParser<? extends Command>> actualChildren = actual.getAllChildParsers();
+        assertEquals(expectedChildren.size(), actualChildren.size());
+        for(int i = 0; i < expectedChildren.size(); i++)
+            assertSameParser(expectedChildren.get(i), actualChildren.get(i));
+    }
+
+    private void assertSameOption(ProcessedOption expected, ProcessedOption actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getShortName(), actual.getShortName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.isRequired(), actual.isRequired());
+        assertEquals(expected.doOverrideRequired(), actual.doOverrideRequired());
+        assertEquals(expected.getValueSeparator(), actual.getValueSeparator());
+        assertEquals(expected.getDefaultValues(), actual.getDefaultValues());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getFieldName(), actual.getFieldName());
+        assertEquals(expected.getOptionType(), actual.getOptionType());
+        assertEquals(className(expected.getConverter()), className(actual.getConverter()));
+        assertEquals(className(expected.getCompleter()), className(actual.getCompleter()));
+        assertEquals(className(expected.getValidator()), className(actual.getValidator()));
+        assertEquals(className(expected.getActivator()), className(actual.getActivator()));
+        assertEquals(className(expected.getRenderer()), className(actual.getRenderer()));
+    }
+
+    private String className(Object o) {
+        return o == null ? null : o.getClass().getName();
+    }
+
+    private ClassLoader compile(boolean process) throws IOException {
+        File output = compileTo(process);
+        return new URLClassLoader(new URL[] {output.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private File compileTo(boolean process) throws IOException {
+        File output = createTempDir("aesh-processor-out");
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-nowarn", "-encoding", "UTF-8", "-d", output.getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path")));
+        if(process)
+            arguments.addAll(Arrays.asList("-processor", CommandDefinitionProcessor.class.getName(),
+                    "-s", output.getAbsolutePath()));
+        else
+            arguments.add("-proc:none");
+        arguments.add(source.getAbsolutePath());
+
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+        return output;
+    }
+
+    private Class<?> findClass(ClassLoader loader, String name) {
+        try {
+            return loader.loadClass(name);
+        }
+        catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only find the resources in its own directory, and record the sample
+     * classes that are loaded.
+     */
+    private static class RecordingClassLoader extends URLClassLoader {
+        private final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+
+        RecordingClassLoader(File dir, ClassLoader parent) throws IOException {
+            super(new URL[] {dir.toURI().toURL()}, parent);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            return findResources(name);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(name.startsWith("sample."))
+                loaded.add(name);
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    private File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        tempDirs.add(dir);
+        return dir;
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if(files != null)
+            for(File child : files)
+                delete(child);
+        file.delete();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.cl.processor;
+
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandNotFoundException;
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.command.registry.CommandRegistry;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Registers a number of generated commands, 500 by default, the way a shell
+ * do at startup, once compiled with CommandDefinitionProcessor and once
+ * without it so the commands are read with reflection.
+ * Every start is run in a new JVM, cold is the time of the first
+ * registration and warm the best time of registering the same commands again.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.cl.processor.ProcessorStartupBenchmark [commands] [options]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ProcessorStartupBenchmark {
+
+    private static final int STARTS = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && args[0].equals("--start")) {
+            start(new File(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int options = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null)
+            throw new IllegalStateException("A JDK is needed to compile the commands");
+
+        File root = File.createTempFile("aesh-processor-benchmark", "");
+        root.delete();
+        try {
+            List<String> sources = write(new File(root, "src"), commands, options);
+            File generated = compile(compiler, sources, new File(root, "generated"), true);
+            File reflection = compile(compiler, sources, new File(root, "reflection"), false);
+
+            long[][] generatedTimes = new long[2][STARTS];
+            long[][] reflectionTimes = new long[2][STARTS];
+            for(int i = 0; i < STARTS; i++) {
+                fork(reflection, commands, reflectionTimes, i);
+                fork(generated, commands, generatedTimes, i);
+            }
+
+            System.out.println("commands: " + commands + ", options per command: " + options);
+            print("reflection", reflectionTimes);
+            print("generated ", generatedTimes);
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    private static void print(String name, long[][] times) {
+        Arrays.sort(times[0]);
+        Arrays.sort(times[1]);
+        System.out.println(name + "  cold: " + times[0][STARTS / 2] / 1000 +
+                " us  warm: " + times[1][STARTS / 2] / 1000 + " us  (median of " + STARTS + " starts)");
+    }
+
+    private static void fork(File classes, int commands, long[][] times, int start) throws Exception {
+        Process process = new ProcessBuilder(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath(),
+                "-cp", System.getProperty("java.class.path"),
+                ProcessorStartupBenchmark.class.getName(), "--start", classes.getAbsolutePath(),
+                String.valueOf(commands))
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            output = reader.readLine();
+        }
+        if(process.waitFor() != 0 || output == null)
+            throw new IllegalStateException("Benchmark start failed: " + output);
+        String[] values = output.split(" ");
+        times[0][start] = Long.parseLong(values[0]);
+        times[1][start] = Long.parseLong(values[1]);
+    }
+
+    //run in the new JVM, prints the cold and the best warm time
+    @SuppressWarnings("unchecked")
+    private static void start(File classes, int commands) throws Exception {
+        long start = System.nanoTime();
+        URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()},
+                ProcessorStartupBenchmark.class.getClassLoader());
+        Class<? extends Command>[] commandClasses = new Class[commands];
+        for(int i = 0; i < commands; i++)
+            commandClasses[i] = (Class<? extends Command>) loader.loadClass("benchmark." + name(i));
+        register(commandClasses);
+        long cold = System.nanoTime() - start;
+
+        long warm = Long.MAX_VALUE;
+        for(int i = 0; i < ROUNDS; i++) {
+            start = System.nanoTime();
+            register(commandClasses);
+            warm = Math.min(warm, System.nanoTime() - start);
+        }
+        System.out.println(cold + " " + warm);
+    }
+
+    private static void register(Class<? extends Command>[] commandClasses) throws CommandNotFoundException {
+        CommandRegistry registry = new AeshCommandRegistryBuilder().commands(commandClasses).create();
+        if(registry.getAllCommandNames().size() != commandClasses.length)
+            throw new IllegalStateException("Not all commands were registered");
+        //the parsers are only generated when a command is used
+        for(String name : registry.getAllCommandNames())
+            registry.getCommand(name, name);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if(files != null)
+            for(File child : files)
+                delete(child);
+        file.delete();
+    }
+
+    private static String name(int i) {
+        return String.format("Command%04d", i);
+    }
+
+    private static List<String> write(File dir, int commands, int options) throws IOException {
+        File packageDir = new File(dir, "benchmark");
+        packageDir.mkdirs();
+        List<String> sources = new ArrayList<>(commands);
+        for(int i = 0; i < commands; i++) {
+            File source = new File(packageDir, name(i) + ".java");
+            try (PrintWriter out = new PrintWriter(source, "UTF-8")) {
+                out.println("package benchmark;");
+                out.println("@org.jboss.aesh.cl.CommandDefinition(name = \"command-" + i +
+                        "\", description = \"generated command " + i + "\")");
+                out.println("public class " + name(i) + " implements org.jboss.aesh.console.command.Command {");
+                for(int j = 0; j < options; j++) {
+                    out.println("    @org.jboss.aesh.cl.Option(shortName = '" + (char) ('a' + j % 26) +
+                            "', name = \"option-" + j + "\", description = \"option " + j + "\")");
+                    out.println("    private " + (j % 3 == 0 ? "int" : j % 3 == 1 ? "String" : "boolean") +
+                            " option" + j + ";");
+                }
+                out.println("    @org.jboss.aesh.cl.Arguments");
+                out.println("    private java.util.List<String> arguments;");
+                out.println("    public org.jboss.aesh.console.command.CommandResult execute(");
+                out.println("            org.jboss.aesh.console.command.invocation.CommandInvocation invocation) {");
+                out.println("        return org.jboss.aesh.console.command.CommandResult.SUCCESS;");
+                out.println("    }");
+                out.println("}");
+            }
+            sources.add(source.getAbsolutePath());
+        }
+        return sources;
+    }
+
+    private static File compile(JavaCompiler compiler, List<String> sources, File output, boolean process) {
+        output.mkdirs();
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-nowarn", "-encoding", "UTF-8", "-d", output.getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path")));
+        if(process)
+            arguments.addAll(Arrays.asList("-processor", CommandDefinitionProcessor.class.getName(),
+                    "-s", output.getAbsolutePath()));
+        else
+            arguments.add("-proc:none");
+        arguments.addAll(sources);
+        if(compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0)
+            throw new IllegalStateException("Could not compile the commands");
+        return output;
+    }
+}
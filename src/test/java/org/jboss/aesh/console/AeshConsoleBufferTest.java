@@ -35,6 +35,7 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -124,14 +125,222 @@ public class AeshConsoleBufferTest {
     }
 
 
+    @Test
+    public void testOutUsesShellEncoding() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        Shell shell = new TestShell(new PrintStream(byteArrayOutputStream, true, "UTF-16BE"), System.err);
+        ConsoleBuffer consoleBuffer = new AeshConsoleBufferBuilder().shell(shell).prompt(new Prompt("aesh")).create();
+
+        consoleBuffer.out().print("h\u00e9");
+        consoleBuffer.out().println('\u20ac');
+        assertEquals("h\u00e9\u20ac" + System.getProperty("line.separator"),
+                byteArrayOutputStream.toString("UTF-16BE"));
+    }
+
+    @Test
+    public void testRedrawOnlyChangedSpan() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        Shell shell = new TestShell(new PrintStream(byteArrayOutputStream), System.err);
+        ConsoleBuffer consoleBuffer = new AeshConsoleBufferBuilder().shell(shell).prompt(new Prompt("aesh")).create();
+
+        consoleBuffer.displayPrompt();
+        consoleBuffer.writeString("foo bar");
+        consoleBuffer.moveCursor(-4);
+        byteArrayOutputStream.reset();
+
+        consoleBuffer.writeChar('X');
+        assertEquals("fooX bar", consoleBuffer.getBuffer().getLine());
+        //the inserted char, the rest of the line and moving back
+        assertEquals("X bar" + new String(Buffer.printAnsi("4D")), byteArrayOutputStream.toString());
+
+        byteArrayOutputStream.reset();
+        consoleBuffer.performAction(new DeleteAction(consoleBuffer.getBuffer().getCursor(), Action.DELETE, true));
+        assertEquals("foo bar", consoleBuffer.getBuffer().getLine());
+        assertEquals(new String(Buffer.printAnsi("1D")) + " bar" + new String(Buffer.printAnsi("K")) +
+                new String(Buffer.printAnsi("4D")), byteArrayOutputStream.toString());
+    }
+
+    @Test
+    public void testRedrawMatchesScreen() throws IOException {
+        Random random = new Random(42);
+        for(int width : new int[] {10, 13, 80}) {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            Shell shell = new TestShell(new PrintStream(byteArrayOutputStream), System.err, width);
+            ConsoleBuffer consoleBuffer = new AeshConsoleBufferBuilder().shell(shell).prompt(new Prompt("aesh> ")).create();
+            TestScreen screen = new TestScreen(width);
+
+            consoleBuffer.displayPrompt();
+            for(int i = 0; i < 2000; i++) {
+                Buffer buffer = consoleBuffer.getBuffer();
+                switch(random.nextInt(8)) {
+                    case 0:
+                    case 1:
+                        consoleBuffer.writeChar((char) ('a' + random.nextInt(26)));
+                        break;
+                    case 2:
+                        StringBuilder builder = new StringBuilder();
+                        for(int j = random.nextInt(width * 2); j >= 0; j--)
+                            builder.append((char) ('a' + random.nextInt(26)));
+                        consoleBuffer.writeString(builder.toString());
+                        break;
+                    case 3:
+                        consoleBuffer.moveCursor(random.nextInt(width * 2) - width);
+                        break;
+                    case 4:
+                        consoleBuffer.performAction(new DeleteAction(buffer.getCursor(), Action.DELETE, true));
+                        break;
+                    case 5:
+                        consoleBuffer.performAction(new DeleteAction(buffer.getCursor(), Action.DELETE));
+                        break;
+                    case 6:
+                        consoleBuffer.performAction(new PrevWordAction(buffer.getCursor(), Action.DELETE, Mode.EMACS));
+                        break;
+                    default:
+                        //keep the line from growing forever
+                        if(buffer.getLine().length() > width * 3) {
+                            consoleBuffer.setBufferLine(buffer.getLine().substring(0, width));
+                            consoleBuffer.drawLine(false);
+                        }
+                        break;
+                }
+                screen.write(byteArrayOutputStream.toString());
+                byteArrayOutputStream.reset();
+
+                String expected = ("aesh> " + consoleBuffer.getBuffer().getLine()).trim();
+                assertEquals("width: " + width + ", step: " + i, expected, screen.getText());
+                int cursor = "aesh> ".length() + consoleBuffer.getBuffer().getCursor();
+                assertEquals("width: " + width + ", step: " + i, cursor / width, screen.getRow());
+                assertEquals("width: " + width + ", step: " + i, cursor % width, screen.getColumn());
+            }
+        }
+    }
+
+    /**
+     * Minimal terminal that understand the ansi codes used by the console buffer.
+     * Like xterm it do not wrap to the next row before a char is written.
+     */
+    private static class TestScreen {
+
+        private final int width;
+        private final StringBuilder[] rows = new StringBuilder[100];
+        private int row = 0;
+        private int column = 0;
+        private boolean pendingWrap = false;
+        private int savedRow;
+        private int savedColumn;
+
+        TestScreen(int width) {
+            this.width = width;
+            for(int i = 0; i < rows.length; i++)
+                rows[i] = new StringBuilder();
+        }
+
+        void write(String output) {
+            for(int i = 0; i < output.length(); i++) {
+                char c = output.charAt(i);
+                if(c == 27) {
+                    i++;
+                    if(output.charAt(i) == '7') {
+                        savedRow = row;
+                        savedColumn = column;
+                    }
+                    else if(output.charAt(i) == '8') {
+                        row = savedRow;
+                        column = savedColumn;
+                        pendingWrap = false;
+                    }
+                    else {
+                        int start = ++i;
+                        while(!Character.isLetter(output.charAt(i)))
+                            i++;
+                        String param = output.substring(start, i);
+                        control(output.charAt(i), param.length() > 0 ? Integer.parseInt(param) : -1);
+                    }
+                }
+                else if(c == '\r') {
+                    column = 0;
+                    pendingWrap = false;
+                }
+                else {
+                    if(pendingWrap) {
+                        row++;
+                        column = 0;
+                        pendingWrap = false;
+                    }
+                    setChar(row, column, c);
+                    if(column == width - 1)
+                        pendingWrap = true;
+                    else
+                        column++;
+                }
+            }
+        }
+
+        private void control(char command, int param) {
+            int n = param < 1 ? 1 : param;
+            pendingWrap = false;
+            switch(command) {
+                case 'A': row = Math.max(0, row - n); break;
+                case 'B': row += n; break;
+                case 'C': column = Math.min(width - 1, column + n); break;
+                case 'D': column = Math.max(0, column - n); break;
+                case 'G': column = Math.min(width - 1, n - 1); break;
+                case 'K':
+                    if(param == 2)
+                        rows[row].setLength(0);
+                    else if(rows[row].length() > column)
+                        rows[row].setLength(column);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown ansi code: " + param + command);
+            }
+        }
+
+        private void setChar(int row, int column, char c) {
+            while(rows[row].length() <= column)
+                rows[row].append(' ');
+            rows[row].setCharAt(column, c);
+        }
+
+        String getText() {
+            StringBuilder builder = new StringBuilder();
+            for(StringBuilder r : rows) {
+                String text = r.toString();
+                builder.append(text);
+                for(int i = text.length(); i < width; i++)
+                    builder.append(' ');
+            }
+            int end = builder.length();
+            while(end > 0 && builder.charAt(end - 1) == ' ')
+                end--;
+            return builder.substring(0, end);
+        }
+
+        int getRow() {
+            return pendingWrap ? row + 1 : row;
+        }
+
+        int getColumn() {
+            return pendingWrap ? 0 : column;
+        }
+    }
+
     private static class TestShell implements Shell {
 
         private final PrintStream out;
         private final PrintStream err;
+        private final int width;
 
         TestShell(PrintStream out, PrintStream err) {
+            this(out, err, 20);
+        }
+
+        TestShell(PrintStream out, PrintStream err, int width) {
             this.out = out;
             this.err = err;
+            this.width = width;
         }
 
         @Override
@@ -156,7 +365,7 @@ public class AeshConsoleBufferTest {
 
         @Override
         public TerminalSize getSize() {
-            return new TerminalSize(80,20);
+            return new TerminalSize(80,width);
         }
 
         @Override
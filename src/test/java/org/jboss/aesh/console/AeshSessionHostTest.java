@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.cl.Arguments;
+import org.jboss.aesh.cl.CommandDefinition;
+import org.jboss.aesh.cl.CommandScope;
+import org.jboss.aesh.cl.Option;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandResult;
+import org.jboss.aesh.console.command.invocation.CommandInvocation;
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.command.registry.CommandRegistry;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.TestTerminal;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class AeshSessionHostTest {
+
+    private static final int SESSIONS = 1000;
+    private static final int INPUT_THREADS = 4;
+
+    @Test
+    public void testManySessions() throws Exception {
+        CommandRegistry registry = new AeshCommandRegistryBuilder().command(HelloCommand.class).create();
+        AeshSessionHost host = new AeshSessionHost(registry, INPUT_THREADS);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        AeshSession[] sessions = new AeshSession[SESSIONS];
+        ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[SESSIONS];
+        for(int i = 0; i < SESSIONS; i++) {
+            outputs[i] = new ByteArrayOutputStream();
+            sessions[i] = host.openSession(sessionSettings(outputs[i]));
+        }
+        assertEquals(SESSIONS, host.getSessions().size());
+
+        //all the sessions type at the same time, a few keys at the time
+        for(int round = 0; round < 3; round++) {
+            for(int i = 0; i < SESSIONS; i++) {
+                String line = "hello --name session-" + i + Config.getLineSeparator();
+                int third = line.length() / 3;
+                sessions[i].write(line.substring(round * third,
+                        round == 2 ? line.length() : (round + 1) * third).getBytes());
+            }
+        }
+        for(int i = 0; i < SESSIONS; i++)
+            waitForOutput(outputs[i], "hello session-" + i);
+
+        for(AeshSession session : sessions)
+            session.close();
+        for(AeshSession session : sessions)
+            waitForStop(session);
+        assertTrue(host.getSessions().isEmpty());
+
+        //a console with its own threads would have started three per session
+        int started = threads.getPeakThreadCount() - threadsBefore;
+        assertTrue("started " + started + " threads for " + SESSIONS + " sessions", started < 100);
+
+        host.stop();
+    }
+
+    @Test
+    public void testSharedCommandRegistry() throws Exception {
+        CommandRegistry registry = new AeshCommandRegistryBuilder().command(HelloCommand.class).create();
+        AeshSessionHost host = new AeshSessionHost(registry, 2);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        AeshSession firstSession = host.openSession(sessionSettings(first));
+        AeshSession secondSession = host.openSession(sessionSettings(second));
+        assertEquals(registry, firstSession.getConsole().getCommandRegistry());
+        assertEquals(registry, secondSession.getConsole().getCommandRegistry());
+
+        firstSession.write(("hello --name first" + Config.getLineSeparator()).getBytes());
+        secondSession.write(("hello --name second" + Config.getLineSeparator()).getBytes());
+        waitForOutput(first, "hello first");
+        waitForOutput(second, "hello second");
+        assertFalse(first.toString().contains("hello second"));
+
+        host.stop();
+        waitForStop(firstSession);
+        waitForStop(secondSession);
+    }
+
+    @Test
+    public void testCloseWaitsForCommand() throws Exception {
+        CommandRegistry registry = new AeshCommandRegistryBuilder().command(WaitCommand.class).create();
+        AeshSessionHost host = new AeshSessionHost(registry, 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AeshSession session = host.openSession(sessionSettings(output));
+
+        //the input after the command is for the command
+        session.write(("wait" + Config.getLineSeparator() + "x").getBytes());
+        session.close();
+        waitForOutput(output, "got x");
+        waitForStop(session);
+
+        host.stop();
+    }
+
+    @Test
+    public void testCloseRunsReceivedCommands() throws Exception {
+        CommandRegistry registry = new AeshCommandRegistryBuilder().command(HelloCommand.class).create();
+        AeshSessionHost host = new AeshSessionHost(registry, 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AeshSession session = host.openSession(sessionSettings(output));
+
+        session.write(("hello --name first" + Config.getLineSeparator() +
+                "hello --name second" + Config.getLineSeparator()).getBytes());
+        session.close();
+        waitForStop(session);
+        assertTrue(output.toString().contains("hello first"));
+        assertTrue(output.toString().contains("hello second"));
+
+        host.stop();
+    }
+
+    @Test
+    public void testInputSplitInsideCharacter() throws Exception {
+        assumeTrue(Charset.defaultCharset().name().equals("UTF-8"));
+        CommandRegistry registry = new AeshCommandRegistryBuilder().command(HelloCommand.class).create();
+        AeshSessionHost host = new AeshSessionHost(registry, 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AeshSession session = host.openSession(sessionSettings(output));
+
+        byte[] line = ("hello --name ståle 😀" + Config.getLineSeparator()).getBytes("UTF-8");
+        for(byte b : line)
+            session.write(new byte[] {b});
+        waitForOutput(output, "hello ståle");
+
+        host.stop();
+    }
+
+    private static org.jboss.aesh.console.settings.Settings sessionSettings(ByteArrayOutputStream output) {
+        return new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .outputStream(new PrintStream(output))
+                .readInputrc(false)
+                .persistHistory(false)
+                .enableAlias(false)
+                .enableExport(false)
+                .create();
+    }
+
+    private static void waitForOutput(ByteArrayOutputStream output, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while(!output.toString().contains(expected)) {
+            if(System.currentTimeMillis() > deadline)
+                throw new AssertionError("did not get '" + expected + "', got: " + output.toString());
+            Thread.sleep(10);
+        }
+    }
+
+    private static void waitForStop(AeshSession session) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while(session.isRunning()) {
+            if(System.currentTimeMillis() > deadline)
+                throw new AssertionError("session did not stop");
+            Thread.sleep(10);
+        }
+    }
+
+    @CommandDefinition(name = "hello", description = "", scope = CommandScope.PROTOTYPE)
+    public static class HelloCommand implements Command {
+
+        @Option
+        private String name;
+
+        @Arguments
+        private List<String> arguments;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            commandInvocation.getShell().out().println("hello " + name);
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "wait", description = "")
+    public static class WaitCommand implements Command {
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            commandInvocation.getShell().out().println("got " +
+                    commandInvocation.getInput().getInputKey().getAsChar());
+            return CommandResult.SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.cl.CommandDefinition;
+import org.jboss.aesh.cl.Option;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandResult;
+import org.jboss.aesh.console.command.invocation.CommandInvocation;
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.TestTerminal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the same lines through the interactive console, written to the input
+ * stream of a TestTerminal, and through a BatchExecutor and reports the
+ * number of commands run per second by each.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.BatchBenchmark [lines]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class BatchBenchmark {
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream, 64 * 1024);
+
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new NullOutputStream()))
+                .readInputrc(false)
+                .persistHistory(false)
+                .create();
+
+        AeshConsole console = new AeshConsoleBuilder()
+                .settings(settings)
+                .commandRegistry(new AeshCommandRegistryBuilder().command(CountCommand.class).create())
+                .prompt(new Prompt("[aesh]$ "))
+                .create();
+        console.start();
+        BatchExecutor executor = ((AeshConsoleImpl) console).createBatchExecutor(
+                new PrintStream(new NullOutputStream()), new PrintStream(new NullOutputStream()));
+
+        //warm up
+        interactive(outputStream, lines / 10);
+        batch(executor, lines / 10);
+
+        long interactiveTime = interactive(outputStream, lines);
+        long batchTime = batch(executor, lines);
+
+        System.out.println("lines:       " + lines);
+        System.out.println("interactive: " + perSecond(lines, interactiveTime) + " commands/s");
+        System.out.println("batch:       " + perSecond(lines, batchTime) + " commands/s");
+
+        console.stop();
+        System.exit(0);
+    }
+
+    private static long interactive(OutputStream out, int lines) throws IOException, InterruptedException {
+        COUNT.set(0);
+        long start = System.nanoTime();
+        for(int i = 0; i < lines; i++)
+            out.write(line(i).concat(Config.getLineSeparator()).getBytes());
+        out.flush();
+        while(COUNT.get() < lines)
+            Thread.sleep(1);
+        return System.nanoTime() - start;
+    }
+
+    private static long batch(BatchExecutor executor, int lines) throws InterruptedException {
+        COUNT.set(0);
+        long start = System.nanoTime();
+        for(int i = 0; i < lines; i++)
+            executor.execute(line(i));
+        if(COUNT.get() != lines)
+            throw new IllegalStateException("Only " + COUNT.get() + " of " + lines + " lines were run");
+        return System.nanoTime() - start;
+    }
+
+    private static String line(int i) {
+        return "count --value value" + i;
+    }
+
+    private static long perSecond(int lines, long time) {
+        return lines * 1000000000L / time;
+    }
+
+    @CommandDefinition(name = "count", description = "")
+    public static class CountCommand implements Command {
+
+        @Option
+        private String value;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            commandInvocation.getShell().out().println(value);
+            COUNT.incrementAndGet();
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
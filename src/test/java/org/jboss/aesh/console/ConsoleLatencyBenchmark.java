@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.SynchronousQueue;
+
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.TestTerminal;
+
+/**
+ * Replays scripted keystrokes through a TestTerminal and measures the time
+ * from a line is written to the input stream until the ConsoleCallback
+ * receives it.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.ConsoleLatencyBenchmark [iterations]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ConsoleLatencyBenchmark {
+
+    private static final String[] SCRIPT = {
+            "ls -la", "cd /tmp", "echo foo bar", "man ls", "history", "exit 0" };
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .readInputrc(false)
+                .persistHistory(false)
+                .enableAlias(false)
+                .create();
+
+        final SynchronousQueue<Long> received = new SynchronousQueue<>();
+        Console console = new Console(settings);
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                received.put(System.nanoTime());
+                return 0;
+            }
+        });
+        console.start();
+
+        //warm up
+        run(outputStream, received, iterations / 10);
+
+        long[] latencies = run(outputStream, received, iterations);
+        Arrays.sort(latencies);
+        long total = 0;
+        for(long l : latencies)
+            total += l;
+
+        System.out.println("lines:  " + iterations);
+        System.out.println("mean:   " + (total / iterations) / 1000 + " us");
+        System.out.println("median: " + latencies[iterations / 2] / 1000 + " us");
+        System.out.println("p99:    " + latencies[(int) (iterations * 0.99)] / 1000 + " us");
+        System.out.println("max:    " + latencies[iterations - 1] / 1000 + " us");
+
+        console.stop();
+    }
+
+    private static long[] run(PipedOutputStream out, SynchronousQueue<Long> received,
+                              int iterations) throws Exception {
+        long[] latencies = new long[iterations];
+        for(int i = 0; i < iterations; i++) {
+            byte[] line = (SCRIPT[i % SCRIPT.length] + Config.getLineSeparator()).getBytes();
+            long start = System.nanoTime();
+            out.write(line);
+            out.flush();
+            latencies[i] = received.take() - start;
+        }
+        return latencies;
+    }
+}
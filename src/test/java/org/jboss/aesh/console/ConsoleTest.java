@@ -20,9 +20,18 @@
 package org.jboss.aesh.console;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -53,4 +62,92 @@ public class ConsoleTest extends BaseConsoleTest {
         });
     }
 
+    @Test
+    public void stopRunsReceivedOperations() throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        final Console console = getTestConsole(new PipedInputStream(outputStream));
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirst = new CountDownLatch(1);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                executed.add(output.getBuffer());
+                if(output.getBuffer().equals("first")) {
+                    firstStarted.countDown();
+                    releaseFirst.await();
+                }
+                return 0;
+            }
+        });
+        console.start();
+
+        outputStream.write(("first" + Config.getLineSeparator() + "second" + Config.getLineSeparator()).getBytes());
+        outputStream.flush();
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+
+        //stop waits for the received input, so it is called from another thread
+        Thread stopper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                console.stop();
+            }
+        });
+        stopper.start();
+        long end = System.currentTimeMillis() + 5000;
+        while(stopper.getState() != Thread.State.WAITING && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        releaseFirst.countDown();
+
+        end = System.currentTimeMillis() + 5000;
+        while(console.isRunning() && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        stopper.join(5000);
+        assertEquals(Arrays.asList("first", "second"), executed);
+    }
+
+    @Test
+    public void stopReturnsWhenProcessTakesPasteRemainder() throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        final Console console = getTestConsole(new PipedInputStream(outputStream));
+        final CountDownLatch firstKeyRead = new CountDownLatch(1);
+        final CountDownLatch readRemainder = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                //read one key of the paste, the rest of it is kept as pending input
+                getInput();
+                firstKeyRead.countDown();
+                readRemainder.await();
+                getInput();
+                finish.await();
+                return 0;
+            }
+        });
+        console.start();
+
+        outputStream.write(("first" + Config.getLineSeparator() + "ab").getBytes());
+        outputStream.flush();
+        assertTrue(firstKeyRead.await(5, TimeUnit.SECONDS));
+
+        //stop waits for the pending input to be taken
+        Thread stopper = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                console.stop();
+            }
+        });
+        stopper.start();
+        long end = System.currentTimeMillis() + 5000;
+        while(stopper.getState() != Thread.State.WAITING && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        readRemainder.countDown();
+
+        stopper.join(5000);
+        boolean stopped = !stopper.isAlive();
+        finish.countDown();
+        assertTrue(stopped);
+    }
+
 }
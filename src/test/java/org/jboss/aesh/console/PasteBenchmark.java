@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.TestTerminal;
+
+/**
+ * Measures how long it takes to paste a 100 KB script, and a single
+ * 100 KB line, through a TestTerminal.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.PasteBenchmark
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PasteBenchmark {
+
+    private static final int PASTE_SIZE = 100 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder script = new StringBuilder();
+        int lines = 0;
+        while(script.length() < PASTE_SIZE) {
+            script.append("deploy --name=app").append(lines).append(".war --force --server-group=main")
+                    .append(Config.getLineSeparator());
+            lines++;
+        }
+
+        StringBuilder line = new StringBuilder();
+        while(line.length() < PASTE_SIZE)
+            line.append("foo bar ");
+        line.append(Config.getLineSeparator());
+
+        //warm up
+        paste(script.toString(), lines);
+
+        long start = System.nanoTime();
+        paste(script.toString(), lines);
+        long time = System.nanoTime() - start;
+        System.out.println("script of " + lines + " lines: " + TimeUnit.NANOSECONDS.toMillis(time) + " ms, " +
+                (script.length() * 1000L) / Math.max(1, TimeUnit.NANOSECONDS.toMicros(time)) + " chars/ms");
+
+        start = System.nanoTime();
+        paste(line.toString(), 1);
+        time = System.nanoTime() - start;
+        System.out.println("single line: " + TimeUnit.NANOSECONDS.toMillis(time) + " ms, " +
+                (line.length() * 1000L) / Math.max(1, TimeUnit.NANOSECONDS.toMicros(time)) + " chars/ms");
+    }
+
+    private static void paste(String paste, int lines) throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream, 64 * 1024);
+
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .readInputrc(false)
+                .persistHistory(false)
+                .enableAlias(false)
+                .create();
+
+        final CountDownLatch latch = new CountDownLatch(lines);
+        Console console = new Console(settings);
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                latch.countDown();
+                return 0;
+            }
+        });
+        console.start();
+
+        outputStream.write(paste.getBytes());
+        outputStream.flush();
+        if(!latch.await(10, TimeUnit.MINUTES))
+            System.out.println("timed out waiting for the paste to finish");
+        console.stop();
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.command.CommandOperation;
+import org.jboss.aesh.console.command.CommandResult;
+import org.jboss.aesh.console.operator.ControlOperator;
+import org.jboss.aesh.console.reader.AeshStandardStream;
+import org.jboss.aesh.io.Pipe;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ProcessManagerTest extends BaseConsoleTest {
+
+    @Test
+    public void testManyBackgroundProcesses() throws Exception {
+        final int processCount = 5000;
+        final int maxProcesses = 16;
+        final CountDownLatch finished = new CountDownLatch(processCount);
+        final AtomicInteger consoleNotified = new AtomicInteger();
+        Console console = new Console(getDefaultSettings(new ByteArrayInputStream(new byte[0]), null)) {
+            @Override
+            public void currentProcessFinished(Process process) {
+                consoleNotified.incrementAndGet();
+            }
+        };
+        final ProcessManager manager = new ProcessManager(console, false, maxProcesses);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<BackgroundCallback> callbacks = Collections.synchronizedList(new ArrayList<BackgroundCallback>());
+
+        Thread[] starters = new Thread[4];
+        for(int t = 0; t < starters.length; t++) {
+            starters[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < processCount / 4; i++) {
+                        BackgroundCallback callback =
+                                new BackgroundCallback(manager, running, maxRunning, finished);
+                        //only one process can be in the foreground at a time, and
+                        //no process is started while all the threads are busy
+                        while(!manager.startNewProcess(callback,
+                                new ConsoleOperation(ControlOperator.NONE, "run")))
+                            Thread.yield();
+                        callbacks.add(callback);
+                    }
+                }
+            });
+            starters[t].start();
+        }
+        for(Thread starter : starters)
+            starter.join();
+
+        assertTrue(finished.await(60, TimeUnit.SECONDS));
+        assertEquals(processCount, callbacks.size());
+
+        Set<Integer> pids = new HashSet<>();
+        for(BackgroundCallback callback : callbacks) {
+            //each process keep its own result
+            Process process = callback.process;
+            assertTrue(pids.add(process.getPID()));
+            waitForExitResult(process);
+            assertEquals(process.getPID() % 3, ((AeshProcess) process).getExitValue());
+            assertEquals(process.getPID() % 3 == 0 ? CommandResult.SUCCESS : CommandResult.FAILURE,
+                    process.getExitResult());
+        }
+
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= maxProcesses);
+        //the console is told once for each process that is put in the background
+        assertEquals(processCount, consoleNotified.get());
+        assertFalse(manager.hasForegroundProcess());
+        long end = System.currentTimeMillis() + 10000;
+        while(!manager.getProcesses().isEmpty() && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertTrue(manager.getProcesses().isEmpty());
+
+        manager.stop();
+        console.stop();
+    }
+
+    @Test
+    public void testForegroundAndBackground() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger consoleNotified = new AtomicInteger();
+        Console console = new Console(getDefaultSettings(new ByteArrayInputStream(new byte[0]), null)) {
+            @Override
+            public void currentProcessFinished(Process process) {
+                consoleNotified.incrementAndGet();
+            }
+        };
+        ProcessManager manager = new ProcessManager(console, false);
+
+        TestCallback first = new TestCallback(release);
+        assertTrue(manager.startNewProcess(first, new ConsoleOperation(ControlOperator.NONE, "first")));
+        int firstPid = first.process.getPID();
+        assertFalse(manager.startNewProcess(new TestCallback(release),
+                new ConsoleOperation(ControlOperator.NONE, "second")));
+
+        manager.putProcessInBackground(firstPid);
+        assertFalse(manager.hasForegroundProcess());
+        assertEquals(Process.Status.BACKGROUND, first.process.getStatus());
+        assertEquals(1, consoleNotified.get());
+
+        TestCallback second = new TestCallback(release);
+        assertTrue(manager.startNewProcess(second, new ConsoleOperation(ControlOperator.NONE, "second")));
+        assertEquals(2, manager.getProcesses().size());
+        assertEquals(second.process, manager.getCurrentProcess());
+
+        //the foreground is taken, so first stay in the background
+        manager.putProcessInForeground(firstPid);
+        assertEquals(Process.Status.BACKGROUND, first.process.getStatus());
+
+        manager.putProcessInBackground(second.process.getPID());
+        manager.putProcessInForeground(firstPid);
+        assertEquals(first.process, manager.getCurrentProcess());
+        assertEquals(Process.Status.FOREGROUND, first.process.getStatus());
+
+        release.countDown();
+        long end = System.currentTimeMillis() + 10000;
+        while((consoleNotified.get() < 3 || !manager.getProcesses().isEmpty()) &&
+                System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertTrue(manager.getProcesses().isEmpty());
+        assertFalse(manager.hasForegroundProcess());
+        //two moves to the background and first finishing in the foreground
+        assertEquals(3, consoleNotified.get());
+
+        manager.stop();
+        console.stop();
+    }
+
+    @Test
+    public void testPipelineWithMoreStagesThanMaxProcesses() throws Exception {
+        final int stageCount = 6;
+        //more than the pipes between the stages can hold
+        final int size = 4 * Pipe.DEFAULT_CAPACITY * stageCount;
+        Console console = new Console(getDefaultSettings(new ByteArrayInputStream(new byte[0]), null)) {
+            @Override
+            public void currentProcessFinished(Process process) {
+            }
+        };
+        ProcessManager manager = new ProcessManager(console, false, 2);
+
+        List<ProcessStreams> streams = new ArrayList<>();
+        InputStream in = Console.emptyStream();
+        for(int i = 0; i < stageCount; i++) {
+            ProcessStreams stage = new ProcessStreams(new AeshStandardStream(new BufferedInputStream(in),
+                    Console.emptyStream()));
+            stage.addResource(in);
+            if(i < stageCount - 1) {
+                Pipe pipe = new Pipe();
+                stage.setOut(new PrintStream(pipe.getOutputStream(), true));
+                in = pipe.getInputStream();
+            }
+            streams.add(stage);
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong received = new AtomicLong();
+        for(int i = 0; i < stageCount - 1; i++)
+            assertTrue(manager.startNewBackgroundProcess(new PipeCallback(i == 0 ? size : -1, null, null),
+                    new ConsoleOperation(ControlOperator.PIPE, "stage"), streams.get(i)));
+        assertTrue(manager.startNewProcess(new PipeCallback(-1, received, done),
+                new ConsoleOperation(ControlOperator.NONE, "last"), streams.get(stageCount - 1)));
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(size, received.get());
+
+        manager.stop();
+        console.stop();
+    }
+
+    @Test
+    public void testProcessIsNotQueuedWhenThreadsAreBusy() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Console console = new Console(getDefaultSettings(new ByteArrayInputStream(new byte[0]), null)) {
+            @Override
+            public void currentProcessFinished(Process process) {
+            }
+        };
+        ProcessManager manager = new ProcessManager(console, false, 1);
+
+        TestCallback first = new TestCallback(release);
+        assertTrue(manager.startNewProcess(first, new ConsoleOperation(ControlOperator.NONE, "first")));
+        manager.putProcessInBackground(first.process.getPID());
+
+        assertFalse(manager.startNewProcess(new TestCallback(release),
+                new ConsoleOperation(ControlOperator.NONE, "second")));
+        assertFalse(manager.hasForegroundProcess());
+        assertEquals(1, manager.getProcesses().size());
+
+        release.countDown();
+        manager.stop();
+        console.stop();
+    }
+
+    private static void waitForExitResult(Process process) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while(process.getExitResult() == null && System.currentTimeMillis() < end)
+            Thread.sleep(1);
+    }
+
+    private static class TestCallback implements ConsoleCallback {
+        private final CountDownLatch release;
+        private volatile Process process;
+
+        TestCallback(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public int execute(ConsoleOperation output) throws InterruptedException {
+            release.await();
+            return 0;
+        }
+
+        @Override
+        public CommandOperation getInput() throws InterruptedException {
+            return process.getInput();
+        }
+
+        @Override
+        public void setProcess(Process process) {
+            this.process = process;
+        }
+    }
+
+    private static class BackgroundCallback implements ConsoleCallback {
+        private final ProcessManager manager;
+        private final AtomicInteger running;
+        private final AtomicInteger maxRunning;
+        private final CountDownLatch finished;
+        private volatile Process process;
+
+        BackgroundCallback(ProcessManager manager, AtomicInteger running,
+                           AtomicInteger maxRunning, CountDownLatch finished) {
+            this.manager = manager;
+            this.running = running;
+            this.maxRunning = maxRunning;
+            this.finished = finished;
+        }
+
+        @Override
+        public int execute(ConsoleOperation output) throws InterruptedException {
+            int current = running.incrementAndGet();
+            int max = maxRunning.get();
+            while(current > max && !maxRunning.compareAndSet(max, current))
+                max = maxRunning.get();
+            try {
+                manager.putProcessInBackground(output.getPid());
+                Thread.sleep(1);
+                return output.getPid() % 3;
+            }
+            finally {
+                running.decrementAndGet();
+                finished.countDown();
+            }
+        }
+
+        @Override
+        public CommandOperation getInput() throws InterruptedException {
+            return process.getInput();
+        }
+
+        @Override
+        public void setProcess(Process process) {
+            this.process = process;
+        }
+    }
+
+    /**
+     * Writes size bytes if size is not -1, otherwise copy the input to the
+     * output and count what is read
+     */
+    private static class PipeCallback implements ConsoleCallback {
+        private final int size;
+        private final AtomicLong received;
+        private final CountDownLatch done;
+        private volatile Process process;
+
+        PipeCallback(int size, AtomicLong received, CountDownLatch done) {
+            this.size = size;
+            this.received = received;
+            this.done = done;
+        }
+
+        @Override
+        public int execute(ConsoleOperation output) throws InterruptedException {
+            ProcessStreams streams = ProcessStreams.current();
+            try {
+                if(size >= 0) {
+                    byte[] block = new byte[1024];
+                    for(int written = 0; written < size; written += block.length)
+                        streams.getOut().write(block, 0, Math.min(block.length, size - written));
+                }
+                else {
+                    InputStream in = streams.getIn().getStdIn();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while((read = in.read(buffer)) != -1) {
+                        if(streams.getOut() != null)
+                            streams.getOut().write(buffer, 0, read);
+                        if(received != null)
+                            received.addAndGet(read);
+                    }
+                }
+            }
+            catch (IOException e) {
+                return 1;
+            }
+            finally {
+                if(done != null)
+                    done.countDown();
+            }
+            return 0;
+        }
+
+        @Override
+        public CommandOperation getInput() throws InterruptedException {
+            return process.getInput();
+        }
+
+        @Override
+        public void setProcess(Process process) {
+            this.process = process;
+        }
+    }
+}
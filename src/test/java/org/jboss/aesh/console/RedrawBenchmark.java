@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.reader.AeshStandardStream;
+import org.jboss.aesh.edit.Mode;
+import org.jboss.aesh.edit.actions.Action;
+import org.jboss.aesh.edit.actions.DeleteAction;
+import org.jboss.aesh.edit.actions.PrevWordAction;
+import org.jboss.aesh.terminal.CursorPosition;
+import org.jboss.aesh.terminal.Shell;
+import org.jboss.aesh.terminal.TerminalSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Counts the bytes written to the terminal for typical edits on a short line
+ * and on a line that wraps over several rows.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.RedrawBenchmark
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class RedrawBenchmark {
+
+    private static final String SHORT_LINE = "git commit -m 'fix the build'";
+
+    public static void main(String[] args) throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        while(longLine.length() < 200)
+            longLine.append(SHORT_LINE).append(' ');
+
+        for(String line : new String[] {SHORT_LINE, longLine.toString()}) {
+            System.out.println("line length: " + line.length());
+            run("insert in the middle", line, new Edit() {
+                @Override
+                public void edit(ConsoleBuffer consoleBuffer) {
+                    consoleBuffer.writeChar('x');
+                }
+            });
+            run("backspace in the middle", line, new Edit() {
+                @Override
+                public void edit(ConsoleBuffer consoleBuffer) throws IOException {
+                    consoleBuffer.performAction(new DeleteAction(
+                            consoleBuffer.getBuffer().getCursor(), Action.DELETE, true));
+                }
+            });
+            run("delete word in the middle", line, new Edit() {
+                @Override
+                public void edit(ConsoleBuffer consoleBuffer) throws IOException {
+                    consoleBuffer.performAction(new PrevWordAction(
+                            consoleBuffer.getBuffer().getCursor(), Action.DELETE, Mode.EMACS));
+                }
+            });
+            run("replace char in the middle", line, new Edit() {
+                @Override
+                public void edit(ConsoleBuffer consoleBuffer) {
+                    Buffer buffer = consoleBuffer.getBuffer();
+                    consoleBuffer.replace(buffer.getLine().charAt(buffer.getCursor()) == 'X' ? 'Y' : 'X');
+                }
+            });
+        }
+    }
+
+    private static void run(String name, String line, Edit edit) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ConsoleBuffer consoleBuffer = new AeshConsoleBufferBuilder()
+                .shell(new BenchmarkShell(new PrintStream(output)))
+                .prompt(new Prompt("[aesh@localhost]$ ")).create();
+        consoleBuffer.displayPrompt();
+        consoleBuffer.writeString(line);
+        consoleBuffer.moveCursor(-line.length() / 2);
+
+        int edits = 10;
+        output.reset();
+        for(int i = 0; i < edits; i++)
+            edit.edit(consoleBuffer);
+        System.out.println(String.format("  %-28s %6d bytes per edit", name, output.size() / edits));
+    }
+
+    private interface Edit {
+        void edit(ConsoleBuffer consoleBuffer) throws IOException;
+    }
+
+    private static class BenchmarkShell implements Shell {
+
+        private final PrintStream out;
+
+        BenchmarkShell(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public PrintStream out() {
+            return out;
+        }
+
+        @Override
+        public PrintStream err() {
+            return out;
+        }
+
+        @Override
+        public AeshStandardStream in() {
+            return null;
+        }
+
+        @Override
+        public TerminalSize getSize() {
+            return new TerminalSize(24, 80);
+        }
+
+        @Override
+        public CursorPosition getCursor() {
+            return new CursorPosition(1, 1);
+        }
+
+        @Override
+        public void setCursor(CursorPosition position) {
+        }
+
+        @Override
+        public void moveCursor(int rows, int columns) {
+        }
+
+        @Override
+        public boolean isMainBuffer() {
+            return true;
+        }
+
+        @Override
+        public void enableAlternateBuffer() {
+        }
+
+        @Override
+        public void enableMainBuffer() {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console;
+
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.command.registry.CommandRegistry;
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.terminal.TestTerminal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Opens many sessions, either as consoles with their own threads or in an
+ * AeshSessionHost, runs one command in each and reports the threads and
+ * heap they use and how long it took.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.SessionHostBenchmark [host|console] [sessions]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class SessionHostBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        boolean hosted = args.length == 0 || args[0].equals("host");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        CommandRegistry registry = new AeshCommandRegistryBuilder()
+                .command(AeshSessionHostTest.HelloCommand.class).create();
+        AeshSessionHost host = hosted ? new AeshSessionHost(registry) : null;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        long heapBefore = usedHeap();
+        threads.resetPeakThreadCount();
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[count];
+        AeshSession[] sessions = new AeshSession[count];
+        PipedOutputStream[] inputs = new PipedOutputStream[count];
+        AeshConsole[] consoles = new AeshConsole[count];
+        for(int i = 0; i < count; i++) {
+            outputs[i] = new ByteArrayOutputStream();
+            SettingsBuilder builder = new SettingsBuilder()
+                    .terminal(new TestTerminal())
+                    .outputStream(new PrintStream(outputs[i]))
+                    .readInputrc(false)
+                    .persistHistory(false)
+                    .enableAlias(false)
+                    .enableExport(false);
+            if(hosted)
+                sessions[i] = host.openSession(builder.create());
+            else {
+                inputs[i] = new PipedOutputStream();
+                Settings settings = builder.inputStream(new PipedInputStream(inputs[i])).create();
+                consoles[i] = new AeshConsoleBuilder().settings(settings).commandRegistry(registry).create();
+                consoles[i].start();
+            }
+        }
+        long opened = System.nanoTime();
+        int idleThreads = threads.getThreadCount() - threadsBefore;
+        long heap = usedHeap() - heapBefore;
+
+        for(int i = 0; i < count; i++) {
+            byte[] line = ("hello --name session-" + i + Config.getLineSeparator()).getBytes();
+            if(hosted)
+                sessions[i].write(line);
+            else {
+                inputs[i].write(line);
+                inputs[i].flush();
+            }
+        }
+        for(int i = 0; i < count; i++)
+            while(!outputs[i].toString().contains("hello session-" + i))
+                Thread.sleep(1);
+        long executed = System.nanoTime();
+
+        System.out.println("sessions:       " + count + (hosted ? " in a session host" : " consoles"));
+        System.out.println("open:           " + (opened - start) / 1000000 + " ms");
+        System.out.println("run command:    " + (executed - opened) / 1000000 + " ms");
+        System.out.println("idle threads:   " + idleThreads);
+        System.out.println("peak threads:   " + (threads.getPeakThreadCount() - threadsBefore));
+        System.out.println("heap/session:   " + heap / count / 1024 + " kB");
+
+        if(hosted)
+            host.stop();
+        else
+            for(AeshConsole console : consoles)
+                console.stop();
+        System.exit(0);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+}
@@ -35,12 +35,17 @@ import org.jboss.aesh.terminal.TestTerminal;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -83,6 +88,79 @@ public class AeshCommandPipelineTest {
         aeshConsole.stop();
     }
 
+    @Test
+    public void testStreamingPipeline() throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .logging(true)
+                .create();
+
+        //much more than the pipe can hold, so both commands must run at the same time
+        ConsumeCommand consume = new ConsumeCommand();
+        ProduceCommand produce = new ProduceCommand(200000, consume);
+
+        CommandRegistry registry = new AeshCommandRegistryBuilder()
+                .command(produce)
+                .command(consume)
+                .create();
+
+        AeshConsole aeshConsole = new AeshConsoleBuilder()
+                .settings(settings)
+                .commandRegistry(registry)
+                .prompt(new Prompt(""))
+                .create();
+        aeshConsole.start();
+
+        outputStream.write(("produce | consume"+ Config.getLineSeparator()).getBytes());
+        outputStream.flush();
+
+        assertTrue(consume.finished.await(30, TimeUnit.SECONDS));
+        assertEquals(produce.expectedBytes(), consume.bytesRead);
+        assertTrue(produce.downstreamStartedFirst);
+        aeshConsole.stop();
+    }
+
+    @Test
+    public void testRedirectToFile() throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+        File file = File.createTempFile("aesh-redirect", ".txt");
+        file.deleteOnExit();
+
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .logging(true)
+                .create();
+
+        ProduceCommand produce = new ProduceCommand(1000, null);
+        CommandRegistry registry = new AeshCommandRegistryBuilder()
+                .command(produce)
+                .create();
+
+        AeshConsole aeshConsole = new AeshConsoleBuilder()
+                .settings(settings)
+                .commandRegistry(registry)
+                .prompt(new Prompt(""))
+                .create();
+        aeshConsole.start();
+
+        outputStream.write(("produce > "+file.getAbsolutePath()+Config.getLineSeparator()).getBytes());
+        outputStream.flush();
+
+        long end = System.currentTimeMillis() + 10000;
+        while(file.length() < produce.expectedBytes() && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals(produce.expectedBytes(), file.length());
+        aeshConsole.stop();
+    }
+
     @CommandDefinition(name ="pipe", description = "")
     public static class PipeCommand implements Command {
 
@@ -109,4 +187,56 @@ public class AeshCommandPipelineTest {
             return CommandResult.SUCCESS;
         }
     }
+
+    @CommandDefinition(name = "produce", description = "")
+    public static class ProduceCommand implements Command {
+
+        private static final String LINE = "0123456789abcdefghijklmnopqrstuvwxyz";
+        private final int lines;
+        private final ConsumeCommand downstream;
+        private volatile boolean downstreamStartedFirst = false;
+
+        public ProduceCommand(int lines, ConsumeCommand downstream) {
+            this.lines = lines;
+            this.downstream = downstream;
+        }
+
+        long expectedBytes() {
+            return (long) lines * (LINE.length() + Config.getLineSeparator().length());
+        }
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            PrintStream out = commandInvocation.getShell().out();
+            for(int i = 0; i < lines; i++)
+                out.println(LINE);
+            //the next command have read some of the output before all of it is written
+            if(downstream != null)
+                downstreamStartedFirst = downstream.progress > 0;
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "consume", description = "")
+    public static class ConsumeCommand implements Command {
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile long bytesRead = 0;
+        private volatile long progress = 0;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            InputStream in = commandInvocation.getShell().in().getStdIn();
+            byte[] buffer = new byte[4096];
+            long count = 0;
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                count += read;
+                progress = count;
+            }
+            bytesRead = count;
+            finished.countDown();
+            return CommandResult.SUCCESS;
+        }
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.aesh;
+
+import org.jboss.aesh.cl.Arguments;
+import org.jboss.aesh.cl.CommandDefinition;
+import org.jboss.aesh.console.AeshConsole;
+import org.jboss.aesh.console.AeshConsoleBuilder;
+import org.jboss.aesh.console.AeshConsoleImpl;
+import org.jboss.aesh.console.BatchExecutor;
+import org.jboss.aesh.console.BatchListener;
+import org.jboss.aesh.console.Config;
+import org.jboss.aesh.console.Prompt;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandResult;
+import org.jboss.aesh.console.command.invocation.CommandInvocation;
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.settings.Settings;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.io.Pipe;
+import org.jboss.aesh.terminal.TestTerminal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class BatchExecutorTest {
+
+    private static final String NL = Config.getLineSeparator();
+
+    private AeshConsole aeshConsole;
+    private ByteArrayOutputStream terminalOut;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private BatchExecutor executor;
+
+    @Before
+    public void setUp() {
+        terminalOut = new ByteArrayOutputStream();
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(new ByteArrayInputStream(new byte[0]))
+                .outputStream(new PrintStream(terminalOut))
+                .logging(true)
+                .create();
+
+        aeshConsole = new AeshConsoleBuilder()
+                .settings(settings)
+                .commandRegistry(new AeshCommandRegistryBuilder()
+                        .command(EchoCommand.class)
+                        .command(FailCommand.class)
+                        .command(UpperCommand.class)
+                        .command(GenerateCommand.class)
+                        .command(CountCommand.class)
+                        .create())
+                .prompt(new Prompt("aesh> "))
+                .create();
+
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        executor = ((AeshConsoleImpl) aeshConsole).createBatchExecutor(new PrintStream(out), new PrintStream(err));
+    }
+
+    @After
+    public void tearDown() {
+        aeshConsole.stop();
+    }
+
+    @Test
+    public void testOutputAndExitValue() throws InterruptedException {
+        //setting the prompt when the console is created draws it
+        String terminal = terminalOut.toString();
+        assertEquals(0, executor.execute("echo foo bar"));
+        assertEquals("foo bar" + NL, out.toString());
+        assertEquals(1, executor.execute("fail"));
+        assertEquals(1, executor.execute("nosuchcommand"));
+        //nothing is written to the terminal, not even a prompt
+        assertEquals(terminal, terminalOut.toString());
+    }
+
+    @Test
+    public void testEndAndOr() throws InterruptedException {
+        assertEquals(0, executor.execute("echo a; echo b"));
+        assertEquals(0, executor.execute("echo c && echo d"));
+        assertEquals(1, executor.execute("fail && echo no"));
+        assertEquals(0, executor.execute("fail || echo e"));
+        assertEquals(0, executor.execute("echo f || echo no"));
+        assertEquals(0, executor.execute("fail && echo no || echo g"));
+        assertEquals("a" + NL + "b" + NL + "c" + NL + "d" + NL + "e" + NL + "f" + NL + "g" + NL, out.toString());
+    }
+
+    @Test
+    public void testPipeline() throws InterruptedException {
+        assertEquals(0, executor.execute("echo foo | upper | upper"));
+        assertEquals("FOO" + NL, out.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testPipelineLargerThanPipe() throws InterruptedException {
+        //more than the pipe can hold, the commands have to run at the same time
+        assertEquals(0, executor.execute("generate | count"));
+        assertEquals(GenerateCommand.SIZE + NL, out.toString());
+        //a command that do not read its input do not block the one writing to it
+        assertEquals(1, executor.execute("generate | fail"));
+        assertEquals(0, executor.execute("generate | fail || echo done"));
+        assertEquals(GenerateCommand.SIZE + NL + "done" + NL, out.toString());
+    }
+
+    @Test
+    public void testRedirection() throws InterruptedException, IOException {
+        File file = File.createTempFile("aesh-batch", ".txt");
+        file.deleteOnExit();
+        assertEquals(0, executor.execute("echo foo > " + file.getAbsolutePath()));
+        assertEquals(0, executor.execute("echo bar >> " + file.getAbsolutePath()));
+        assertEquals("foo" + NL + "bar" + NL, new String(Files.readAllBytes(file.toPath())));
+        assertEquals(0, out.size());
+
+        assertEquals(0, executor.execute("upper < " + file.getAbsolutePath()));
+        assertEquals("FOO" + NL + "BAR" + NL, out.toString());
+
+        assertEquals(1, executor.execute("echo foo >"));
+        assertTrue(err.toString().contains("syntax error"));
+    }
+
+    @Test
+    public void testScript() throws IOException, InterruptedException {
+        String script = "# a comment" + NL + "echo foo" + NL + NL + "fail" + NL + "echo bar | upper" + NL;
+        final List<String> results = new ArrayList<>();
+        int exitValue = executor.execute(new StringReader(script), new BatchListener() {
+            @Override
+            public void lineExecuted(int lineNumber, String line, int exitValue) {
+                results.add(lineNumber + ":" + line + ":" + exitValue);
+            }
+        });
+        assertEquals(0, exitValue);
+        assertEquals(3, results.size());
+        assertEquals("2:echo foo:0", results.get(0));
+        assertEquals("4:fail:1", results.get(1));
+        assertEquals("5:echo bar | upper:0", results.get(2));
+        assertEquals("foo" + NL + "BAR" + NL, out.toString());
+    }
+
+    @CommandDefinition(name = "echo", description = "")
+    public static class EchoCommand implements Command {
+
+        @Arguments
+        private List<String> arguments;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            StringBuilder builder = new StringBuilder();
+            if(arguments != null) {
+                for(String argument : arguments) {
+                    if(builder.length() > 0)
+                        builder.append(' ');
+                    builder.append(argument);
+                }
+            }
+            commandInvocation.getShell().out().println(builder.toString());
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "fail", description = "")
+    public static class FailCommand implements Command {
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            return CommandResult.FAILURE;
+        }
+    }
+
+    @CommandDefinition(name = "upper", description = "")
+    public static class UpperCommand implements Command {
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            InputStream in = commandInvocation.getShell().in().getStdIn();
+            ByteArrayOutputStream input = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while((read = in.read(buffer)) != -1)
+                input.write(buffer, 0, read);
+            commandInvocation.getShell().out().print(input.toString().toUpperCase());
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "generate", description = "")
+    public static class GenerateCommand implements Command {
+
+        static final int SIZE = 16 * Pipe.DEFAULT_CAPACITY;
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            byte[] line = new byte[1024];
+            Arrays.fill(line, (byte) 'x');
+            PrintStream out = commandInvocation.getShell().out();
+            for(int written = 0; written < SIZE && !out.checkError(); written += line.length)
+                out.write(line, 0, line.length);
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "count", description = "")
+    public static class CountCommand implements Command {
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            InputStream in = commandInvocation.getShell().in().getStdIn();
+            byte[] buffer = new byte[1024];
+            long count = 0;
+            int read;
+            while((read = in.read(buffer)) != -1)
+                count += read;
+            commandInvocation.getShell().out().println(count);
+            return CommandResult.SUCCESS;
+        }
+    }
+}
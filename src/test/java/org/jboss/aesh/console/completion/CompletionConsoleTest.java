@@ -20,6 +20,7 @@
 package org.jboss.aesh.console.completion;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -27,6 +28,8 @@ import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
 import org.jboss.aesh.cl.internal.ProcessedOptionBuilder;
@@ -274,6 +277,143 @@ public class CompletionConsoleTest extends BaseConsoleTest {
         console.stop();
     }
 
+    @Test
+    public void slowCompletion() throws Exception {
+        final CountDownLatch slowStarted = new CountDownLatch(1);
+        Completion fast = new Completion() {
+            @Override
+            public void complete(CompleteOperation co) {
+                if(co.getBuffer().equals("foo"))
+                    co.addCompletionCandidate("foobar");
+            }
+        };
+        Completion slow = new Completion() {
+            @Override
+            public void complete(CompleteOperation co) {
+                try {
+                    slowStarted.countDown();
+                    if(co.getBuffer().equals("foo"))
+                        Thread.sleep(10000);
+                    else if(co.getBuffer().equals("ba")) {
+                        Thread.sleep(300);
+                        co.addCompletionCandidate("bazooka");
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .readInputrc(false)
+                .completionTimeout(100)
+                .create();
+
+        Console console = new Console(settings);
+        console.addCompletion(fast);
+        console.addCompletion(slow);
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                return 0;
+            }
+        });
+        console.start();
+
+        //the slow completion do not stop the fast one from completing
+        long start = System.currentTimeMillis();
+        outputStream.write("foo".getBytes());
+        outputStream.write(completeChar.getFirstValue());
+        outputStream.flush();
+        waitForBuffer(console, "foobar ");
+        assertEquals("foobar ", console.getBuffer());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(slowStarted.await(1, TimeUnit.SECONDS));
+        assertEquals(1, console.getCompletionMetrics().get(slow).getLateCount());
+
+        //typing cancel the completion that is still running
+        outputStream.write("x".getBytes());
+        outputStream.flush();
+        waitForBuffer(console, "foobar x");
+        assertEquals(1, console.getCompletionMetrics().get(slow).getCancelledCount());
+        assertEquals(1, console.getCompletionMetrics().get(fast).getCount());
+
+        //the late result is used by the next tab
+        outputStream.write(LINE_SEPARATOR);
+        outputStream.write("ba".getBytes());
+        outputStream.write(completeChar.getFirstValue());
+        outputStream.flush();
+        Thread.sleep(500);
+        assertEquals("ba", console.getBuffer());
+        outputStream.write(completeChar.getFirstValue());
+        outputStream.flush();
+        waitForBuffer(console, "bazooka ");
+        assertEquals("bazooka ", console.getBuffer());
+        assertEquals(2, console.getCompletionMetrics().get(slow).getLateCount());
+        assertTrue(console.getCompletionMetrics().get(slow).getMaxTime(TimeUnit.MILLISECONDS) >= 300);
+
+        console.stop();
+    }
+
+    @Test
+    public void testNoCompletionTimeoutByDefault() throws Exception {
+        Completion slow = new Completion() {
+            @Override
+            public void complete(CompleteOperation co) {
+                try {
+                    //longer than the timeout used to be
+                    Thread.sleep(1200);
+                    co.addCompletionCandidate("bazooka");
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        PipedOutputStream outputStream = new PipedOutputStream();
+        PipedInputStream pipedInputStream = new PipedInputStream(outputStream);
+        Settings settings = new SettingsBuilder()
+                .terminal(new TestTerminal())
+                .inputStream(pipedInputStream)
+                .outputStream(new PrintStream(new ByteArrayOutputStream()))
+                .readInputrc(false)
+                .create();
+        assertEquals(0, settings.getCompletionTimeout());
+
+        Console console = new Console(settings);
+        console.addCompletion(slow);
+        console.setConsoleCallback(new AeshConsoleCallback() {
+            @Override
+            public int execute(ConsoleOperation output) throws InterruptedException {
+                return 0;
+            }
+        });
+        console.start();
+
+        //one tab is enough, the handler wait for the slow completion
+        outputStream.write("ba".getBytes());
+        outputStream.write(completeChar.getFirstValue());
+        outputStream.flush();
+        waitForBuffer(console, "bazooka ");
+        assertEquals("bazooka ", console.getBuffer());
+        assertEquals(0, console.getCompletionMetrics().get(slow).getLateCount());
+
+        console.stop();
+    }
+
+    private static void waitForBuffer(Console console, String buffer) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while(!buffer.equals(console.getBuffer()) && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+    }
+
     class CompletionConsoleCallback extends AeshConsoleCallback {
         private transient int count = 0;
         final Console console;
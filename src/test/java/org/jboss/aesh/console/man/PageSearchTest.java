@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PageSearchTest {
+
+    private static final List<String> LINES = Arrays.asList(
+            "error: one", "ok", "error: two error", "ok", "ok", "warning", "error: three", "ok");
+
+    @Test
+    public void testNextAndPrevious() throws Exception {
+        TerminalPage page = new TerminalPage(new ListParser(LINES), 80);
+        //start in the middle, the scan continue from the top
+        PageSearch search = awaitDone(page, "error", 4);
+
+        assertEquals(0, search.next(-1));
+        assertEquals(2, search.next(0));
+        assertEquals(6, search.next(2));
+        assertEquals(PageSearch.NONE, search.next(6));
+        assertEquals(2, search.previous(6));
+        assertEquals(0, search.previous(2));
+        assertEquals(PageSearch.NONE, search.previous(0));
+        assertEquals(3, search.getLineCount());
+        assertEquals(4, search.getMatchCount());
+    }
+
+    @Test
+    public void testPattern() throws Exception {
+        TerminalPage page = new TerminalPage(new ListParser(LINES), 80);
+        assertEquals(5, awaitDone(page, "^(ok|warning)$", 0).getLineCount());
+        //not a valid regular expression, so it is searched for as it is
+        assertEquals(0, awaitDone(page, "error: [", 0).getLineCount());
+        assertEquals(1, awaitDone(page, "ning", 0).getLineCount());
+    }
+
+    @Test
+    public void testUnknownUntilScanned() throws Exception {
+        GrowingLines lines = new GrowingLines();
+        lines.add("ok", "error", "ok");
+        TerminalPage page = new TerminalPage(lines, 80);
+        final CountDownLatch notified = new CountDownLatch(1);
+        PageSearch search = new PageSearch(page, "error", 0, new Runnable() {
+            @Override
+            public void run() {
+                notified.countDown();
+            }
+        });
+        try {
+            //the first line with a match is known, but not what come after it
+            assertEquals(1, awaitKnown(search, -1));
+            assertEquals(PageSearch.UNKNOWN, search.next(1));
+
+            search.waitForResult();
+            lines.add("error");
+            assertTrue(notified.await(10, TimeUnit.SECONDS));
+            assertEquals(3, awaitKnown(search, 1));
+
+            lines.complete();
+            assertEquals(PageSearch.NONE, awaitKnown(search, 3));
+        }
+        finally {
+            search.cancel();
+        }
+    }
+
+    private static int awaitKnown(PageSearch search, int after) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        int match = search.next(after);
+        while(match == PageSearch.UNKNOWN && System.currentTimeMillis() < end) {
+            Thread.sleep(5);
+            match = search.next(after);
+        }
+        return match;
+    }
+
+    private static PageSearch awaitDone(TerminalPage page, String query, int start) throws InterruptedException {
+        PageSearch search = new PageSearch(page, query, start, null);
+        long end = System.currentTimeMillis() + 10000;
+        while(!search.isDone() && System.currentTimeMillis() < end)
+            Thread.sleep(5);
+        assertTrue(search.isDone());
+        return search;
+    }
+
+    private static class ListParser implements FileParser {
+        private final List<String> lines;
+
+        ListParser(List<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public List<String> loadPage(int columns) {
+            return new ArrayList<>(lines);
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+    }
+
+    /**
+     * Lines that are found when the test add them
+     */
+    private static class GrowingLines implements StreamingFileParser, LineSource {
+        private final List<String> lines = new ArrayList<>();
+        private boolean complete;
+
+        synchronized void add(String... added) {
+            lines.addAll(Arrays.asList(added));
+            notifyAll();
+        }
+
+        synchronized void complete() {
+            complete = true;
+            notifyAll();
+        }
+
+        @Override
+        public LineSource open() {
+            return this;
+        }
+
+        @Override
+        public List<String> loadPage(int columns) throws IOException {
+            throw new IOException("not loaded");
+        }
+
+        @Override
+        public String getName() {
+            return "growing";
+        }
+
+        @Override
+        public synchronized int size() {
+            return lines.size();
+        }
+
+        @Override
+        public synchronized boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public synchronized int awaitLines(int count) {
+            try {
+                while(lines.size() < count && !complete)
+                    wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return lines.size();
+        }
+
+        @Override
+        public synchronized String getLine(int line) {
+            return line < lines.size() ? lines.get(line) : "";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
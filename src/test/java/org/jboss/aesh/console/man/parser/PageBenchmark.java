@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man.parser;
+
+import org.jboss.aesh.console.man.PageSearch;
+import org.jboss.aesh.console.man.TerminalPage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports how long it takes to show the first and the last page of a large
+ * log with a TextFileParser, to find the first match and every match of a
+ * search in it, and how long loading every line up front, the way a
+ * FileParser does, takes for the same file.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.man.parser.PageBenchmark [megabytes]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PageBenchmark {
+
+    private static final int ROWS = 50;
+    private static final int COLUMNS = 120;
+
+    public static void main(String[] args) throws Exception {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 512) * 1024 * 1024;
+        File file = File.createTempFile("aesh-page-benchmark", ".log");
+        file.deleteOnExit();
+        try {
+            write(file, size);
+
+            long start = System.nanoTime();
+            TerminalPage page = new TerminalPage(new TextFileParser(file), COLUMNS);
+            page.awaitLines(ROWS);
+            for(int i = 0; i < ROWS; i++)
+                page.getRows(i, COLUMNS);
+            long firstPage = System.nanoTime() - start;
+
+            int lines = page.awaitLines(Integer.MAX_VALUE);
+            long indexed = System.nanoTime() - start;
+            start = System.nanoTime();
+            for(int i = lines - ROWS; i < lines; i++)
+                page.getRows(i, COLUMNS);
+            long lastPage = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            PageSearch search = new PageSearch(page, "request \\d+77 handled with", 0, null);
+            int match = PageSearch.UNKNOWN;
+            while(match == PageSearch.UNKNOWN)
+                match = search.next(-1);
+            long firstMatch = System.nanoTime() - start;
+            while(!search.isDone())
+                Thread.sleep(1);
+            long searched = System.nanoTime() - start;
+            page.clear();
+
+            System.out.println("file:        " + size / 1024 / 1024 + " MB, " + lines + " lines");
+            System.out.println("first page:  " + firstPage / 1000 + " us");
+            System.out.println("indexed:     " + indexed / 1000000 + " ms");
+            System.out.println("last page:   " + lastPage / 1000 + " us");
+            System.out.println("first match: " + firstMatch / 1000 + " us, line " + match);
+            System.out.println("searched:    " + searched / 1000000 + " ms, " + search.getMatchCount() + " matches");
+
+            start = System.nanoTime();
+            try {
+                List<String> all = new ArrayList<>();
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    String line;
+                    while((line = reader.readLine()) != null)
+                        all.addAll(TerminalPage.wrap(line, COLUMNS));
+                }
+                System.out.println("load all:    " + (System.nanoTime() - start) / 1000000 + " ms");
+            }
+            catch (OutOfMemoryError e) {
+                System.out.println("load all:    out of memory after " + (System.nanoTime() - start) / 1000000 + " ms");
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    private static void write(File file, long size) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            long written = 0;
+            for(int i = 0; written < size; i++) {
+                String line = "2015-06-01 12:00:00,000 INFO  [org.jboss.aesh.Service] (thread-" + (i % 16) +
+                        ") request " + i + " handled" + (i % 7 == 0 ? " with a message long enough to be wrapped " +
+                        "on a terminal that is not very wide, which log lines often are" : "");
+                writer.write(line);
+                writer.newLine();
+                written += line.length() + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.man.parser;
+
+import org.jboss.aesh.console.man.LineSource;
+import org.jboss.aesh.console.man.TerminalPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class TextFileParserTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("aesh-page", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        write("first\r\nsecond\n\nlast æøå");
+        try (LineSource lines = new MappedLineSource(file)) {
+            assertEquals(4, lines.awaitLines(Integer.MAX_VALUE));
+            assertTrue(lines.isComplete());
+            assertEquals("first", lines.getLine(0));
+            assertEquals("second", lines.getLine(1));
+            assertEquals("", lines.getLine(2));
+            assertEquals("last æøå", lines.getLine(3));
+            assertEquals("", lines.getLine(4));
+        }
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        try (LineSource lines = new MappedLineSource(file)) {
+            assertEquals(0, lines.awaitLines(1));
+            assertTrue(lines.isComplete());
+        }
+        assertFalse(new TerminalPage(new TextFileParser(file), 80).hasData());
+    }
+
+    @Test
+    public void testRandomAccess() throws IOException {
+        List<String> expected = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 1000; i++) {
+            String line = "line " + i + " " + new String(new char[i % 37]).replace('\0', 'x');
+            expected.add(line);
+            builder.append(line).append('\n');
+        }
+        write(builder.toString());
+
+        //regions of 256 bytes, so lines cross the regions
+        try (LineSource lines = new MappedLineSource(file, 8)) {
+            assertEquals(1000, lines.awaitLines(Integer.MAX_VALUE));
+            for(int i : new int[] { 999, 0, 64, 63, 65, 500, 501, 502, 128, 127 })
+                assertEquals(expected.get(i), lines.getLine(i));
+            for(int i = 0; i < 1000; i++)
+                assertEquals(expected.get(i), lines.getLine(i));
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 10000; i++)
+            builder.append("line ").append(i).append('\n');
+        write(builder.toString());
+
+        try (LineSource lines = new MappedLineSource(file, 12)) {
+            assertEquals(10000, lines.awaitLines(Integer.MAX_VALUE));
+            try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+                truncate.setLength(0);
+            }
+            //the mapped pages are gone, reading them close the source instead of failing
+            assertEquals("", lines.getLine(9999));
+            assertEquals("", lines.getLine(0));
+        }
+    }
+
+    @Test
+    public void testLoadPage() throws IOException {
+        write("short\nlonger than ten\n");
+        assertEquals(Arrays.asList("short", "longer tha", "n ten"), new TextFileParser(file).loadPage(10));
+    }
+
+    @Test
+    public void testWrap() {
+        assertEquals(Arrays.asList("abc"), TerminalPage.wrap("abc", 10));
+        assertEquals(Arrays.asList("abcd", "ef"), TerminalPage.wrap("abcdef", 4));
+        assertEquals(Arrays.asList("a       b"), TerminalPage.wrap("a\tb", 10));
+        assertEquals(Arrays.asList(""), TerminalPage.wrap("", 10));
+    }
+
+    private void write(String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -29,6 +29,9 @@ import org.jboss.aesh.console.Config;
 import org.jboss.aesh.console.Console;
 import org.jboss.aesh.console.ConsoleOperation;
 import org.jboss.aesh.console.Prompt;
+import org.jboss.aesh.console.settings.SettingsBuilder;
+import org.jboss.aesh.edit.Mode;
+import org.jboss.aesh.terminal.Key;
 import org.junit.Test;
 
 /**
@@ -66,4 +69,66 @@ public class ConsolePasteTest extends BaseConsoleTest {
            }
         });
     }
+
+    @Test
+    public void pasteLongLine() throws Exception {
+        final StringBuilder line = new StringBuilder();
+        for(int i = 0; i < 2000; i++)
+            line.append(" echo ").append(i);
+        line.deleteCharAt(0);
+        invokeTestConsole(new Setup() {
+            @Override
+            public void call(Console console, OutputStream out) throws IOException {
+                out.write((line + Config.getLineSeparator()).getBytes());
+            }
+        }, new Verify() {
+           @Override
+           public int call(Console console, ConsoleOperation op) {
+               assertEquals(line.toString(), op.getBuffer());
+               return 0;
+           }
+        });
+    }
+
+    @Test
+    public void pasteInTheMiddleOfTheLine() throws Exception {
+        invokeTestConsole(new Setup() {
+            @Override
+            public void call(Console console, OutputStream out) throws IOException {
+                out.write("foo bar".getBytes());
+                out.write(Key.CTRL_A.getFirstValue());
+                out.write(("hello " + Config.getLineSeparator()).getBytes());
+            }
+        }, new Verify() {
+           @Override
+           public int call(Console console, ConsoleOperation op) {
+               assertEquals("hello foo bar", op.getBuffer());
+               return 0;
+           }
+        });
+    }
+
+    @Test
+    public void pasteInViCommandMode() throws Exception {
+        SettingsBuilder builder = new SettingsBuilder();
+        builder.mode(Mode.VI);
+        builder.enableAlias(false);
+        builder.persistHistory(false);
+        invokeTestConsole(1, new Setup() {
+            @Override
+            public void call(Console console, OutputStream out) throws IOException {
+                out.write("abc".getBytes());
+                out.write(Key.ESC.getFirstValue());
+                out.flush();
+                //the rest is parsed as vi commands, 0 moves to start and i starts insert
+                out.write(("0ifoo " + Config.getLineSeparator()).getBytes());
+            }
+        }, new Verify() {
+           @Override
+           public int call(Console console, ConsoleOperation op) {
+               assertEquals("foo abc", op.getBuffer());
+               return 0;
+           }
+        }, builder);
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.reader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class ConsoleInputSessionTest {
+
+    @Test
+    public void testMultiByteInputSplitOverReads() throws Exception {
+        String input = "foo hé € 😀 bar";
+        byte[] bytes = input.getBytes(Charset.defaultCharset());
+        //only compare with what the default charset can represent
+        String expected = new String(bytes, Charset.defaultCharset());
+
+        //return one byte for each read
+        InputStream stream = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        ConsoleInputSession session = new ConsoleInputSession(stream);
+
+        assertArrayEquals(toCodePoints(expected), readUntilEnd(session));
+    }
+
+    @Test
+    public void testWriteToInput() throws Exception {
+        PipedOutputStream outputStream = new PipedOutputStream();
+        ConsoleInputSession session = new ConsoleInputSession(new PipedInputStream(outputStream));
+
+        session.writeToInput("a😀b");
+        assertArrayEquals(new int[] {'a', 0x1F600, 'b'}, session.readAll());
+
+        outputStream.close();
+        assertArrayEquals(new int[] {-1}, session.readAll());
+    }
+
+    @Test
+    public void testCodePointBufferWrapsAround() throws Exception {
+        CodePointBuffer buffer = new CodePointBuffer(4);
+        buffer.write("abc");
+        assertArrayEquals(new int[] {'a', 'b', 'c'}, buffer.readAll());
+        buffer.write("defg");
+        assertArrayEquals(new int[] {'d', 'e', 'f', 'g'}, buffer.readAll());
+        buffer.close();
+        assertArrayEquals(new int[] {-1}, buffer.readAll());
+    }
+
+    @Test
+    public void testEndOfInputIsNotShared() throws Exception {
+        CodePointBuffer buffer = new CodePointBuffer(4);
+        buffer.close();
+        int[] end = buffer.readAll();
+        end[0] = 'a';
+        assertArrayEquals(new int[] {-1}, buffer.readAll());
+    }
+
+    @Test
+    public void testCodePointBufferGrowsWhenWrappedAround() throws Exception {
+        CodePointBuffer buffer = new CodePointBuffer(8192);
+        buffer.write(sequence(0, 1000));
+        assertArrayEquals(sequence(0, 1000), buffer.readAll());
+        //starts at the end of the initial buffer and fill it twice
+        buffer.write(sequence(1000, 3000));
+        assertArrayEquals(sequence(1000, 3000), buffer.readAll());
+    }
+
+    private static int[] sequence(int from, int to) {
+        int[] codePoints = new int[to - from];
+        for(int i = 0; i < codePoints.length; i++)
+            codePoints[i] = 'a' + (from + i) % 26;
+        return codePoints;
+    }
+
+    @Test
+    public void testCodePointBufferBlocksWhenFull() throws Exception {
+        final CodePointBuffer buffer = new CodePointBuffer(2);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buffer.write("abcde");
+                    buffer.close();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+
+        StringBuilder builder = new StringBuilder();
+        int[] input = buffer.readAll();
+        while(input[0] != -1) {
+            assertTrue(input.length <= 2);
+            for(int c : input)
+                builder.appendCodePoint(c);
+            input = buffer.readAll();
+        }
+        writer.join();
+        assertEquals("abcde", builder.toString());
+    }
+
+    private static int[] readUntilEnd(ConsoleInputSession session) {
+        int[] all = new int[0];
+        int[] input = session.readAll();
+        while(input[0] != -1) {
+            int length = all.length;
+            all = Arrays.copyOf(all, length + input.length);
+            System.arraycopy(input, 0, all, length, input.length);
+            input = session.readAll();
+        }
+        return all;
+    }
+
+    private static int[] toCodePoints(String input) {
+        int[] codePoints = new int[input.codePointCount(0, input.length())];
+        for(int i = 0, c = 0; i < input.length(); i += Character.charCount(codePoints[c++]))
+            codePoints[c] = input.codePointAt(i);
+        return codePoints;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.reader;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Types keystrokes through a ConsoleInputSession and reports how many bytes
+ * are allocated for each keystroke by the reader and the consumer thread.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.reader.InputAllocationBenchmark [keystrokes]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class InputAllocationBenchmark {
+
+    private static final String TYPED = "echo hé €\n";
+
+    public static void main(String[] args) throws Exception {
+        int keystrokes = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        byte[][] keys = new byte[TYPED.length()][];
+        for(int i = 0; i < keys.length; i++)
+            keys[i] = TYPED.substring(i, i + 1).getBytes();
+
+        PipedOutputStream outputStream = new PipedOutputStream();
+        ConsoleInputSession session = new ConsoleInputSession(new PipedInputStream(outputStream, 64 * 1024));
+
+        //warm up
+        type(outputStream, session, keys, keystrokes / 10);
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] threads = threadBean.getAllThreadIds();
+        long before = sum(threadBean.getThreadAllocatedBytes(threads));
+        long start = System.nanoTime();
+        int read = type(outputStream, session, keys, keystrokes);
+        long time = System.nanoTime() - start;
+        long allocated = sum(threadBean.getThreadAllocatedBytes(threads)) - before;
+
+        System.out.println("keystrokes:          " + keystrokes);
+        System.out.println("code points read:    " + read);
+        System.out.println("time:                " + time / 1000000 + " ms");
+        System.out.println("bytes per keystroke: " + allocated / keystrokes);
+
+        session.stop();
+    }
+
+    //write one keystroke at a time and wait for it before writing the next
+    private static int type(PipedOutputStream out, ConsoleInputSession session,
+                            byte[][] keys, int keystrokes) throws Exception {
+        int read = 0;
+        for(int i = 0; i < keystrokes; i++) {
+            out.write(keys[i % keys.length]);
+            out.flush();
+            read += session.readAll().length;
+        }
+        return read;
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for(long value : values)
+            if(value > 0)
+                sum += value;
+        return sum;
+    }
+}
@@ -31,6 +31,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.jboss.aesh.console.BaseConsoleTest;
 import org.jboss.aesh.console.Config;
@@ -55,12 +59,14 @@ import org.junit.Test;
 
      @Test
      public void pipeCommands() throws Throwable {
-         invokeTestConsole(new Setup() {
+         RedirectionConsoleCallback callback = new RedirectionConsoleCallback();
+         invokeTestConsole(2, new Setup() {
              @Override
              public void call(Console console, OutputStream out) throws IOException {
                  out.write(("ls | find *. -print" + Config.getLineSeparator()).getBytes());
              }
-         }, new RedirectionConsoleCallback());
+         }, callback);
+         assertBuffers(callback.buffers, "ls ", " find *. -print");
      }
 
      @Test
@@ -103,6 +109,7 @@ import org.junit.Test;
          PrintWriter writer = new PrintWriter(foo, "UTF-8");
          writer.print("foo bar");
          writer.close();
+         final List<String> buffers = Collections.synchronizedList(new ArrayList<String>());
          invokeTestConsole(2, new Setup() {
                      @Override
                      public void call(Console console, OutputStream out) throws IOException {
@@ -110,11 +117,11 @@ import org.junit.Test;
                          out.flush();
                      }
                  }, new Verify() {
-                     private int count = 0;
-
+                     //the commands in a pipeline run at the same time, so check them by name
                      @Override
                      public int call(Console console, ConsoleOperation op) {
-                         if (count == 0) {
+                         buffers.add(op.getBuffer());
+                         if (op.getBuffer().startsWith("ls")) {
                              assertEquals("ls ", op.getBuffer());
                              try {
                                  assertTrue(console.getShell().in().getStdIn().available() > 0);
@@ -127,17 +134,31 @@ import org.junit.Test;
                              String fileContent = s.hasNext() ? s.next() : "";
                              assertEquals("foo bar", fileContent);
                          }
-                         else if (count == 1) {
+                         else {
                              assertEquals(" man", op.getBuffer());
                              assertEquals(ControlOperator.NONE, op.getControlOperator());
                          }
-                         count++;
                          return 0;
                      }
                  }
          );
+         assertBuffers(buffers, "ls ", " man");
      }
 
+    /**
+     * Every command in the pipeline must have run exactly once, in any order
+     */
+    private static void assertBuffers(List<String> buffers, String... expected) {
+        List<String> sortedExpected = new ArrayList<>(Arrays.asList(expected));
+        Collections.sort(sortedExpected);
+        List<String> sortedBuffers;
+        synchronized(buffers) {
+            sortedBuffers = new ArrayList<>(buffers);
+        }
+        Collections.sort(sortedBuffers);
+        assertEquals(sortedExpected, sortedBuffers);
+    }
+
     public static Path createTempDirectory() throws IOException {
         final Path tmp;
         if(Config.isOSPOSIXCompatible())
@@ -152,17 +173,17 @@ import org.junit.Test;
     }
 
      class RedirectionConsoleCallback implements Verify {
-         private int count = 0;
 
+         private final List<String> buffers = Collections.synchronizedList(new ArrayList<String>());
+
+         //the commands in a pipeline run at the same time, so check them by name
          @Override
          public int call(Console console, ConsoleOperation output) {
-             if(count == 0) {
+             buffers.add(output.getBuffer());
+             if(output.getBuffer().startsWith("ls"))
                  assertEquals("ls ", output.getBuffer());
-                 count++;
-             }
-             else if(count == 1) {
+             else
                  assertEquals(" find *. -print", output.getBuffer());
-             }
              return 0;
          }
      }
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.registry;
+
+import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
+import org.jboss.aesh.cl.parser.CommandLineParser;
+import org.jboss.aesh.cl.parser.CommandLineParserException;
+import org.jboss.aesh.console.command.container.AeshCommandContainer;
+import org.jboss.aesh.console.command.container.CommandContainer;
+import org.jboss.aesh.console.command.registry.MutableCommandRegistry;
+import org.jboss.aesh.parser.Parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Completes command names in a registry with 50k commands, by default, where
+ * every hundredth command is a group command with ten group commands.
+ * Compared with looking at every command the way MutableCommandRegistry
+ * did before the commands were stored in a trie.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.registry.CommandRegistryBenchmark [commands]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class CommandRegistryBenchmark {
+
+    private static final String[] LINES = {"", "c", "cmd-1", "cmd-12", "cmd-123", "cmd-1234", "cmd-12345",
+            "missing", "group-00", "group-001 ", "group-001 sub-1", "group-001   sub-9"};
+
+    public static void main(String[] args) throws CommandLineParserException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        List<CommandContainer> containers = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            if(i % 100 == 0) {
+                AeshCommandContainer group = container(String.format("group-%03d", i / 100));
+                for(int j = 0; j < 10; j++)
+                    group.addChild(container("sub-" + j));
+                containers.add(group);
+            }
+            else
+                containers.add(container(String.format("cmd-%05d", i)));
+        }
+
+        long start = System.nanoTime();
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        for(CommandContainer container : containers)
+            registry.addCommand(container);
+        long addTime = System.nanoTime() - start;
+
+        Map<String, CommandContainer> scanned = new HashMap<>();
+        for(CommandContainer container : containers)
+            scanned.put(container.getParser().getProcessedCommand().getName(), container);
+
+        System.out.println("commands: " + size + ", added in " + addTime / 1000 + " us");
+        for(String line : LINES) {
+            if(registry.findAllCommandNames(line).size() != scan(scanned, line).size())
+                throw new IllegalStateException("Different names found for '" + line + "'");
+            long before = best(scanned, null, line);
+            long after = best(null, registry, line);
+            System.out.println(String.format("  %-20s results: %6d  scan: %9.1f us  trie: %9.1f us",
+                    "'" + line + "'", registry.findAllCommandNames(line).size(), before / 1000.0, after / 1000.0));
+        }
+
+        start = System.nanoTime();
+        for(CommandContainer container : containers)
+            registry.removeCommand(container.getParser().getProcessedCommand().getName());
+        System.out.println("removed in " + (System.nanoTime() - start) / 1000 + " us");
+    }
+
+    private static AeshCommandContainer container(String name) throws CommandLineParserException {
+        return new AeshCommandContainer(new ProcessedCommandBuilder().name(name).create());
+    }
+
+    private static long best(Map<String, CommandContainer> scanned, MutableCommandRegistry registry, String line) {
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < 50; i++) {
+            long start = System.nanoTime();
+            if(registry != null)
+                registry.findAllCommandNames(line);
+            else
+                scan(scanned, line);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    //how MutableCommandRegistry.findAllCommandNames found the names before the trie
+    private static List<String> scan(Map<String, CommandContainer> registry, String line) {
+        List<String> names = new ArrayList<>();
+        for(CommandContainer command : registry.values()) {
+            if(command.getParser().getProcessedCommand().getName().startsWith(line))
+                names.add(command.getParser().getProcessedCommand().getName());
+            else if(command.getParser().isGroupCommand() &&
+                    line.startsWith(command.getParser().getProcessedCommand().getName())) {
+                String groupLine = Parser.trimInFront( line.substring(command.getParser().getProcessedCommand().getName().length()));
+                int diff = line.length() - groupLine.length();
+                for(Object child : command.getParser().getAllChildParsers()) {
+                    if(((CommandLineParser) child).getProcessedCommand().getName().startsWith(groupLine))
+                        names.add(line.substring(0, diff) + ((CommandLineParser) child).getProcessedCommand().getName());
+                }
+            }
+        }
+        return names;
+    }
+}
@@ -21,17 +21,31 @@ package org.jboss.aesh.console.registry;
 
 import org.jboss.aesh.cl.CommandDefinition;
 import org.jboss.aesh.cl.GroupCommandDefinition;
+import org.jboss.aesh.cl.Option;
+import org.jboss.aesh.cl.internal.ProcessedCommandBuilder;
 import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.CommandNotFoundException;
 import org.jboss.aesh.console.command.CommandResult;
 import org.jboss.aesh.console.command.invocation.CommandInvocation;
+import org.jboss.aesh.console.command.container.AeshCommandContainer;
+import org.jboss.aesh.console.command.container.CommandContainer;
 import org.jboss.aesh.console.command.registry.MutableCommandRegistry;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
@@ -75,8 +89,185 @@ public class MutableCommandRegistryTest {
         commands = registry.findAllCommandNames("group help ");
         assertEquals(0, commands.size());
 
+        //the group commands are only completed after the full group name
+        commands = registry.findAllCommandNames("grouph");
+        assertEquals(0, commands.size());
+
+    }
+
+    @Test
+    public void testFindCommandNamesSorted() {
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        registry.addCommand(GroupCommand1.class);
+        registry.addCommand(Command3.class);
+        registry.addCommand(Command1.class);
+        registry.addCommand(Command2.class);
+
+        assertEquals(Arrays.asList("bar", "foo", "group", "help"), registry.findAllCommandNames(""));
+        assertEquals(new HashSet<>(Arrays.asList("bar", "foo", "group", "help")), registry.getAllCommandNames());
+    }
+
+    @Test
+    public void testRemoveCommand() throws CommandNotFoundException {
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        registry.addCommand(Command1.class);
+        registry.addCommand(GroupCommand1.class);
+
+        registry.removeCommand("foo");
+        assertEquals(0, registry.findAllCommandNames("f").size());
+        assertFalse(registry.getAllCommandNames().contains("foo"));
+        try {
+            registry.getCommand("foo", "foo");
+            fail("foo was removed");
+        }
+        catch (CommandNotFoundException expected) {
+        }
+
+        //removing a command that is not registered do nothing
+        registry.removeCommand("fo");
+        registry.removeCommand("groups");
+        assertEquals(1, registry.getAllCommandNames().size());
+        assertEquals("group help", registry.findAllCommandNames("group h").get(0));
+
+        registry.addCommand(Command1.class);
+        assertEquals("foo", registry.getCommand("foo", "foo").getParser().getProcessedCommand().getName());
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws Exception {
+        final MutableCommandRegistry registry = new MutableCommandRegistry();
+        final int threads = 4;
+        final int commands = 500;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for(int i = 0; i < commands; i++) {
+                            String name = "cmd-" + thread + "-" + i;
+                            registry.addCommand(new AeshCommandContainer(
+                                    new ProcessedCommandBuilder().name(name).create()));
+                            assertTrue(registry.findAllCommandNames(name).contains(name));
+                            //every other command is removed again
+                            if(i % 2 == 1) {
+                                registry.removeCommand(name);
+                                assertFalse(registry.findAllCommandNames("cmd-" + thread).contains(name));
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for(Thread worker : workers)
+            worker.join();
+
+        assertEquals(new ArrayList<Throwable>(), errors);
+        assertEquals(threads * commands / 2, registry.getAllCommandNames().size());
+        assertEquals(commands / 2, registry.findAllCommandNames("cmd-2-").size());
+        assertTrue(registry.getAllCommandNames().contains("cmd-3-498"));
+        assertFalse(registry.getAllCommandNames().contains("cmd-3-499"));
+    }
+
+
+    @Test
+    public void testCommandCreatedOnFirstUse() throws CommandNotFoundException {
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        LazyCommand.created.set(0);
+        registry.addCommand(LazyCommand.class);
+
+        assertEquals(Arrays.asList("lazy"), registry.findAllCommandNames("la"));
+        assertTrue(registry.getAllCommandNames().contains("lazy"));
+        assertEquals("created when used", registry.getCommandDescription("lazy"));
+        assertEquals(0, LazyCommand.created.get());
+
+        CommandContainer container = registry.getCommand("lazy", "lazy");
+        assertEquals(1, LazyCommand.created.get());
+        assertEquals("lazy", container.getParser().getProcessedCommand().getName());
+        assertSame(container, registry.getCommand("lazy", "lazy -v"));
+        assertEquals(1, LazyCommand.created.get());
+    }
+
+    @Test
+    public void testCommandFailingOnFirstUseIsRemoved() {
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        registry.addCommand(FailingCommand.class);
+        assertEquals(Arrays.asList("fail"), registry.findAllCommandNames("f"));
+
+        try {
+            registry.getCommand("fail", "fail");
+            fail("fail can not be created");
+        }
+        catch (CommandNotFoundException expected) {
+        }
+        assertEquals(0, registry.findAllCommandNames("f").size());
+        assertEquals(0, registry.getAllCommandNames().size());
     }
 
+    @Test
+    public void testPrewarm() throws Exception {
+        MutableCommandRegistry registry = new MutableCommandRegistry();
+        PrewarmedCommand.created.set(0);
+        registry.addCommand(PrewarmedCommand.class);
+        registry.addCommand(FailingCommand.class);
+        assertEquals(0, PrewarmedCommand.created.get());
+
+        registry.prewarm().get(10, TimeUnit.SECONDS);
+        assertEquals(1, PrewarmedCommand.created.get());
+        assertEquals(Arrays.asList("prewarmed"), new ArrayList<>(registry.getAllCommandNames()));
+
+        registry.getCommand("prewarmed", "prewarmed");
+        assertEquals(1, PrewarmedCommand.created.get());
+    }
+
+    @CommandDefinition(name = "lazy", description = "created when used")
+    public static class LazyCommand implements Command {
+        static final AtomicInteger created = new AtomicInteger();
+
+        @Option(shortName = 'v', hasValue = false)
+        private boolean verbose;
+
+        public LazyCommand() {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "prewarmed", description = "")
+    public static class PrewarmedCommand implements Command {
+        static final AtomicInteger created = new AtomicInteger();
+
+        public PrewarmedCommand() {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            return CommandResult.SUCCESS;
+        }
+    }
+
+    @CommandDefinition(name = "fail", description = "")
+    public static class FailingCommand implements Command {
+        public FailingCommand() {
+            throw new IllegalStateException("can not be created");
+        }
+
+        @Override
+        public CommandResult execute(CommandInvocation commandInvocation) throws IOException, InterruptedException {
+            return CommandResult.SUCCESS;
+        }
+    }
 
     @CommandDefinition(name = "foo", description = "")
     public class Command1 implements Command {
@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.console.registry;
+
+import org.jboss.aesh.cl.processor.CommandDefinitionProcessor;
+import org.jboss.aesh.console.command.Command;
+import org.jboss.aesh.console.command.registry.AeshCommandRegistryBuilder;
+import org.jboss.aesh.console.command.registry.CommandRegistry;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Measures how long it take before a shell with 100, 1000 and 5000 generated
+ * commands can run its first command. Eager create the parser of every
+ * command when it is registered, the way the registry did before, lazy only
+ * create the parser of the command that is used and manifest register the
+ * commands from the CommandManifest, without loading the command classes.
+ * Every start is run in a new JVM, the median of five starts is reported.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.console.registry.RegistryStartupBenchmark [sizes]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class RegistryStartupBenchmark {
+
+    private static final int STARTS = 5;
+    private static final int OPTIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && args[0].equals("--start")) {
+            start(new File(args[1]), Integer.parseInt(args[2]), args[3]);
+            return;
+        }
+        String sizes = args.length > 0 ? args[0] : "100,1000,5000";
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null)
+            throw new IllegalStateException("A JDK is needed to compile the commands");
+
+        File root = File.createTempFile("aesh-registry-benchmark", "");
+        root.delete();
+        try {
+            for(String size : sizes.split(",")) {
+                int commands = Integer.parseInt(size);
+                List<String> sources = write(new File(root, "src" + commands), commands);
+                File classes = compile(compiler, sources, new File(root, "classes" + commands), false);
+                File processed = compile(compiler, sources, new File(root, "processed" + commands), true);
+                long[] eager = new long[STARTS];
+                long[] lazy = new long[STARTS];
+                long[] manifest = new long[STARTS];
+                for(int i = 0; i < STARTS; i++) {
+                    eager[i] = fork(classes, commands, "eager");
+                    lazy[i] = fork(classes, commands, "lazy");
+                    manifest[i] = fork(processed, commands, "manifest");
+                }
+                Arrays.sort(eager);
+                Arrays.sort(lazy);
+                Arrays.sort(manifest);
+                System.out.println(String.format("commands: %5d  eager: %7d us  lazy: %7d us  manifest: %7d us",
+                        commands, eager[STARTS / 2] / 1000, lazy[STARTS / 2] / 1000, manifest[STARTS / 2] / 1000));
+            }
+        }
+        finally {
+            delete(root);
+        }
+    }
+
+    private static long fork(File classes, int commands, String mode) throws Exception {
+        Process process = new ProcessBuilder(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath(),
+                "-cp", System.getProperty("java.class.path"),
+                RegistryStartupBenchmark.class.getName(), "--start", classes.getAbsolutePath(),
+                String.valueOf(commands), mode)
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            output = reader.readLine();
+        }
+        if(process.waitFor() != 0 || output == null)
+            throw new IllegalStateException("Benchmark start failed: " + output);
+        return Long.parseLong(output);
+    }
+
+    //run in the new JVM, prints the time until the first command can be run
+    @SuppressWarnings("unchecked")
+    private static void start(File classes, int commands, String mode) throws Exception {
+        long start = System.nanoTime();
+        URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()},
+                RegistryStartupBenchmark.class.getClassLoader()) {
+            //only the manifest of the generated commands
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                return findResources(name);
+            }
+        };
+        AeshCommandRegistryBuilder builder = new AeshCommandRegistryBuilder();
+        if(mode.equals("manifest"))
+            builder.manifest(loader);
+        else {
+            for(int i = 0; i < commands; i++)
+                builder.command((Class<? extends Command>) loader.loadClass("benchmark." + name(i)));
+        }
+        CommandRegistry registry = builder.create();
+        if(registry.getAllCommandNames().size() != commands)
+            throw new IllegalStateException("Not all commands were registered");
+        if(mode.equals("eager")) {
+            for(String name : registry.getAllCommandNames())
+                registry.getCommand(name, name);
+        }
+        registry.getCommand("command-0", "command-0").createInvocationParser().parse("command-0 --option-1 value");
+        System.out.println(System.nanoTime() - start);
+    }
+
+    private static String name(int i) {
+        return String.format("Command%05d", i);
+    }
+
+    private static List<String> write(File dir, int commands) throws IOException {
+        File packageDir = new File(dir, "benchmark");
+        packageDir.mkdirs();
+        List<String> sources = new ArrayList<>(commands);
+        for(int i = 0; i < commands; i++) {
+            File source = new File(packageDir, name(i) + ".java");
+            try (PrintWriter out = new PrintWriter(source, "UTF-8")) {
+                out.println("package benchmark;");
+                out.println("@org.jboss.aesh.cl.CommandDefinition(name = \"command-" + i +
+                        "\", description = \"generated command " + i + "\")");
+                out.println("public class " + name(i) + " implements org.jboss.aesh.console.command.Command {");
+                for(int j = 0; j < OPTIONS; j++) {
+                    out.println("    @org.jboss.aesh.cl.Option(shortName = '" + (char) ('a' + j % 26) +
+                            "', name = \"option-" + j + "\", description = \"option " + j + "\")");
+                    out.println("    private String option" + j + ";");
+                }
+                out.println("    public org.jboss.aesh.console.command.CommandResult execute(");
+                out.println("            org.jboss.aesh.console.command.invocation.CommandInvocation invocation) {");
+                out.println("        return org.jboss.aesh.console.command.CommandResult.SUCCESS;");
+                out.println("    }");
+                out.println("}");
+            }
+            sources.add(source.getAbsolutePath());
+        }
+        return sources;
+    }
+
+    private static File compile(JavaCompiler compiler, List<String> sources, File output, boolean process) {
+        output.mkdirs();
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-nowarn", "-d", output.getAbsolutePath(),
+                "-classpath", System.getProperty("java.class.path")));
+        if(process)
+            arguments.addAll(Arrays.asList("-processor", CommandDefinitionProcessor.class.getName()));
+        else
+            arguments.add("-proc:none");
+        arguments.addAll(sources);
+        if(compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0)
+            throw new IllegalStateException("Could not compile the commands");
+        return output;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if(files != null)
+            for(File child : files)
+                delete(child);
+        file.delete();
+    }
+}
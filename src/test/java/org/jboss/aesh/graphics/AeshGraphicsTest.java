@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.graphics;
+
+import org.jboss.aesh.console.reader.AeshStandardStream;
+import org.jboss.aesh.terminal.Color;
+import org.jboss.aesh.terminal.CursorPosition;
+import org.jboss.aesh.terminal.Shell;
+import org.jboss.aesh.terminal.TerminalColor;
+import org.jboss.aesh.terminal.TerminalSize;
+import org.jboss.aesh.terminal.TerminalTextStyle;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class AeshGraphicsTest {
+
+    @Test
+    public void testFlushOnlyWritesChanges() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TestShell shell = new TestShell(new PrintStream(out, false, "UTF-8"));
+        Graphics g = new AeshGraphicsConfiguration(shell).getGraphics();
+
+        g.setColor(new TerminalColor(Color.RED, Color.DEFAULT));
+        g.drawString("foo", 2, 1);
+        g.flush();
+        assertEquals(1, shell.clearCount);
+        assertTrue(out.toString("UTF-8").endsWith("\u001B[1;2H\u001B[0;31mfoo"));
+
+        //the same frame again do not write anything
+        out.reset();
+        g.clear();
+        g.drawString("foo", 2, 1);
+        g.flush();
+        assertEquals("", out.toString("UTF-8"));
+
+        out.reset();
+        g.clear();
+        g.drawString("fox", 2, 1);
+        g.flush();
+        assertEquals("\u001B[1;4H\u001B[0;31mx", out.toString("UTF-8"));
+        assertEquals(1, shell.clearCount);
+
+        //erasing a cell write a space with the default colors
+        out.reset();
+        g.clear();
+        g.flush();
+        assertEquals("\u001B[1;2H\u001B[0m   ", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testCoordinatesAreCursorPositions() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Graphics g = new AeshGraphicsConfiguration(new TestShell(new PrintStream(out, false, "UTF-8"))).getGraphics();
+        g.drawString("a", 3, 2);
+        g.flush();
+        assertTrue(out.toString("UTF-8").endsWith("\u001B[2;3H\u001B[0ma"));
+
+        //0 is the first row and column, like 1
+        out.reset();
+        g.clear();
+        g.drawString("b", 0, 0);
+        g.drawString("c", 1, 1);
+        g.flush();
+        assertEquals("\u001B[1;1H\u001B[0mc\u001B[2;3H ", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testCursorMovement() {
+        CellBuffer frame = new CellBuffer(20, 3);
+        CellBuffer screen = new CellBuffer(20, 3);
+        frame.set(0, 0, 'a', 39, 49, 0);
+        frame.set(2, 0, 'b', 39, 49, 0);
+        frame.set(10, 0, 'c', 39, 49, 0);
+        frame.set(19, 1, 'd', 39, 49, 0);
+        frame.set(0, 2, 'e', 39, 49, 0);
+        StringBuilder out = new StringBuilder();
+        frame.writeChanges(screen, out);
+        //the unchanged cell is written again instead of moving over it
+        assertEquals("\u001B[1;1H\u001B[0ma b\u001B[7Cc\u001B[2;20Hd\u001B[3;1He", out.toString());
+
+        out.setLength(0);
+        frame.writeChanges(screen, out);
+        assertEquals("", out.toString());
+        assertEquals('d', screen.getChar(19, 1));
+    }
+
+    @Test
+    public void testStyleChanges() {
+        CellBuffer frame = new CellBuffer(4, 1);
+        CellBuffer screen = new CellBuffer(4, 1);
+        frame.set(0, 0, 'a', 31, 49, CellBuffer.BOLD | CellBuffer.UNDERLINE);
+        frame.set(1, 0, 'b', 31, 49, CellBuffer.FAINT);
+        frame.set(2, 0, 'c', CellBuffer.INDEXED_COLOR + 200, 42, CellBuffer.FAINT);
+        frame.set(3, 0, 'd', CellBuffer.INDEXED_COLOR + 200, 42, 0);
+        StringBuilder out = new StringBuilder();
+        frame.writeChanges(screen, out);
+        assertEquals("\u001B[1;1H\u001B[0;1;4;31ma\u001B[22;24;2mb\u001B[38;5;200;42mc\u001B[22md", out.toString());
+    }
+
+    @Test
+    public void testTextStyle() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Graphics g = new AeshGraphicsConfiguration(new TestShell(new PrintStream(out, false, "UTF-8"))).getGraphics();
+        TerminalTextStyle style = new TerminalTextStyle();
+        style.setItalic(true);
+        g.setTextStyle(style);
+        g.drawString("x", 0, 0);
+        g.flush();
+        assertTrue(out.toString("UTF-8").endsWith("\u001B[1;1H\u001B[0;3mx"));
+    }
+
+    private static class TestShell implements Shell {
+
+        private final PrintStream out;
+        private int clearCount;
+
+        TestShell(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void clear() throws IOException {
+            clearCount++;
+        }
+
+        @Override
+        public PrintStream out() {
+            return out;
+        }
+
+        @Override
+        public PrintStream err() {
+            return out;
+        }
+
+        @Override
+        public AeshStandardStream in() {
+            return null;
+        }
+
+        @Override
+        public TerminalSize getSize() {
+            return new TerminalSize(5, 20);
+        }
+
+        @Override
+        public CursorPosition getCursor() {
+            return new CursorPosition(0, 0);
+        }
+
+        @Override
+        public void setCursor(CursorPosition position) {
+        }
+
+        @Override
+        public void moveCursor(int rows, int columns) {
+        }
+
+        @Override
+        public boolean isMainBuffer() {
+            return false;
+        }
+
+        @Override
+        public void enableAlternateBuffer() {
+        }
+
+        @Override
+        public void enableMainBuffer() {
+        }
+    }
+}
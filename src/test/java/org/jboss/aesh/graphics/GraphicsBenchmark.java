@@ -0,0 +1,181 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.graphics;
+
+import org.jboss.aesh.console.reader.AeshStandardStream;
+import org.jboss.aesh.terminal.Color;
+import org.jboss.aesh.terminal.CursorPosition;
+import org.jboss.aesh.terminal.Shell;
+import org.jboss.aesh.terminal.TerminalColor;
+import org.jboss.aesh.terminal.TerminalSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Redraws a dashboard, a few panels with changing values and a bar chart,
+ * and reports the frames per second and the bytes and flushes written to
+ * the terminal for each frame.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.graphics.GraphicsBenchmark [frames]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class GraphicsBenchmark {
+
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 40;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        CountingStream counter = new CountingStream();
+        Shell shell = new BenchmarkShell(new PrintStream(counter, false));
+        Graphics g = new AeshGraphicsConfiguration(shell).getGraphics();
+
+        for(int i = 0; i < frames / 4; i++)
+            drawFrame(g, i);
+
+        counter.reset();
+        long start = System.nanoTime();
+        for(int i = 0; i < frames; i++)
+            drawFrame(g, i);
+        long time = System.nanoTime() - start;
+
+        System.out.println("frames:           " + frames);
+        System.out.println("frames/s:         " + (long) (frames / (time / 1e9)));
+        System.out.println("bytes/frame:      " + counter.bytes / frames);
+        System.out.println("flushes/frame:    " + counter.flushes / frames);
+    }
+
+    private static void drawFrame(Graphics g, int frame) {
+        g.clear();
+        g.setColor(new TerminalColor(Color.WHITE, Color.DEFAULT));
+        g.drawRect(0, 0, WIDTH, HEIGHT - 2);
+
+        Color[] colors = { Color.RED, Color.GREEN, Color.YELLOW, Color.CYAN };
+        for(int p = 0; p < colors.length; p++) {
+            g.setColor(new TerminalColor(colors[p], Color.DEFAULT));
+            g.drawRect(2 + p * 29, 2, 27, 10);
+            g.drawString("requests: " + (frame * (p + 1)) % 10000, 4 + p * 29, 4);
+            g.drawString("errors:   " + (frame / (p + 2)) % 100, 4 + p * 29, 6);
+        }
+
+        g.setColor(new TerminalColor(Color.DEFAULT, Color.GREEN));
+        for(int b = 0; b < 18; b++) {
+            int height = 2 + (frame + b * 3) % 12;
+            g.fillRect(4 + b * 5, 30 - height, 3, height);
+        }
+
+        g.setColor(new TerminalColor(Color.BLUE, Color.DEFAULT));
+        g.drawCircle(105, 22, 6);
+        g.drawLine(2, 34, 110, 35);
+        g.flush();
+    }
+
+    private static class CountingStream extends OutputStream {
+        private long bytes;
+        private long flushes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        void reset() {
+            bytes = 0;
+            flushes = 0;
+        }
+    }
+
+    private static class BenchmarkShell implements Shell {
+
+        private final PrintStream out;
+
+        BenchmarkShell(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void clear() throws IOException {
+            out.print("\u001B[H\u001B[2J");
+            out.flush();
+        }
+
+        @Override
+        public PrintStream out() {
+            return out;
+        }
+
+        @Override
+        public PrintStream err() {
+            return out;
+        }
+
+        @Override
+        public AeshStandardStream in() {
+            return null;
+        }
+
+        @Override
+        public TerminalSize getSize() {
+            return new TerminalSize(HEIGHT, WIDTH);
+        }
+
+        @Override
+        public CursorPosition getCursor() {
+            return new CursorPosition(0, 0);
+        }
+
+        //the same as the terminals
+        @Override
+        public void setCursor(CursorPosition position) {
+            if(getSize().isPositionWithinSize(position)) {
+                out.print(position.asAnsi());
+                out.flush();
+            }
+        }
+
+        @Override
+        public void moveCursor(int rows, int columns) {
+        }
+
+        @Override
+        public boolean isMainBuffer() {
+            return false;
+        }
+
+        @Override
+        public void enableAlternateBuffer() {
+        }
+
+        @Override
+        public void enableMainBuffer() {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.history;
+
+import java.util.Random;
+
+/**
+ * Loads an unbounded history with 100k and 1M entries, every tenth entry is
+ * a duplicate of an earlier one, and reports the time to push all of them.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.history.HistoryBenchmark [entries...]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class HistoryBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = new int[] {100000, 1000000};
+        if(args.length > 0) {
+            sizes = new int[args.length];
+            for(int i = 0; i < args.length; i++)
+                sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        //warm up
+        load(generate(10000));
+
+        for(int size : sizes) {
+            String[] lines = generate(size);
+            long start = System.nanoTime();
+            History history = load(lines);
+            long time = System.nanoTime() - start;
+            System.out.println("entries: " + size + ", history size: " + history.size() +
+                    ", load: " + time / 1000000 + " ms");
+        }
+    }
+
+    private static History load(String[] lines) {
+        History history = new InMemoryHistory(-1);
+        for(String line : lines)
+            history.push(line);
+        return history;
+    }
+
+    private static String[] generate(int size) {
+        Random random = new Random(size);
+        String[] lines = new String[size];
+        for(int i = 0; i < size; i++) {
+            if(i > 0 && i % 10 == 0)
+                lines[i] = lines[random.nextInt(i)];
+            else
+                lines[i] = "ls -la /tmp/dir" + i;
+        }
+        return lines;
+    }
+}
@@ -26,6 +26,16 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.aesh.TestBuffer;
 import org.jboss.aesh.console.BaseConsoleTest;
@@ -116,6 +126,211 @@ public class HistoryTest extends BaseConsoleTest {
         assertEquals("2", history.getPreviousFetch());
     }
 
+    @Test
+    public void testDupesAndEviction() {
+        Random random = new Random(7);
+        for(int maxSize : new int[] {1, 10, 100}) {
+            History history = new InMemoryHistory(maxSize);
+            List<String> expected = new ArrayList<>();
+            for(int i = 0; i < 5000; i++) {
+                String entry = String.valueOf(random.nextInt(maxSize * 2));
+                //the same rules as the old list based implementation
+                if(expected.contains(entry))
+                    expected.remove(entry);
+                else if(expected.size() >= maxSize)
+                    expected.remove(0);
+                expected.add(entry);
+                history.push(entry);
+
+                if(random.nextInt(10) == 0) {
+                    assertEquals(expected, history.getAll());
+                    assertEquals(entry, history.find(entry));
+                }
+            }
+            assertEquals(expected.size(), history.size());
+            assertEquals(expected, history.getAll());
+        }
+    }
+
+    @Test
+    public void testSearchAfterDupes() {
+        History history = new InMemoryHistory(10);
+        history.push("foo 1");
+        history.push("bar");
+        history.push("foo 2");
+        history.push("foo 1");
+        history.setSearchDirection(SearchDirection.REVERSE);
+        assertEquals("foo 1", history.search("foo"));
+        assertEquals("bar", history.search("bar"));
+        assertEquals(null, history.find("foo"));
+    }
+
+    @Test
+    public void testIndexedSearchMatchesScan() {
+        Random random = new Random(11);
+        for(int maxSize : new int[] {5, 50, -1}) {
+            History history = new InMemoryHistory(maxSize);
+            List<String> expected = new ArrayList<>();
+            int lastSearchedId = 0;
+            for(int i = 0; i < 20000; i++) {
+                if(random.nextInt(3) > 0) {
+                    //push trims the entries
+                    String entry = randomText(random, 1 + random.nextInt(8)).trim();
+                    if(entry.length() == 0)
+                        continue;
+                    if(expected.contains(entry))
+                        expected.remove(entry);
+                    else if(maxSize > 0 && expected.size() >= maxSize)
+                        expected.remove(0);
+                    expected.add(entry);
+                    history.push(entry);
+                    lastSearchedId = 0;
+                }
+                else {
+                    String term = randomText(random, 1 + random.nextInt(4));
+                    SearchDirection direction = random.nextBoolean() ?
+                            SearchDirection.REVERSE : SearchDirection.FORWARD;
+                    history.setSearchDirection(direction);
+
+                    //the linear scan the index replaced
+                    String result = null;
+                    if(direction == SearchDirection.REVERSE) {
+                        if(lastSearchedId <= 0 || lastSearchedId >= expected.size())
+                            lastSearchedId = expected.size() - 1;
+                        for(; lastSearchedId >= 0; lastSearchedId--)
+                            if(expected.get(lastSearchedId).contains(term)) {
+                                result = expected.get(lastSearchedId);
+                                break;
+                            }
+                    }
+                    else {
+                        if(lastSearchedId >= expected.size() || lastSearchedId < 0)
+                            lastSearchedId = 0;
+                        for(; lastSearchedId < expected.size(); lastSearchedId++)
+                            if(expected.get(lastSearchedId).contains(term)) {
+                                result = expected.get(lastSearchedId);
+                                break;
+                            }
+                    }
+                    assertEquals(result, history.search(term));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRankedAndFuzzySearch() {
+        InMemoryHistory history = new InMemoryHistory(10);
+        history.push("git checkout master");
+        history.push("ls /tmp/checkout");
+        history.push("mvn install");
+        history.push("echo recheckout");
+        history.push("git commit");
+
+        //a match at the start of a word beats a match inside a word, unless it is much older
+        assertEquals(Arrays.asList("ls /tmp/checkout", "echo recheckout", "git checkout master"),
+                history.searchRanked("checkout", 10));
+        assertEquals(Arrays.asList("ls /tmp/checkout"), history.searchRanked("checkout", 1));
+        assertTrue(history.searchRanked("nothing", 10).isEmpty());
+
+        //the newest entry wins when the matches are equally good
+        history.push("git checkout master");
+        assertEquals("git checkout master", history.searchRanked("git", 1).get(0));
+        assertEquals(Arrays.asList("git checkout master", "git commit"),
+                history.searchRanked("git", 10));
+
+        assertEquals(Arrays.asList("git checkout master", "git commit"), history.searchFuzzy("GCO", 10));
+        assertEquals("mvn install", history.searchFuzzy("mvins", 10).get(0));
+        assertTrue(history.searchFuzzy("xyz", 10).isEmpty());
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++)
+            builder.append("abc d".charAt(random.nextInt(5)));
+        return builder.toString();
+    }
+
+    @Test
+    public void testFileHistoryAppendsOnPush() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        new File(historyFile.getPath() + ".lock").deleteOnExit();
+
+        History first = new FileHistory(historyFile, 10, false);
+        first.push("1");
+        //written without calling stop
+        assertEquals(Arrays.asList("1"), Files.readAllLines(historyFile.toPath(), Charset.defaultCharset()));
+
+        History second = new FileHistory(historyFile, 10, false);
+        assertEquals(Arrays.asList("1"), second.getAll());
+        second.push("2");
+        first.push("3");
+        first.stop();
+        second.stop();
+
+        History history = new FileHistory(historyFile, 10, false);
+        assertEquals(Arrays.asList("1", "2", "3"), history.getAll());
+    }
+
+    @Test
+    public void testFileHistoryCompaction() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        new File(historyFile.getPath() + ".lock").deleteOnExit();
+
+        History history = new FileHistory(historyFile, 10, false);
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < 250; i++) {
+            history.push(String.valueOf(i));
+            if(i >= 240)
+                expected.add(String.valueOf(i));
+        }
+        history.stop();
+
+        assertTrue(Files.readAllLines(historyFile.toPath(), Charset.defaultCharset()).size() < 200);
+        assertEquals(expected, new FileHistory(historyFile, 10, false).getAll());
+    }
+
+    @Test
+    public void testFileHistoryDefersPushWhileLocked() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        File lockFile = new File(historyFile.getPath() + ".lock");
+        lockFile.deleteOnExit();
+
+        History history = new FileHistory(historyFile, 10, false);
+        history.push("1");
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            long start = System.nanoTime();
+            history.push("2");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            assertEquals(Arrays.asList("1"), Files.readAllLines(historyFile.toPath(), Charset.defaultCharset()));
+            lock.release();
+        }
+        history.push("3");
+        assertEquals(Arrays.asList("1", "2", "3"),
+                Files.readAllLines(historyFile.toPath(), Charset.defaultCharset()));
+        history.stop();
+    }
+
+    @Test
+    public void testFileHistoryReadWithoutLockFile() throws IOException {
+        File historyFile = File.createTempFile("aesh-history", ".test");
+        historyFile.deleteOnExit();
+        Files.write(historyFile.toPath(), Arrays.asList("1", "2"), Charset.defaultCharset());
+        //the lock file can not be created, like in a directory we can not write to
+        File lockFile = new File(historyFile.getPath() + ".lock");
+        assertTrue(lockFile.mkdir());
+        lockFile.deleteOnExit();
+
+        History history = new FileHistory(historyFile, 10, false);
+        assertEquals(2, history.size());
+        assertEquals("2", history.get(1));
+        history.stop();
+    }
+
     @Test
     public void testFileHistoryPermission() throws IOException{
         File historyFile = new File(System.getProperty("java.io.tmpdir"), "aesh-history-file.test.1");
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.history;
+
+import java.util.Random;
+
+/**
+ * Types search terms one char at a time into a reverse search over a history
+ * with 1M entries, the same way a ctrl-r search does it, and reports the
+ * average and worst time for each keystroke.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.history.SearchBenchmark [entries]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class SearchBenchmark {
+
+    private static final String[] COMMANDS = {"git checkout", "git commit -m", "ls -la", "cd",
+            "mvn clean install -pl", "grep -rn", "docker run --rm", "ssh", "vim", "tail -f"};
+
+    private static final String[] TERMS = {"git checkout feature-1234", "docker run --rm image-77",
+            "tail -f /var/log/app-4242.log", "mvn clean", "zzz not there", "ls", "vim src/Main"};
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        History history = new InMemoryHistory(-1);
+        Random random = new Random(size);
+        for(int i = 0; i < size; i++)
+            history.push(COMMANDS[random.nextInt(COMMANDS.length)] + " " + argument(random, i));
+        history.setSearchDirection(SearchDirection.REVERSE);
+
+        //warm up, this also builds the index
+        for(int i = 0; i < 5; i++)
+            for(String term : TERMS)
+                type(history, term, null);
+
+        long[] stats = new long[3];
+        for(int i = 0; i < 10; i++)
+            for(String term : TERMS)
+                type(history, term, stats);
+
+        System.out.println("entries:    " + size);
+        System.out.println("keystrokes: " + stats[0]);
+        System.out.println("average:    " + stats[1] / stats[0] / 1000 + " us");
+        System.out.println("worst:      " + stats[2] / 1000 + " us");
+    }
+
+    private static String argument(Random random, int i) {
+        switch(random.nextInt(4)) {
+            case 0:
+                return "feature-" + random.nextInt(10000);
+            case 1:
+                return "/var/log/app-" + random.nextInt(10000) + ".log";
+            case 2:
+                return "image-" + random.nextInt(1000) + " --name c" + i;
+            default:
+                return "src/" + Integer.toHexString(random.nextInt()) + ".java";
+        }
+    }
+
+    //like AeshInputProcessor.doSearch, a char that give no result is removed again
+    private static void type(History history, String term, long[] stats) {
+        history.push("echo start search");
+        StringBuilder search = new StringBuilder();
+        for(int i = 0; i < term.length(); i++) {
+            search.append(term.charAt(i));
+            long start = System.nanoTime();
+            String result = history.search(search.toString());
+            long time = System.nanoTime() - start;
+            if(result == null)
+                search.deleteCharAt(search.length() - 1);
+            if(stats != null) {
+                stats[0]++;
+                stats[1] += time;
+                stats[2] = Math.max(stats[2], time);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class PipeTest {
+
+    @Test
+    public void testReadAfterClose() throws IOException {
+        Pipe pipe = new Pipe(8);
+        pipe.getOutputStream().write("foo bar".getBytes());
+        pipe.getOutputStream().close();
+
+        byte[] read = new byte[16];
+        assertEquals(7, pipe.getInputStream().available());
+        assertEquals(7, pipe.getInputStream().read(read));
+        assertEquals("foo bar", new String(read, 0, 7));
+        assertEquals(-1, pipe.getInputStream().read(read));
+        assertEquals(-1, pipe.getInputStream().read());
+    }
+
+    @Test
+    public void testWriterBlocksWhenFull() throws Exception {
+        final Pipe pipe = new Pipe(16);
+        final byte[] data = new byte[100000];
+        for(int i = 0; i < data.length; i++)
+            data[i] = (byte) i;
+        final AtomicInteger maxAvailable = new AtomicInteger();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (OutputStream out = pipe.getOutputStream()) {
+                    out.write(data);
+                }
+                catch (IOException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        writer.start();
+
+        InputStream in = pipe.getInputStream();
+        byte[] read = new byte[data.length];
+        int length = 0;
+        int count;
+        while((count = in.read(read, length, Math.min(7, read.length - length))) > 0) {
+            maxAvailable.set(Math.max(maxAvailable.get(), in.available()));
+            length += count;
+        }
+        writer.join();
+
+        assertEquals(data.length, length);
+        assertArrayEquals(data, read);
+        assertTrue(maxAvailable.get() <= 16);
+    }
+
+    @Test
+    public void testClosedReaderBreaksPipe() throws Exception {
+        final Pipe pipe = new Pipe(4);
+        final AtomicReference<IOException> error = new AtomicReference<>();
+        final AtomicReference<Boolean> interrupted = new AtomicReference<>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OutputStream out = pipe.getOutputStream();
+                    while(true)
+                        out.write(new byte[] {1, 2, 3});
+                }
+                catch (IOException e) {
+                    error.set(e);
+                    interrupted.set(Thread.currentThread().isInterrupted());
+                }
+            }
+        });
+        writer.start();
+
+        assertEquals(1, pipe.getInputStream().read());
+        pipe.getInputStream().close();
+        writer.join(5000);
+
+        assertEquals("Broken pipe", error.get().getMessage());
+        assertTrue(interrupted.get());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+/**
+ * Decodes 1 MB pastes into keys the same way Console.parseInput does.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.terminal.KeyDecoderBenchmark [rounds]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class KeyDecoderBenchmark {
+
+    private static final int PASTE_SIZE = 1024 * 1024;
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        String text = "for f in *.log; do grep -n \"ERROR\" $f | sort -u > /tmp/errors.txt; done\n";
+        int[] paste = new int[PASTE_SIZE];
+        for(int i = 0; i < paste.length; i++)
+            paste[i] = text.charAt(i % text.length());
+
+        //warm up
+        for(int i = 0; i < 5; i++)
+            decode(paste);
+
+        long best = Long.MAX_VALUE;
+        int keys = 0;
+        for(int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            keys = decode(paste);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.println("decoded keys: " + keys);
+        System.out.println("best time:    " + best / 1000000 + " ms");
+        System.out.println("throughput:   " + (PASTE_SIZE * 1000L) / Math.max(1, best / 1000) + " keys/ms");
+    }
+
+    private static int decode(int[] input) {
+        int position = 0;
+        int keys = 0;
+        while(position < input.length) {
+            Key key = Key.findStartKey(input, position);
+            position += key.getKeyValues().length;
+            keys++;
+        }
+        return keys;
+    }
+}
@@ -26,6 +26,8 @@ import org.jboss.aesh.edit.KeyOperationManager;
 import org.jboss.aesh.edit.actions.Operation;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -148,6 +150,57 @@ public class KeyTest {
         }
     }
 
+    @Test
+    public void testFindStartKeyMatchesLinearScan() {
+        for(Key key : Key.values())
+            assertEquals(linearFindStartKey(key.getKeyValues(), 0),
+                    Key.findStartKey(key.getKeyValues(), 0));
+
+        Random random = new Random(42);
+        int[] input = new int[4096];
+        for(int i = 0; i < input.length; i++) {
+            //mostly escape sequences and control chars to hit the deep paths
+            if(random.nextInt(4) == 0)
+                input[i] = Key.ESC.getFirstValue();
+            else
+                input[i] = random.nextInt(130);
+        }
+        for(int i = 0; i < input.length; i++)
+            assertEquals(linearFindStartKey(input, i), Key.findStartKey(input, i));
+    }
+
+    @Test
+    public void testGetKey() {
+        assertEquals(Key.a, Key.getKey(new int[]{97}));
+        assertEquals(Key.ESC, Key.getKey(new int[]{27}));
+        assertEquals(Key.UNKNOWN, Key.getKey(new int[]{97, 98}));
+        for(Key key : Key.values())
+            assertEquals(key.getKeyValues().length, Key.getKey(key.getKeyValues()).getKeyValues().length);
+    }
+
+    private Key linearFindStartKey(int[] input, int position) {
+        for(Key key : Key.values()) {
+            if(key != Key.ESC && key != Key.WINDOWS_ESC &&
+                    key.inputStartsWithKey(input, position)) {
+                if(Config.isOSPOSIXCompatible() && key == Key.CTRL_J)
+                    return Key.ENTER;
+                else if(!Config.isOSPOSIXCompatible() && key == Key.CTRL_M) {
+                    if(input.length > position + 1 && input[position+1] == Key.CTRL_J.getFirstValue())
+                        return Key.ENTER_2;
+                    else
+                        return Key.ENTER;
+                }
+                else
+                    return key;
+            }
+        }
+        if(Key.ESC.inputStartsWithKey(input, position))
+            return Key.ESC;
+        else if(Key.WINDOWS_ESC.inputStartsWithKey(input, position))
+            return Key.WINDOWS_ESC;
+        return Key.UNKNOWN;
+    }
+
     @Test
     public void testIsPrintable() {
         assertTrue(Key.a.isPrintable());
@@ -0,0 +1,201 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class TerminfoTest {
+
+    @Test
+    public void testParse() throws IOException {
+        Map<String, String> strings = new LinkedHashMap<>();
+        strings.put("khome", "\u001BOH");
+        strings.put("kcub1", "\u001BOD");
+        strings.put("smcup", "\u001B[?1049h");
+
+        //names of odd and even length, with and without padding before the numbers
+        for(String names : new String[] { "test|test terminal", "test|test terminals" }) {
+            for(boolean wideNumbers : new boolean[] { false, true }) {
+                Terminfo terminfo = TerminfoParser.parse(compile(names, strings, wideNumbers));
+                assertArrayEquals(new int[] { 27, 'O', 'H' }, terminfo.getString("khome"));
+                assertArrayEquals(new int[] { 27, 'O', 'D' }, terminfo.getString("kcub1"));
+                assertArrayEquals(new int[] { 27, '[', '?', '1', '0', '4', '9', 'h' }, terminfo.getString("smcup"));
+                //cancelled
+                assertNull(terminfo.getString("cbt"));
+                assertFalse(terminfo.hasString("kend"));
+                assertNull(terminfo.getString("not-a-capability"));
+            }
+        }
+    }
+
+    @Test
+    public void testParseInvalid() {
+        try {
+            TerminfoParser.parse(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+            fail("expected an IOException");
+        }
+        catch (IOException expected) {
+        }
+        try {
+            byte[] entry = compile("test", Collections.singletonMap("khome", "\u001BOH"), false);
+            TerminfoParser.parse(Arrays.copyOf(entry, entry.length - 4));
+            fail("expected an IOException");
+        }
+        catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        File directory = Files.createTempDirectory("terminfo").toFile();
+        try {
+            File linux = new File(directory, "l/linux-test");
+            File mac = new File(directory, "78/xterm-test");
+            linux.getParentFile().mkdirs();
+            mac.getParentFile().mkdirs();
+            Files.write(linux.toPath(), new byte[0]);
+            Files.write(mac.toPath(), new byte[0]);
+
+            assertEquals(linux, TerminfoParser.find("linux-test", Collections.singletonList(directory)));
+            assertEquals(mac, TerminfoParser.find("xterm-test", Collections.singletonList(directory)));
+            assertNull(TerminfoParser.find("vt-test", Collections.singletonList(directory)));
+            assertNull(TerminfoParser.find("../l/linux-test", Collections.singletonList(directory)));
+            assertNull(TerminfoParser.find(null, Collections.singletonList(directory)));
+        }
+        finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        File directory = Files.createTempDirectory("terminfo").toFile();
+        try {
+            File source = new File(directory, "x/xterm-test");
+            source.getParentFile().mkdirs();
+            Files.write(source.toPath(), compile("xterm-test", Collections.singletonMap("khome", "\u001BOH"), false));
+            TerminfoCache cache = new TerminfoCache(new File(directory, "cache"));
+
+            assertNull(cache.read("xterm-test", source));
+            Terminfo parsed = TerminfoParser.parse(source);
+            cache.write("xterm-test", source, parsed);
+            //writing again replace the entry, no temporary file is left behind
+            cache.write("xterm-test", source, parsed);
+            assertArrayEquals(new String[] { "xterm-test" }, new File(directory, "cache").list());
+            Terminfo cached = cache.read("xterm-test", source);
+            assertNotNull(cached);
+            for(int i = 0; i < Terminfo.STRING_NAMES.length; i++)
+                assertArrayEquals(parsed.getString(i), cached.getString(i));
+
+            //the entry changed, so the cached values are not used
+            Files.write(source.toPath(), compile("xterm-test", Collections.singletonMap("khome", "\u001B[1~"), false));
+            assertTrue(source.setLastModified(source.lastModified() + 2000));
+            assertNull(cache.read("xterm-test", source));
+        }
+        finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testSystemEntry() throws IOException {
+        File file = TerminfoParser.find("xterm", TerminfoParser.defaultDirectories());
+        Assume.assumeTrue(file != null);
+
+        Terminfo terminfo = TerminfoParser.parse(file);
+        assertTrue(terminfo.hasString("kcub1"));
+        assertEquals(27, terminfo.getString("smcup")[0]);
+    }
+
+    /**
+     * Create an entry in the same format as tic, without booleans and numbers
+     */
+    private static byte[] compile(String names, Map<String, String> strings, boolean wideNumbers) {
+        int stringCount = 0;
+        for(String name : strings.keySet())
+            stringCount = Math.max(stringCount, Terminfo.indexOf(name) + 1);
+        //cancel the first capability
+        stringCount = Math.max(stringCount, 1);
+
+        int[] offsets = new int[stringCount];
+        Arrays.fill(offsets, -1);
+        offsets[0] = -2;
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        for(Map.Entry<String, String> entry : strings.entrySet()) {
+            offsets[Terminfo.indexOf(entry.getKey())] = table.size();
+            for(char c : entry.getValue().toCharArray())
+                table.write(c);
+            table.write(0);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, wideNumbers ? 01036 : 0432);
+        writeShort(out, names.length() + 1);
+        writeShort(out, 1);
+        writeShort(out, 1);
+        writeShort(out, stringCount);
+        writeShort(out, table.size());
+        for(char c : names.toCharArray())
+            out.write(c);
+        out.write(0);
+        out.write(1);
+        //the numbers start on an even byte
+        if(out.size() % 2 != 0)
+            out.write(0);
+        for(int i = 0; i < (wideNumbers ? 4 : 2); i++)
+            out.write(0xff);
+        for(int offset : offsets)
+            writeShort(out, offset);
+        out.write(table.toByteArray(), 0, table.size());
+        return out.toByteArray();
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if(children != null)
+            for(File child : children)
+                delete(child);
+        file.delete();
+    }
+}
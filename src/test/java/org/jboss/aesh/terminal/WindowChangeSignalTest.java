@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.terminal;
+
+import org.jboss.aesh.console.Config;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class WindowChangeSignalTest {
+
+    @Test
+    public void testHandlerRunOnSignal() throws Exception {
+        Assume.assumeTrue(Config.isOSPOSIXCompatible());
+
+        final CountDownLatch received = new CountDownLatch(1);
+        Runnable handler = new Runnable() {
+            @Override
+            public void run() {
+                received.countDown();
+            }
+        };
+        Assume.assumeTrue(WindowChangeSignal.addHandler(handler));
+        try {
+            String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+            Runtime.getRuntime().exec(new String[] { "kill", "-WINCH", pid }).waitFor();
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+        }
+        finally {
+            WindowChangeSignal.removeHandler(handler);
+        }
+    }
+
+    @Test
+    public void testPreviousHandlerIsChainedAndRestored() throws Exception {
+        Assume.assumeTrue(Config.isOSPOSIXCompatible());
+
+        final AtomicInteger previousCount = new AtomicInteger();
+        final AtomicInteger count = new AtomicInteger();
+        //a handler installed by someone else before the terminal
+        Object old = WindowChangeSignal.setHandler(WindowChangeSignal.newHandler(new Runnable() {
+            @Override
+            public void run() {
+                previousCount.incrementAndGet();
+            }
+        }));
+        Runnable handler = new Runnable() {
+            @Override
+            public void run() {
+                count.incrementAndGet();
+            }
+        };
+        try {
+            assertTrue(WindowChangeSignal.addHandler(handler));
+            raiseSignal();
+            waitFor(count, 1);
+            waitFor(previousCount, 1);
+
+            WindowChangeSignal.removeHandler(handler);
+            raiseSignal();
+            waitFor(previousCount, 2);
+            assertEquals(1, count.get());
+        }
+        finally {
+            WindowChangeSignal.removeHandler(handler);
+            WindowChangeSignal.setHandler(old);
+        }
+    }
+
+    private static void raiseSignal() throws Exception {
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        Runtime.getRuntime().exec(new String[] { "kill", "-WINCH", pid }).waitFor();
+    }
+
+    private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while(counter.get() < value && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertEquals(value, counter.get());
+    }
+}
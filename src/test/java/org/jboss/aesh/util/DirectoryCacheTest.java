@@ -0,0 +1,176 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.util;
+
+import org.jboss.aesh.complete.CompleteOperation;
+import org.jboss.aesh.console.AeshContext;
+import org.jboss.aesh.io.FileResource;
+import org.jboss.aesh.io.Resource;
+import org.jboss.aesh.io.filter.DirectoryResourceFilter;
+import org.jboss.aesh.io.filter.NoDotNamesFilter;
+import org.jboss.aesh.terminal.TerminalString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class DirectoryCacheTest {
+
+    private File directory;
+    private final AeshContext aeshContext = new AeshContext() {
+        @Override
+        public Resource getCurrentWorkingDirectory() {
+            return new FileResource(directory);
+        }
+        @Override
+        public void setCurrentWorkingDirectory(Resource cwd) {
+        }
+    };
+
+    @Before
+    public void before() throws IOException {
+        directory = File.createTempFile("temp", ".DirectoryCacheTest");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void after() {
+        FileListerTest.delete(new FileResource(directory), true);
+    }
+
+    @Test
+    public void testPrefixLookup() throws IOException {
+        create("foo", "foobar", "bar", ".foo");
+        new File(directory, "fooDir").mkdir();
+        long modified = age(directory);
+
+        DirectoryCache cache = new DirectoryCache();
+        DirectoryCache.Listing listing = cache.get(directory);
+        assertEquals(5, listing.size());
+        assertEquals(Arrays.asList("foo", "fooDir", "foobar"), names(listing, "foo"));
+        assertEquals(Arrays.asList("fooDir"), names(listing, "fooD"));
+        assertEquals(5, names(listing, "").size());
+        assertEquals(0, names(listing, "zoo").size());
+        assertEquals(0, names(listing, "foobarz").size());
+
+        int index = listing.first("fooDir");
+        assertTrue(listing.isDirectory(index));
+        assertFalse(listing.isLeaf(index));
+        assertTrue(listing.isLeaf(listing.first("bar")));
+
+        //same modification time, the listing is not read again
+        create("fooNew");
+        directory.setLastModified(modified);
+        assertSame(listing, cache.get(directory));
+
+        directory.setLastModified(modified - 10000);
+        DirectoryCache.Listing updated = cache.get(directory);
+        assertNotSame(listing, updated);
+        assertEquals(Arrays.asList("foo", "fooDir", "fooNew", "foobar"), names(updated, "foo"));
+    }
+
+    @Test
+    public void testRecentlyModifiedIsNotCached() throws IOException {
+        create("foo");
+        DirectoryCache cache = new DirectoryCache();
+        DirectoryCache.Listing listing = cache.get(directory);
+        assertEquals(1, listing.size());
+        assertEquals(0, cache.size());
+
+        create("foo2");
+        assertEquals(2, cache.get(directory).size());
+    }
+
+    @Test
+    public void testBounded() throws IOException {
+        File first = new File(directory, "first");
+        File second = new File(directory, "second");
+        first.mkdir();
+        second.mkdir();
+        new File(first, "a").createNewFile();
+        new File(first, "b").createNewFile();
+        new File(second, "c").createNewFile();
+        new File(second, "d").createNewFile();
+        age(first);
+        age(second);
+
+        DirectoryCache cache = new DirectoryCache(3);
+        DirectoryCache.Listing listing = cache.get(first);
+        assertSame(listing, cache.get(first));
+        cache.get(second);
+        assertEquals(1, cache.size());
+        assertNotSame(listing, cache.get(first));
+
+        assertNull(cache.get(new File(directory, "missing")));
+    }
+
+    @Test
+    public void testFileListerFilters() throws IOException {
+        create("foo", ".foo2");
+        new File(directory, "fooDir").mkdir();
+        age(directory);
+        Resource cwd = new FileResource(directory);
+
+        assertEquals(Arrays.asList("foo", ".foo2", "fooDir/"), complete(new FileLister("", cwd)));
+        assertEquals(Arrays.asList("foo", "fooDir/"), complete(new FileLister("", cwd, new NoDotNamesFilter())));
+        assertEquals(Arrays.asList("fooDir/"), complete(new FileLister("fo", cwd, new DirectoryResourceFilter())));
+    }
+
+    private static List<String> names(DirectoryCache.Listing listing, String prefix) {
+        List<String> names = new ArrayList<>();
+        for(int i = listing.first(prefix); i < listing.last(prefix); i++)
+            names.add(listing.getName(i));
+        return names;
+    }
+
+    private void create(String... names) throws IOException {
+        for(String name : names)
+            new File(directory, name).createNewFile();
+    }
+
+    private static long age(File file) {
+        long modified = (System.currentTimeMillis() / 1000 - 60) * 1000;
+        file.setLastModified(modified);
+        return modified;
+    }
+
+    private List<String> complete(FileLister lister) {
+        CompleteOperation completion = new CompleteOperation(aeshContext, "ls ", 3);
+        lister.findMatchingDirectories(completion);
+        List<String> candidates = new ArrayList<>();
+        for(TerminalString candidate : completion.getCompletionCandidates())
+            candidates.add(candidate.getCharacters());
+        return candidates;
+    }
+}
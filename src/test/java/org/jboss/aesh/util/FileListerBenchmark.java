@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2014 Red Hat Inc. and/or its affiliates and other contributors
+ * as indicated by the @authors tag. All rights reserved.
+ * See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aesh.util;
+
+import org.jboss.aesh.complete.CompleteOperation;
+import org.jboss.aesh.console.AeshContext;
+import org.jboss.aesh.io.FileResource;
+import org.jboss.aesh.io.Resource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Completes file names in synthetic directories with 10k, 100k and 1M files,
+ * once through the directory cache and once listing the directory on every
+ * Tab the way it was done before the cache.
+ * The files are created in the given directory, or in the temp directory,
+ * and are kept so the next run do not need to create them again.
+ * Not run as part of the test suite, start it with:
+ * java -cp target/classes:target/test-classes org.jboss.aesh.util.FileListerBenchmark [directory] [sizes]
+ *
+ * @author <a href="mailto:stale.pedersen@jboss.org">Ståle W. Pedersen</a>
+ */
+public class FileListerBenchmark {
+
+    private static final String[] TOKENS = {"", "file-", "file-1", "file-12", "file-123", "dir-4", "missing"};
+
+    public static void main(String[] args) throws IOException {
+        File root = new File(args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir"),
+                "aesh-filelister-benchmark");
+        String sizes = args.length > 1 ? args[1] : "10000,100000,1000000";
+
+        for(String size : sizes.split(",")) {
+            File directory = create(root, Integer.parseInt(size));
+            //the cache do not trust a directory modified the last seconds
+            directory.setLastModified(System.currentTimeMillis() - 60000);
+
+            Resource cached = new FileResource(directory);
+            //FileLister only use the cache for FileResource itself
+            Resource uncached = new FileResource(directory) {};
+
+            System.out.println("files: " + size);
+            for(String token : TOKENS) {
+                long before = complete(uncached, token);
+                long after = complete(cached, token);
+                System.out.println(String.format("  %-10s uncached: %8d us  cached: %8d us",
+                        "'" + token + "'", before / 1000, after / 1000));
+            }
+        }
+    }
+
+    //best of a few Tab presses, after the first one filled the cache
+    private static long complete(final Resource cwd, String token) {
+        AeshContext context = new AeshContext() {
+            @Override
+            public Resource getCurrentWorkingDirectory() {
+                return cwd;
+            }
+            @Override
+            public void setCurrentWorkingDirectory(Resource cwd) {
+            }
+        };
+        new FileLister(token, cwd).findMatchingDirectories(new CompleteOperation(context, "ls " + token, 3));
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            CompleteOperation completion = new CompleteOperation(context, "ls " + token, 3);
+            new FileLister(token, cwd).findMatchingDirectories(completion);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static File create(File root, int size) throws IOException {
+        File directory = new File(root, String.valueOf(size));
+        String[] existing = directory.list();
+        if(existing != null && existing.length == size)
+            return directory;
+        directory.mkdirs();
+        for(int i = 0; i < size; i++) {
+            if(i % 10 == 0)
+                new File(directory, "dir-" + i).mkdir();
+            else
+                new File(directory, "file-" + i).createNewFile();
+        }
+        return directory;
+    }
+}